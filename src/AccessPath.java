@@ -0,0 +1,30 @@
+/**
+ * This is AccessPath enum. It names the ways a QueryPlanner can find the first candidates of a PropertyQuery, before
+ * the rest of the query filters them.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public enum AccessPath
+{
+    ID_LOOKUP("look up the property id"),
+    STREET_INDEX("read the street bucket"),
+    AMENITY_BITMAP("AND the amenity bitmaps"),
+    PRICE_RANGE("scan the price index range"),
+    FULL_SCAN("scan every property");
+
+    private final String description;
+
+    AccessPath(final String description)
+    {
+        this.description = description;
+    }
+
+    /**
+     * @return what this access path does, as a String.
+     */
+    public String getDescription()
+    {
+        return description;
+    }
+}
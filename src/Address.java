@@ -1,6 +1,12 @@
+import java.util.Objects;
+
 /**
  * This is Address class.
  *
+ * An address made by an AddressPool shares its Strings with the other addresses of the pool, and sameAs() tells two
+ * addresses of the same pool apart without comparing their fields. It holds the token of the pool rather than the
+ * pool, so the pool's dictionaries and addresses are freed once the load is done.
+ *
  * @author Amir Armion
  * @version V.01
  */
@@ -12,6 +18,9 @@ public class Address
     private final String postalCode;
     private final String city;
 
+    // The token of the pool this address was made by, or null.
+    private final Object poolToken;
+
     public static final int MIN_UNIT_NUM_LENGTH            = 1;
     public static final int MAX_UNIT_NUM_LENGTH            = 4;
     public static final int MIN_STREET_NUM                 = 0;
@@ -48,76 +57,49 @@ public class Address
     public Address(final String unitNumber, final int streetNumber, final String streetName, final String postalCode,
                    final String city) throws IllegalArgumentException, NullPointerException
     {
-        if(unitNumber != null)
-        {
-            if(unitNumber.equals(""))
-            {
-                throw new IllegalArgumentException("Invalid unit number!");
-            }
-
-            if((unitNumber.length() < MIN_UNIT_NUM_LENGTH) || (unitNumber.length() > MAX_UNIT_NUM_LENGTH))
-            {
-                throw new IllegalArgumentException("Invalid unit number: " + unitNumber);
-            }
-        }
-
-        if((streetNumber < MIN_STREET_NUM) || (streetNumber > MAX_STREET_NUM))
-        {
-            throw new IllegalArgumentException("Invalid street number: " + streetNumber);
-        }
-
-        if(streetName == null)
-        {
-            throw new NullPointerException("Invalid street name: null");
-        }
-        else
-        {
-            if(streetName.equals(""))
-            {
-                throw new IllegalArgumentException("Invalid street name!");
-            }
-
-            if((streetName.length() < MIN_STREET_NAME_LENGTH) || (streetName.length() > MAX_STREET_NAME_LENGTH))
-            {
-                throw new IllegalArgumentException("Invalid street name: " + streetName);
-            }
-        }
-
-        if(postalCode == null)
-        {
-            throw new NullPointerException("Invalid postal code: null");
-        }
-        else
-        {
-            if(postalCode.length() != FIRST_GOOD_POSTAL_CODE_LENGTH &&
-                    postalCode.length() != SECOND_GOOD_POSTAL_CODE_LENGTH)
-            {
-                throw new IllegalArgumentException("Invalid postal code: " + postalCode);
-            }
-        }
+        this(unitNumber, streetNumber, streetName, postalCode, city, true);
+    }
 
-        if(city == null)
+    /**
+     * This is the address constructor for data that has already been validated, for example when an
+     * AgencySnapshot is read.
+     *
+     * The other parameters are the same as the public constructor's.
+     *
+     * @param validate is true to check the parameters as the public constructor does, or false to skip the checks.
+     */
+    Address(final String unitNumber, final int streetNumber, final String streetName, final String postalCode,
+            final String city, final boolean validate)
+    {
+        if(validate)
         {
-            throw new NullPointerException("Invalid city: null");
+            checkFields(unitNumber, streetNumber, streetName, postalCode, city);
         }
-        else
-        {
-            if(city.equals(""))
-            {
-                throw new IllegalArgumentException("Invalid city: ");
-            }
 
-            if((city.length() < MIN_CITY_LENGTH) || (city.length() > MAX_CITY_LENGTH))
-            {
-                throw new IllegalArgumentException("Invalid city: " + city);
-            }
-        }
+        this.unitNumber   = unitNumber;
+        this.streetNumber = streetNumber;
+        this.streetName   = streetName;
+        this.postalCode   = postalCode;
+        this.city         = city;
+        this.poolToken    = null;
+    }
 
+    /**
+     * This is the address constructor of an AddressPool. The fields have already been validated and canonicalized.
+     *
+     * The other parameters are the same as the public constructor's.
+     *
+     * @param poolToken is the token of the pool that makes this address, which tells its addresses apart.
+     */
+    Address(final String unitNumber, final int streetNumber, final String streetName, final String postalCode,
+            final String city, final Object poolToken)
+    {
         this.unitNumber   = unitNumber;
         this.streetNumber = streetNumber;
         this.streetName   = streetName;
         this.postalCode   = postalCode;
         this.city         = city;
+        this.poolToken    = poolToken;
     }
 
     /**
@@ -160,6 +142,27 @@ public class Address
         return this.city;
     }
 
+    /**
+     * @param other is the other address.
+     * @return true, if both addresses have the same fields; otherwise, returns false. Two addresses of the same
+     *         AddressPool are the same object exactly when they have the same fields, so they are not compared at all.
+     */
+    public boolean sameAs(final Address other)
+    {
+        if(this == other)
+        {
+            return true;
+        }
+
+        if((other == null) || ((poolToken != null) && (poolToken == other.poolToken)))
+        {
+            return false;
+        }
+
+        return Objects.equals(unitNumber, other.unitNumber) && (streetNumber == other.streetNumber) &&
+               streetName.equals(other.streetName) && postalCode.equals(other.postalCode) && city.equals(other.city);
+    }
+
     /**
      * @return the state of Address objects
      */
@@ -174,4 +177,77 @@ public class Address
                 ", city='"        + city         + '\'' +
                 ']';
     }
+
+    /*
+     * Checks the parameters of the constructor. AddressPool checks them the same way.
+     */
+    static void checkFields(final String unitNumber, final int streetNumber, final String streetName,
+                            final String postalCode, final String city)
+                            throws IllegalArgumentException, NullPointerException
+    {
+        if(unitNumber != null)
+        {
+            if(unitNumber.equals(""))
+            {
+                throw new IllegalArgumentException("Invalid unit number!");
+            }
+
+            if((unitNumber.length() < MIN_UNIT_NUM_LENGTH) || (unitNumber.length() > MAX_UNIT_NUM_LENGTH))
+            {
+                throw new IllegalArgumentException("Invalid unit number: " + unitNumber);
+            }
+        }
+
+        if((streetNumber < MIN_STREET_NUM) || (streetNumber > MAX_STREET_NUM))
+        {
+            throw new IllegalArgumentException("Invalid street number: " + streetNumber);
+        }
+
+        if(streetName == null)
+        {
+            throw new NullPointerException("Invalid street name: null");
+        }
+        else
+        {
+            if(streetName.equals(""))
+            {
+                throw new IllegalArgumentException("Invalid street name!");
+            }
+
+            if((streetName.length() < MIN_STREET_NAME_LENGTH) || (streetName.length() > MAX_STREET_NAME_LENGTH))
+            {
+                throw new IllegalArgumentException("Invalid street name: " + streetName);
+            }
+        }
+
+        if(postalCode == null)
+        {
+            throw new NullPointerException("Invalid postal code: null");
+        }
+        else
+        {
+            if(postalCode.length() != FIRST_GOOD_POSTAL_CODE_LENGTH &&
+                    postalCode.length() != SECOND_GOOD_POSTAL_CODE_LENGTH)
+            {
+                throw new IllegalArgumentException("Invalid postal code: " + postalCode);
+            }
+        }
+
+        if(city == null)
+        {
+            throw new NullPointerException("Invalid city: null");
+        }
+        else
+        {
+            if(city.equals(""))
+            {
+                throw new IllegalArgumentException("Invalid city: ");
+            }
+
+            if((city.length() < MIN_CITY_LENGTH) || (city.length() > MAX_CITY_LENGTH))
+            {
+                throw new IllegalArgumentException("Invalid city: " + city);
+            }
+        }
+    }
 }
@@ -0,0 +1,232 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is AddressPool class. It canonicalizes the addresses read at load time: every distinct unit number, street
+ * name, postal code and city is kept as one String, and street names, postal codes and cities get a small integer
+ * code. Identical addresses are the same Address object, so thousands of listings on "elm street" in "vancouver"
+ * hold one String for each instead of one per listing.
+ *
+ * Two addresses from the same pool are the same object exactly when they have the same fields, so Address.sameAs()
+ * does not compare their fields.
+ *
+ * A pool is safe to share between threads, as ParallelLoader does between the chunks it parses. It holds every
+ * address it has made, so it should live as long as the load it belongs to, and no longer. Its addresses do not hold
+ * it, only its token, an empty object that tells them apart from the addresses of other pools; so once the load drops
+ * the pool, its dictionaries and address map are freed, and the addresses keep only their own Strings.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class AddressPool
+{
+    private final Dictionary unitNumbers;
+    private final Dictionary streetNames;
+    private final Dictionary postalCodes;
+    private final Dictionary cities;
+
+    private final ConcurrentHashMap<Key, Address> addresses;
+    private final Object                          token;
+
+    /**
+     * This is the AddressPool constructor. It creates an empty pool.
+     */
+    public AddressPool()
+    {
+        unitNumbers = new Dictionary();
+        streetNames = new Dictionary();
+        postalCodes = new Dictionary();
+        cities      = new Dictionary();
+        addresses   = new ConcurrentHashMap<>();
+        token       = new Object();
+    }
+
+    /**
+     * This method returns the address of this pool with these fields, and makes it if there is none yet. The
+     * parameters are the same as the Address constructor's, and are checked the same way.
+     *
+     * @param unitNumber is the unit number, or null.
+     * @param streetNumber is the street number.
+     * @param streetName is the street name.
+     * @param postalCode is the postal code.
+     * @param city is the city name.
+     * @return the shared Address.
+     * @throws IllegalArgumentException if one of the fields is invalid, as in the Address constructor.
+     * @throws NullPointerException if street name, postal code or city is null.
+     */
+    public Address intern(final String unitNumber, final int streetNumber, final String streetName,
+                          final String postalCode, final String city) throws IllegalArgumentException,
+                                                                             NullPointerException
+    {
+        return intern(unitNumber, streetNumber, streetName, postalCode, city, true);
+    }
+
+    /**
+     * This is the intern method for data that has already been validated, for example when an AgencySnapshot is read.
+     *
+     * The other parameters are the same as the public intern method's.
+     *
+     * @param validate is true to check the fields as the public intern method does, or false to skip the checks.
+     */
+    Address intern(final String unitNumber, final int streetNumber, final String streetName, final String postalCode,
+                   final String city, final boolean validate)
+    {
+        if(validate)
+        {
+            // Checked first, so no invalid value gets into the dictionaries.
+            Address.checkFields(unitNumber, streetNumber, streetName, postalCode, city);
+        }
+
+        Entry unit   = (unitNumber == null) ? null : unitNumbers.intern(unitNumber);
+        Entry street = streetNames.intern(streetName);
+        Entry postal = postalCodes.intern(postalCode);
+        Entry town   = cities.intern(city);
+
+        Key key;
+        key = new Key((unit == null) ? null : unit.value, streetNumber, street.code, postal.code, town.code);
+
+        return addresses.computeIfAbsent(key, k -> new Address(k.unitNumber, streetNumber, street.value, postal.value,
+                                                               town.value, token));
+    }
+
+    /**
+     * @return the number of distinct addresses in this pool.
+     */
+    public int size()
+    {
+        return addresses.size();
+    }
+
+    /**
+     * @return the number of distinct street names in this pool.
+     */
+    public int getStreetNameCount()
+    {
+        return streetNames.size();
+    }
+
+    /**
+     * @return the number of distinct postal codes in this pool.
+     */
+    public int getPostalCodeCount()
+    {
+        return postalCodes.size();
+    }
+
+    /**
+     * @return the number of distinct cities in this pool.
+     */
+    public int getCityCount()
+    {
+        return cities.size();
+    }
+
+    /**
+     * @return the sizes of this pool as a String.
+     */
+    @Override
+    public String toString()
+    {
+        return "AddressPool ["   +
+                "addresses="     + addresses.size()   +
+                ", streetNames=" + streetNames.size() +
+                ", postalCodes=" + postalCodes.size() +
+                ", cities="      + cities.size()      +
+                ']';
+    }
+
+    /*
+     * A String and its code.
+     */
+    private static final class Entry
+    {
+        private final String value;
+        private final int    code;
+
+        private Entry(final String value, final int code)
+        {
+            this.value = value;
+            this.code  = code;
+        }
+    }
+
+    /*
+     * The canonical String and code of every distinct value of one field. Codes are given in the order the values are
+     * first seen, from 0 up.
+     */
+    private static final class Dictionary
+    {
+        private final ConcurrentHashMap<String, Entry> entries;
+        private final AtomicInteger                    nextCode;
+
+        private Dictionary()
+        {
+            entries  = new ConcurrentHashMap<>();
+            nextCode = new AtomicInteger();
+        }
+
+        private Entry intern(final String value)
+        {
+            Entry entry;
+            entry = entries.get(value);
+
+            return (entry != null) ? entry : entries.computeIfAbsent(value,
+                                                                     v -> new Entry(v, nextCode.getAndIncrement()));
+        }
+
+        private int size()
+        {
+            return entries.size();
+        }
+    }
+
+    /*
+     * The fields that make an address distinct, with the canonical unit number and the codes of the other Strings.
+     */
+    private static final class Key
+    {
+        private final String unitNumber;
+        private final int    streetNumber;
+        private final int    streetNameCode;
+        private final int    postalCodeCode;
+        private final int    cityCode;
+
+        private Key(final String unitNumber, final int streetNumber, final int streetNameCode,
+                    final int postalCodeCode, final int cityCode)
+        {
+            this.unitNumber     = unitNumber;
+            this.streetNumber   = streetNumber;
+            this.streetNameCode = streetNameCode;
+            this.postalCodeCode = postalCodeCode;
+            this.cityCode       = cityCode;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            if(!(other instanceof Key))
+            {
+                return false;
+            }
+
+            Key key = (Key) other;
+
+            return (streetNumber == key.streetNumber) && (streetNameCode == key.streetNameCode) &&
+                   (postalCodeCode == key.postalCodeCode) && (cityCode == key.cityCode) &&
+                   (unitNumber == key.unitNumber); // canonical, so the same value is the same String
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = System.identityHashCode(unitNumber);
+
+            hash = 31 * hash + streetNumber;
+            hash = 31 * hash + streetNameCode;
+            hash = 31 * hash + postalCodeCode;
+            hash = 31 * hash + cityCode;
+
+            return hash;
+        }
+    }
+}
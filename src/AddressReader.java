@@ -1,8 +1,8 @@
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 /**
  * This is AddressReader class.
@@ -20,6 +20,8 @@ public class AddressReader
 
     /**
      * This method reads the text file, and adds Address objects to an ArrayList<Address> and then returns it.
+     * The file is read through a PipeDelimitedReader, so no line is split into a String[], and the addresses are
+     * shared through one AddressPool. The file is read as one chunk, and recorded as one ReadChunkEvent.
      *
      * @param file is the text file that has address data.
      * @return address objects as an ArrayList.
@@ -30,37 +32,68 @@ public class AddressReader
         ArrayList<Address> addressData;
         addressData = new ArrayList<>();
 
-        String   eachLine;
-        String[] data;
+        AddressPool pool;
+        pool = new AddressPool();
 
+        ReadChunkEvent event;
+        event = new ReadChunkEvent();
+
+        event.begin();
+
+        try(PipeDelimitedReader reader = new PipeDelimitedReader(file))
+        {
+            while(reader.nextLine())
+            {
+                addressData.add(readAddress(reader, pool));
+            }
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        event.commit(file, ReadChunkEvent.ADDRESS, Agency.NONE, file.length(), addressData.size());
+
+        return addressData;
+    }
+
+    /**
+     * @param reader is the reader, positioned on a line of address data.
+     * @return the Address of the current line of the reader.
+     */
+    public static Address readAddress(final PipeDelimitedReader reader)
+    {
+        return readAddress(reader, null);
+    }
+
+    /**
+     * @param reader is the reader, positioned on a line of address data.
+     * @param pool is the pool the address is shared through, or null to make a new Address.
+     * @return the Address of the current line of the reader.
+     */
+    public static Address readAddress(final PipeDelimitedReader reader, final AddressPool pool)
+    {
         String   unitNumber;
         int      streetNumber;
         String   streetName;
         String   postalCode;
         String   city;
 
-        FileReader addressFile = new FileReader(file);
-        Scanner    scanner     = new Scanner(addressFile);
+        unitNumber    = reader.field(INDEX_UNIT_NUM);
+        streetNumber  = reader.intField(INDEX_STREET_NUM);
+        streetName    = reader.field(INDEX_STREET_NAME);
+        postalCode    = reader.field(INDEX_POSTAL_CODE);
+        city          = reader.field(INDEX_CITY);
 
-        while(scanner.hasNext())
+        if(pool != null)
         {
-            eachLine = scanner.nextLine();
-
-            data     = eachLine.split("\\|");
-
-            unitNumber    = data[INDEX_UNIT_NUM];
-            streetNumber  = Integer.parseInt(data[INDEX_STREET_NUM]);
-            streetName    = data[INDEX_STREET_NAME];
-            postalCode    = data[INDEX_POSTAL_CODE];
-            city          = data[INDEX_CITY];
-
-            Address adr = new Address(unitNumber, streetNumber, streetName, postalCode, city);
-
-            addressData.add(adr);
+            return pool.intern(unitNumber, streetNumber, streetName, postalCode, city);
         }
 
-        scanner.close();
-
-        return addressData;
+        return new Address(unitNumber, streetNumber, streetName, postalCode, city);
     }
 }
@@ -1,24 +1,74 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is Agency class.
  *
+ * The results of its queries are kept in a QueryCache, and answered from it until the agency changes. Each public
+ * query method looks up the cache and, on a miss, runs the protected find method of the same name, which is what a
+ * subclass overrides. A result from the cache is a new collection or array, but its elements are shared with the
+ * other callers that got the same result.
+ *
+ * The queries of Residence, Commercial and Retail properties return read-only views of them (see Property.view())
+ * rather than copies: a view sees price changes, but can't be changed, so it's safe to share without a copy.
+ *
+ * The stream methods build nothing up front: they return a lazy Stream that reads the properties as it's consumed,
+ * and can be made parallel. The agency must not change while such a stream is used, except a ConcurrentAgency.
+ *
+ * The latency of getProperty(), find() and each query method, hit or miss, is recorded in the AgencyMetrics of the
+ * agency, by the name of the method; for getProperty(), only a sample of the calls is timed. Like the queries,
+ * getProperty() runs a protected find method that subclasses override, so the lookups an agency makes for itself are
+ * not recorded. Each of these queries is also a JDK Flight Recorder QueryEvent, with its parameters, and the rows it
+ * scanned and returned.
+ *
  * @author Amir Armion
  * @version V.01
  */
-public class Agency
+public class Agency implements PriceChangeListener
 {
     private final String name;
 
-    private final HashMap<String, Property> properties;
+    private final PriceIndex                priceIndex;
+    private final StreetIndex               streetIndex;
+
+    // The row of each property, by its case folded, packed id (see PropertyIdCodec.packFolded()). The few ids that
+    // can't be packed are kept by their case folded String in unpackedRowsById.
+    private final ArrayList<Property>       rows;
+    private final LongIntHashMap            rowsById;
+    private final HashMap<String, Integer>  unpackedRowsById;
+    private final Bitmap                    freeRows;
+    private final EnumMap<Amenity, Bitmap>  amenityRows;
+    private final EnumMap<Amenity, Bitmap>  eligibleRows;
+
+    // The partitions: the rows of the properties of each type.
+    private final EnumMap<PropertyType, Bitmap> typeRows;
+
+    private final PortfolioAggregates aggregates;
+    private final AtomicLong          generation;
+    private volatile QueryCache       queryCache;
+    private volatile AgencyMetrics    metrics;
+
+    private final CopyOnWriteArrayList<AgencyListener> listeners;
 
     public static final int MIN_NAME_LENGTH  = 1;
     public static final int MAX_NAME_LENGTH  = 30;
     public static final int NONE             = 0;
 
+    // Stands for a null result in the query cache.
+    private static final Object NO_RESULT = new Object();
+
     /**
      * @param name is the agency's name. Its length must be between MIN_NAME_LENGTH and MAX_NAME_LENGTH characters.
      * @throws IllegalArgumentException if name's length is less than MIN_NAME_LENGTH and greater than
@@ -31,90 +81,611 @@ public class Agency
             throw new IllegalArgumentException("Invalid name!");
         }
 
-        this.name  = name;
-        properties = new HashMap<>();
+        this.name   = name;
+        priceIndex  = new PriceIndex();
+        streetIndex = new StreetIndex();
+
+        rows             = new ArrayList<>();
+        rowsById         = new LongIntHashMap();
+        unpackedRowsById = new HashMap<>();
+        freeRows         = new Bitmap();
+        amenityRows      = new EnumMap<>(Amenity.class);
+        eligibleRows     = new EnumMap<>(Amenity.class);
+        typeRows         = new EnumMap<>(PropertyType.class);
+
+        for(Amenity amenity: Amenity.values())
+        {
+            amenityRows.put(amenity, new Bitmap());
+            eligibleRows.put(amenity, new Bitmap());
+        }
+
+        for(PropertyType type: PropertyType.values())
+        {
+            typeRows.put(type, new Bitmap());
+        }
+
+        aggregates = new PortfolioAggregates();
+        generation = new AtomicLong();
+        queryCache = new QueryCache();
+        metrics    = new AgencyMetrics();
+        listeners  = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * @return the agency's name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * This method adds the non-null property, and replaces the property whose ID matches(case insensitive) with its
+     * ID if there is one. A read-only view, for example a query result of another agency, is added as a mutable copy,
+     * since its price can't be listened to.
+     *
+     * @param newProperty is the property.
+     */
+    public void addProperty(final Property newProperty)
+    {
+        if(newProperty != null)
+        {
+            Property property;
+            property = ownable(newProperty);
+
+            Property replaced;
+            replaced = findProperty(property.getPropertyId());
+
+            if(replaced != null)
+            {
+                unindex(replaced);
+            }
+
+            index(property);
+
+            mutated();
+
+            firePropertyAdded(property);
+        }
     }
 
     /**
-     * This method adds the non-null property to the HashMap properties.
+     * This method adds the non-null properties one by one with addProperty(), after growing the rows once for all
+     * of them, for example after they have been loaded by ParallelLoader.
      *
-     * @param property is the property.
+     * @param newProperties are the properties.
      */
-    public void addProperty(final Property property)
+    public void addProperties(final Collection<? extends Property> newProperties)
     {
-        if(property != null)
+        rows.ensureCapacity(rows.size() + newProperties.size());
+
+        for(Property property: newProperties)
         {
-            properties.put(property.getPropertyId(), property);
+            addProperty(property);
         }
     }
 
     /**
      * @param propertyId is the property id.
-     * @return the property from the HashMap properties whose ID matches with the parameter(property id).
+     * @return the property whose ID matches(case insensitive) with the parameter(property id), or null if there is
+     *         none.
      */
     public Property getProperty(final String propertyId)
     {
-        if(propertyId != null &&
-           properties.get(propertyId) != null &&
-           properties.get(propertyId).getPropertyId().equals(propertyId))
+        AgencyMetrics recorder;
+        recorder = metrics;
+
+        // A lookup takes well under a microsecond, so only a sample of them is timed (see AgencyMetrics.sample()),
+        // and an event is made only while a recording has it enabled.
+        boolean sampled  = (recorder != null) && AgencyMetrics.sample();
+        boolean recorded = QueryEvent.isRecorded();
+
+        if(!sampled && !recorded)
         {
-            return properties.get(propertyId);
+            return findProperty(propertyId);
         }
-        else
+
+        QueryEvent event;
+        event = recorded ? new QueryEvent() : null;
+
+        if(event != null)
         {
-            return null;
+            event.begin();
+        }
+
+        long start = System.nanoTime();
+
+        Property property;
+        property = findProperty(propertyId);
+
+        if(sampled)
+        {
+            recorder.recordSampled("getProperty", start);
         }
+
+        if(event == null)
+        {
+            return property;
+        }
+
+        event.end();
+
+        if(event.shouldCommit())
+        {
+            long found = (property == null) ? NONE : 1;
+
+            describe(event, "getProperty", propertyId, found, found);
+        }
+
+        return property;
     }
 
     /**
-     * This method removes the property from the HashMap properties whose ID matches(case insensitive) with the parameter(property id).
+     * This method removes the property whose ID matches(case insensitive) with the parameter(property id).
      *
      * @param propertyId is the property id.
      */
     public void removeProperty(final String propertyId)
     {
-        if(properties.get(propertyId).getPropertyId().equalsIgnoreCase(propertyId))
+        Property property;
+        property = findProperty(propertyId);
+
+        if(property != null)
+        {
+            unindex(property);
+
+            mutated();
+
+            firePropertyRemoved(property);
+        }
+    }
+
+    /**
+     * This method sets the price in USD of the property whose ID matches(case insensitive) with the
+     * parameter(property id).
+     *
+     * @param propertyId is the property id.
+     * @param priceUsd is the price in USD for this property.
+     * @return true, if the property was found; otherwise, returns false.
+     * @throws IllegalArgumentException if price in USD of this property is less than NONE.
+     */
+    public boolean setPriceUsd(final String propertyId, final double priceUsd)
+    {
+        Property property;
+        property = findProperty(propertyId);
+
+        if(property == null)
+        {
+            return false;
+        }
+
+        property.setPriceUsd(priceUsd);
+
+        return true;
+    }
+
+    /**
+     * This method keeps the price index up to date when the price of a property in this agency changes.
+     *
+     * @param property is the property whose price has been changed.
+     * @param oldPriceUsd is the price in USD before the change.
+     * @param newPriceUsd is the price in USD after the change.
+     */
+    @Override
+    public void priceChanged(final Property property, final double oldPriceUsd, final double newPriceUsd)
+    {
+        if(findProperty(property.getPropertyId()) == property)
+        {
+            priceIndex.move(property, oldPriceUsd, newPriceUsd);
+            aggregates.priceChanged(PortfolioAggregates.kindOf(property), oldPriceUsd, newPriceUsd);
+
+            mutated();
+
+            firePropertyPriceChanged(property, oldPriceUsd, newPriceUsd);
+        }
+    }
+
+    /**
+     * This method registers the listener to be notified of every change to the properties of this agency.
+     *
+     * @param listener is the listener. It's ignored if it's null or already registered.
+     */
+    public void addAgencyListener(final AgencyListener listener)
+    {
+        if(listener != null)
+        {
+            listeners.addIfAbsent(listener);
+        }
+    }
+
+    /**
+     * This method unregisters the listener.
+     *
+     * @param listener is the listener.
+     */
+    public void removeAgencyListener(final AgencyListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return true, if at least one AgencyListener is registered; otherwise, returns false.
+     */
+    protected boolean hasAgencyListeners()
+    {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * This method notifies every AgencyListener that the property has been added.
+     *
+     * @param property is the property that has been added.
+     */
+    protected void firePropertyAdded(final Property property)
+    {
+        for(AgencyListener listener: listeners)
+        {
+            listener.propertyAdded(property);
+        }
+    }
+
+    /**
+     * This method notifies every AgencyListener that the property has been removed.
+     *
+     * @param property is the property that has been removed.
+     */
+    protected void firePropertyRemoved(final Property property)
+    {
+        for(AgencyListener listener: listeners)
         {
-            properties.remove(propertyId);
+            listener.propertyRemoved(property);
         }
     }
 
     /**
-     * @return the total amount in USD of all Properties.
+     * This method notifies every AgencyListener that the price of the property has been changed.
+     *
+     * @param property is the property whose price has been changed.
+     * @param oldPriceUsd is the price in USD before the change.
+     * @param newPriceUsd is the price in USD after the change.
+     */
+    protected void firePropertyPriceChanged(final Property property, final double oldPriceUsd, final double newPriceUsd)
+    {
+        for(AgencyListener listener: listeners)
+        {
+            listener.propertyPriceChanged(property, oldPriceUsd, newPriceUsd);
+        }
+    }
+
+    /**
+     * @return an ArrayList<Property> of all properties of this agency, in row order.
+     */
+    public ArrayList<Property> getAllProperties()
+    {
+        ArrayList<Property> allProperties;
+        allProperties = new ArrayList<>(rowsById.size() + unpackedRowsById.size());
+
+        for(Property property: rows)
+        {
+            if(property != null)
+            {
+                allProperties.add(property);
+            }
+        }
+
+        return allProperties;
+    }
+
+    /**
+     * @return the total amount in USD of all Properties, read from the running aggregates without a scan.
+     */
+    public double getTotalPropertyValues()
+    {
+        return aggregates.getTotalUsd();
+    }
+
+    /**
+     * @return the running count, total, minimum, maximum and mean price of the properties of this agency, overall and
+     *         for each subtype. They are up to date after every change, and reading them takes no lock.
+     */
+    public PortfolioAggregates getAggregates()
+    {
+        return aggregates;
+    }
+
+    /**
+     * @return an ArrayList<Residence> type properties since only that type will now have swimming pools.
+     */
+    public ArrayList<Residence> getPropertiesWithPool()
+    {
+        return cached(this::findPropertiesWithPool, ArrayList::new, "getPropertiesWithPool");
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return an array of properties whose price falls in the range specified by the parameters, or null if there are none.
+     */
+    public Property[] getPropertiesBetween(final int minUsd, final int maxUsd)
+    {
+        return cached(() -> findPropertiesBetween(minUsd, maxUsd), Property[]::clone,
+                      "getPropertiesBetween", minUsd, maxUsd);
+    }
+
+    /**
+     * @param streetName is the street name.
+     * @return an ArrayList of addresses which are on the specified street, or null if there are none.
+     */
+    public ArrayList<Address> getPropertiesOn(final String streetName)
+    {
+        if(streetName == null)
+        {
+            return findPropertiesOn(null);
+        }
+
+        return cached(() -> findPropertiesOn(streetName), ArrayList::new,
+                      "getPropertiesOn", StreetIndex.keyOf(streetName));
+    }
+
+    /**
+     * @param minBedrooms is the minimum bedroom number.
+     * @param maxBedrooms is the maximum bedroom number.
+     * @return a HashMap of properties (key is property id, value is the Residence) whose number of bedrooms falls in the
+     *         range specified by the parameters, or null if there are none.
+     */
+    public HashMap<String, Residence> getPropertiesWithBedrooms(final int minBedrooms, final int maxBedrooms)
+    {
+        return cached(() -> findPropertiesWithBedrooms(minBedrooms, maxBedrooms), HashMap::new,
+                      "getPropertiesWithBedrooms", minBedrooms, maxBedrooms);
+    }
+
+    /**
+     * @param propertyType is the type of property.
+     * @return return an ArrayList<Property> that hold the subtype specified in the parameter(case insensitive).
+     */
+    public ArrayList<Property> getPropertiesOfType(final String propertyType)
+    {
+        return cached(() -> findPropertiesOfType(propertyType), ArrayList::new, "getPropertiesOfType", propertyType);
+    }
+
+    /**
+     * @return an ArrayList<Commercial> that holds only Commercial properties that have a loading dock available.
+     */
+    public ArrayList<Commercial> getPropertiesWithLoadingDock()
+    {
+        return cached(this::findPropertiesWithLoadingDock, ArrayList::new, "getPropertiesWithLoadingDock");
+    }
+
+    /**
+     * @return an ArrayList<Commercial> that holds only Commercial properties that have highway access.
+     */
+    public ArrayList<Commercial> getPropertiesWithHighwayAccess()
+    {
+        return cached(this::findPropertiesWithHighwayAccess, ArrayList::new, "getPropertiesWithHighwayAccess");
+    }
+
+    /**
+     * @param squareFootage is the amount of floor space available.
+     * @return an ArrayList<Retail> that holds properties where square footage is at least the parameter value.
+     */
+    public ArrayList<Retail> getPropertiesWithSquareFootage(final int squareFootage)
+    {
+        return cached(() -> findPropertiesWithSquareFootage(squareFootage), ArrayList::new,
+                      "getPropertiesWithSquareFootage", squareFootage);
+    }
+
+    /**
+     * @return an ArrayList<Retail> that holds properties where customer parking is available.
+     */
+    public ArrayList<Retail> getPropertiesWithCustomerParking()
+    {
+        return cached(this::findPropertiesWithCustomerParking, ArrayList::new, "getPropertiesWithCustomerParking");
+    }
+
+    /**
+     * @return ArrayList<Residence> that hold only the Residences that are in a strata.
+     */
+    public ArrayList<Residence> getPropertiesWithStrata()
+    {
+        return cached(this::findPropertiesWithStrata, ArrayList::new, "getPropertiesWithStrata");
+    }
+
+    /**
+     * @param amenities are the amenities, for example Amenity.LOADING_DOCK and Amenity.HIGHWAY_ACCESS.
+     * @return an ArrayList<Property> that holds the properties that have all of the amenities. It's empty if there
+     *         are none, or if no amenity is given.
+     */
+    public ArrayList<Property> getPropertiesWithAll(final Amenity... amenities)
+    {
+        EnumSet<Amenity> key;
+        key = EnumSet.noneOf(Amenity.class);
+
+        key.addAll(Arrays.asList(amenities));
+
+        return cached(() -> findPropertiesWithAll(amenities), ArrayList::new, "getPropertiesWithAll", key);
+    }
+
+    /**
+     * @param query is the query.
+     * @return an ArrayList<Property> of the properties that match the query. It's empty if there are none.
+     * @throws NullPointerException if query is null.
+     */
+    public ArrayList<Property> find(final PropertyQuery query) throws NullPointerException
+    {
+        QueryEvent event;
+        event = new QueryEvent();
+
+        event.begin();
+
+        AgencyMetrics recorder;
+        recorder = metrics;
+
+        long start = (recorder == null) ? NONE : System.nanoTime();
+
+        QueryPlanner planner;
+        planner = new QueryPlanner(this);
+
+        ArrayList<Property> matches;
+        matches = planner.execute(planner.plan(query));
+
+        if(recorder != null)
+        {
+            recorder.recordSince("find", start);
+        }
+
+        event.end();
+
+        if(event.shouldCommit())
+        {
+            describe(event, "find", query.toString(), planner.getRowsScanned(), matches.size());
+        }
+
+        return matches;
+    }
+
+    /**
+     * @param query is the query.
+     * @return the plan find() would run for the query: the access path it starts from, and the estimated number of
+     *         candidates of each access path it could have used.
+     * @throws NullPointerException if query is null.
+     */
+    public QueryPlan explain(final PropertyQuery query) throws NullPointerException
+    {
+        QueryPlanner planner;
+        planner = new QueryPlanner(this);
+
+        return planner.plan(query);
+    }
+
+    /**
+     * @return a lazy Stream of all properties of this agency, in row order.
+     */
+    public Stream<Property> stream()
+    {
+        return StreamSupport.stream(new RowSpliterator(this::propertyAt, null, NONE, rowLimit()), false);
+    }
+
+    /**
+     * @param query is the query.
+     * @return a lazy Stream of the properties that match the query, read from the access path explain() picks.
+     * @throws NullPointerException if query is null.
+     */
+    public Stream<Property> stream(final PropertyQuery query) throws NullPointerException
+    {
+        QueryPlanner planner;
+        planner = new QueryPlanner(this);
+
+        return planner.stream(planner.plan(query));
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return a lazy Stream of the properties whose price falls in the range specified by the parameters.
+     */
+    public Stream<Property> streamPropertiesBetween(final int minUsd, final int maxUsd)
+    {
+        return priceIndex.streamBetween(minUsd, maxUsd);
+    }
+
+    /**
+     * @param amenities are the amenities.
+     * @return a lazy Stream of the properties that have all of the amenities, read only at the rows set in the AND
+     *         of their amenity bitmaps. It's empty if there are no amenities.
+     */
+    public Stream<Property> streamPropertiesWithAll(final Amenity... amenities)
+    {
+        if(amenities.length == NONE)
+        {
+            return Stream.empty();
+        }
+
+        Bitmap matches;
+        matches = getAmenityBitmap(amenities[0]);
+
+        for(int i = 1; i < amenities.length; i++)
+        {
+            matches = matches.and(getAmenityBitmap(amenities[i]));
+        }
+
+        return StreamSupport.stream(new RowSpliterator(this::propertyAt, matches, NONE, rowLimit()), false);
+    }
+
+    /**
+     * @return the number of changes made to this agency so far. The query cache drops its results when it grows.
+     */
+    public long getGeneration()
+    {
+        return generation.get();
+    }
+
+    /**
+     * @return the query cache, with its hit and miss statistics, or null if queries are not cached.
+     */
+    public QueryCache getQueryCache()
+    {
+        return queryCache;
+    }
+
+    /**
+     * This method replaces the query cache, for example with one of another size.
+     *
+     * @param queryCache is the new query cache, or null to stop caching queries.
+     */
+    public void setQueryCache(final QueryCache queryCache)
+    {
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * @return the latency histograms of the queries of this agency, and of the ingestion phases of the loads into it,
+     *         or null if they are not recorded.
+     */
+    public AgencyMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * This method replaces the metrics, for example with ones shared by several agencies.
+     *
+     * @param metrics is the new metrics, or null to stop recording latencies.
+     */
+    public void setMetrics(final AgencyMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * This method runs getProperty() without recording its latency. Subclasses override it.
+     *
+     * @param propertyId is the property id.
+     * @return the property whose ID matches(case insensitive) with the parameter(property id), or null if there is
+     *         none.
      */
-    public double getTotalPropertyValues()
+    protected Property findProperty(final String propertyId)
     {
-        double total = NONE;
-
-        Set<String> keys;
-        keys = properties.keySet();
+        int row;
+        row = rowOf(propertyId);
 
-        for(String key: keys)
-        {
-            total += properties.get(key).getPriceUsd();
-        }
-
-        return total;
+        return (row == LongIntHashMap.NOT_FOUND) ? null : rows.get(row);
     }
 
     /**
+     * This method runs getPropertiesWithPool() without the query cache. Subclasses override it.
+     *
      * @return an ArrayList<Residence> type properties since only that type will now have swimming pools.
      */
-    public ArrayList<Residence> getPropertiesWithPool()
+    protected ArrayList<Residence> findPropertiesWithPool()
     {
         ArrayList<Residence> propertiesWithPool;
         propertiesWithPool = new ArrayList<>();
 
-        for(Property property: properties.values())
+        for(Property property: findPropertiesWithAll(Amenity.SWIMMING_POOL))
         {
-            if((property instanceof Residence) && ((Residence) property).hasSwimmingPool())
-            {
-                Residence res = new Residence(property.getPriceUsd(), property.getAddress(), property.getType(),
-                                              property.getPropertyId(), ((Residence) property).getNumberOfBedrooms(),
-                                              ((Residence) property).hasSwimmingPool(), ((Residence) property).isStrata());
+            Residence res = ((Residence) property).view();
 
-                propertiesWithPool.add(res);
-            }
+            propertiesWithPool.add(res);
         }
 
         if(propertiesWithPool.size() > NONE)
@@ -128,44 +699,20 @@ public class Agency
    }
 
     /**
+     * This method runs getPropertiesBetween() without the query cache. Subclasses override it.
+     *
      * @param minUsd minimum price in USD.
      * @param maxUsd maximum price in USD.
      * @return an array of properties whose price falls in the range specified by the parameters, or null if there are none.
      */
-    public Property[] getPropertiesBetween(final int minUsd, final int maxUsd)
+    protected Property[] findPropertiesBetween(final int minUsd, final int maxUsd)
     {
         ArrayList<Property> allMatches;
-        allMatches = new ArrayList<>();
-
-        Set<String> keys;
-        keys = properties.keySet();
-
-        for(String key: keys)
-        {
-            if((properties.get(key).getPriceUsd() >= minUsd) && (properties.get(key).getPriceUsd() <= maxUsd))
-            {
-                allMatches.add(properties.get(key));
-            }
-        }
-
-        Property[] matches;
-        matches = new Property[allMatches.size()];
-
-        // Convert the ArrayList(allMatches) to an Array
-        int i = 0;
-
-        Iterator<Property> it;
-        it = allMatches.iterator();
-
-        while(it.hasNext())
-        {
-            matches[i] = (it.next());
-            i++;
-        }
+        allMatches = priceIndex.getBetween(minUsd, maxUsd);
 
-        if(matches.length > NONE)
+        if(allMatches.size() > NONE)
         {
-            return matches;
+            return allMatches.toArray(new Property[NONE]);
         }
         else // no property found in this range of price
         {
@@ -174,20 +721,19 @@ public class Agency
     }
 
     /**
+     * This method runs getPropertiesOn() without the query cache. Subclasses override it.
+     *
      * @param streetName is the street name.
      * @return an ArrayList of addresses which are on the specified street, or null if there are none.
      */
-    public ArrayList<Address> getPropertiesOn(final String streetName)
+    protected ArrayList<Address> findPropertiesOn(final String streetName)
     {
         ArrayList<Address> propertiesOn;
         propertiesOn = new ArrayList<>();
 
-        for(Property property: properties.values())
+        for(Property property: streetIndex.getOn(streetName))
         {
-            if(property.getAddress().getStreetName().equalsIgnoreCase(streetName))
-            {
-                propertiesOn.add(property.getAddress());
-            }
+            propertiesOn.add(property.getAddress());
         }
 
         if(propertiesOn.size() > NONE)
@@ -201,26 +747,44 @@ public class Agency
     }
 
     /**
+     * @param streetName is the street name (case insensitive).
+     * @return an ArrayList<Property> of the properties which are on the specified street. It's empty if there are none.
+     */
+    protected ArrayList<Property> findPropertiesOnStreet(final String streetName)
+    {
+        return streetIndex.getOn(streetName);
+    }
+
+    /**
+     * @param streetName is the street name (case insensitive).
+     * @return the number of properties which are on the specified street.
+     */
+    protected int countPropertiesOn(final String streetName)
+    {
+        return streetIndex.countOn(streetName);
+    }
+
+    /**
+     * This method runs getPropertiesWithBedrooms() without the query cache. Subclasses override it.
+     *
      * @param minBedrooms is the minimum bedroom number.
      * @param maxBedrooms is the maximum bedroom number.
      * @return a HashMap of properties (key is property id, value is the Residence) whose number of bedrooms falls in the
      *         range specified by the parameters, or null if there are none.
      */
-    public HashMap<String, Residence> getPropertiesWithBedrooms(final int minBedrooms, final int maxBedrooms)
+    protected HashMap<String, Residence> findPropertiesWithBedrooms(final int minBedrooms, final int maxBedrooms)
     {
         HashMap<String, Residence> expectedMatches;
         expectedMatches = new HashMap<>();
 
-        for(Property property: properties.values())
+        for(Property property: getPropertiesAt(getTypeBitmap(PropertyType.RESIDENCE)))
         {
             if(property instanceof Residence)
             {
                 if((((Residence) property).getNumberOfBedrooms() >= minBedrooms) &&
                    (((Residence) property).getNumberOfBedrooms() <= maxBedrooms))
                 {
-                    Residence res = new Residence(property.getPriceUsd(), property.getAddress(), property.getType(),
-                                                  property.getPropertyId(), ((Residence) property).getNumberOfBedrooms(),
-                                                  ((Residence) property).hasSwimmingPool(), ((Residence) property).isStrata());
+                    Residence res = ((Residence) property).view();
 
                     expectedMatches.put(property.getPropertyId(), res);
                 }
@@ -238,22 +802,25 @@ public class Agency
     }
 
     /**
+     * This method runs getPropertiesOfType() without the query cache. Subclasses override it.
+     *
      * @param propertyType is the type of property.
-     * @return return an ArrayList<Property> that hold the subtype specified in the parameter(case insensitive).
+     * @return return an ArrayList<Property> that hold the subtype specified in the parameter(case insensitive), or null
+     *         if there are none.
      */
-    public ArrayList<Property> getPropertiesOfType(final String propertyType)
+    protected ArrayList<Property> findPropertiesOfType(final String propertyType)
     {
-        ArrayList<Property> propertiesOfType;
-        propertiesOfType = new ArrayList<>();
+        PropertyType type;
+        type = PropertyType.of(propertyType);
 
-        for(Property property: properties.values())
+        if(type == null) // not a type any property can have
         {
-            if(property.getType().equalsIgnoreCase(propertyType))
-            {
-                propertiesOfType.add(property);
-            }
+            return null;
         }
 
+        ArrayList<Property> propertiesOfType;
+        propertiesOfType = getPropertiesAt(getTypeBitmap(type));
+
         if(propertiesOfType.size() > NONE)
         {
             return propertiesOfType;
@@ -265,75 +832,63 @@ public class Agency
     }
 
     /**
+     * This method runs getPropertiesWithLoadingDock() without the query cache. Subclasses override it.
+     *
      * @return an ArrayList<Commercial> that holds only Commercial properties that have a loading dock available.
      */
-    public ArrayList<Commercial> getPropertiesWithLoadingDock()
+    protected ArrayList<Commercial> findPropertiesWithLoadingDock()
     {
         ArrayList<Commercial> propertiesWithLoadingDock;
         propertiesWithLoadingDock = new ArrayList<>();
 
-        for(Property property: properties.values())
+        for(Property property: findPropertiesWithAll(Amenity.LOADING_DOCK))
         {
-            if(property instanceof Commercial)
-            {
-                if(((Commercial) property).isLoadingDock())
-                {
-                    Commercial com = new Commercial(property.getPriceUsd(), property.getAddress(), property.getType(),
-                                                    property.getPropertyId(), ((Commercial) property).isLoadingDock(),
-                                                    ((Commercial) property).isHighwayAccess());
+            Commercial com = ((Commercial) property).view();
 
-                    propertiesWithLoadingDock.add(com);
-                }
-            }
+            propertiesWithLoadingDock.add(com);
         }
 
         return propertiesWithLoadingDock;
     }
 
     /**
+     * This method runs getPropertiesWithHighwayAccess() without the query cache. Subclasses override it.
+     *
      * @return an ArrayList<Commercial> that holds only Commercial properties that have highway access.
      */
-    public ArrayList<Commercial> getPropertiesWithHighwayAccess()
+    protected ArrayList<Commercial> findPropertiesWithHighwayAccess()
     {
         ArrayList<Commercial> propertiesWithHighwayAccess;
         propertiesWithHighwayAccess = new ArrayList<>();
 
-        for(Property property: properties.values())
+        for(Property property: findPropertiesWithAll(Amenity.HIGHWAY_ACCESS))
         {
-            if(property instanceof Commercial)
-            {
-                if(((Commercial) property).isHighwayAccess())
-                {
-                    Commercial com = new Commercial(property.getPriceUsd(), property.getAddress(), property.getType(),
-                                                    property.getPropertyId(), ((Commercial) property).isLoadingDock(),
-                                                    ((Commercial) property).isHighwayAccess());
+            Commercial com = ((Commercial) property).view();
 
-                    propertiesWithHighwayAccess.add(com);
-                }
-            }
+            propertiesWithHighwayAccess.add(com);
         }
 
         return propertiesWithHighwayAccess;
     }
 
     /**
+     * This method runs getPropertiesWithSquareFootage() without the query cache. Subclasses override it.
+     *
      * @param squareFootage is the amount of floor space available.
      * @return an ArrayList<Retail> that holds properties where square footage is at least the parameter value.
      */
-    public ArrayList<Retail> getPropertiesWithSquareFootage(final int squareFootage)
+    protected ArrayList<Retail> findPropertiesWithSquareFootage(final int squareFootage)
     {
         ArrayList<Retail> propertiesWithSquareFootage;
         propertiesWithSquareFootage = new ArrayList<>();
 
-        for(Property property: properties.values())
+        for(Property property: getPropertiesAt(getTypeBitmap(PropertyType.RETAIL)))
         {
             if(property instanceof Retail)
             {
                 if(((Retail) property).getSquareFootage() >= squareFootage)
                 {
-                    Retail ret = new Retail(property.getPriceUsd(), property.getAddress(), property.getType(),
-                                            property.getPropertyId(), ((Retail) property).getSquareFootage(),
-                                            ((Retail) property).hasCustomerParking());
+                    Retail ret = ((Retail) property).view();
 
                     propertiesWithSquareFootage.add(ret);
                 }
@@ -350,54 +905,414 @@ public class Agency
         }
     }
     /**
+     * This method runs getPropertiesWithCustomerParking() without the query cache. Subclasses override it.
+     *
      * @return an ArrayList<Retail> that holds properties where customer parking is available.
      */
-    public ArrayList<Retail> getPropertiesWithCustomerParking()
+    protected ArrayList<Retail> findPropertiesWithCustomerParking()
     {
         ArrayList<Retail> propertiesWithCustomerParking;
         propertiesWithCustomerParking = new ArrayList<>();
 
-        for(Property property: properties.values())
+        for(Property property: findPropertiesWithAll(Amenity.CUSTOMER_PARKING))
         {
-            if(property instanceof Retail)
-            {
-                if(((Retail) property).hasCustomerParking())
-                {
-                    Retail ret = new Retail(property.getPriceUsd(), property.getAddress(), property.getType(),
-                                            property.getPropertyId(), ((Retail) property).getSquareFootage(),
-                                            ((Retail) property).hasCustomerParking());
+            Retail ret = ((Retail) property).view();
 
-                    propertiesWithCustomerParking.add(ret);
-                }
-            }
+            propertiesWithCustomerParking.add(ret);
         }
 
         return propertiesWithCustomerParking;
     }
 
     /**
+     * This method runs getPropertiesWithStrata() without the query cache. Subclasses override it.
+     *
      * @return ArrayList<Residence> that hold only the Residences that are in a strata.
      */
-    public ArrayList<Residence> getPropertiesWithStrata()
+    protected ArrayList<Residence> findPropertiesWithStrata()
     {
         ArrayList<Residence> propertiesWithStrata;
         propertiesWithStrata = new ArrayList<>();
 
-        for(Property property: properties.values())
+        for(Property property: findPropertiesWithAll(Amenity.STRATA))
         {
-            if(property instanceof Residence)
+            Residence res = ((Residence) property).view();
+
+            propertiesWithStrata.add(res);
+        }
+
+        return propertiesWithStrata;
+    }
+
+    /**
+     * @param amenity is the amenity.
+     * @return a Bitmap of the rows of the properties that have the amenity. Combine it with and(), or() and andNot()
+     *         of other amenity bitmaps, and pass the result to getPropertiesAt().
+     */
+    public Bitmap getAmenityBitmap(final Amenity amenity)
+    {
+        return amenityRows.get(amenity).copy();
+    }
+
+    /**
+     * @param amenity is the amenity.
+     * @return a Bitmap of the rows of the properties of the subtype the amenity applies to, whether or not they have
+     *         it. For example, getEligibleBitmap(SWIMMING_POOL).andNot(getAmenityBitmap(SWIMMING_POOL)) holds the
+     *         residences without a swimming pool.
+     */
+    public Bitmap getEligibleBitmap(final Amenity amenity)
+    {
+        return eligibleRows.get(amenity).copy();
+    }
+
+    /**
+     * @param type is the type.
+     * @return a Bitmap of the rows of the properties of the type: the partition of that type. Combine it with the
+     *         amenity bitmaps, and pass the result to getPropertiesAt().
+     */
+    public Bitmap getTypeBitmap(final PropertyType type)
+    {
+        return typeRows.get(type).copy();
+    }
+
+    /**
+     * @param bitmap is the bitmap of rows, usually built from getAmenityBitmap(), getEligibleBitmap() and
+     *               getTypeBitmap().
+     * @return an ArrayList<Property> of the properties at the rows of the bitmap.
+     */
+    public ArrayList<Property> getPropertiesAt(final Bitmap bitmap)
+    {
+        ArrayList<Property> propertiesAt;
+        propertiesAt = new ArrayList<>();
+
+        for(int row = bitmap.nextSetBit(NONE); row != Bitmap.NOT_FOUND; row = bitmap.nextSetBit(row + 1))
+        {
+            if((row < rows.size()) && (rows.get(row) != null))
             {
-                if(((Residence) property).isStrata())
-                {
-                    Residence res = new Residence(property.getPriceUsd(), property.getAddress(), property.getType(),
-                                                  property.getPropertyId(), ((Residence) property).getNumberOfBedrooms(),
-                                                  ((Residence) property).hasSwimmingPool(), ((Residence) property).isStrata());
+                propertiesAt.add(rows.get(row));
+            }
+        }
 
-                    propertiesWithStrata.add(res);
-                }
+        return propertiesAt;
+    }
+
+    /**
+     * @return the number of rows, empty or not. Every row number is less than it.
+     */
+    protected int rowLimit()
+    {
+        return rows.size();
+    }
+
+    /**
+     * @param row is the row number.
+     * @return the property at the row, or null if the row is empty or there is no such row.
+     */
+    protected Property propertyAt(final int row)
+    {
+        return ((row >= NONE) && (row < rows.size())) ? rows.get(row) : null;
+    }
+
+    /**
+     * @param amenities are the amenities.
+     * @return an ArrayList<Property> of the properties that have all of the amenities, for example
+     *         findPropertiesWithAll(Amenity.LOADING_DOCK, Amenity.HIGHWAY_ACCESS).
+     */
+    protected ArrayList<Property> findPropertiesWithAll(final Amenity... amenities)
+    {
+        if(amenities.length == NONE)
+        {
+            return new ArrayList<>();
+        }
+
+        Bitmap matches;
+        matches = amenityRows.get(amenities[0]);
+
+        for(int i = 1; i < amenities.length; i++)
+        {
+            matches = matches.and(amenityRows.get(amenities[i]));
+        }
+
+        return getPropertiesAt(matches);
+    }
+
+    /**
+     * This method is called by every change to this agency, after the change is made, so the query cache drops the
+     * results computed before it.
+     */
+    protected void mutated()
+    {
+        generation.incrementAndGet();
+    }
+
+    /*
+     * Answers the query with lookUp(), records its latency, hit or miss, under the name of the query method, which
+     * is the first element of the key, and commits its QueryEvent.
+     */
+    private <T> T cached(final Supplier<T> query, final UnaryOperator<T> copy, final Object... key)
+    {
+        QueryEvent event;
+        event = new QueryEvent();
+
+        event.begin();
+
+        AgencyMetrics recorder;
+        recorder = metrics;
+
+        long start = (recorder == null) ? NONE : System.nanoTime();
+
+        T result;
+        result = lookUp(query, copy, event, key);
+
+        if(recorder != null)
+        {
+            recorder.recordSince((String) key[0], start);
+        }
+
+        event.end();
+
+        if(event.shouldCommit())
+        {
+            long returned = weightOf(result) - 1;
+
+            describe(event, (String) key[0], Arrays.toString(Arrays.copyOfRange(key, 1, key.length)),
+                     event.cacheHit ? NONE : rowsScannedBy(key, returned), returned);
+        }
+
+        return result;
+    }
+
+    /*
+     * Answers the query from the query cache if it was computed at the current generation, or runs it and keeps its
+     * result. The caller gets a copy of the result made by copy, so it can not change the cached one. The event is
+     * told whether it was a hit.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T lookUp(final Supplier<T> query, final UnaryOperator<T> copy, final QueryEvent event,
+                         final Object... key)
+    {
+        QueryCache cache;
+        cache = queryCache;
+
+        if(cache == null)
+        {
+            return query.get();
+        }
+
+        List<Object> cacheKey;
+        cacheKey = Arrays.asList(key);
+
+        long current = generation.get();
+
+        Object result;
+        result = cache.get(cacheKey, current);
+
+        if(result == null)
+        {
+            T computed;
+            computed = query.get();
+
+            result = (computed == null) ? NO_RESULT : computed;
+
+            cache.put(cacheKey, result, weightOf(result), current);
+        }
+        else
+        {
+            event.cacheHit = true;
+        }
+
+        return (result == NO_RESULT) ? null : copy.apply((T) result);
+    }
+
+    /*
+     * Fills in the event of a query that has run, and commits it.
+     */
+    private void describe(final QueryEvent event, final String kind, final String parameters, final long rowsScanned,
+                          final long rowsReturned)
+    {
+        event.agency       = name;
+        event.kind         = kind;
+        event.parameters   = parameters;
+        event.rowsScanned  = rowsScanned;
+        event.rowsReturned = rowsReturned;
+        event.generation   = generation.get();
+
+        event.commit();
+    }
+
+    /*
+     * Returns the number of rows a query method read to compute its result: the rows of the partition or street it
+     * scans. The other queries read their rows straight from an index or a bitmap, so they scan only the rows they
+     * return.
+     */
+    private long rowsScannedBy(final Object[] key, final long rowsReturned)
+    {
+        switch((String) key[0])
+        {
+            case "getPropertiesWithBedrooms":
+                return getTypeBitmap(PropertyType.RESIDENCE).cardinality();
+            case "getPropertiesWithSquareFootage":
+                return getTypeBitmap(PropertyType.RETAIL).cardinality();
+            case "getPropertiesOn":
+                return countPropertiesOn((String) key[1]);
+            default:
+                return rowsReturned;
+        }
+    }
+
+    /*
+     * Returns the weight of a query result in the cache: one, plus the number of elements it holds.
+     */
+    private static long weightOf(final Object result)
+    {
+        if(result instanceof Collection)
+        {
+            return 1L + ((Collection<?>) result).size();
+        }
+        else if(result instanceof Map)
+        {
+            return 1L + ((Map<?, ?>) result).size();
+        }
+        else if(result instanceof Object[])
+        {
+            return 1L + ((Object[]) result).length;
+        }
+        else
+        {
+            return 1L;
+        }
+    }
+
+    /*
+     * Returns the row of the property whose id matches(case insensitive) with the property id, or
+     * LongIntHashMap.NOT_FOUND.
+     */
+    private int rowOf(final String propertyId)
+    {
+        if(propertyId == null)
+        {
+            return LongIntHashMap.NOT_FOUND;
+        }
+
+        long id;
+        id = PropertyIdCodec.packFolded(propertyId);
+
+        if(id != PropertyIdCodec.NOT_PACKED)
+        {
+            return rowsById.get(id);
+        }
+
+        if(unpackedRowsById.isEmpty())
+        {
+            return LongIntHashMap.NOT_FOUND;
+        }
+
+        return unpackedRowsById.getOrDefault(PropertyIdCodec.fold(propertyId), LongIntHashMap.NOT_FOUND);
+    }
+
+    /*
+     * Returns the property itself, or a mutable copy of it if it's a read-only view, which an agency can't listen to.
+     */
+    static Property ownable(final Property property)
+    {
+        return property.isView() ? property.mutableCopy() : property;
+    }
+
+    /*
+     * Gives the property a dense row number, and adds it to every index of this agency.
+     */
+    private void index(final Property property)
+    {
+        int row;
+        row = freeRows.nextSetBit(NONE);
+
+        if(row == Bitmap.NOT_FOUND)
+        {
+            row = rows.size();
+            rows.add(property);
+        }
+        else
+        {
+            freeRows.clear(row);
+            rows.set(row, property);
+        }
+
+        long id;
+        id = PropertyIdCodec.packFolded(property.getPropertyId());
+
+        if(id != PropertyIdCodec.NOT_PACKED)
+        {
+            rowsById.put(id, row);
+        }
+        else
+        {
+            unpackedRowsById.put(PropertyIdCodec.fold(property.getPropertyId()), row);
+        }
+
+        if(property.getPropertyType() != null)
+        {
+            typeRows.get(property.getPropertyType()).set(row);
+        }
+
+        for(Amenity amenity: Amenity.values())
+        {
+            if(amenity.appliesTo(property))
+            {
+                eligibleRows.get(amenity).set(row);
+            }
+
+            if(amenity.isPresentIn(property))
+            {
+                amenityRows.get(amenity).set(row);
             }
         }
 
-        return propertiesWithStrata;
+        property.addPriceChangeListener(this);
+        priceIndex.add(property);
+        aggregates.add(PortfolioAggregates.kindOf(property), property.getPriceUsd());
+        streetIndex.add(property);
+    }
+
+    /*
+     * Removes the property from every index of this agency, releases its row, and stops listening to its price changes.
+     */
+    private void unindex(final Property property)
+    {
+        int row;
+        row = rowOf(property.getPropertyId());
+
+        if((row != LongIntHashMap.NOT_FOUND) && (rows.get(row) == property))
+        {
+            long id;
+            id = PropertyIdCodec.packFolded(property.getPropertyId());
+
+            if(id != PropertyIdCodec.NOT_PACKED)
+            {
+                rowsById.remove(id);
+            }
+            else
+            {
+                unpackedRowsById.remove(PropertyIdCodec.fold(property.getPropertyId()));
+            }
+
+            rows.set(row, null);
+            freeRows.set(row);
+
+            for(Amenity amenity: Amenity.values())
+            {
+                eligibleRows.get(amenity).clear(row);
+                amenityRows.get(amenity).clear(row);
+            }
+
+            for(PropertyType type: PropertyType.values())
+            {
+                typeRows.get(type).clear(row);
+            }
+        }
+
+        property.removePriceChangeListener(this);
+        priceIndex.remove(property, property.getPriceUsd());
+        aggregates.remove(PortfolioAggregates.kindOf(property), property.getPriceUsd());
+        streetIndex.remove(property);
     }
 }
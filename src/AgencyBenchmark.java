@@ -0,0 +1,605 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This is AgencyBenchmark class. It measures every public query of an Agency on SyntheticData, so a change to an
+ * agency can be checked for whether it helps or hurts:
+ *
+ *     java -Xmx8g AgencyBenchmark [--columnar | --concurrent] [--query name] [size ...]
+ *
+ * The default sizes are 10k, 100k and 1M properties; 10M needs a heap of several GB. Each query is run in a JVM of
+ * its own, started with the same options as this one, at each size: the queries are run through one call site in
+ * iterate(), which the JIT compiler inlines only while it has seen one or two Operations, so in a shared JVM every
+ * query after the second would be measured through a virtual call, and with the profile the earlier queries left.
+ * QUERY_OPTION runs one query, in this JVM, which is what the JVMs of the queries do. Each query is run for
+ * WARMUP_ITERATIONS iterations that are thrown away, so the JIT compiler has compiled it, and then for
+ * MEASUREMENT_ITERATIONS iterations of ITERATION_MILLIS each. For each query it reports the throughput, the average
+ * time per operation with its standard deviation over the iterations, and the bytes allocated per operation and per
+ * second, which is the rate the garbage collector has to keep up with.
+ *
+ * The query cache is turned off, so every operation runs the query. The parameters of the queries are picked ahead of
+ * time with realistic selectivity: ids of existing properties, streets as skewed as the data, price ranges that hold
+ * about PRICE_RANGE_SELECTIVITY of the listings, and so on. Every result is consumed, so the JIT compiler can't drop
+ * the query as dead code.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class AgencyBenchmark
+{
+    private final Agency   agency;
+    private final int      size;
+    private final String[] propertyIds;
+    private final String[] streetNames;
+    private final int[]    minPrices;
+    private final int[]    maxPrices;
+
+    // Every result is added to it, so no query is dead code.
+    private long sink;
+
+    public static final int[]  DEFAULT_SIZES             = {10000, 100000, 1000000};
+    public static final int    WARMUP_ITERATIONS         = 3;
+    public static final int    MEASUREMENT_ITERATIONS    = 5;
+    public static final int    ITERATION_MILLIS          = 1000;
+    public static final int    PARAMETER_COUNT           = 1024;
+    public static final double PRICE_RANGE_SELECTIVITY   = 0.01;
+    public static final int    MIN_BEDROOMS              = 2;
+    public static final int    MAX_BEDROOMS              = 3;
+    public static final int    SQUARE_FOOTAGE_THRESHOLD  = 25000; // about one retail in ten
+    public static final long   NOT_AVAILABLE             = -1;
+    public static final int    NONE                      = 0;
+
+    public static final String QUERY_OPTION = "--query";
+
+    public static final String[] QUERIES = {"getProperty", "getPropertiesBetween", "getPropertiesOn",
+                                            "getPropertiesWithBedrooms", "getPropertiesOfType",
+                                            "getPropertiesWithPool", "getPropertiesWithStrata",
+                                            "getPropertiesWithLoadingDock", "getPropertiesWithHighwayAccess",
+                                            "getPropertiesWithSquareFootage", "getPropertiesWithCustomerParking",
+                                            "getTotalPropertyValues"};
+
+    private static final long   NANOS_PER_MILLI  = 1000000L;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MB     = 1e6;
+
+    private static final String[] TYPES = {PropertyReader.RESIDENCE, PropertyReader.COMMERCIAL, PropertyReader.RETAIL};
+
+    /**
+     * This is AgencyBenchmark.Operation interface. It's one invocation of a query.
+     */
+    public interface Operation
+    {
+        /**
+         * @param invocation is the number of the invocation, to pick its parameters.
+         * @return the number of results, or any other value that depends on the result.
+         */
+        long run(int invocation);
+    }
+
+    /**
+     * This is the AgencyBenchmark constructor. It loads size properties of SyntheticData into the agency, turns its
+     * query cache off, and picks the parameters of the queries.
+     *
+     * @param agency is the agency. It should be empty.
+     * @param size is the number of properties.
+     * @param seed is the seed of the SyntheticData and of the parameters.
+     * @throws NullPointerException if agency is null.
+     */
+    public AgencyBenchmark(final Agency agency, final int size, final long seed) throws NullPointerException
+    {
+        if(agency == null)
+        {
+            throw new NullPointerException("Invalid agency: null");
+        }
+
+        ArrayList<Property> properties;
+        properties = new SyntheticData(seed).properties(size);
+
+        agency.addProperties(properties);
+        agency.setQueryCache(null);
+
+        this.agency = agency;
+        this.size   = size;
+
+        double[] prices;
+        prices = new double[properties.size()];
+
+        for(int i = 0; i < prices.length; i++)
+        {
+            prices[i] = properties.get(i).getPriceUsd();
+        }
+
+        Arrays.sort(prices);
+
+        Random random;
+        random = new Random(seed);
+
+        propertyIds = new String[PARAMETER_COUNT];
+        streetNames = new String[PARAMETER_COUNT];
+        minPrices   = new int[PARAMETER_COUNT];
+        maxPrices   = new int[PARAMETER_COUNT];
+
+        int window = (int) (prices.length * PRICE_RANGE_SELECTIVITY);
+
+        for(int i = 0; i < PARAMETER_COUNT; i++)
+        {
+            int first = random.nextInt(Math.max(1, prices.length - window));
+
+            propertyIds[i] = properties.get(random.nextInt(properties.size())).getPropertyId();
+            streetNames[i] = SyntheticData.streetName(SyntheticData.skewedRank(random, SyntheticData.STREET_COUNT));
+            minPrices[i]   = (int) prices[first];
+            maxPrices[i]   = (int) prices[Math.min(prices.length - 1, first + window)];
+        }
+    }
+
+    /**
+     * This method runs every query of QUERIES in this JVM, so every query after the second is measured through a
+     * megamorphic call site; main() runs each query in a JVM of its own instead.
+     *
+     * @return the results of every query, in the order they were run.
+     */
+    public ArrayList<Result> runAll()
+    {
+        ArrayList<Result> results;
+        results = new ArrayList<>();
+
+        for(String query: QUERIES)
+        {
+            results.add(run(query));
+        }
+
+        return results;
+    }
+
+    /**
+     * @param query is the name of the query, one of QUERIES.
+     * @return the result of the query.
+     * @throws IllegalArgumentException if the query is not one of QUERIES.
+     */
+    public Result run(final String query) throws IllegalArgumentException
+    {
+        switch(query)
+        {
+            case "getProperty":
+                return run(query, i -> (agency.getProperty(propertyIds[i % PARAMETER_COUNT]) == null) ? 0 : 1);
+            case "getPropertiesBetween":
+                return run(query, i -> count(agency.getPropertiesBetween(minPrices[i % PARAMETER_COUNT],
+                                                                         maxPrices[i % PARAMETER_COUNT])));
+            case "getPropertiesOn":
+                return run(query, i -> count(agency.getPropertiesOn(streetNames[i % PARAMETER_COUNT])));
+            case "getPropertiesWithBedrooms":
+                return run(query, i -> count(agency.getPropertiesWithBedrooms(MIN_BEDROOMS, MAX_BEDROOMS)));
+            case "getPropertiesOfType":
+                return run(query, i -> count(agency.getPropertiesOfType(TYPES[i % TYPES.length])));
+            case "getPropertiesWithPool":
+                return run(query, i -> count(agency.getPropertiesWithPool()));
+            case "getPropertiesWithStrata":
+                return run(query, i -> count(agency.getPropertiesWithStrata()));
+            case "getPropertiesWithLoadingDock":
+                return run(query, i -> count(agency.getPropertiesWithLoadingDock()));
+            case "getPropertiesWithHighwayAccess":
+                return run(query, i -> count(agency.getPropertiesWithHighwayAccess()));
+            case "getPropertiesWithSquareFootage":
+                return run(query, i -> count(agency.getPropertiesWithSquareFootage(SQUARE_FOOTAGE_THRESHOLD)));
+            case "getPropertiesWithCustomerParking":
+                return run(query, i -> count(agency.getPropertiesWithCustomerParking()));
+            case "getTotalPropertyValues":
+                return run(query, i -> (long) agency.getTotalPropertyValues());
+            default:
+                throw new IllegalArgumentException("Invalid query: " + query);
+        }
+    }
+
+    /**
+     * This method warms the operation up, and then measures it.
+     *
+     * @param name is the name of the operation.
+     * @param operation is the operation.
+     * @return the result.
+     */
+    public Result run(final String name, final Operation operation)
+    {
+        for(int i = 0; i < WARMUP_ITERATIONS; i++)
+        {
+            iterate(operation);
+        }
+
+        long[] iterations;
+        iterations = new long[MEASUREMENT_ITERATIONS * Result.FIELDS];
+
+        for(int i = 0; i < MEASUREMENT_ITERATIONS; i++)
+        {
+            System.arraycopy(iterate(operation), NONE, iterations, i * Result.FIELDS, Result.FIELDS);
+        }
+
+        return new Result(name, size, iterations);
+    }
+
+    /**
+     * @return the value every result has been added to. It's only read so the results are used.
+     */
+    public long getSink()
+    {
+        return sink;
+    }
+
+    /*
+     * Runs the operation for ITERATION_MILLIS, in batches that double until a batch takes a millisecond, so reading
+     * the clock costs little next to a fast operation. Returns the operations, the nanoseconds, and the bytes
+     * allocated, or NOT_AVAILABLE.
+     */
+    private long[] iterate(final Operation operation)
+    {
+        long operations = 0;
+        long batch      = 1;
+        long allocated  = allocatedBytes();
+        long start      = System.nanoTime();
+        long elapsed;
+
+        do
+        {
+            long batchStart = System.nanoTime();
+
+            for(long i = 0; i < batch; i++)
+            {
+                sink += operation.run((int) (operations++ & Integer.MAX_VALUE));
+            }
+
+            if(System.nanoTime() - batchStart < NANOS_PER_MILLI)
+            {
+                batch *= 2;
+            }
+
+            elapsed = System.nanoTime() - start;
+        }
+        while(elapsed < ITERATION_MILLIS * NANOS_PER_MILLI);
+
+        long after = allocatedBytes();
+
+        return new long[] {operations, elapsed, (allocated == NOT_AVAILABLE) ? NOT_AVAILABLE : after - allocated};
+    }
+
+    /*
+     * Returns the number of results, or 0 if there are none.
+     */
+    private static long count(final Collection<?> result)
+    {
+        return (result == null) ? NONE : result.size();
+    }
+
+    /*
+     * Returns the number of results, or 0 if there are none.
+     */
+    private static long count(final Map<?, ?> result)
+    {
+        return (result == null) ? NONE : result.size();
+    }
+
+    /*
+     * Returns the number of results, or 0 if there are none.
+     */
+    private static long count(final Object[] result)
+    {
+        return (result == null) ? NONE : result.length;
+    }
+
+    /*
+     * Returns the bytes allocated by this thread so far, or NOT_AVAILABLE if the JVM can't tell.
+     */
+    private static long allocatedBytes()
+    {
+        ThreadMXBean threads;
+        threads = ManagementFactory.getThreadMXBean();
+
+        if(threads instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean hotSpotThreads = (com.sun.management.ThreadMXBean) threads;
+
+            if(hotSpotThreads.isThreadAllocatedMemorySupported() && hotSpotThreads.isThreadAllocatedMemoryEnabled())
+            {
+                return hotSpotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return NOT_AVAILABLE;
+    }
+
+    /**
+     * @return the header of the report, over the rows of Result.toString().
+     */
+    public static String header()
+    {
+        return String.format("%-34s %10s %14s %14s %10s %14s %10s", "query", "size", "ops/s", "ns/op", "+-ns/op",
+                             "B/op", "MB/s");
+    }
+
+    /**
+     * This method runs the benchmark at each size, on a new Agency, ColumnarAgency or ConcurrentAgency, and prints
+     * the report. Each query is run in a JVM of its own, unless QUERY_OPTION names one, which is run in this JVM.
+     *
+     * @param args are the options: PropertyManager.COLUMNAR_OPTION or PropertyManager.CONCURRENT_OPTION, QUERY_OPTION
+     *             and the name of a query of QUERIES, and the sizes.
+     */
+    public static void main(String[] args)
+    {
+        boolean columnar   = false;
+        boolean concurrent = false;
+        String  query      = null;
+
+        ArrayList<Integer> sizes;
+        sizes = new ArrayList<>();
+
+        for(int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+
+            if(arg.equals(PropertyManager.COLUMNAR_OPTION))
+            {
+                columnar = true;
+            }
+            else if(arg.equals(PropertyManager.CONCURRENT_OPTION))
+            {
+                concurrent = true;
+            }
+            else if(arg.equals(QUERY_OPTION))
+            {
+                if((i + 1 == args.length) || !Arrays.asList(QUERIES).contains(args[i + 1]))
+                {
+                    System.out.println("\n>> Error! " + QUERY_OPTION + " must be followed by one of " +
+                                       Arrays.toString(QUERIES));
+
+                    return;
+                }
+
+                query = args[++i];
+            }
+            else
+            {
+                try
+                {
+                    sizes.add(Integer.parseInt(arg));
+                }
+                catch(NumberFormatException e)
+                {
+                    System.out.println("\n>> Error! Invalid size: " + arg);
+
+                    return;
+                }
+            }
+        }
+
+        if(sizes.isEmpty())
+        {
+            for(int size: DEFAULT_SIZES)
+            {
+                sizes.add(size);
+            }
+        }
+
+        if(query != null)
+        {
+            for(int size: sizes)
+            {
+                AgencyBenchmark benchmark;
+                benchmark = new AgencyBenchmark(newAgency(columnar, concurrent), size, SyntheticData.DEFAULT_SEED);
+
+                System.out.println(benchmark.run(query));
+                System.out.println("(sink " + benchmark.getSink() + ")");
+            }
+
+            return;
+        }
+
+        System.out.println(header());
+
+        for(int size: sizes)
+        {
+            for(String name: QUERIES)
+            {
+                try
+                {
+                    int status = fork(columnar, concurrent, name, size);
+
+                    if(status != NONE)
+                    {
+                        System.out.println("\n>> Error! " + name + " at size " + size + " exited with " + status);
+
+                        return;
+                    }
+                }
+                catch(IOException e)
+                {
+                    System.out.println("\n>> Error! Can not start a JVM: " + e.getMessage());
+
+                    return;
+                }
+                catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns a new Agency, ColumnarAgency or ConcurrentAgency.
+     */
+    private static Agency newAgency(final boolean columnar, final boolean concurrent)
+    {
+        if(columnar)
+        {
+            return new ColumnarAgency("Benchmark");
+        }
+        else if(concurrent)
+        {
+            return new ConcurrentAgency("Benchmark");
+        }
+        else
+        {
+            return new Agency("Benchmark");
+        }
+    }
+
+    /*
+     * Runs the query at the size in a new JVM, with the java command, the options and the class path of this one,
+     * and its output as this one's. Returns its exit status.
+     */
+    private static int fork(final boolean columnar, final boolean concurrent, final String query, final int size)
+                            throws IOException, InterruptedException
+    {
+        ArrayList<String> command;
+        command = new ArrayList<>();
+
+        command.add(ProcessHandle.current().info().command()
+                                 .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator +
+                                         "java"));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(AgencyBenchmark.class.getName());
+
+        if(columnar)
+        {
+            command.add(PropertyManager.COLUMNAR_OPTION);
+        }
+        else if(concurrent)
+        {
+            command.add(PropertyManager.CONCURRENT_OPTION);
+        }
+
+        command.add(QUERY_OPTION);
+        command.add(query);
+        command.add(Integer.toString(size));
+
+        Process process;
+        process = new ProcessBuilder(command).inheritIO().start();
+
+        return process.waitFor();
+    }
+
+    /**
+     * This is AgencyBenchmark.Result class. It's what was measured of one operation, over every measurement
+     * iteration.
+     */
+    public static final class Result
+    {
+        private final String name;
+        private final int    size;
+        private final long   operations;
+        private final long   nanos;
+        private final long   allocatedBytes;
+        private final double deviationNanosPerOp;
+
+        // Each iteration is measured as operations, nanoseconds and bytes allocated.
+        public static final int FIELDS = 3;
+
+        private Result(final String name, final int size, final long[] iterations)
+        {
+            long   totalOperations = 0;
+            long   totalNanos      = 0;
+            long   totalAllocated  = 0;
+            double sumSquares      = 0;
+
+            for(int i = 0; i < iterations.length; i += FIELDS)
+            {
+                totalOperations += iterations[i];
+                totalNanos      += iterations[i + 1];
+                totalAllocated   = ((totalAllocated == NOT_AVAILABLE) || (iterations[i + 2] == NOT_AVAILABLE)) ?
+                                   NOT_AVAILABLE : totalAllocated + iterations[i + 2];
+            }
+
+            double mean = (double) totalNanos / totalOperations;
+
+            for(int i = 0; i < iterations.length; i += FIELDS)
+            {
+                double nanosPerOp = (double) iterations[i + 1] / iterations[i];
+
+                sumSquares += (nanosPerOp - mean) * (nanosPerOp - mean);
+            }
+
+            this.name           = name;
+            this.size           = size;
+            operations          = totalOperations;
+            nanos               = totalNanos;
+            allocatedBytes      = totalAllocated;
+            deviationNanosPerOp = Math.sqrt(sumSquares / (iterations.length / FIELDS));
+        }
+
+        /**
+         * @return the name of the operation.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the number of properties of the agency.
+         */
+        public int getSize()
+        {
+            return size;
+        }
+
+        /**
+         * @return the operations per second.
+         */
+        public double getOpsPerSecond()
+        {
+            return operations * NANOS_PER_SECOND / nanos;
+        }
+
+        /**
+         * @return the average nanoseconds per operation.
+         */
+        public double getNanosPerOp()
+        {
+            return (double) nanos / operations;
+        }
+
+        /**
+         * @return the standard deviation of the nanoseconds per operation over the measurement iterations.
+         */
+        public double getDeviationNanosPerOp()
+        {
+            return deviationNanosPerOp;
+        }
+
+        /**
+         * @return the bytes allocated per operation, or NOT_AVAILABLE if the JVM can't tell.
+         */
+        public double getBytesPerOp()
+        {
+            return (allocatedBytes == NOT_AVAILABLE) ? NOT_AVAILABLE : (double) allocatedBytes / operations;
+        }
+
+        /**
+         * @return the megabytes allocated per second, or NOT_AVAILABLE if the JVM can't tell.
+         */
+        public double getAllocationMBPerSecond()
+        {
+            return (allocatedBytes == NOT_AVAILABLE) ? NOT_AVAILABLE :
+                                                       allocatedBytes * NANOS_PER_SECOND / nanos / BYTES_PER_MB;
+        }
+
+        /**
+         * @return the result as one row of the report.
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("%-34s %10d %14.1f %14.1f %10.1f %14.1f %10.1f", name, size, getOpsPerSecond(),
+                                 getNanosPerOp(), getDeviationNanosPerOp(), getBytesPerOp(),
+                                 getAllocationMBPerSecond());
+        }
+    }
+}
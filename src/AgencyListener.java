@@ -0,0 +1,32 @@
+/**
+ * This is AgencyListener interface. It's notified of every change to the properties of an Agency: a property added or
+ * replaced, a property removed, and a price changed.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public interface AgencyListener
+{
+    /**
+     * This method is called after the property has been added to the agency, replacing any property with the same id.
+     *
+     * @param property is the property that has been added.
+     */
+    void propertyAdded(Property property);
+
+    /**
+     * This method is called after the property has been removed from the agency.
+     *
+     * @param property is the property that has been removed.
+     */
+    void propertyRemoved(Property property);
+
+    /**
+     * This method is called after the price of a property of the agency has been changed.
+     *
+     * @param property is the property whose price has been changed.
+     * @param oldPriceUsd is the price in USD before the change.
+     * @param newPriceUsd is the price in USD after the change.
+     */
+    void propertyPriceChanged(Property property, double oldPriceUsd, double newPriceUsd);
+}
@@ -0,0 +1,243 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This is AgencyMetrics class. It keeps a LatencyHistogram for each query method of an Agency and each ingestion
+ * phase of ParallelLoader, by name: the name of the query method, for example "getPropertiesWithPool", or one of
+ * the INIT_ phases.
+ *
+ * Recording takes no lock: the histogram of a name is created the first time it's recorded, and found in a
+ * ConcurrentHashMap after that. So metrics are left on by default; Agency.setMetrics(null) turns them off.
+ *
+ * Reading the clock costs about as much as a lookup by id, and stops the processor from overlapping the cache misses
+ * of consecutive lookups, so timing every lookup would make it several times slower. So calls that take well under a
+ * microsecond are sampled: sample() picks one in SAMPLE_EVERY calls at random, and its latency is recorded with a
+ * weight of SAMPLE_EVERY. The percentiles are the same as if every call was timed, within sampling error, and the
+ * counts are close to the number of calls.
+ *
+ * The metrics can be read by name, printed with dump(), or read over JMX once register() is called.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class AgencyMetrics implements AgencyMetricsMXBean
+{
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms;
+
+    // The ingestion phases of ParallelLoader and PropertyManager.init().
+    public static final String INIT_READ_ADDRESSES  = "init.readAddresses";
+    public static final String INIT_READ_PROPERTIES = "init.readProperties";
+    public static final String INIT_BUILD           = "init.build";
+    public static final String INIT_INDEX           = "init.index";
+    public static final String INIT_READ_SNAPSHOT   = "init.readSnapshot";
+
+    public static final String DOMAIN       = "PropertyManager";
+    public static final int    SAMPLE_EVERY = 16;
+    public static final int    NONE         = 0;
+
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    /**
+     * This is the AgencyMetrics constructor. It creates metrics with no histograms.
+     */
+    public AgencyMetrics()
+    {
+        histograms = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param name is the name of the query or ingestion phase.
+     * @return the histogram of the name. It's created if there is none.
+     */
+    public LatencyHistogram histogram(final String name)
+    {
+        LatencyHistogram histogram;
+        histogram = histograms.get(name);
+
+        return (histogram != null) ? histogram : histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * This method records one call of the query or ingestion phase.
+     *
+     * @param name is the name of the query or ingestion phase.
+     * @param nanos is how long it took, in nanoseconds.
+     */
+    public void record(final String name, final long nanos)
+    {
+        histogram(name).record(nanos);
+    }
+
+    /**
+     * @return true for one in SAMPLE_EVERY calls, picked at random, whose latency is to be recorded with
+     *         recordSampled().
+     */
+    public static boolean sample()
+    {
+        return ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) == NONE;
+    }
+
+    /**
+     * This method records a call picked by sample(), which stands for SAMPLE_EVERY calls of the query.
+     *
+     * @param name is the name of the query.
+     * @param startNanos is the System.nanoTime() when it started.
+     */
+    public void recordSampled(final String name, final long startNanos)
+    {
+        histogram(name).record(System.nanoTime() - startNanos, SAMPLE_EVERY);
+    }
+
+    /**
+     * This method records one call of the query or ingestion phase that started at startNanos and ends now.
+     *
+     * @param name is the name of the query or ingestion phase.
+     * @param startNanos is the System.nanoTime() when it started.
+     */
+    public void recordSince(final String name, final long startNanos)
+    {
+        histogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public Map<String, Long> getCounts()
+    {
+        TreeMap<String, Long> counts;
+        counts = new TreeMap<>();
+
+        histograms.forEach((name, histogram) -> counts.put(name, histogram.getCount()));
+
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros()
+    {
+        return micros(LatencyHistogram::getMeanNanos);
+    }
+
+    @Override
+    public Map<String, Double> getP50Micros()
+    {
+        return micros(histogram -> histogram.getPercentileNanos(50.0));
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros()
+    {
+        return micros(histogram -> histogram.getPercentileNanos(99.0));
+    }
+
+    @Override
+    public Map<String, Double> getP999Micros()
+    {
+        return micros(histogram -> histogram.getPercentileNanos(99.9));
+    }
+
+    @Override
+    public Map<String, Double> getMaxMicros()
+    {
+        return micros(LatencyHistogram::getMaxNanos);
+    }
+
+    @Override
+    public String getDump()
+    {
+        return dump();
+    }
+
+    @Override
+    public void reset()
+    {
+        for(LatencyHistogram histogram: histograms.values())
+        {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return a table of the count, and the mean, p50, p99, p999 and max latency in microseconds, of each query and
+     *         ingestion phase recorded so far, in name order.
+     */
+    public String dump()
+    {
+        StringBuilder table;
+        table = new StringBuilder();
+
+        table.append(String.format("%-34s %10s %12s %12s %12s %12s %12s%n", "name", "count", "mean us", "p50 us",
+                                   "p99 us", "p999 us", "max us"));
+
+        for(Map.Entry<String, LatencyHistogram> entry: new TreeMap<>(histograms).entrySet())
+        {
+            LatencyHistogram histogram;
+            histogram = entry.getValue();
+
+            table.append(String.format("%-34s %10d %12.1f %12.1f %12.1f %12.1f %12.1f%n", entry.getKey(),
+                                       histogram.getCount(),
+                                       histogram.getMeanNanos() / NANOS_PER_MICRO,
+                                       histogram.getPercentileNanos(50.0) / NANOS_PER_MICRO,
+                                       histogram.getPercentileNanos(99.0) / NANOS_PER_MICRO,
+                                       histogram.getPercentileNanos(99.9) / NANOS_PER_MICRO,
+                                       histogram.getMaxNanos() / NANOS_PER_MICRO));
+        }
+
+        return table.toString();
+    }
+
+    /**
+     * This method registers these metrics with the platform MBeanServer, as DOMAIN:type=AgencyMetrics,name=name.
+     * A bean already registered under that name is replaced.
+     *
+     * @param name is the name the metrics are registered under, for example the name of the agency.
+     * @return the ObjectName of the bean.
+     * @throws JMException if the bean can not be registered.
+     */
+    public ObjectName register(final String name) throws JMException
+    {
+        ObjectName objectName;
+        objectName = new ObjectName(DOMAIN + ":type=AgencyMetrics,name=" + ObjectName.quote(name));
+
+        MBeanServer server;
+        server = ManagementFactory.getPlatformMBeanServer();
+
+        if(server.isRegistered(objectName))
+        {
+            server.unregisterMBean(objectName);
+        }
+
+        server.registerMBean(this, objectName);
+
+        return objectName;
+    }
+
+    /**
+     * @return the names recorded so far, and their counts, as a String.
+     */
+    @Override
+    public String toString()
+    {
+        return "AgencyMetrics [" +
+                "counts=" + getCounts() +
+                ']';
+    }
+
+    /*
+     * Returns the value of each histogram, converted from nanoseconds to microseconds, by name.
+     */
+    private Map<String, Double> micros(final ToDoubleFunction<LatencyHistogram> nanos)
+    {
+        TreeMap<String, Double> micros;
+        micros = new TreeMap<>();
+
+        histograms.forEach((name, histogram) -> micros.put(name, nanos.applyAsDouble(histogram) / NANOS_PER_MICRO));
+
+        return micros;
+    }
+}
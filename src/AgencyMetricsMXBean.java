@@ -0,0 +1,51 @@
+import java.util.Map;
+
+/**
+ * This is AgencyMetricsMXBean interface. It's the JMX view of AgencyMetrics: the count and latency percentiles of
+ * each query and ingestion phase, by name, as JConsole or any JMX client shows them.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public interface AgencyMetricsMXBean
+{
+    /**
+     * @return the number of calls of each query and ingestion phase, by name.
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * @return the mean latency in microseconds of each query and ingestion phase, by name.
+     */
+    Map<String, Double> getMeanMicros();
+
+    /**
+     * @return the median latency in microseconds of each query and ingestion phase, by name.
+     */
+    Map<String, Double> getP50Micros();
+
+    /**
+     * @return the 99th percentile latency in microseconds of each query and ingestion phase, by name.
+     */
+    Map<String, Double> getP99Micros();
+
+    /**
+     * @return the 99.9th percentile latency in microseconds of each query and ingestion phase, by name.
+     */
+    Map<String, Double> getP999Micros();
+
+    /**
+     * @return the highest latency in microseconds of each query and ingestion phase, by name.
+     */
+    Map<String, Double> getMaxMicros();
+
+    /**
+     * @return every metric as a plain-text table, one line per query and ingestion phase.
+     */
+    String getDump();
+
+    /**
+     * This method forgets every latency recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,703 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * This is AgencySnapshot class. It writes every property of a loaded Agency to a versioned binary file, and reads
+ * it back at the next start much faster than the text files can be parsed, because the data is not validated again:
+ * it was validated when the properties were created, before the snapshot was written.
+ *
+ * The file starts with MAGIC, VERSION, the agency's name, the fingerprint of the data files it was loaded from and
+ * the number of properties, then one record per property, and ends with the CRC32 of everything before it, so a
+ * corrupt or truncated file is rejected. A snapshot of data files that have changed since is rejected too, by its
+ * fingerprint. By default, the fingerprint is the length, the time of change and the CRC32 of the first and last
+ * SAMPLE_BYTES of each data file, as returned by fingerprint(), which reads at most two samples whatever the size of
+ * the files. fullFingerprint() is the length and the CRC32 of the whole of each file instead: it reads all of them,
+ * but also tells a change in the middle of a file that kept its length and time of change.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class AgencySnapshot
+{
+    public static final int MAGIC        = 0x504D534E; // "PMSN"
+    public static final int VERSION      = 2;
+    public static final int BUFFER_SIZE  = 1024 * 1024;
+    public static final int NULL_LENGTH  = -1;
+    public static final int SAMPLE_BYTES = 64 * 1024;
+
+    public static final byte KIND_PROPERTY   = 0;
+    public static final byte KIND_RESIDENCE  = 1;
+    public static final byte KIND_COMMERCIAL = 2;
+    public static final byte KIND_RETAIL     = 3;
+
+    public static final byte FLAG_FIRST  = 1;
+    public static final byte FLAG_SECOND = 2;
+
+    private static final int CHECKSUM_BYTES = Long.BYTES;
+
+    private static final long[] NO_FINGERPRINT = new long[0];
+
+    /*
+     * Only static methods.
+     */
+    private AgencySnapshot()
+    {
+    }
+
+    /**
+     * This method writes every property of the agency to the file, with no fingerprint. The file is first written
+     * next to the target and then moved over it, so a crash never leaves a half-written snapshot behind.
+     *
+     * @param agency is the agency.
+     * @param file is the snapshot file.
+     * @throws IOException if the file can not be written.
+     */
+    public static void write(final Agency agency, final File file) throws IOException
+    {
+        write(agency, file, NO_FINGERPRINT);
+    }
+
+    /**
+     * This method writes every property of the agency to the file, with the fingerprint of the data files the agency
+     * was loaded from. It should be taken before they are loaded, so a change made during the load does not match it.
+     *
+     * @param agency is the agency.
+     * @param file is the snapshot file.
+     * @param fingerprint is the fingerprint of the data files, as returned by fingerprint() or fullFingerprint().
+     * @throws IOException if the file can not be written.
+     */
+    public static void write(final Agency agency, final File file, final long[] fingerprint) throws IOException
+    {
+        ArrayList<Property> properties;
+        properties = agency.getAllProperties();
+
+        File temporary;
+        temporary = new File(file.getPath() + ".tmp");
+
+        try(FileOutputStream    fileOutput = new FileOutputStream(temporary);
+            CheckedOutputStream checked    = new CheckedOutputStream(fileOutput, new CRC32());
+            DataOutputStream    output     = new DataOutputStream(new BufferedOutputStream(checked, BUFFER_SIZE)))
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeString(output, agency.getName());
+            output.writeInt(fingerprint.length);
+
+            for(long value: fingerprint)
+            {
+                output.writeLong(value);
+            }
+
+            output.writeInt(properties.size());
+
+            for(Property property: properties)
+            {
+                writeProperty(output, property);
+            }
+
+            output.flush();
+
+            // The checksum goes straight to the file, after everything it covers.
+            long checksum = checked.getChecksum().getValue();
+
+            new DataOutputStream(fileOutput).writeLong(checksum);
+
+            fileOutput.getFD().sync();
+        }
+
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param files are the data files.
+     * @return the fingerprint of the files: the length, the time of change, and the CRC32 of the first and last
+     *         SAMPLE_BYTES (or of the whole file, if it's not longer than two samples) of each file, in threes.
+     * @throws IOException if one of the files can not be read.
+     */
+    public static long[] fingerprint(final File... files) throws IOException
+    {
+        long[] fingerprint;
+        fingerprint = new long[3 * files.length];
+
+        byte[] bytes;
+        bytes = new byte[SAMPLE_BYTES];
+
+        for(int i = 0; i < files.length; i++)
+        {
+            CRC32 crc;
+            crc = new CRC32();
+
+            long length;
+
+            try(RandomAccessFile file = new RandomAccessFile(files[i], "r"))
+            {
+                length = file.length();
+
+                if(length <= 2L * SAMPLE_BYTES)
+                {
+                    updateFrom(file, Agency.NONE, (int) length, crc, bytes);
+                }
+                else
+                {
+                    updateFrom(file, Agency.NONE, SAMPLE_BYTES, crc, bytes);
+                    updateFrom(file, length - SAMPLE_BYTES, SAMPLE_BYTES, crc, bytes);
+                }
+            }
+
+            fingerprint[3 * i]     = length;
+            fingerprint[3 * i + 1] = files[i].lastModified();
+            fingerprint[3 * i + 2] = crc.getValue();
+        }
+
+        return fingerprint;
+    }
+
+    /**
+     * @param files are the data files.
+     * @return the full fingerprint of the files: the length and the CRC32 of the whole of each file, in pairs.
+     * @throws IOException if one of the files can not be read.
+     */
+    public static long[] fullFingerprint(final File... files) throws IOException
+    {
+        long[] fingerprint;
+        fingerprint = new long[2 * files.length];
+
+        byte[] bytes;
+        bytes = new byte[BUFFER_SIZE];
+
+        for(int i = 0; i < files.length; i++)
+        {
+            CRC32 crc;
+            crc = new CRC32();
+
+            long length = Agency.NONE;
+
+            try(FileInputStream input = new FileInputStream(files[i]))
+            {
+                for(int count = input.read(bytes); count > Agency.NONE; count = input.read(bytes))
+                {
+                    crc.update(bytes, Agency.NONE, count);
+
+                    length += count;
+                }
+            }
+
+            fingerprint[2 * i]     = length;
+            fingerprint[2 * i + 1] = crc.getValue();
+        }
+
+        return fingerprint;
+    }
+
+    /**
+     * This method reads the fingerprint that the snapshot was written with, from its header only, so the rest of the
+     * file is not read or checked.
+     *
+     * @param file is the snapshot file.
+     * @return the fingerprint, which is empty if the snapshot was written with none.
+     * @throws IOException if the file can not be read, or is not a snapshot of this VERSION.
+     */
+    public static long[] readFingerprint(final File file) throws IOException
+    {
+        try(Input input = new Input(file))
+        {
+            readName(input);
+
+            return readSavedFingerprint(input);
+        }
+    }
+
+    /**
+     * This method reads the snapshot into a new Agency with the name that was saved, whatever its fingerprint.
+     *
+     * @param file is the snapshot file.
+     * @return the agency.
+     * @throws IOException if the file can not be read, is not a snapshot of this VERSION, or is corrupt.
+     */
+    public static Agency read(final File file) throws IOException
+    {
+        try(Input input = new Input(file))
+        {
+            Agency agency;
+            agency = new Agency(readHeader(input, null));
+
+            agency.addProperties(readProperties(input));
+
+            return agency;
+        }
+    }
+
+    /**
+     * This method reads the snapshot, whatever its fingerprint, and adds its properties to the agency. Nothing is
+     * added if the file is corrupt.
+     *
+     * @param file is the snapshot file.
+     * @param agency is the agency the properties are added to.
+     * @throws IOException if the file can not be read, is not a snapshot of this VERSION, or is corrupt.
+     */
+    public static void readInto(final File file, final Agency agency) throws IOException
+    {
+        readInto(file, agency, null);
+    }
+
+    /**
+     * This method reads the snapshot, and adds its properties to the agency, if it was written with the fingerprint.
+     * Nothing is added if the file is corrupt or has another fingerprint.
+     *
+     * @param file is the snapshot file.
+     * @param agency is the agency the properties are added to.
+     * @param fingerprint is the fingerprint of the data files now, as returned by fingerprint() or fullFingerprint(),
+     *                    or null to read the snapshot whatever its fingerprint.
+     * @throws IOException if the file can not be read, is not a snapshot of this VERSION, is corrupt, or has another
+     *                     fingerprint.
+     */
+    public static void readInto(final File file, final Agency agency, final long[] fingerprint) throws IOException
+    {
+        try(Input input = new Input(file))
+        {
+            readHeader(input, fingerprint);
+
+            agency.addProperties(readProperties(input));
+        }
+    }
+
+    /*
+     * Checks the magic number, the version and the fingerprint, unless it's null, and returns the agency's name.
+     */
+    private static String readHeader(final Input input, final long[] fingerprint) throws IOException
+    {
+        String name;
+        name = readName(input);
+
+        long[] saved;
+        saved = readSavedFingerprint(input);
+
+        if((fingerprint != null) && !Arrays.equals(saved, fingerprint))
+        {
+            throw new IOException("Stale snapshot: the data files have changed");
+        }
+
+        return name;
+    }
+
+    /*
+     * Checks the magic number and the version, and returns the agency's name.
+     */
+    private static String readName(final Input input) throws IOException
+    {
+        if(input.readInt() != MAGIC)
+        {
+            throw new IOException("Not an agency snapshot");
+        }
+
+        int version = input.readInt();
+
+        if(version != VERSION)
+        {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        return input.readString();
+    }
+
+    /*
+     * Reads the fingerprint that follows the agency's name.
+     */
+    private static long[] readSavedFingerprint(final Input input) throws IOException
+    {
+        int size = input.readInt();
+
+        if((size < Agency.NONE) || (size > BUFFER_SIZE / Long.BYTES))
+        {
+            throw new IOException("Corrupt snapshot: invalid fingerprint size " + size);
+        }
+
+        long[] saved;
+        saved = new long[size];
+
+        for(int i = 0; i < size; i++)
+        {
+            saved[i] = input.readLong();
+        }
+
+        return saved;
+    }
+
+    /*
+     * Adds count bytes of the file from the position to the checksum, through the bytes, which must hold them.
+     */
+    private static void updateFrom(final RandomAccessFile file, final long position, final int count,
+                                   final CRC32 crc, final byte[] bytes) throws IOException
+    {
+        file.seek(position);
+        file.readFully(bytes, Agency.NONE, count);
+
+        crc.update(bytes, Agency.NONE, count);
+    }
+
+    /*
+     * Reads every record, and then checks the checksum, so no property of a corrupt file is returned.
+     */
+    private static ArrayList<Property> readProperties(final Input input) throws IOException
+    {
+        int count = input.readInt();
+
+        if(count < Agency.NONE)
+        {
+            throw new IOException("Corrupt snapshot: invalid count " + count);
+        }
+
+        ArrayList<Property> properties;
+        properties = new ArrayList<>(count);
+
+        AddressPool pool;
+        pool = new AddressPool();
+
+        for(int i = 0; i < count; i++)
+        {
+            properties.add(readProperty(input, pool));
+        }
+
+        input.verifyChecksum();
+
+        return properties;
+    }
+
+    /*
+     * Writes one record. MutationLog writes its records the same way.
+     */
+    static void writeProperty(final DataOutputStream output, final Property property) throws IOException
+    {
+        Address address;
+        address = property.getAddress();
+
+        if(property instanceof Residence)
+        {
+            output.writeByte(KIND_RESIDENCE);
+        }
+        else if(property instanceof Commercial)
+        {
+            output.writeByte(KIND_COMMERCIAL);
+        }
+        else if(property instanceof Retail)
+        {
+            output.writeByte(KIND_RETAIL);
+        }
+        else
+        {
+            output.writeByte(KIND_PROPERTY);
+        }
+
+        output.writeDouble(property.getPriceUsd());
+        writeString(output, property.getPropertyId());
+        writeString(output, property.getType());
+        writeString(output, address.getUnitNumber());
+        output.writeInt(address.getStreetNumber());
+        writeString(output, address.getStreetName());
+        writeString(output, address.getPostalCode());
+        writeString(output, address.getCity());
+
+        if(property instanceof Residence)
+        {
+            Residence res = (Residence) property;
+
+            output.writeInt(res.getNumberOfBedrooms());
+            output.writeByte((res.hasSwimmingPool() ? FLAG_FIRST : Agency.NONE) |
+                             (res.isStrata()        ? FLAG_SECOND : Agency.NONE));
+        }
+        else if(property instanceof Commercial)
+        {
+            Commercial com = (Commercial) property;
+
+            output.writeByte((com.isLoadingDock()   ? FLAG_FIRST : Agency.NONE) |
+                             (com.isHighwayAccess() ? FLAG_SECOND : Agency.NONE));
+        }
+        else if(property instanceof Retail)
+        {
+            Retail ret = (Retail) property;
+
+            output.writeInt(ret.getSquareFootage());
+            output.writeByte(ret.hasCustomerParking() ? FLAG_FIRST : Agency.NONE);
+        }
+    }
+
+    /*
+     * Reads one record, and creates its objects without validating them again.
+     */
+    static Property readProperty(final Input input) throws IOException
+    {
+        return readProperty(input, null);
+    }
+
+    /*
+     * Reads one record, and creates its objects without validating them again. The address is shared through the pool,
+     * unless it's null.
+     */
+    static Property readProperty(final Input input, final AddressPool pool) throws IOException
+    {
+        byte    kind         = input.readByte();
+        double  priceUsd     = input.readDouble();
+        String  propertyId   = input.readString();
+        String  type         = input.readString();
+        String  unitNumber   = input.readString();
+        int     streetNumber = input.readInt();
+        String  streetName   = input.readString();
+        String  postalCode   = input.readString();
+        String  city         = input.readString();
+
+        Address address;
+        address = (pool != null) ? pool.intern(unitNumber, streetNumber, streetName, postalCode, city, false)
+                                 : new Address(unitNumber, streetNumber, streetName, postalCode, city, false);
+
+        switch(kind)
+        {
+            case KIND_RESIDENCE:
+            {
+                int  bedrooms = input.readInt();
+                byte flags    = input.readByte();
+
+                return new Residence(priceUsd, address, type, propertyId, bedrooms,
+                                     (flags & FLAG_FIRST) != Agency.NONE, (flags & FLAG_SECOND) != Agency.NONE, false);
+            }
+            case KIND_COMMERCIAL:
+            {
+                byte flags = input.readByte();
+
+                return new Commercial(priceUsd, address, type, propertyId,
+                                      (flags & FLAG_FIRST) != Agency.NONE, (flags & FLAG_SECOND) != Agency.NONE, false);
+            }
+            case KIND_RETAIL:
+            {
+                int  squareFootage = input.readInt();
+                byte flags         = input.readByte();
+
+                return new Retail(priceUsd, address, type, propertyId, squareFootage,
+                                  (flags & FLAG_FIRST) != Agency.NONE, false);
+            }
+            case KIND_PROPERTY:
+                return new Property(priceUsd, address, type, propertyId, false);
+            default:
+                throw new IOException("Corrupt snapshot: invalid kind " + kind);
+        }
+    }
+
+    /*
+     * Writes the UTF-8 length and bytes of the String, or NULL_LENGTH if it's null.
+     */
+    static void writeString(final DataOutputStream output, final String value) throws IOException
+    {
+        if(value == null)
+        {
+            output.writeShort(NULL_LENGTH);
+        }
+        else
+        {
+            byte[] bytes;
+            bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            if(bytes.length > Short.MAX_VALUE)
+            {
+                throw new IOException("String too long for a snapshot: " + bytes.length + " bytes");
+            }
+
+            output.writeShort(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    /*
+     * Reads the snapshot sequentially through one reusable buffer, and keeps the CRC32 of the bytes read so far. It
+     * can also read the bytes of a buffer that is already filled, like a record of MutationLog.
+     */
+    static final class Input implements AutoCloseable
+    {
+        private final RandomAccessFile file;
+        private final FileChannel      channel;
+        private final ByteBuffer       buffer;
+        private final CRC32            crc;
+
+        private byte[] scratch;
+
+        /*
+         * Opens the file with an empty buffer.
+         */
+        Input(final File file) throws IOException
+        {
+            this.file = new RandomAccessFile(file, "r");
+            channel   = this.file.getChannel();
+            buffer    = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            crc       = new CRC32();
+            scratch   = new byte[Byte.MAX_VALUE];
+
+            buffer.flip();
+        }
+
+        /*
+         * Reads the remaining bytes of the buffer, and nothing else.
+         */
+        Input(final ByteBuffer buffer)
+        {
+            file        = null;
+            channel     = null;
+            this.buffer = buffer;
+            crc         = new CRC32();
+            scratch     = new byte[Byte.MAX_VALUE];
+        }
+
+        /*
+         * Reads a byte.
+         */
+        byte readByte() throws IOException
+        {
+            require(Byte.BYTES);
+
+            return buffer.get();
+        }
+
+        /*
+         * Reads a big-endian int.
+         */
+        int readInt() throws IOException
+        {
+            require(Integer.BYTES);
+
+            return buffer.getInt();
+        }
+
+        /*
+         * Reads a big-endian long.
+         */
+        long readLong() throws IOException
+        {
+            require(Long.BYTES);
+
+            return buffer.getLong();
+        }
+
+        /*
+         * Reads a big-endian double.
+         */
+        double readDouble() throws IOException
+        {
+            require(Double.BYTES);
+
+            return buffer.getDouble();
+        }
+
+        /*
+         * Reads a String written by writeString().
+         */
+        String readString() throws IOException
+        {
+            require(Short.BYTES);
+
+            int length = buffer.getShort();
+
+            if(length == NULL_LENGTH)
+            {
+                return null;
+            }
+
+            if(length < Agency.NONE)
+            {
+                throw new IOException("Corrupt snapshot: invalid string length " + length);
+            }
+
+            require(length);
+
+            if(length > scratch.length)
+            {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+
+            buffer.get(scratch, Agency.NONE, length);
+
+            return new String(scratch, Agency.NONE, length, StandardCharsets.UTF_8);
+        }
+
+        /*
+         * Compares the CRC32 of everything read so far with the checksum at the end of the file.
+         */
+        void verifyChecksum() throws IOException
+        {
+            checksumConsumed();
+
+            long expected = crc.getValue();
+
+            require(CHECKSUM_BYTES);
+
+            if((buffer.getLong() != expected) || buffer.hasRemaining() || (channel.position() != channel.size()))
+            {
+                throw new IOException("Corrupt snapshot: checksum mismatch");
+            }
+        }
+
+        /*
+         * Closes the file.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            if(file != null)
+            {
+                file.close();
+            }
+        }
+
+        /*
+         * Makes sure that at least the number of bytes can be read from the buffer.
+         */
+        private void require(final int bytes) throws IOException
+        {
+            if(buffer.remaining() >= bytes)
+            {
+                return;
+            }
+
+            checksumConsumed();
+
+            buffer.compact();
+
+            while(buffer.position() < bytes)
+            {
+                if((channel == null) || (channel.read(buffer) < Agency.NONE))
+                {
+                    throw new EOFException("Corrupt snapshot: unexpected end of file");
+                }
+            }
+
+            buffer.flip();
+        }
+
+        /*
+         * Adds the bytes read from the buffer to the checksum, and drops them from the buffer.
+         */
+        private void checksumConsumed()
+        {
+            ByteBuffer consumed;
+            consumed = buffer.duplicate();
+
+            consumed.flip();
+            crc.update(consumed);
+
+            buffer.compact();
+            buffer.flip();
+        }
+    }
+}
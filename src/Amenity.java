@@ -0,0 +1,59 @@
+/**
+ * This is Amenity enum. It names the boolean amenity flags of the Property subtypes.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public enum Amenity
+{
+    SWIMMING_POOL,
+    STRATA,
+    LOADING_DOCK,
+    HIGHWAY_ACCESS,
+    CUSTOMER_PARKING;
+
+    /**
+     * @param property is the property.
+     * @return true, if the property is of the subtype that has this amenity flag; otherwise, returns false.
+     */
+    public boolean appliesTo(final Property property)
+    {
+        switch(this)
+        {
+            case SWIMMING_POOL:
+            case STRATA:
+                return property instanceof Residence;
+            case LOADING_DOCK:
+            case HIGHWAY_ACCESS:
+                return property instanceof Commercial;
+            default: // CUSTOMER_PARKING
+                return property instanceof Retail;
+        }
+    }
+
+    /**
+     * @param property is the property.
+     * @return true, if the property has this amenity; otherwise, returns false.
+     */
+    public boolean isPresentIn(final Property property)
+    {
+        if(!appliesTo(property))
+        {
+            return false;
+        }
+
+        switch(this)
+        {
+            case SWIMMING_POOL:
+                return ((Residence) property).hasSwimmingPool();
+            case STRATA:
+                return ((Residence) property).isStrata();
+            case LOADING_DOCK:
+                return ((Commercial) property).isLoadingDock();
+            case HIGHWAY_ACCESS:
+                return ((Commercial) property).isHighwayAccess();
+            default: // CUSTOMER_PARKING
+                return ((Retail) property).hasCustomerParking();
+        }
+    }
+}
@@ -0,0 +1,454 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This is BatchQueryRunner class. It runs a script of saved searches against an Agency without the menus of
+ * PropertyManager.doSearches(): one query per line, with its fields separated by SEPARATOR, as in the data files.
+ *
+ *     id|18op                      getProperty("18op")
+ *     price|100000|600000          getPropertiesBetween(100000, 600000)
+ *     street|main street           getPropertiesOn("main street")
+ *     type|retail                  getPropertiesOfType("retail")
+ *     bedrooms|2|3                 getPropertiesWithBedrooms(2, 3)
+ *     squareFootage|5000           getPropertiesWithSquareFootage(5000)
+ *     amenities|loading_dock|...   getPropertiesWithAll(LOADING_DOCK, ...), any Amenity, case insensitive
+ *     pool                         getPropertiesWithPool()
+ *     strata                       getPropertiesWithStrata()
+ *     loadingDock                  getPropertiesWithLoadingDock()
+ *     highwayAccess                getPropertiesWithHighwayAccess()
+ *     customerParking              getPropertiesWithCustomerParking()
+ *     all                          getAllProperties()
+ *
+ * Blank lines, and lines that start with COMMENT, are skipped. The queries run in parallel on a ForkJoinPool, and
+ * each result is formatted on the thread that ran it, so the thread writing the output only copies text. The results
+ * are still written in the order of the script: the query of each line, then one line per result, then the number of
+ * results, or an error for a query that can not be run. isLastLine() tells the last line of a result apart, so the
+ * same format can be streamed over a connection (see QueryServer). At most QUERIES_IN_FLIGHT_PER_THREAD queries per
+ * thread are run ahead of the output, so a script of any length takes bounded memory.
+ *
+ * The agency must not change while a script runs, except a ConcurrentAgency.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class BatchQueryRunner
+{
+    private final Agency agency;
+    private final int    parallelism;
+
+    // The kinds of query, the first field of each line of a script.
+    public static final String ID             = "id";
+    public static final String PRICE          = "price";
+    public static final String STREET         = "street";
+    public static final String TYPE           = "type";
+    public static final String BEDROOMS       = "bedrooms";
+    public static final String SQUARE_FOOTAGE = "squareFootage";
+    public static final String AMENITIES      = "amenities";
+    public static final String POOL           = "pool";
+    public static final String STRATA         = "strata";
+    public static final String LOADING_DOCK   = "loadingDock";
+    public static final String HIGHWAY_ACCESS = "highwayAccess";
+    public static final String PARKING        = "customerParking";
+    public static final String ALL            = "all";
+
+    public static final char   SEPARATOR      = '|';
+    public static final String COMMENT        = "#";
+    public static final String QUERY_PREFIX   = "> ";
+    public static final String COUNT_PREFIX   = "= ";
+    public static final String ERROR_PREFIX   = ">> Error! ";
+
+    public static final int QUERIES_IN_FLIGHT_PER_THREAD = 64;
+    public static final int MIN_PARALLELISM              = 1;
+    public static final int NONE                         = 0;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * This is the BatchQueryRunner constructor. It uses one thread per available processor.
+     *
+     * @param agency is the agency the queries are run on. It must be not null.
+     * @throws NullPointerException if agency is null.
+     */
+    public BatchQueryRunner(final Agency agency) throws NullPointerException
+    {
+        this(agency, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param agency is the agency the queries are run on. It must be not null.
+     * @param parallelism is the number of threads. It must be not less than MIN_PARALLELISM.
+     * @throws NullPointerException if agency is null.
+     * @throws IllegalArgumentException if parallelism is less than MIN_PARALLELISM.
+     */
+    public BatchQueryRunner(final Agency agency, final int parallelism) throws NullPointerException,
+                                                                               IllegalArgumentException
+    {
+        if(agency == null)
+        {
+            throw new NullPointerException("Invalid agency: null");
+        }
+
+        if(parallelism < MIN_PARALLELISM)
+        {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+
+        this.agency      = agency;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * This method runs every query of the script, and writes their results to the output in the order of the script.
+     * The output is flushed at the end, but not closed.
+     *
+     * @param script is the script, one query per line.
+     * @param output is where the results are written. It should be buffered.
+     * @return the number of queries run.
+     * @throws IOException if the script can not be read or the output can not be written.
+     */
+    public long run(final Reader script, final Writer output) throws IOException
+    {
+        BufferedReader lines;
+        lines = new BufferedReader(script);
+
+        ForkJoinPool pool;
+        pool = new ForkJoinPool(parallelism);
+
+        ArrayDeque<Future<String>> inFlight;
+        inFlight = new ArrayDeque<>();
+
+        int  maxInFlight = parallelism * QUERIES_IN_FLIGHT_PER_THREAD;
+        long queries     = NONE;
+
+        try
+        {
+            for(String line = lines.readLine(); line != null; line = lines.readLine())
+            {
+                String query = line.trim();
+
+                if(query.isEmpty() || query.startsWith(COMMENT))
+                {
+                    continue;
+                }
+
+                if(inFlight.size() >= maxInFlight)
+                {
+                    output.write(join(inFlight.poll()));
+                }
+
+                inFlight.add(pool.submit(() -> runQuery(query)));
+                queries++;
+            }
+
+            while(!inFlight.isEmpty())
+            {
+                output.write(join(inFlight.poll()));
+            }
+
+            output.flush();
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        return queries;
+    }
+
+    /**
+     * @param query is one line of a script.
+     * @return the query, one line per result, and the number of results, each ending with a line separator; or the
+     *         query and an error if it can not be run.
+     */
+    public String runQuery(final String query)
+    {
+        StringBuilder text;
+        text = new StringBuilder();
+
+        try
+        {
+            runQuery(query, text);
+        }
+        catch(IOException e)
+        {
+            // A StringBuilder does not throw it.
+            throw new UncheckedIOException(e);
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * This method is runQuery() for a large result: each line is appended to the output as it's formatted, so the
+     * whole text of the result is never held in memory.
+     *
+     * @param query is one line of a script.
+     * @param output is where the query, one line per result, and the number of results are appended, each ending
+     *               with a line separator; or the query and an error if it can not be run.
+     * @throws IOException if the output can not be written.
+     */
+    public void runQuery(final String query, final Appendable output) throws IOException
+    {
+        output.append(QUERY_PREFIX).append(query).append(LINE_SEPARATOR);
+
+        Object result;
+
+        try
+        {
+            result = execute(query);
+        }
+        catch(IllegalArgumentException e)
+        {
+            output.append(ERROR_PREFIX).append(e.getMessage()).append(LINE_SEPARATOR);
+
+            return;
+        }
+
+        appendResults(output, result);
+    }
+
+    /**
+     * @param query is one line of a script.
+     * @return the result of the query, as returned by the Agency: a Property, an array, a Collection or a Map, or null
+     *         if there are no results.
+     * @throws IllegalArgumentException if the kind of query is unknown, or a field is missing or invalid.
+     */
+    public Object execute(final String query) throws IllegalArgumentException
+    {
+        String[] fields;
+        fields = fieldsOf(query);
+
+        String kind;
+        kind = fields[0];
+
+        if(kind.equalsIgnoreCase(ID))
+        {
+            return agency.getProperty(field(fields, 1));
+        }
+        else if(kind.equalsIgnoreCase(PRICE))
+        {
+            return agency.getPropertiesBetween(intField(fields, 1), intField(fields, 2));
+        }
+        else if(kind.equalsIgnoreCase(STREET))
+        {
+            return agency.getPropertiesOn(field(fields, 1));
+        }
+        else if(kind.equalsIgnoreCase(TYPE))
+        {
+            return agency.getPropertiesOfType(field(fields, 1));
+        }
+        else if(kind.equalsIgnoreCase(BEDROOMS))
+        {
+            return agency.getPropertiesWithBedrooms(intField(fields, 1), intField(fields, 2));
+        }
+        else if(kind.equalsIgnoreCase(SQUARE_FOOTAGE))
+        {
+            return agency.getPropertiesWithSquareFootage(intField(fields, 1));
+        }
+        else if(kind.equalsIgnoreCase(AMENITIES))
+        {
+            EnumSet<Amenity> amenities;
+            amenities = EnumSet.noneOf(Amenity.class);
+
+            for(int i = 1; i < fields.length; i++)
+            {
+                amenities.add(amenityOf(fields[i]));
+            }
+
+            return agency.getPropertiesWithAll(amenities.toArray(new Amenity[NONE]));
+        }
+        else if(kind.equalsIgnoreCase(POOL))
+        {
+            return agency.getPropertiesWithPool();
+        }
+        else if(kind.equalsIgnoreCase(STRATA))
+        {
+            return agency.getPropertiesWithStrata();
+        }
+        else if(kind.equalsIgnoreCase(LOADING_DOCK))
+        {
+            return agency.getPropertiesWithLoadingDock();
+        }
+        else if(kind.equalsIgnoreCase(HIGHWAY_ACCESS))
+        {
+            return agency.getPropertiesWithHighwayAccess();
+        }
+        else if(kind.equalsIgnoreCase(PARKING))
+        {
+            return agency.getPropertiesWithCustomerParking();
+        }
+        else if(kind.equalsIgnoreCase(ALL))
+        {
+            return agency.getAllProperties();
+        }
+        else
+        {
+            throw new IllegalArgumentException("Invalid query: " + query);
+        }
+    }
+
+    /**
+     * @param line is a line of the output of runQuery().
+     * @return true, if the line is the last of the result of a query: its number of results, or its error; otherwise,
+     *         returns false.
+     */
+    public static boolean isLastLine(final String line)
+    {
+        return line.startsWith(COUNT_PREFIX) || line.startsWith(ERROR_PREFIX);
+    }
+
+    /**
+     * @param result is the result of a query, as returned by execute().
+     * @return the results one by one: none for null, the element for a Property, the elements of an array or a
+     *         Collection, or the values of a Map in key order, so they do not depend on the kind of agency.
+     */
+    public static Collection<?> resultsOf(final Object result)
+    {
+        if(result == null)
+        {
+            return new ArrayList<>();
+        }
+        else if(result instanceof Collection)
+        {
+            return (Collection<?>) result;
+        }
+        else if(result instanceof Map)
+        {
+            return new TreeMap<>((Map<?, ?>) result).values();
+        }
+        else if(result instanceof Object[])
+        {
+            return Arrays.asList((Object[]) result);
+        }
+        else
+        {
+            return Arrays.asList(result);
+        }
+    }
+
+    /*
+     * Appends one line per result, and then the number of results.
+     */
+    private static void appendResults(final Appendable text, final Object result) throws IOException
+    {
+        Collection<?> results;
+        results = resultsOf(result);
+
+        for(Object element: results)
+        {
+            // Some toString()s start with a line separator, but a result takes one line.
+            text.append(String.valueOf(element).trim()).append(LINE_SEPARATOR);
+        }
+
+        text.append(COUNT_PREFIX).append(String.valueOf(results.size())).append(" results").append(LINE_SEPARATOR);
+    }
+
+    /*
+     * Splits the query into its trimmed fields.
+     */
+    private static String[] fieldsOf(final String query)
+    {
+        ArrayList<String> fields;
+        fields = new ArrayList<>();
+
+        int start = NONE;
+
+        for(int end = query.indexOf(SEPARATOR); end != -1; end = query.indexOf(SEPARATOR, start))
+        {
+            fields.add(query.substring(start, end).trim());
+            start = end + 1;
+        }
+
+        fields.add(query.substring(start).trim());
+
+        return fields.toArray(new String[NONE]);
+    }
+
+    /*
+     * Returns the field at the index, or throws an IllegalArgumentException if it's missing or empty.
+     */
+    private static String field(final String[] fields, final int index)
+    {
+        if((index >= fields.length) || fields[index].isEmpty())
+        {
+            throw new IllegalArgumentException("Missing field " + index + " of query: " + fields[0]);
+        }
+
+        return fields[index];
+    }
+
+    /*
+     * Returns the int field at the index, or throws an IllegalArgumentException if it's missing or not an int.
+     */
+    private static int intField(final String[] fields, final int index)
+    {
+        String field;
+        field = field(fields, index);
+
+        try
+        {
+            return Integer.parseInt(field);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid number: " + field);
+        }
+    }
+
+    /*
+     * Returns the amenity of the name (case insensitive), or throws an IllegalArgumentException if there is none.
+     */
+    private static Amenity amenityOf(final String name)
+    {
+        try
+        {
+            return Amenity.valueOf(name.toUpperCase(Locale.ROOT));
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Invalid amenity: " + name);
+        }
+    }
+
+    /*
+     * Waits for the query, and rethrows a failure other than an invalid query, which runQuery() already reports.
+     */
+    private static String join(final Future<String> query) throws IOException
+    {
+        try
+        {
+            return query.get();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while running queries", e);
+        }
+        catch(ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+
+            if(cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+import java.util.Arrays;
+
+/**
+ * This is Bitmap class. It's a compressed set of non-negative row numbers: bits are stored in blocks of
+ * BLOCK_WORDS words, and a block that holds no set bit is not allocated at all. AND, OR, AND NOT and NOT are done
+ * word by word, and empty blocks are skipped.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class Bitmap
+{
+    private long[][] blocks;
+
+    public static final int WORD_BITS   = 64;
+    public static final int BLOCK_WORDS = 64;
+    public static final int BLOCK_BITS  = WORD_BITS * BLOCK_WORDS;
+    public static final int NONE        = 0;
+    public static final int NOT_FOUND   = -1;
+
+    private static final int WORD_SHIFT  = 6;
+    private static final int BLOCK_SHIFT = 12;
+    private static final int WORD_MASK   = BLOCK_WORDS - 1;
+
+    /**
+     * This is the Bitmap constructor. It creates an empty bitmap.
+     */
+    public Bitmap()
+    {
+        blocks = new long[NONE][];
+    }
+
+    /*
+     * Creates a bitmap that owns the specified blocks.
+     */
+    private Bitmap(final long[][] blocks)
+    {
+        this.blocks = blocks;
+    }
+
+    /**
+     * @param row is the row number.
+     * @return true, if the row is in this bitmap; otherwise, returns false.
+     */
+    public boolean get(final int row)
+    {
+        int block = row >>> BLOCK_SHIFT;
+
+        if((row < NONE) || (block >= blocks.length) || (blocks[block] == null))
+        {
+            return false;
+        }
+
+        return (blocks[block][(row >>> WORD_SHIFT) & WORD_MASK] & (1L << row)) != NONE;
+    }
+
+    /**
+     * This method adds the row to this bitmap.
+     *
+     * @param row is the row number. It must be not less than NONE.
+     * @throws IllegalArgumentException if row is less than NONE.
+     */
+    public void set(final int row)
+    {
+        if(row < NONE)
+        {
+            throw new IllegalArgumentException("Invalid row: " + row);
+        }
+
+        int block = row >>> BLOCK_SHIFT;
+
+        if(block >= blocks.length)
+        {
+            blocks = Arrays.copyOf(blocks, Math.max(block + 1, blocks.length * 2));
+        }
+
+        if(blocks[block] == null)
+        {
+            blocks[block] = new long[BLOCK_WORDS];
+        }
+
+        blocks[block][(row >>> WORD_SHIFT) & WORD_MASK] |= (1L << row);
+    }
+
+    /**
+     * This method removes the row from this bitmap. A block that becomes empty is released.
+     *
+     * @param row is the row number.
+     */
+    public void clear(final int row)
+    {
+        int block = row >>> BLOCK_SHIFT;
+
+        if((row < NONE) || (block >= blocks.length) || (blocks[block] == null))
+        {
+            return;
+        }
+
+        blocks[block][(row >>> WORD_SHIFT) & WORD_MASK] &= ~(1L << row);
+
+        if(isEmpty(blocks[block]))
+        {
+            blocks[block] = null;
+        }
+    }
+
+    /**
+     * @param fromRow is the first row number to check.
+     * @return the first row in this bitmap that is not less than fromRow, or NOT_FOUND if there is none.
+     */
+    public int nextSetBit(final int fromRow)
+    {
+        int row = Math.max(fromRow, NONE);
+
+        for(int block = row >>> BLOCK_SHIFT; block < blocks.length; block++)
+        {
+            long[] words = blocks[block];
+
+            if(words != null)
+            {
+                int word = (block == (row >>> BLOCK_SHIFT)) ? ((row >>> WORD_SHIFT) & WORD_MASK) : NONE;
+                long bits = words[word];
+
+                if(block == (row >>> BLOCK_SHIFT))
+                {
+                    bits &= (-1L << row);
+                }
+
+                while(true)
+                {
+                    if(bits != NONE)
+                    {
+                        return (block << BLOCK_SHIFT) + (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+                    }
+
+                    word++;
+
+                    if(word == BLOCK_WORDS)
+                    {
+                        break;
+                    }
+
+                    bits = words[word];
+                }
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return the number of rows in this bitmap.
+     */
+    public int cardinality()
+    {
+        int count = NONE;
+
+        for(long[] words: blocks)
+        {
+            if(words != null)
+            {
+                for(long bits: words)
+                {
+                    count += Long.bitCount(bits);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return true, if there is no row in this bitmap; otherwise, returns false.
+     */
+    public boolean isEmpty()
+    {
+        for(long[] words: blocks)
+        {
+            if(words != null)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param other is the other bitmap.
+     * @return a new bitmap that holds the rows that are in both this bitmap and the other bitmap.
+     */
+    public Bitmap and(final Bitmap other)
+    {
+        long[][] result;
+        result = new long[Math.min(blocks.length, other.blocks.length)][];
+
+        for(int block = 0; block < result.length; block++)
+        {
+            if((blocks[block] != null) && (other.blocks[block] != null))
+            {
+                long[] words;
+                words = new long[BLOCK_WORDS];
+
+                for(int word = 0; word < BLOCK_WORDS; word++)
+                {
+                    words[word] = blocks[block][word] & other.blocks[block][word];
+                }
+
+                result[block] = isEmpty(words) ? null : words;
+            }
+        }
+
+        return new Bitmap(result);
+    }
+
+    /**
+     * @param other is the other bitmap.
+     * @return a new bitmap that holds the rows that are in this bitmap, the other bitmap, or both.
+     */
+    public Bitmap or(final Bitmap other)
+    {
+        long[][] result;
+        result = new long[Math.max(blocks.length, other.blocks.length)][];
+
+        for(int block = 0; block < result.length; block++)
+        {
+            long[] mine   = (block < blocks.length) ? blocks[block] : null;
+            long[] theirs = (block < other.blocks.length) ? other.blocks[block] : null;
+
+            if((mine != null) && (theirs != null))
+            {
+                long[] words;
+                words = new long[BLOCK_WORDS];
+
+                for(int word = 0; word < BLOCK_WORDS; word++)
+                {
+                    words[word] = mine[word] | theirs[word];
+                }
+
+                result[block] = words;
+            }
+            else if(mine != null)
+            {
+                result[block] = mine.clone();
+            }
+            else if(theirs != null)
+            {
+                result[block] = theirs.clone();
+            }
+        }
+
+        return new Bitmap(result);
+    }
+
+    /**
+     * @param other is the other bitmap.
+     * @return a new bitmap that holds the rows that are in this bitmap but not in the other bitmap.
+     */
+    public Bitmap andNot(final Bitmap other)
+    {
+        long[][] result;
+        result = new long[blocks.length][];
+
+        for(int block = 0; block < result.length; block++)
+        {
+            if(blocks[block] != null)
+            {
+                if((block < other.blocks.length) && (other.blocks[block] != null))
+                {
+                    long[] words;
+                    words = new long[BLOCK_WORDS];
+
+                    for(int word = 0; word < BLOCK_WORDS; word++)
+                    {
+                        words[word] = blocks[block][word] & ~other.blocks[block][word];
+                    }
+
+                    result[block] = isEmpty(words) ? null : words;
+                }
+                else
+                {
+                    result[block] = blocks[block].clone();
+                }
+            }
+        }
+
+        return new Bitmap(result);
+    }
+
+    /**
+     * @param size is the number of rows to consider, starting from row NONE.
+     * @return a new bitmap that holds the rows less than size that are not in this bitmap.
+     */
+    public Bitmap not(final int size)
+    {
+        long[][] result;
+        result = new long[(Math.max(size, NONE) + BLOCK_BITS - 1) >>> BLOCK_SHIFT][];
+
+        for(int block = 0; block < result.length; block++)
+        {
+            long[] words;
+            words = new long[BLOCK_WORDS];
+
+            for(int word = 0; word < BLOCK_WORDS; word++)
+            {
+                int  firstRow = (block << BLOCK_SHIFT) + (word << WORD_SHIFT);
+                long mine     = ((block < blocks.length) && (blocks[block] != null)) ? blocks[block][word] : NONE;
+
+                if(firstRow + WORD_BITS <= size)
+                {
+                    words[word] = ~mine;
+                }
+                else if(firstRow < size)
+                {
+                    words[word] = ~mine & ((1L << (size - firstRow)) - 1);
+                }
+            }
+
+            result[block] = isEmpty(words) ? null : words;
+        }
+
+        return new Bitmap(result);
+    }
+
+    /**
+     * @return a new bitmap that holds the same rows as this bitmap.
+     */
+    public Bitmap copy()
+    {
+        long[][] result;
+        result = new long[blocks.length][];
+
+        for(int block = 0; block < result.length; block++)
+        {
+            if(blocks[block] != null)
+            {
+                result[block] = blocks[block].clone();
+            }
+        }
+
+        return new Bitmap(result);
+    }
+
+    /*
+     * Returns true if no bit is set in the words.
+     */
+    private static boolean isEmpty(final long[] words)
+    {
+        for(long bits: words)
+        {
+            if(bits != NONE)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
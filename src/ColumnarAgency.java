@@ -0,0 +1,934 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This is ColumnarAgency class. It's an Agency that keeps its properties in primitive columns (one array per field)
+ * instead of one Property object per listing: prices in a double[], bedrooms and square footage in an int[], the
+ * subtype and amenity flags packed into a byte[], and type, unit number, street name, postal code and city as
+ * dictionary codes in int[] columns. A listing takes about fifty bytes of columns plus its slot in the id table, and
+ * scans run over contiguous memory.
+ *
+ * Every query returns new Property objects built from the columns. addProperty() copies the property into the
+ * columns, so a later change to that Property object is not seen by this agency; use setPriceUsd(String, double).
+ * The queries whose results are kept in the query cache, and getPropertiesAt() which they use, return read-only views
+ * of the new objects, since the cache hands the same elements to every caller that asks again.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class ColumnarAgency extends Agency
+{
+    private final LongIntHashMap   rowsById;
+    private final StringDictionary types;
+    private final StringDictionary unitNumbers;
+    private final StringDictionary streetNames;
+    private final StringDictionary postalCodes;
+    private final StringDictionary cities;
+
+    private long[]   ids;
+    private double[] prices;
+    private int[]    sizes; // number of bedrooms of a residence, or square footage of a retail
+    private byte[]   flags;
+    private int[]    typeCodes;
+    private int[]    unitNumberCodes;
+    private int[]    streetNumbers;
+    private int[]    streetNameCodes;
+    private int[]    postalCodeCodes;
+    private int[]    cityCodes;
+    private int      rowCount;
+
+    public static final int INITIAL_CAPACITY = 1024;
+
+    // The kinds are the same as the kinds of PortfolioAggregates.
+    public static final int KIND_MASK       = 0b11;
+    public static final int KIND_PROPERTY   = 0;
+    public static final int KIND_RESIDENCE  = 1;
+    public static final int KIND_COMMERCIAL = 2;
+    public static final int KIND_RETAIL     = 3;
+
+    public static final int FLAG_SWIMMING_POOL    = 1 << 2;
+    public static final int FLAG_STRATA           = 1 << 3;
+    public static final int FLAG_LOADING_DOCK     = 1 << 4;
+    public static final int FLAG_HIGHWAY_ACCESS   = 1 << 5;
+    public static final int FLAG_CUSTOMER_PARKING = 1 << 6;
+
+    /**
+     * @param name is the agency's name. Its length must be between MIN_NAME_LENGTH and MAX_NAME_LENGTH characters.
+     * @throws IllegalArgumentException if name's length is less than MIN_NAME_LENGTH and greater than
+     *                                  MAX_NAME_LENGTH characters.
+     */
+    public ColumnarAgency(final String name) throws IllegalArgumentException
+    {
+        super(name);
+
+        rowsById    = new LongIntHashMap();
+        types       = new StringDictionary();
+        unitNumbers = new StringDictionary();
+        streetNames = new StringDictionary();
+        postalCodes = new StringDictionary();
+        cities      = new StringDictionary();
+
+        ids             = new long[INITIAL_CAPACITY];
+        prices          = new double[INITIAL_CAPACITY];
+        sizes           = new int[INITIAL_CAPACITY];
+        flags           = new byte[INITIAL_CAPACITY];
+        typeCodes       = new int[INITIAL_CAPACITY];
+        unitNumberCodes = new int[INITIAL_CAPACITY];
+        streetNumbers   = new int[INITIAL_CAPACITY];
+        streetNameCodes = new int[INITIAL_CAPACITY];
+        postalCodeCodes = new int[INITIAL_CAPACITY];
+        cityCodes       = new int[INITIAL_CAPACITY];
+        rowCount        = NONE;
+    }
+
+    /**
+     * This method copies the non-null property into the columns. A property with the same id is replaced.
+     *
+     * @param property is the property. Its id must be made of Latin-1 characters.
+     * @throws IllegalArgumentException if the property id is not made of Latin-1 characters.
+     */
+    @Override
+    public void addProperty(final Property property)
+    {
+        if(property == null)
+        {
+            return;
+        }
+
+        long id;
+        id = PropertyIdCodec.pack(property.getPropertyId());
+
+        int row;
+        row = rowsById.get(keyOf(id));
+
+        if(row == LongIntHashMap.NOT_FOUND)
+        {
+            if(rowCount == ids.length)
+            {
+                grow();
+            }
+
+            row = rowCount++;
+            rowsById.put(keyOf(id), row);
+        }
+        else
+        {
+            getAggregates().remove(flags[row] & KIND_MASK, prices[row]);
+        }
+
+        Address address;
+        address = property.getAddress();
+
+        ids[row]             = id;
+        prices[row]          = property.getPriceUsd();
+        typeCodes[row]       = types.encode(property.getType());
+        unitNumberCodes[row] = unitNumbers.encode(address.getUnitNumber());
+        streetNumbers[row]   = address.getStreetNumber();
+        streetNameCodes[row] = streetNames.encode(address.getStreetName());
+        postalCodeCodes[row] = postalCodes.encode(address.getPostalCode());
+        cityCodes[row]       = cities.encode(address.getCity());
+
+        if(property instanceof Residence)
+        {
+            Residence res = (Residence) property;
+
+            sizes[row] = res.getNumberOfBedrooms();
+            flags[row] = (byte) (KIND_RESIDENCE                                      |
+                                 (res.hasSwimmingPool() ? FLAG_SWIMMING_POOL : NONE) |
+                                 (res.isStrata()        ? FLAG_STRATA        : NONE));
+        }
+        else if(property instanceof Commercial)
+        {
+            Commercial com = (Commercial) property;
+
+            sizes[row] = NONE;
+            flags[row] = (byte) (KIND_COMMERCIAL                                      |
+                                 (com.isLoadingDock()   ? FLAG_LOADING_DOCK   : NONE) |
+                                 (com.isHighwayAccess() ? FLAG_HIGHWAY_ACCESS : NONE));
+        }
+        else if(property instanceof Retail)
+        {
+            Retail ret = (Retail) property;
+
+            sizes[row] = ret.getSquareFootage();
+            flags[row] = (byte) (KIND_RETAIL |
+                                 (ret.hasCustomerParking() ? FLAG_CUSTOMER_PARKING : NONE));
+        }
+        else
+        {
+            sizes[row] = NONE;
+            flags[row] = KIND_PROPERTY;
+        }
+
+        getAggregates().add(flags[row] & KIND_MASK, prices[row]);
+
+        mutated();
+
+        firePropertyAdded(property);
+    }
+
+    /**
+     * @param propertyId is the property id.
+     * @return a new Property built from the columns whose ID matches(case insensitive) with the parameter(property
+     *         id), or null if there is none.
+     */
+    @Override
+    protected Property findProperty(final String propertyId)
+    {
+        int row;
+        row = rowOf(propertyId);
+
+        return (row == LongIntHashMap.NOT_FOUND) ? null : materialize(row);
+    }
+
+    /**
+     * This method removes the property whose ID matches(case insensitive) with the parameter(property id). The last
+     * row is moved into its place, so the columns stay dense.
+     *
+     * @param propertyId is the property id.
+     */
+    @Override
+    public void removeProperty(final String propertyId)
+    {
+        int row;
+        row = rowOf(propertyId);
+
+        if(row == LongIntHashMap.NOT_FOUND)
+        {
+            return;
+        }
+
+        // The listeners are given the property as it was, so it's built before its row is overwritten.
+        Property removed;
+        removed = hasAgencyListeners() ? materialize(row) : null;
+
+        rowsById.remove(keyOf(ids[row]));
+        getAggregates().remove(flags[row] & KIND_MASK, prices[row]);
+
+        int last = --rowCount;
+
+        if(row != last)
+        {
+            ids[row]             = ids[last];
+            prices[row]          = prices[last];
+            sizes[row]           = sizes[last];
+            flags[row]           = flags[last];
+            typeCodes[row]       = typeCodes[last];
+            unitNumberCodes[row] = unitNumberCodes[last];
+            streetNumbers[row]   = streetNumbers[last];
+            streetNameCodes[row] = streetNameCodes[last];
+            postalCodeCodes[row] = postalCodeCodes[last];
+            cityCodes[row]       = cityCodes[last];
+
+            rowsById.put(keyOf(ids[row]), row);
+        }
+
+        mutated();
+
+        if(removed != null)
+        {
+            firePropertyRemoved(removed);
+        }
+    }
+
+    /**
+     * This method sets the price in USD of the property whose ID matches(case insensitive) with the
+     * parameter(property id).
+     *
+     * @param propertyId is the property id.
+     * @param priceUsd is the price in USD for this property.
+     * @return true, if the property was found; otherwise, returns false.
+     * @throws IllegalArgumentException if price in USD of this property is less than NONE.
+     */
+    @Override
+    public boolean setPriceUsd(final String propertyId, final double priceUsd)
+    {
+        if(priceUsd < NONE)
+        {
+            throw new IllegalArgumentException("Invalid price: " + priceUsd);
+        }
+
+        int row;
+        row = rowOf(propertyId);
+
+        if(row == LongIntHashMap.NOT_FOUND)
+        {
+            return false;
+        }
+
+        double oldPriceUsd = prices[row];
+
+        prices[row] = priceUsd;
+
+        if(Double.compare(oldPriceUsd, priceUsd) != NONE)
+        {
+            getAggregates().priceChanged(flags[row] & KIND_MASK, oldPriceUsd, priceUsd);
+
+            mutated();
+        }
+
+        if(hasAgencyListeners() && (Double.compare(oldPriceUsd, priceUsd) != NONE))
+        {
+            firePropertyPriceChanged(materialize(row), oldPriceUsd, priceUsd);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return an ArrayList<Property> of new properties built from every row, in row order.
+     */
+    @Override
+    public ArrayList<Property> getAllProperties()
+    {
+        ArrayList<Property> allProperties;
+        allProperties = new ArrayList<>(rowCount);
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            allProperties.add(materialize(row));
+        }
+
+        return allProperties;
+    }
+
+    /**
+     * @return an ArrayList<Residence> type properties since only that type will now have swimming pools.
+     */
+    @Override
+    protected ArrayList<Residence> findPropertiesWithPool()
+    {
+        ArrayList<Residence> propertiesWithPool;
+        propertiesWithPool = new ArrayList<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if((flags[row] & FLAG_SWIMMING_POOL) != NONE)
+            {
+                propertiesWithPool.add((Residence) viewAt(row));
+            }
+        }
+
+        if(propertiesWithPool.size() > NONE)
+        {
+            return propertiesWithPool;
+        }
+        else // no property with pool
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return an array of properties whose price falls in the range specified by the parameters, or null if there are none.
+     */
+    @Override
+    protected Property[] findPropertiesBetween(final int minUsd, final int maxUsd)
+    {
+        ArrayList<Property> allMatches;
+        allMatches = new ArrayList<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if((prices[row] >= minUsd) && (prices[row] <= maxUsd))
+            {
+                allMatches.add(viewAt(row));
+            }
+        }
+
+        if(allMatches.size() > NONE)
+        {
+            return allMatches.toArray(new Property[NONE]);
+        }
+        else // no property found in this range of price
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @param streetName is the street name.
+     * @return an ArrayList of addresses which are on the specified street, or null if there are none.
+     */
+    @Override
+    protected ArrayList<Address> findPropertiesOn(final String streetName)
+    {
+        ArrayList<Address> propertiesOn;
+        propertiesOn = new ArrayList<>();
+
+        if(streetName != null)
+        {
+            boolean[] onStreet;
+            onStreet = matchingCodes(streetNames, StreetIndex.keyOf(streetName));
+
+            for(int row = 0; row < rowCount; row++)
+            {
+                if(onStreet[streetNameCodes[row]])
+                {
+                    propertiesOn.add(materializeAddress(row));
+                }
+            }
+        }
+
+        if(propertiesOn.size() > NONE)
+        {
+            return propertiesOn;
+        }
+        else // no address found on this specified street.
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @param streetName is the street name (case insensitive).
+     * @return an ArrayList<Property> of new properties built from the rows on the specified street. It's empty if
+     *         there are none.
+     */
+    @Override
+    protected ArrayList<Property> findPropertiesOnStreet(final String streetName)
+    {
+        ArrayList<Property> propertiesOn;
+        propertiesOn = new ArrayList<>();
+
+        if(streetName != null)
+        {
+            boolean[] onStreet;
+            onStreet = matchingCodes(streetNames, StreetIndex.keyOf(streetName));
+
+            for(int row = 0; row < rowCount; row++)
+            {
+                if(onStreet[streetNameCodes[row]])
+                {
+                    propertiesOn.add(materialize(row));
+                }
+            }
+        }
+
+        return propertiesOn;
+    }
+
+    /**
+     * @param streetName is the street name (case insensitive).
+     * @return the number of rows on the specified street. No property is built to count them.
+     */
+    @Override
+    protected int countPropertiesOn(final String streetName)
+    {
+        int count = NONE;
+
+        if(streetName != null)
+        {
+            boolean[] onStreet;
+            onStreet = matchingCodes(streetNames, StreetIndex.keyOf(streetName));
+
+            for(int row = 0; row < rowCount; row++)
+            {
+                if(onStreet[streetNameCodes[row]])
+                {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @param minBedrooms is the minimum bedroom number.
+     * @param maxBedrooms is the maximum bedroom number.
+     * @return a HashMap of properties (key is property id, value is the Residence) whose number of bedrooms falls in the
+     *         range specified by the parameters, or null if there are none.
+     */
+    @Override
+    protected HashMap<String, Residence> findPropertiesWithBedrooms(final int minBedrooms, final int maxBedrooms)
+    {
+        HashMap<String, Residence> expectedMatches;
+        expectedMatches = new HashMap<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if(((flags[row] & KIND_MASK) == KIND_RESIDENCE) && (sizes[row] >= minBedrooms) && (sizes[row] <= maxBedrooms))
+            {
+                expectedMatches.put(PropertyIdCodec.unpack(ids[row]), (Residence) viewAt(row));
+            }
+        }
+
+        if(expectedMatches.size() > NONE)
+        {
+            return expectedMatches;
+        }
+        else // no residence found on these range of bedrooms.
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return an ArrayList<Commercial> that holds only Commercial properties that have a loading dock available.
+     */
+    @Override
+    protected ArrayList<Commercial> findPropertiesWithLoadingDock()
+    {
+        ArrayList<Commercial> propertiesWithLoadingDock;
+        propertiesWithLoadingDock = new ArrayList<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if((flags[row] & FLAG_LOADING_DOCK) != NONE)
+            {
+                propertiesWithLoadingDock.add((Commercial) viewAt(row));
+            }
+        }
+
+        return propertiesWithLoadingDock;
+    }
+
+    /**
+     * @return an ArrayList<Commercial> that holds only Commercial properties that have highway access.
+     */
+    @Override
+    protected ArrayList<Commercial> findPropertiesWithHighwayAccess()
+    {
+        ArrayList<Commercial> propertiesWithHighwayAccess;
+        propertiesWithHighwayAccess = new ArrayList<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if((flags[row] & FLAG_HIGHWAY_ACCESS) != NONE)
+            {
+                propertiesWithHighwayAccess.add((Commercial) viewAt(row));
+            }
+        }
+
+        return propertiesWithHighwayAccess;
+    }
+
+    /**
+     * @param squareFootage is the amount of floor space available.
+     * @return an ArrayList<Retail> that holds properties where square footage is at least the parameter value.
+     */
+    @Override
+    protected ArrayList<Retail> findPropertiesWithSquareFootage(final int squareFootage)
+    {
+        ArrayList<Retail> propertiesWithSquareFootage;
+        propertiesWithSquareFootage = new ArrayList<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if(((flags[row] & KIND_MASK) == KIND_RETAIL) && (sizes[row] >= squareFootage))
+            {
+                propertiesWithSquareFootage.add((Retail) viewAt(row));
+            }
+        }
+
+        if(propertiesWithSquareFootage.size() > NONE)
+        {
+            return propertiesWithSquareFootage;
+        }
+        else // no such property with this minimum square foot
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return an ArrayList<Retail> that holds properties where customer parking is available.
+     */
+    @Override
+    protected ArrayList<Retail> findPropertiesWithCustomerParking()
+    {
+        ArrayList<Retail> propertiesWithCustomerParking;
+        propertiesWithCustomerParking = new ArrayList<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if((flags[row] & FLAG_CUSTOMER_PARKING) != NONE)
+            {
+                propertiesWithCustomerParking.add((Retail) viewAt(row));
+            }
+        }
+
+        return propertiesWithCustomerParking;
+    }
+
+    /**
+     * @return ArrayList<Residence> that hold only the Residences that are in a strata.
+     */
+    @Override
+    protected ArrayList<Residence> findPropertiesWithStrata()
+    {
+        ArrayList<Residence> propertiesWithStrata;
+        propertiesWithStrata = new ArrayList<>();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if((flags[row] & FLAG_STRATA) != NONE)
+            {
+                propertiesWithStrata.add((Residence) viewAt(row));
+            }
+        }
+
+        return propertiesWithStrata;
+    }
+
+    /**
+     * @param amenity is the amenity.
+     * @return a Bitmap of the rows of the properties that have the amenity. Rows are only valid until the next
+     *         removeProperty().
+     */
+    @Override
+    public Bitmap getAmenityBitmap(final Amenity amenity)
+    {
+        return scanFlags(NONE, NONE, flagOf(amenity));
+    }
+
+    /**
+     * @param amenity is the amenity.
+     * @return a Bitmap of the rows of the properties of the subtype the amenity applies to. Rows are only valid until
+     *         the next removeProperty().
+     */
+    @Override
+    public Bitmap getEligibleBitmap(final Amenity amenity)
+    {
+        return scanFlags(KIND_MASK, kindOf(amenity), NONE);
+    }
+
+    /**
+     * @param type is the type.
+     * @return a Bitmap of the rows of the properties of the type. A Residence, Commercial or Retail row has the type
+     *         of its kind (see Property.getPropertyType()), and the type String of any other row is resolved once per
+     *         String of the dictionary, not once per row. Rows are only valid until the next removeProperty().
+     */
+    @Override
+    public Bitmap getTypeBitmap(final PropertyType type)
+    {
+        boolean[] ofType;
+        ofType = new boolean[types.size()];
+
+        for(int code = 0; code < ofType.length; code++)
+        {
+            ofType[code] = (PropertyType.of(types.decode(code)) == type);
+        }
+
+        int kind = kindOf(type);
+
+        Bitmap matches;
+        matches = new Bitmap();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            int rowKind = flags[row] & KIND_MASK;
+
+            if((rowKind == KIND_PROPERTY) ? ofType[typeCodes[row]] : (rowKind == kind))
+            {
+                matches.set(row);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * @param bitmap is the bitmap of rows, usually built from getAmenityBitmap(), getEligibleBitmap() and
+     *               getTypeBitmap().
+     * @return an ArrayList<Property> of read-only views of new properties built from the rows of the bitmap.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesAt(final Bitmap bitmap)
+    {
+        ArrayList<Property> propertiesAt;
+        propertiesAt = new ArrayList<>();
+
+        for(int row = bitmap.nextSetBit(NONE); (row != Bitmap.NOT_FOUND) && (row < rowCount);
+            row = bitmap.nextSetBit(row + 1))
+        {
+            propertiesAt.add(viewAt(row));
+        }
+
+        return propertiesAt;
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return a lazy Stream of new properties built from the rows whose price falls in the range. Only the matching
+     *         rows are built.
+     */
+    @Override
+    public Stream<Property> streamPropertiesBetween(final int minUsd, final int maxUsd)
+    {
+        return IntStream.range(NONE, rowCount).filter(row -> (prices[row] >= minUsd) && (prices[row] <= maxUsd))
+                                             .mapToObj(this::materialize);
+    }
+
+    /**
+     * @param amenities are the amenities.
+     * @return a lazy Stream of new properties built from the rows that have all of the amenities. It's empty if there
+     *         are no amenities.
+     */
+    @Override
+    public Stream<Property> streamPropertiesWithAll(final Amenity... amenities)
+    {
+        if(amenities.length == NONE)
+        {
+            return Stream.empty();
+        }
+
+        int mask = NONE;
+
+        for(Amenity amenity: amenities)
+        {
+            mask |= flagOf(amenity);
+        }
+
+        int all = mask;
+
+        return IntStream.range(NONE, rowCount).filter(row -> (flags[row] & all) == all).mapToObj(this::materialize);
+    }
+
+    /**
+     * @return the number of rows. No row is empty.
+     */
+    @Override
+    protected int rowLimit()
+    {
+        return rowCount;
+    }
+
+    /**
+     * @param row is the row number.
+     * @return a new property built from the row, or null if there is no such row.
+     */
+    @Override
+    protected Property propertyAt(final int row)
+    {
+        return ((row >= NONE) && (row < rowCount)) ? materialize(row) : null;
+    }
+
+    /**
+     * @param amenities are the amenities.
+     * @return an ArrayList<Property> of the properties that have all of the amenities.
+     */
+    @Override
+    protected ArrayList<Property> findPropertiesWithAll(final Amenity... amenities)
+    {
+        ArrayList<Property> propertiesWithAll;
+        propertiesWithAll = new ArrayList<>();
+
+        if(amenities.length == NONE)
+        {
+            return propertiesWithAll;
+        }
+
+        int mask = NONE;
+
+        for(Amenity amenity: amenities)
+        {
+            mask |= flagOf(amenity);
+        }
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if((flags[row] & mask) == mask)
+            {
+                propertiesWithAll.add(viewAt(row));
+            }
+        }
+
+        return propertiesWithAll;
+    }
+
+    /**
+     * @return the number of properties in this agency.
+     */
+    public int size()
+    {
+        return rowCount;
+    }
+
+    /*
+     * Returns the row of the property whose id matches(case insensitive) with the property id, or
+     * LongIntHashMap.NOT_FOUND.
+     */
+    private int rowOf(final String propertyId)
+    {
+        if(!PropertyIdCodec.canPack(propertyId))
+        {
+            return LongIntHashMap.NOT_FOUND;
+        }
+
+        return rowsById.get(keyOf(PropertyIdCodec.pack(propertyId)));
+    }
+
+    /*
+     * Returns the key of a packed id in rowsById: the id case folded. In the rare case that a folded character isn't
+     * Latin-1 (for example the micro sign), the key is the id as it is, and the id is matched case sensitively. No
+     * folded id has such a character, so the two kinds of keys never collide.
+     */
+    private static long keyOf(final long id)
+    {
+        long folded;
+        folded = PropertyIdCodec.fold(id);
+
+        return (folded == PropertyIdCodec.NOT_PACKED) ? id : folded;
+    }
+
+    /*
+     * Builds the Address of the row.
+     */
+    private Address materializeAddress(final int row)
+    {
+        return new Address(unitNumbers.decode(unitNumberCodes[row]), streetNumbers[row],
+                           streetNames.decode(streetNameCodes[row]), postalCodes.decode(postalCodeCodes[row]),
+                           cities.decode(cityCodes[row]), false);
+    }
+
+    /*
+     * Builds the read-only view (of the right subtype) of the row.
+     */
+    private Property viewAt(final int row)
+    {
+        return materialize(row).view();
+    }
+
+    /*
+     * Builds the Property (of the right subtype) of the row. The columns were checked when the property was added, so
+     * the constructors don't check them again.
+     */
+    private Property materialize(final int row)
+    {
+        Address address    = materializeAddress(row);
+        String  type       = types.decode(typeCodes[row]);
+        String  propertyId = PropertyIdCodec.unpack(ids[row]);
+        int     flag       = flags[row];
+
+        switch(flag & KIND_MASK)
+        {
+            case KIND_RESIDENCE:
+                return new Residence(prices[row], address, type, propertyId, sizes[row],
+                                     (flag & FLAG_SWIMMING_POOL) != NONE, (flag & FLAG_STRATA) != NONE, false);
+            case KIND_COMMERCIAL:
+                return new Commercial(prices[row], address, type, propertyId,
+                                      (flag & FLAG_LOADING_DOCK) != NONE, (flag & FLAG_HIGHWAY_ACCESS) != NONE, false);
+            case KIND_RETAIL:
+                return new Retail(prices[row], address, type, propertyId, sizes[row],
+                                  (flag & FLAG_CUSTOMER_PARKING) != NONE, false);
+            default:
+                return new Property(prices[row], address, type, propertyId, false);
+        }
+    }
+
+    /*
+     * Returns a bitmap of the rows whose masked kind equals the kind and that have every flag of the flag mask.
+     */
+    private Bitmap scanFlags(final int kindMask, final int kind, final int flagMask)
+    {
+        Bitmap bitmap;
+        bitmap = new Bitmap();
+
+        for(int row = 0; row < rowCount; row++)
+        {
+            if(((flags[row] & kindMask) == kind) && ((flags[row] & flagMask) == flagMask))
+            {
+                bitmap.set(row);
+            }
+        }
+
+        return bitmap;
+    }
+
+    /*
+     * Returns, for every code of the dictionary, whether its normalized value equals the key.
+     */
+    private static boolean[] matchingCodes(final StringDictionary dictionary, final String key)
+    {
+        boolean[] matches;
+        matches = new boolean[dictionary.size()];
+
+        for(int code = 0; code < matches.length; code++)
+        {
+            matches[code] = StreetIndex.keyOf(dictionary.decode(code)).equals(key);
+        }
+
+        return matches;
+    }
+
+    /*
+     * Returns the flag bit of the amenity.
+     */
+    private static int flagOf(final Amenity amenity)
+    {
+        switch(amenity)
+        {
+            case SWIMMING_POOL:
+                return FLAG_SWIMMING_POOL;
+            case STRATA:
+                return FLAG_STRATA;
+            case LOADING_DOCK:
+                return FLAG_LOADING_DOCK;
+            case HIGHWAY_ACCESS:
+                return FLAG_HIGHWAY_ACCESS;
+            default: // CUSTOMER_PARKING
+                return FLAG_CUSTOMER_PARKING;
+        }
+    }
+
+    /*
+     * Returns the kind of the subtype the amenity applies to.
+     */
+    private static int kindOf(final Amenity amenity)
+    {
+        switch(amenity)
+        {
+            case SWIMMING_POOL:
+            case STRATA:
+                return KIND_RESIDENCE;
+            case LOADING_DOCK:
+            case HIGHWAY_ACCESS:
+                return KIND_COMMERCIAL;
+            default: // CUSTOMER_PARKING
+                return KIND_RETAIL;
+        }
+    }
+
+    /*
+     * Returns the kind of the properties of the type.
+     */
+    private static int kindOf(final PropertyType type)
+    {
+        switch(type)
+        {
+            case RESIDENCE:
+                return KIND_RESIDENCE;
+            case COMMERCIAL:
+                return KIND_COMMERCIAL;
+            default: // RETAIL
+                return KIND_RETAIL;
+        }
+    }
+
+    /*
+     * Doubles the capacity of every column.
+     */
+    private void grow()
+    {
+        int capacity = ids.length * 2;
+
+        ids             = Arrays.copyOf(ids, capacity);
+        prices          = Arrays.copyOf(prices, capacity);
+        sizes           = Arrays.copyOf(sizes, capacity);
+        flags           = Arrays.copyOf(flags, capacity);
+        typeCodes       = Arrays.copyOf(typeCodes, capacity);
+        unitNumberCodes = Arrays.copyOf(unitNumberCodes, capacity);
+        streetNumbers   = Arrays.copyOf(streetNumbers, capacity);
+        streetNameCodes = Arrays.copyOf(streetNameCodes, capacity);
+        postalCodeCodes = Arrays.copyOf(postalCodeCodes, capacity);
+        cityCodes       = Arrays.copyOf(cityCodes, capacity);
+    }
+}
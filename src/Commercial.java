@@ -13,6 +13,8 @@ public class Commercial extends Property
      * @param priceUsd is the price in USD for this property. It must be positive.
      * @param address is the address for this property. It must be not null.
      * @param type is the type of this property. It must be one of these(case insensitive): Commercial, Residence, or Retail.
+     *             Whichever it is, getPropertyType() is PropertyType.COMMERCIAL, so the agencies index and query this
+     *             property as a commercial.
      * @param propertyId is the property id for this property. Its length must be between MIN_PROPERTY_ID_LENGTH and
      *                   MAX_PROPERTY_ID_LENGTH characters.
      * @param loadingDock is true, if this property has loading dock; otherwise, it is false.
@@ -21,7 +23,21 @@ public class Commercial extends Property
     public Commercial(final double priceUsd, final Address address, final String type, final String propertyId,
                       final boolean loadingDock, final boolean highwayAccess)
     {
-        super(priceUsd, address, type, propertyId);
+        this(priceUsd, address, type, propertyId, loadingDock, highwayAccess, true);
+    }
+
+    /**
+     * This is the commercial constructor for data that has already been validated, for example when an
+     * AgencySnapshot is read.
+     *
+     * The other parameters are the same as the public constructor's.
+     *
+     * @param validate is true to check the parameters as the public constructor does, or false to skip the checks.
+     */
+    Commercial(final double priceUsd, final Address address, final String type, final String propertyId,
+               final boolean loadingDock, final boolean highwayAccess, final boolean validate)
+    {
+        super(priceUsd, address, type, propertyId, validate, PropertyType.COMMERCIAL);
 
         this.loadingDock   = loadingDock;
         this.highwayAccess = highwayAccess;
@@ -43,6 +59,26 @@ public class Commercial extends Property
         return highwayAccess;
     }
 
+    /**
+     * @return a read-only view of this commercial. It reads the price of this commercial as it changes, but its own price
+     *         can't be set.
+     */
+    @Override
+    public Commercial view()
+    {
+        return (Commercial) super.view();
+    }
+
+    /**
+     * @return a new Commercial with the same fields and price as this one. It's not in any agency, so its price can be
+     *         set freely.
+     */
+    @Override
+    public Commercial mutableCopy()
+    {
+        return new Commercial(getPriceUsd(), getAddress(), getType(), getPropertyId(), loadingDock, highwayAccess, false);
+    }
+
     /**
      * @return the state of Commercial types.
      */
@@ -55,4 +91,13 @@ public class Commercial extends Property
                 ", toString()="    + super.toString() +
                 ']';
     }
+
+    /*
+     * Makes the read-only view of this commercial.
+     */
+    @Override
+    Property createView()
+    {
+        return new CommercialView(this);
+    }
 }
@@ -0,0 +1,75 @@
+/**
+ * This is CommercialView class. It's a read-only view of a Commercial, as handed out by the queries of an Agency instead
+ * of a copy. Its fields are the commercial's own, and its price is read from the commercial, so it sees every price
+ * change; but its price can't be set and it can't be listened to. Use mutableCopy() for a Commercial that can be
+ * changed.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public final class CommercialView extends Commercial
+{
+    private final Commercial target;
+
+    /**
+     * @param target is the commercial seen through this view.
+     */
+    CommercialView(final Commercial target)
+    {
+        super(target.getPriceUsd(), target.getAddress(), target.getType(), target.getPropertyId(),
+              target.isLoadingDock(), target.isHighwayAccess(), false);
+
+        this.target = target;
+    }
+
+    /**
+     * @return the price in USD of the commercial, as it is now.
+     */
+    @Override
+    public double getPriceUsd()
+    {
+        return target.getPriceUsd();
+    }
+
+    /**
+     * This method always throws, since a view is read-only.
+     *
+     * @param priceUsd is the price in USD.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void setPriceUsd(final double priceUsd) throws UnsupportedOperationException
+    {
+        throw new UnsupportedOperationException("Read-only view of property: " + getPropertyId());
+    }
+
+    /**
+     * This method always throws, since the price of a view never changes by itself.
+     *
+     * @param listener is the listener.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addPriceChangeListener(final PriceChangeListener listener) throws UnsupportedOperationException
+    {
+        throw new UnsupportedOperationException("Read-only view of property: " + getPropertyId());
+    }
+
+    /**
+     * @return this view.
+     */
+    @Override
+    public Commercial view()
+    {
+        return this;
+    }
+
+    /*
+     * A view is not owned by an agency, so an agency adds a mutable copy of it instead.
+     */
+    @Override
+    boolean isView()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,870 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+/**
+ * This is ConcurrentAgency class. It's an Agency that can be shared by many threads: getProperty() and every query
+ * method read concurrent structures without taking a lock, while addProperty(), removeProperty() and price changes
+ * lock only one of STRIPES locks, chosen by the property id. Changes to different properties run in parallel, and
+ * the changes to one property are applied, indexed and reported to the AgencyListeners in order.
+ *
+ * The properties are kept in a ConcurrentHashMap by their case folded id (see PropertyIdCodec.fold()), the price
+ * index in a ConcurrentSkipListMap ordered by price and then by property id, and the street index in a
+ * ConcurrentHashMap of ConcurrentHashMaps. The rows used by the bitmaps are kept in chunks of CHUNK_SIZE rows that
+ * never move, so a row can be set without a lock while the table grows.
+ *
+ * A query sees every change that completed before it started, and may or may not see the changes made while it runs.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class ConcurrentAgency extends Agency
+{
+    private final ConcurrentHashMap<String, Slot>                                slots;
+    private final ConcurrentSkipListMap<PriceKey, Property>                      priceIndex;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Property>> streetIndex;
+    private final EnumMap<Amenity, Set<Property>>                                amenitySets;
+    private final EnumMap<PropertyType, Set<Property>>                           typeSets;
+    private final Object[]                                                       stripes;
+
+    // The rows: chunk i holds rows i * CHUNK_SIZE to (i + 1) * CHUNK_SIZE - 1.
+    private volatile AtomicReferenceArray<AtomicReferenceArray<Property>> chunks;
+    private final AtomicInteger                                           rowCount;
+    private final ConcurrentLinkedQueue<Integer>                          freeRows;
+    private final Object                                                  growLock;
+
+    public static final int STRIPES        = 64;
+    public static final int CHUNK_SHIFT    = 12;
+    public static final int CHUNK_SIZE     = 1 << CHUNK_SHIFT;
+    public static final int INITIAL_CHUNKS = 16;
+
+    /**
+     * @param name is the agency's name. Its length must be between MIN_NAME_LENGTH and MAX_NAME_LENGTH characters.
+     * @throws IllegalArgumentException if name's length is less than MIN_NAME_LENGTH and greater than
+     *                                  MAX_NAME_LENGTH characters.
+     */
+    public ConcurrentAgency(final String name) throws IllegalArgumentException
+    {
+        super(name);
+
+        slots       = new ConcurrentHashMap<>();
+        priceIndex  = new ConcurrentSkipListMap<>();
+        streetIndex = new ConcurrentHashMap<>();
+        amenitySets = new EnumMap<>(Amenity.class);
+        typeSets    = new EnumMap<>(PropertyType.class);
+        stripes     = new Object[STRIPES];
+
+        for(Amenity amenity: Amenity.values())
+        {
+            amenitySets.put(amenity, ConcurrentHashMap.newKeySet());
+        }
+
+        for(PropertyType type: PropertyType.values())
+        {
+            typeSets.put(type, ConcurrentHashMap.newKeySet());
+        }
+
+        for(int i = 0; i < STRIPES; i++)
+        {
+            stripes[i] = new Object();
+        }
+
+        chunks   = new AtomicReferenceArray<>(INITIAL_CHUNKS);
+        rowCount = new AtomicInteger();
+        freeRows = new ConcurrentLinkedQueue<>();
+        growLock = new Object();
+    }
+
+    /**
+     * This method adds the non-null property, and replaces the property with the same id if there is one. A read-only
+     * view is added as a mutable copy.
+     *
+     * @param newProperty is the property.
+     */
+    @Override
+    public void addProperty(final Property newProperty)
+    {
+        if(newProperty == null)
+        {
+            return;
+        }
+
+        Property property;
+        property = ownable(newProperty);
+
+        String id;
+        id = property.getPropertyId();
+
+        String foldedId;
+        foldedId = PropertyIdCodec.fold(id);
+
+        synchronized(stripeOf(foldedId))
+        {
+            Slot replaced;
+            replaced = slots.get(foldedId);
+
+            if(replaced != null)
+            {
+                unindex(replaced);
+            }
+
+            Slot slot;
+            slot = new Slot(property, allocateRow());
+
+            slot.indexedPrice = property.getPriceUsd();
+
+            chunkOf(slot.row).set(slot.row & (CHUNK_SIZE - 1), property);
+
+            for(Amenity amenity: Amenity.values())
+            {
+                if(amenity.isPresentIn(property))
+                {
+                    amenitySets.get(amenity).add(property);
+                }
+            }
+
+            if(property.getPropertyType() != null)
+            {
+                typeSets.get(property.getPropertyType()).add(property);
+            }
+
+            priceIndex.put(new PriceKey(slot.indexedPrice, id), property);
+            getAggregates().add(PortfolioAggregates.kindOf(property), slot.indexedPrice);
+
+            streetIndex.compute(StreetIndex.keyOf(property.getAddress().getStreetName()), (key, bucket) ->
+            {
+                ConcurrentHashMap<String, Property> street = (bucket == null) ? new ConcurrentHashMap<>() : bucket;
+
+                street.put(id, property);
+
+                return street;
+            });
+
+            slots.put(foldedId, slot);
+
+            property.addPriceChangeListener(this);
+
+            mutated();
+
+            firePropertyAdded(property);
+        }
+    }
+
+    /**
+     * @param propertyId is the property id.
+     * @return the property whose ID matches(case insensitive) with the parameter(property id), or null if there is none.
+     */
+    @Override
+    protected Property findProperty(final String propertyId)
+    {
+        Slot slot;
+        slot = (propertyId == null) ? null : slots.get(PropertyIdCodec.fold(propertyId));
+
+        return (slot == null) ? null : slot.property;
+    }
+
+    /**
+     * This method removes the property whose ID matches(case insensitive) with the parameter(property id).
+     *
+     * @param propertyId is the property id.
+     */
+    @Override
+    public void removeProperty(final String propertyId)
+    {
+        if(propertyId == null)
+        {
+            return;
+        }
+
+        String foldedId;
+        foldedId = PropertyIdCodec.fold(propertyId);
+
+        synchronized(stripeOf(foldedId))
+        {
+            Slot slot;
+            slot = slots.get(foldedId);
+
+            if(slot != null)
+            {
+                unindex(slot);
+
+                mutated();
+
+                firePropertyRemoved(slot.property);
+            }
+        }
+    }
+
+    /**
+     * This method sets the price in USD of the property whose ID matches(case insensitive) with the
+     * parameter(property id).
+     *
+     * @param propertyId is the property id.
+     * @param priceUsd is the price in USD for this property.
+     * @return true, if the property was found; otherwise, returns false.
+     * @throws IllegalArgumentException if price in USD of this property is less than NONE.
+     */
+    @Override
+    public boolean setPriceUsd(final String propertyId, final double priceUsd)
+    {
+        if(propertyId == null)
+        {
+            return false;
+        }
+
+        String foldedId;
+        foldedId = PropertyIdCodec.fold(propertyId);
+
+        synchronized(stripeOf(foldedId))
+        {
+            Slot slot;
+            slot = slots.get(foldedId);
+
+            if(slot == null)
+            {
+                return false;
+            }
+
+            slot.property.setPriceUsd(priceUsd);
+
+            return true;
+        }
+    }
+
+    /**
+     * This method moves the property in the price index when its price changes. The property is indexed at the
+     * price it has now, so the index stays right even if two threads change the price of the same Property at once.
+     *
+     * @param property is the property whose price has been changed.
+     * @param oldPriceUsd is the price in USD before the change.
+     * @param newPriceUsd is the price in USD after the change.
+     */
+    @Override
+    public void priceChanged(final Property property, final double oldPriceUsd, final double newPriceUsd)
+    {
+        String id;
+        id = property.getPropertyId();
+
+        String foldedId;
+        foldedId = PropertyIdCodec.fold(id);
+
+        synchronized(stripeOf(foldedId))
+        {
+            Slot slot;
+            slot = slots.get(foldedId);
+
+            if((slot == null) || (slot.property != property))
+            {
+                return;
+            }
+
+            double priceUsd = property.getPriceUsd();
+
+            if(Double.compare(priceUsd, slot.indexedPrice) != NONE)
+            {
+                priceIndex.remove(new PriceKey(slot.indexedPrice, id));
+                priceIndex.put(new PriceKey(priceUsd, id), property);
+                getAggregates().priceChanged(PortfolioAggregates.kindOf(property), slot.indexedPrice, priceUsd);
+
+                slot.indexedPrice = priceUsd;
+
+                mutated();
+            }
+
+            firePropertyPriceChanged(property, oldPriceUsd, newPriceUsd);
+        }
+    }
+
+    /**
+     * @return an ArrayList<Property> of all properties of this agency, in row order.
+     */
+    @Override
+    public ArrayList<Property> getAllProperties()
+    {
+        ArrayList<Property> allProperties;
+        allProperties = new ArrayList<>(slots.size());
+
+        AtomicReferenceArray<AtomicReferenceArray<Property>> table = chunks;
+
+        int count = Math.min(rowCount.get(), table.length() * CHUNK_SIZE);
+
+        for(int row = NONE; row < count; row++)
+        {
+            Property property;
+            property = rowAt(table, row);
+
+            if(property != null)
+            {
+                allProperties.add(property);
+            }
+        }
+
+        return allProperties;
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return an array of properties whose price falls in the range specified by the parameters, or null if there are none.
+     */
+    @Override
+    protected Property[] findPropertiesBetween(final int minUsd, final int maxUsd)
+    {
+        if(minUsd > maxUsd)
+        {
+            return null;
+        }
+
+        Property[] allMatches;
+        allMatches = priceIndex.subMap(new PriceKey(minUsd, PriceKey.BELOW), true,
+                                       new PriceKey(maxUsd, PriceKey.ABOVE), true)
+                               .values().toArray(new Property[NONE]);
+
+        return (allMatches.length > NONE) ? allMatches : null;
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return a lazy Stream of the properties whose price falls in the range specified by the parameters, sorted by
+     *         price. It's read from the price index as it's consumed.
+     */
+    @Override
+    public Stream<Property> streamPropertiesBetween(final int minUsd, final int maxUsd)
+    {
+        if(minUsd > maxUsd)
+        {
+            return Stream.empty();
+        }
+
+        return priceIndex.subMap(new PriceKey(minUsd, PriceKey.BELOW), true,
+                                 new PriceKey(maxUsd, PriceKey.ABOVE), true).values().stream();
+    }
+
+    /**
+     * @param streetName is the street name.
+     * @return an ArrayList of addresses which are on the specified street, or null if there are none.
+     */
+    @Override
+    protected ArrayList<Address> findPropertiesOn(final String streetName)
+    {
+        ConcurrentHashMap<String, Property> street;
+        street = (streetName == null) ? null : streetIndex.get(StreetIndex.keyOf(streetName));
+
+        if(street == null)
+        {
+            return null;
+        }
+
+        ArrayList<Address> propertiesOn;
+        propertiesOn = new ArrayList<>(street.size());
+
+        for(Property property: street.values())
+        {
+            propertiesOn.add(property.getAddress());
+        }
+
+        return (propertiesOn.size() > NONE) ? propertiesOn : null;
+    }
+
+    /**
+     * @param streetName is the street name (case insensitive).
+     * @return an ArrayList<Property> of the properties which are on the specified street. It's empty if there are none.
+     */
+    @Override
+    protected ArrayList<Property> findPropertiesOnStreet(final String streetName)
+    {
+        ConcurrentHashMap<String, Property> street;
+        street = (streetName == null) ? null : streetIndex.get(StreetIndex.keyOf(streetName));
+
+        return (street == null) ? new ArrayList<>() : new ArrayList<>(street.values());
+    }
+
+    /**
+     * @param streetName is the street name (case insensitive).
+     * @return the number of properties which are on the specified street.
+     */
+    @Override
+    protected int countPropertiesOn(final String streetName)
+    {
+        ConcurrentHashMap<String, Property> street;
+        street = (streetName == null) ? null : streetIndex.get(StreetIndex.keyOf(streetName));
+
+        return (street == null) ? NONE : street.size();
+    }
+
+    /**
+     * @param amenity is the amenity.
+     * @return a Bitmap of the rows of the properties that have the amenity, built from the rows as they are now.
+     */
+    @Override
+    public Bitmap getAmenityBitmap(final Amenity amenity)
+    {
+        Bitmap matches;
+        matches = new Bitmap();
+
+        for(Property property: amenitySets.get(amenity))
+        {
+            Slot slot;
+            slot = slots.get(PropertyIdCodec.fold(property.getPropertyId()));
+
+            if((slot != null) && (slot.property == property))
+            {
+                matches.set(slot.row);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * @param amenity is the amenity.
+     * @return a Bitmap of the rows of the properties of the subtype the amenity applies to, whether or not they have
+     *         it, built from the rows as they are now.
+     */
+    @Override
+    public Bitmap getEligibleBitmap(final Amenity amenity)
+    {
+        Bitmap matches;
+        matches = new Bitmap();
+
+        AtomicReferenceArray<AtomicReferenceArray<Property>> table = chunks;
+
+        int count = Math.min(rowCount.get(), table.length() * CHUNK_SIZE);
+
+        for(int row = NONE; row < count; row++)
+        {
+            Property property;
+            property = rowAt(table, row);
+
+            if((property != null) && amenity.appliesTo(property))
+            {
+                matches.set(row);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * @param type is the type.
+     * @return a Bitmap of the rows of the properties of the type, built from the rows as they are now.
+     */
+    @Override
+    public Bitmap getTypeBitmap(final PropertyType type)
+    {
+        Bitmap matches;
+        matches = new Bitmap();
+
+        for(Property property: typeSets.get(type))
+        {
+            Slot slot;
+            slot = slots.get(PropertyIdCodec.fold(property.getPropertyId()));
+
+            if((slot != null) && (slot.property == property))
+            {
+                matches.set(slot.row);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * A row is reused as soon as its property is removed, so by the time it's read, a row of a bitmap built earlier
+     * may hold another property, of another type or with other amenities. The caller checks each property again if
+     * that matters; the queries of this agency read the type and amenity sets instead.
+     *
+     * @param bitmap is the bitmap of rows, usually built from getAmenityBitmap(), getEligibleBitmap() and
+     *               getTypeBitmap().
+     * @return an ArrayList<Property> of the properties at the rows of the bitmap, as they are now.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesAt(final Bitmap bitmap)
+    {
+        ArrayList<Property> propertiesAt;
+        propertiesAt = new ArrayList<>();
+
+        AtomicReferenceArray<AtomicReferenceArray<Property>> table = chunks;
+
+        int count = Math.min(rowCount.get(), table.length() * CHUNK_SIZE);
+
+        for(int row = bitmap.nextSetBit(NONE); (row != Bitmap.NOT_FOUND) && (row < count); row = bitmap.nextSetBit(row + 1))
+        {
+            Property property;
+            property = rowAt(table, row);
+
+            if(property != null)
+            {
+                propertiesAt.add(property);
+            }
+        }
+
+        return propertiesAt;
+    }
+
+    /**
+     * @return the number of rows that have been used, empty or not. Every row number is less than it.
+     */
+    @Override
+    protected int rowLimit()
+    {
+        return Math.min(rowCount.get(), chunks.length() * CHUNK_SIZE);
+    }
+
+    /**
+     * @param row is the row number.
+     * @return the property at the row, or null if the row is empty or there is no such row.
+     */
+    @Override
+    protected Property propertyAt(final int row)
+    {
+        AtomicReferenceArray<AtomicReferenceArray<Property>> table = chunks;
+
+        return ((row >= NONE) && ((row >>> CHUNK_SHIFT) < table.length())) ? rowAt(table, row) : null;
+    }
+
+    /**
+     * @param amenities are the amenities.
+     * @return an ArrayList<Property> of the properties that have all of the amenities. The smallest set of properties
+     *         with one of the amenities is checked for the others.
+     */
+    @Override
+    protected ArrayList<Property> findPropertiesWithAll(final Amenity... amenities)
+    {
+        ArrayList<Property> matches;
+        matches = new ArrayList<>();
+
+        if(amenities.length == NONE)
+        {
+            return matches;
+        }
+
+        for(Property property: amenitySets.get(smallestOf(amenities)))
+        {
+            if(hasAll(property, amenities))
+            {
+                matches.add(property);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * @param amenities are the amenities.
+     * @return a lazy Stream of the properties that have all of the amenities, read from the smallest set of
+     *         properties with one of the amenities rather than from the rows, which are reused as soon as they are
+     *         freed. It's empty if there are no amenities.
+     */
+    @Override
+    public Stream<Property> streamPropertiesWithAll(final Amenity... amenities)
+    {
+        if(amenities.length == NONE)
+        {
+            return Stream.empty();
+        }
+
+        Amenity[] all = amenities.clone();
+
+        return amenitySets.get(smallestOf(all)).stream().filter(property -> hasAll(property, all));
+    }
+
+    /**
+     * This method runs getPropertiesOfType() without the query cache.
+     *
+     * @param propertyType is the type of property.
+     * @return an ArrayList<Property> of the properties of the type(case insensitive), read from the set of the type
+     *         rather than from the rows, or null if there are none.
+     */
+    @Override
+    protected ArrayList<Property> findPropertiesOfType(final String propertyType)
+    {
+        PropertyType type;
+        type = PropertyType.of(propertyType);
+
+        if(type == null) // not a type any property can have
+        {
+            return null;
+        }
+
+        ArrayList<Property> propertiesOfType;
+        propertiesOfType = new ArrayList<>(typeSets.get(type));
+
+        return (propertiesOfType.size() > NONE) ? propertiesOfType : null;
+    }
+
+    /**
+     * This method runs getPropertiesWithBedrooms() without the query cache.
+     *
+     * @param minBedrooms is the minimum bedroom number.
+     * @param maxBedrooms is the maximum bedroom number.
+     * @return a HashMap of the Residences (key is property id) whose number of bedrooms falls in the range, read from
+     *         the set of residences rather than from the rows, or null if there are none.
+     */
+    @Override
+    protected HashMap<String, Residence> findPropertiesWithBedrooms(final int minBedrooms, final int maxBedrooms)
+    {
+        HashMap<String, Residence> matches;
+        matches = new HashMap<>();
+
+        for(Property property: typeSets.get(PropertyType.RESIDENCE))
+        {
+            if(property instanceof Residence)
+            {
+                Residence residence = (Residence) property;
+
+                if((residence.getNumberOfBedrooms() >= minBedrooms) &&
+                   (residence.getNumberOfBedrooms() <= maxBedrooms))
+                {
+                    matches.put(residence.getPropertyId(), residence.view());
+                }
+            }
+        }
+
+        return (matches.size() > NONE) ? matches : null;
+    }
+
+    /**
+     * This method runs getPropertiesWithSquareFootage() without the query cache.
+     *
+     * @param squareFootage is the amount of floor space available.
+     * @return an ArrayList<Retail> of the retails whose square footage is at least the parameter value, read from the
+     *         set of retails rather than from the rows, or null if there are none.
+     */
+    @Override
+    protected ArrayList<Retail> findPropertiesWithSquareFootage(final int squareFootage)
+    {
+        ArrayList<Retail> matches;
+        matches = new ArrayList<>();
+
+        for(Property property: typeSets.get(PropertyType.RETAIL))
+        {
+            if((property instanceof Retail) && (((Retail) property).getSquareFootage() >= squareFootage))
+            {
+                matches.add(((Retail) property).view());
+            }
+        }
+
+        return (matches.size() > NONE) ? matches : null;
+    }
+
+    /*
+     * Returns the amenity of the smallest set of properties.
+     */
+    private Amenity smallestOf(final Amenity[] amenities)
+    {
+        Amenity smallest = amenities[0];
+
+        for(Amenity amenity: amenities)
+        {
+            if(amenitySets.get(amenity).size() < amenitySets.get(smallest).size())
+            {
+                smallest = amenity;
+            }
+        }
+
+        return smallest;
+    }
+
+    /*
+     * Returns true if the property has all of the amenities.
+     */
+    private static boolean hasAll(final Property property, final Amenity[] amenities)
+    {
+        for(Amenity amenity: amenities)
+        {
+            if(!amenity.isPresentIn(property))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Removes the slot's property from every index, releases its row, and stops listening to its price changes. The
+     * stripe of its id must be held.
+     */
+    private void unindex(final Slot slot)
+    {
+        Property property = slot.property;
+        String   id       = property.getPropertyId();
+
+        slots.remove(PropertyIdCodec.fold(id), slot);
+
+        property.removePriceChangeListener(this);
+
+        priceIndex.remove(new PriceKey(slot.indexedPrice, id));
+        getAggregates().remove(PortfolioAggregates.kindOf(property), slot.indexedPrice);
+
+        streetIndex.computeIfPresent(StreetIndex.keyOf(property.getAddress().getStreetName()), (key, street) ->
+        {
+            street.remove(id, property);
+
+            return street.isEmpty() ? null : street;
+        });
+
+        for(Amenity amenity: Amenity.values())
+        {
+            amenitySets.get(amenity).remove(property);
+        }
+
+        if(property.getPropertyType() != null)
+        {
+            typeSets.get(property.getPropertyType()).remove(property);
+        }
+
+        chunkOf(slot.row).set(slot.row & (CHUNK_SIZE - 1), null);
+        freeRows.add(slot.row);
+    }
+
+    /*
+     * Returns a free row, or a new row at the end of the table.
+     */
+    private int allocateRow()
+    {
+        Integer row;
+        row = freeRows.poll();
+
+        return (row != null) ? row : rowCount.getAndIncrement();
+    }
+
+    /*
+     * Returns the chunk of the row, and creates it, and a larger chunk table, if needed. Only the chunk table is
+     * copied when it grows; the chunks stay where they are.
+     */
+    private AtomicReferenceArray<Property> chunkOf(final int row)
+    {
+        int index = row >>> CHUNK_SHIFT;
+
+        AtomicReferenceArray<AtomicReferenceArray<Property>> table = chunks;
+
+        if((index < table.length()) && (table.get(index) != null))
+        {
+            return table.get(index);
+        }
+
+        synchronized(growLock)
+        {
+            table = chunks;
+
+            if(index >= table.length())
+            {
+                AtomicReferenceArray<AtomicReferenceArray<Property>> larger;
+                larger = new AtomicReferenceArray<>(Math.max(table.length() * 2, index + 1));
+
+                for(int i = 0; i < table.length(); i++)
+                {
+                    larger.set(i, table.get(i));
+                }
+
+                table  = larger;
+                chunks = larger;
+            }
+
+            if(table.get(index) == null)
+            {
+                table.set(index, new AtomicReferenceArray<>(CHUNK_SIZE));
+            }
+
+            return table.get(index);
+        }
+    }
+
+    /*
+     * Returns the property at the row of the table, or null if there is none.
+     */
+    private static Property rowAt(final AtomicReferenceArray<AtomicReferenceArray<Property>> table, final int row)
+    {
+        AtomicReferenceArray<Property> chunk;
+        chunk = table.get(row >>> CHUNK_SHIFT);
+
+        return (chunk == null) ? null : chunk.get(row & (CHUNK_SIZE - 1));
+    }
+
+    /*
+     * Returns the lock of the stripe of the case folded property id.
+     */
+    private Object stripeOf(final String foldedId)
+    {
+        int hash = foldedId.hashCode();
+
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /*
+     * A property with its row, and the price it's indexed at. indexedPrice is guarded by the stripe of the property id.
+     */
+    private static final class Slot
+    {
+        private final Property property;
+        private final int      row;
+        private double         indexedPrice;
+
+        private Slot(final Property property, final int row)
+        {
+            this.property = property;
+            this.row      = row;
+        }
+    }
+
+    /*
+     * A key of the price index: a price and a property id. A key with the bound BELOW or ABOVE has no id, and comes
+     * before or after every key of the same price, to search a range of prices.
+     */
+    private static final class PriceKey implements Comparable<PriceKey>
+    {
+        private static final int BELOW = -1;
+        private static final int EXACT = 0;
+        private static final int ABOVE = 1;
+
+        private final double priceUsd;
+        private final String propertyId;
+        private final int    bound;
+
+        private PriceKey(final double priceUsd, final String propertyId)
+        {
+            this(priceUsd, propertyId, EXACT);
+        }
+
+        private PriceKey(final double priceUsd, final int bound)
+        {
+            this(priceUsd, null, bound);
+        }
+
+        private PriceKey(final double priceUsd, final String propertyId, final int bound)
+        {
+            this.priceUsd   = priceUsd + 0.0; // -0.0 and 0.0 are the same price
+            this.propertyId = propertyId;
+            this.bound      = bound;
+        }
+
+        @Override
+        public int compareTo(final PriceKey other)
+        {
+            int byPrice = Double.compare(priceUsd, other.priceUsd);
+
+            if(byPrice != NONE)
+            {
+                return byPrice;
+            }
+            else if(bound != other.bound)
+            {
+                return Integer.compare(bound, other.bound);
+            }
+            else
+            {
+                return (bound == EXACT) ? propertyId.compareTo(other.propertyId) : NONE;
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.IOException;
+
+/**
+ * This is CsvPropertyWriter class. It writes query results as CSV (RFC 4180): a header, then one line per row, each
+ * ending with CRLF. A field that holds a comma, a quote or a line break is quoted, with its quotes doubled.
+ *
+ * The rows of properties have the columns of PROPERTY_HEADER: the fields of every subtype, left empty where they do
+ * not apply, so a result that mixes residences, commercials and retails is one table. The rows of the addresses of
+ * Agency.getPropertiesOn() have the columns of ADDRESS_HEADER. The header is written before the first row, so it
+ * matches it; an empty result has PROPERTY_HEADER only.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class CsvPropertyWriter extends PropertyWriter
+{
+    private boolean header;
+
+    public static final String ADDRESS_HEADER  = "unitNumber,streetNumber,streetName,postalCode,city";
+    public static final String PROPERTY_HEADER = "propertyId,type,priceUsd," + ADDRESS_HEADER +
+                                                 ",numberOfBedrooms,swimmingPool,strata,loadingDock,highwayAccess" +
+                                                 ",squareFootage,customerParking";
+
+    public static final char   DELIMITER = ',';
+    public static final char   QUOTE     = '"';
+    public static final String LINE_END  = "\r\n";
+
+    /**
+     * This is the CsvPropertyWriter constructor.
+     *
+     * @param output is where the results are written. It must be not null.
+     * @throws NullPointerException if output is null.
+     */
+    public CsvPropertyWriter(final Appendable output) throws NullPointerException
+    {
+        super(output);
+    }
+
+    /**
+     * This method starts a table. Its header is written with its first row.
+     */
+    @Override
+    public void begin()
+    {
+        header = false;
+    }
+
+    @Override
+    public void writeProperty(final Property property) throws IOException
+    {
+        writeHeader(PROPERTY_HEADER);
+
+        appendField(property.getPropertyId());
+        append(DELIMITER);
+        appendField(property.getType());
+        append(DELIMITER);
+        appendPrice(property.getPriceUsd());
+        append(DELIMITER);
+        appendAddress(property.getAddress());
+        append(DELIMITER);
+
+        if(property instanceof Residence)
+        {
+            Residence residence;
+            residence = (Residence) property;
+
+            appendLong(residence.getNumberOfBedrooms());
+            append(DELIMITER);
+            appendBoolean(residence.hasSwimmingPool());
+            append(DELIMITER);
+            appendBoolean(residence.isStrata());
+            append(",,,,");
+        }
+        else if(property instanceof Commercial)
+        {
+            Commercial commercial;
+            commercial = (Commercial) property;
+
+            append(",,,");
+            appendBoolean(commercial.isLoadingDock());
+            append(DELIMITER);
+            appendBoolean(commercial.isHighwayAccess());
+            append(",,");
+        }
+        else if(property instanceof Retail)
+        {
+            Retail retail;
+            retail = (Retail) property;
+
+            append(",,,,,");
+            appendLong(retail.getSquareFootage());
+            append(DELIMITER);
+            appendBoolean(retail.hasCustomerParking());
+        }
+        else
+        {
+            append(",,,,,,");
+        }
+
+        append(LINE_END);
+        countRow();
+    }
+
+    @Override
+    public void writeAddress(final Address address) throws IOException
+    {
+        writeHeader(ADDRESS_HEADER);
+
+        appendAddress(address);
+        append(LINE_END);
+        countRow();
+    }
+
+    /**
+     * This method writes the header, if the table is empty.
+     */
+    @Override
+    public void end() throws IOException
+    {
+        writeHeader(PROPERTY_HEADER);
+    }
+
+    /*
+     * Writes the header, unless the table already has one.
+     */
+    private void writeHeader(final String columns) throws IOException
+    {
+        if(!header)
+        {
+            append(columns);
+            append(LINE_END);
+
+            header = true;
+        }
+    }
+
+    /*
+     * Appends the fields of the address, separated by DELIMITER.
+     */
+    private void appendAddress(final Address address) throws IOException
+    {
+        appendField(address.getUnitNumber());
+        append(DELIMITER);
+        appendLong(address.getStreetNumber());
+        append(DELIMITER);
+        appendField(address.getStreetName());
+        append(DELIMITER);
+        appendField(address.getPostalCode());
+        append(DELIMITER);
+        appendField(address.getCity());
+    }
+
+    /*
+     * Appends the text as it is, or quoted if it holds a DELIMITER, a QUOTE or a line break; null is an empty field.
+     */
+    private void appendField(final String text) throws IOException
+    {
+        if(text == null)
+        {
+            return;
+        }
+
+        int length = text.length();
+        int i      = 0;
+
+        while((i < length) && !needsQuote(text.charAt(i)))
+        {
+            i++;
+        }
+
+        if(i == length)
+        {
+            append(text);
+
+            return;
+        }
+
+        append(QUOTE);
+
+        int start = 0;
+
+        for(i = text.indexOf(QUOTE); i != -1; i = text.indexOf(QUOTE, i + 1))
+        {
+            // The quote is appended twice: once as the end of this range, and once on its own.
+            appendRange(text, start, i + 1);
+            append(QUOTE);
+
+            start = i + 1;
+        }
+
+        appendRange(text, start, length);
+        append(QUOTE);
+    }
+
+    /*
+     * Returns true if a field with the character must be quoted.
+     */
+    private static boolean needsQuote(final char c)
+    {
+        return (c == DELIMITER) || (c == QUOTE) || (c == '\n') || (c == '\r');
+    }
+}
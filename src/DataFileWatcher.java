@@ -0,0 +1,674 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * This is DataFileWatcher class. It keeps an Agency up to date with address_data.txt and property_data.txt while they
+ * change, without loading them again from scratch.
+ *
+ * A property line and the address line of the same index make a pair. The pairs are grouped in blocks of BLOCK_LINES
+ * pairs on average, and the checksum of every block is kept. A block ends after a pair whose CRC32 has its low bits
+ * set, or after MAX_BLOCK_LINES pairs, so where blocks end depends on the lines and not on their indexes: a pair
+ * inserted or deleted in the middle changes the block it is in, and the blocks after it are found again unchanged.
+ *
+ * At each refresh, the blocks are checksummed again and looked up by checksum among the previous ones, and only the
+ * blocks that are not found are parsed. If neither file got shorter, one of them got longer, and the first block that
+ * may have grown (the last one, or the first with property lines that had no address line yet) still has the same
+ * lines at the same offsets, the files are taken as appended to: only that block and the lines after it are read
+ * again, and the blocks before it are kept as they are. An insertion or deletion before that block moves it, so it
+ * makes the blocks be checksummed again from the start; an edit before it that keeps the length of its line, made
+ * together with an append, is only picked up with a later change that is not an append.
+ *
+ * The properties of the blocks that are parsed are compared with the agency by property id, and only the differences
+ * are applied: new properties are added, missing ones are removed, changed ones are replaced, and a property whose
+ * price is the only change gets setPriceUsd(). The agency keeps its indexes up to date for each of these changes.
+ *
+ * A line that is still being written (the last line, without its line ending) is left for the next refresh. A line
+ * inserted in only one of the files shifts the pairs after it, which then are all parsed again.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class DataFileWatcher implements Closeable
+{
+    private final File   addressFile;
+    private final File   propertyFile;
+    private final Agency agency;
+
+    private ArrayList<Block> blocks;
+    private long             addressLength;
+    private long             addressModified;
+    private long             propertyLength;
+    private long             propertyModified;
+
+    private WatchService watchService;
+    private Thread       watcher;
+
+    public static final int  BLOCK_LINES     = 1024;
+    public static final int  MAX_BLOCK_LINES = 4 * BLOCK_LINES;
+    public static final long SETTLE_MILLIS   = 100;
+    public static final int  NONE            = 0;
+
+    // The offset basis and prime of the 64-bit FNV-1a hash; it folds the CRC32 of each pair into a block checksum.
+    private static final long CHECKSUM_BASIS = 0xcbf29ce484222325L;
+    private static final long CHECKSUM_PRIME = 0x100000001b3L;
+
+    /**
+     * This is the DataFileWatcher constructor. The agency must already hold the properties of the files, for example
+     * loaded by PropertyManager.init(), because the files as they are now are the starting point of the refreshes.
+     *
+     * @param addressFile is the text file that has address data.
+     * @param propertyFile is the text file that has property data.
+     * @param agency is the agency that is kept up to date.
+     * @throws FileNotFoundException if one of the files not found.
+     * @throws NullPointerException if addressFile, propertyFile or agency is null.
+     */
+    public DataFileWatcher(final File addressFile, final File propertyFile, final Agency agency)
+                           throws FileNotFoundException
+    {
+        if(addressFile == null || propertyFile == null || agency == null)
+        {
+            throw new NullPointerException("Invalid file or agency!");
+        }
+
+        this.addressFile  = addressFile;
+        this.propertyFile = propertyFile;
+        this.agency       = agency;
+
+        addressModified  = addressFile.lastModified();
+        propertyModified = propertyFile.lastModified();
+        addressLength    = addressFile.length();
+        propertyLength   = propertyFile.length();
+
+        blocks = checksumBlocksFrom(NONE, NONE);
+
+        for(Block block: blocks)
+        {
+            block.ids = readIds(block);
+        }
+    }
+
+    /**
+     * This method applies the changes of the files since the last refresh to the agency, while synchronized on the
+     * agency. Nothing is applied if a changed line is invalid; the next refresh tries again.
+     *
+     * @return the number of properties that have been added, removed, replaced or repriced.
+     * @throws FileNotFoundException if one of the files not found.
+     * @throws IllegalArgumentException if a changed line has invalid data.
+     * @throws IndexOutOfBoundsException if a changed line has too few fields.
+     */
+    public synchronized int refresh() throws FileNotFoundException
+    {
+        long newAddressModified  = addressFile.lastModified();
+        long newPropertyModified = propertyFile.lastModified();
+        long newAddressLength    = addressFile.length();
+        long newPropertyLength   = propertyFile.length();
+
+        if((newAddressModified == addressModified) && (newPropertyModified == propertyModified) &&
+           (newAddressLength == addressLength) && (newPropertyLength == propertyLength))
+        {
+            return NONE;
+        }
+
+        int stale = firstStaleBlock(newAddressLength, newPropertyLength);
+
+        ArrayList<Block> newBlocks;
+        newBlocks = new ArrayList<>(blocks.subList(NONE, stale));
+
+        if(stale == NONE)
+        {
+            newBlocks.addAll(checksumBlocksFrom(NONE, NONE));
+        }
+        else
+        {
+            newBlocks.addAll(checksumBlocksFrom(blocks.get(stale).propertyStart, blocks.get(stale).addressStart));
+        }
+
+        HashMap<Long, Block> oldBlocks;
+        oldBlocks = new HashMap<>();
+
+        for(Block block: blocks)
+        {
+            oldBlocks.put(block.checksum, block);
+        }
+
+        // Parse every block that is not found first, so nothing is applied if one of them is invalid.
+        LinkedHashMap<String, Property> changed;
+        changed = new LinkedHashMap<>();
+
+        // The checksums of the previous blocks that are found; blocks with the same lines have the same ids.
+        HashSet<Long> found;
+        found = new HashSet<>();
+
+        AddressPool pool;
+        pool = new AddressPool();
+
+        for(Block newBlock: newBlocks)
+        {
+            Block oldBlock;
+            oldBlock = oldBlocks.get(newBlock.checksum);
+
+            if((oldBlock != null) && oldBlock.sameContent(newBlock))
+            {
+                newBlock.ids = oldBlock.ids;
+                found.add(oldBlock.checksum);
+
+                continue;
+            }
+
+            ArrayList<Property> properties;
+            properties = readProperties(newBlock, pool);
+
+            newBlock.ids = new String[properties.size()];
+
+            for(int j = 0; j < properties.size(); j++)
+            {
+                Property property = properties.get(j);
+
+                newBlock.ids[j] = property.getPropertyId();
+                changed.put(property.getPropertyId(), property);
+            }
+        }
+
+        HashSet<String> oldIds;
+        oldIds = new HashSet<>();
+
+        for(Block oldBlock: blocks)
+        {
+            if(!found.contains(oldBlock.checksum))
+            {
+                for(String id: oldBlock.ids)
+                {
+                    oldIds.add(id);
+                }
+            }
+        }
+
+        int changes = NONE;
+
+        synchronized(agency)
+        {
+            for(String id: oldIds)
+            {
+                if(!changed.containsKey(id) && (agency.getProperty(id) != null))
+                {
+                    agency.removeProperty(id);
+                    changes++;
+                }
+            }
+
+            for(Property property: changed.values())
+            {
+                Property current;
+                current = agency.getProperty(property.getPropertyId());
+
+                if((current == null) || !sameListing(current, property))
+                {
+                    agency.addProperty(property);
+                    changes++;
+                }
+                else if(Double.compare(current.getPriceUsd(), property.getPriceUsd()) != NONE)
+                {
+                    agency.setPriceUsd(property.getPropertyId(), property.getPriceUsd());
+                    changes++;
+                }
+            }
+        }
+
+        blocks           = newBlocks;
+        addressModified  = newAddressModified;
+        propertyModified = newPropertyModified;
+        addressLength    = newAddressLength;
+        propertyLength   = newPropertyLength;
+
+        return changes;
+    }
+
+    /**
+     * This method starts a background thread that calls refresh() whenever one of the files changes. The changes are
+     * applied to the agency on that thread, so an agency that other threads read meanwhile must be a ConcurrentAgency:
+     * synchronizing on the agency here does not protect a reader that does not synchronize on it too, and the queries
+     * of the menus, BatchQueryRunner and QueryServer do not.
+     *
+     * @throws IOException if the directories of the files can not be watched.
+     * @throws IllegalStateException if it's already started.
+     */
+    public synchronized void start() throws IOException
+    {
+        if(watchService != null)
+        {
+            throw new IllegalStateException("Already started");
+        }
+
+        Path addressDirectory  = directoryOf(addressFile);
+        Path propertyDirectory = directoryOf(propertyFile);
+
+        watchService = FileSystems.getDefault().newWatchService();
+
+        try
+        {
+            addressDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                      StandardWatchEventKinds.ENTRY_MODIFY);
+
+            if(!propertyDirectory.equals(addressDirectory))
+            {
+                propertyDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                           StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+        catch(IOException e)
+        {
+            watchService.close();
+            watchService = null;
+
+            throw e;
+        }
+
+        watcher = new Thread(this::watch, "DataFileWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * This method stops the background thread, if it's started.
+     *
+     * @throws IOException if the watch service can not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        Thread stopped;
+
+        synchronized(this)
+        {
+            if(watchService == null)
+            {
+                return;
+            }
+
+            watchService.close();
+            watchService = null;
+
+            stopped = watcher;
+            watcher = null;
+        }
+
+        try
+        {
+            stopped.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * The loop of the background thread. It waits SETTLE_MILLIS after an event, so a burst of writes to the files
+     * is picked up by one refresh.
+     */
+    private void watch()
+    {
+        WatchService service;
+
+        synchronized(this)
+        {
+            service = watchService;
+        }
+
+        String addressName  = addressFile.getName();
+        String propertyName = propertyFile.getName();
+
+        try
+        {
+            while(true)
+            {
+                WatchKey key;
+                key = service.take();
+
+                boolean relevant = false;
+
+                do
+                {
+                    for(WatchEvent<?> event: key.pollEvents())
+                    {
+                        String name = String.valueOf(event.context());
+
+                        relevant |= name.equals(addressName) || name.equals(propertyName) ||
+                                    (event.kind() == StandardWatchEventKinds.OVERFLOW);
+                    }
+
+                    key.reset();
+
+                    Thread.sleep(SETTLE_MILLIS);
+
+                    key = service.poll();
+                }
+                while(key != null);
+
+                if(relevant)
+                {
+                    try
+                    {
+                        refresh();
+                    }
+                    catch(FileNotFoundException | RuntimeException e)
+                    {
+                        System.out.println("\n>> Reload failed! " + e.getMessage());
+                    }
+                }
+            }
+        }
+        catch(InterruptedException | ClosedWatchServiceException e)
+        {
+            // Stopped by close().
+        }
+    }
+
+    /*
+     * Returns the index of the first block that must be checksummed again: the last block, or the first one with
+     * property lines that had no address line, if the files were only appended to; or 0, if they may have been
+     * changed anywhere. The files are taken as appended to if neither got shorter, one got longer, and that block
+     * still has the same lines at the same offsets, which an insertion or deletion before it would have moved.
+     */
+    private int firstStaleBlock(final long newAddressLength, final long newPropertyLength)
+                                throws FileNotFoundException
+    {
+        boolean appended = (newAddressLength >= addressLength) && (newPropertyLength >= propertyLength) &&
+                           ((newAddressLength > addressLength) || (newPropertyLength > propertyLength));
+
+        if(!appended || blocks.isEmpty())
+        {
+            return NONE;
+        }
+
+        int stale = blocks.size() - 1;
+
+        for(int i = 0; i < stale; i++)
+        {
+            if(blocks.get(i).pairedLines < blocks.get(i).lines)
+            {
+                stale = i;
+
+                break;
+            }
+        }
+
+        Block block;
+        block = blocks.get(stale);
+
+        ArrayList<Block> found;
+        found = checksumBlocks(block.propertyStart, block.propertyEnd, block.addressStart, block.addressEnd);
+
+        return ((found.size() == 1) && found.get(NONE).sameContent(block)) ? stale : NONE;
+    }
+
+    /*
+     * Returns the blocks from the offsets, which must be the start of a block, up to the last complete line of both
+     * files.
+     */
+    private ArrayList<Block> checksumBlocksFrom(final long propertyStart, final long addressStart)
+                                                throws FileNotFoundException
+    {
+        try
+        {
+            return checksumBlocks(propertyStart, completeLength(propertyFile), addressStart,
+                                  completeLength(addressFile));
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Reads both files line by line between the offsets, and returns their blocks with checksums and offsets. A
+     * property line is paired with the address line of the same index, as PropertyManager.init() does.
+     */
+    private ArrayList<Block> checksumBlocks(final long propertyStart, final long propertyEnd, final long addressStart,
+                                            final long addressEnd) throws FileNotFoundException
+    {
+        ArrayList<Block> result;
+        result = new ArrayList<>();
+
+        try(PipeDelimitedReader addresses  = new PipeDelimitedReader(addressFile, addressStart, addressEnd);
+            PipeDelimitedReader properties = new PipeDelimitedReader(propertyFile, propertyStart, propertyEnd))
+        {
+            CRC32 crc;
+            crc = new CRC32();
+
+            Block block = null;
+
+            while(properties.nextLine())
+            {
+                if(block == null)
+                {
+                    block               = new Block();
+                    block.propertyStart = properties.lineOffset();
+                    block.addressStart  = addresses.nextLineOffset();
+                    block.checksum      = CHECKSUM_BASIS;
+                }
+
+                crc.reset();
+                properties.updateChecksum(crc);
+
+                // The line ending of the property line is not checksummed, so it's used to tell the files apart.
+                crc.update(PipeDelimitedReader.LINE_FEED);
+
+                if(addresses.nextLine())
+                {
+                    addresses.updateChecksum(crc);
+                    block.pairedLines++;
+                }
+
+                crc.update(PipeDelimitedReader.LINE_FEED);
+
+                long pair = crc.getValue();
+
+                block.lines++;
+                block.checksum    = (block.checksum ^ pair) * CHECKSUM_PRIME;
+                block.propertyEnd = properties.nextLineOffset();
+                block.addressEnd  = addresses.nextLineOffset();
+
+                if(((pair & (BLOCK_LINES - 1)) == BLOCK_LINES - 1) || (block.lines == MAX_BLOCK_LINES))
+                {
+                    result.add(block);
+                    block = null;
+                }
+            }
+
+            if(block != null)
+            {
+                result.add(block);
+            }
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return result;
+    }
+
+    /*
+     * Parses the properties of the block that have an address line. Their addresses are shared through the pool.
+     */
+    private ArrayList<Property> readProperties(final Block block, final AddressPool pool) throws FileNotFoundException
+    {
+        ArrayList<Property> result;
+        result = new ArrayList<>(block.pairedLines);
+
+        try(PipeDelimitedReader addresses  = new PipeDelimitedReader(addressFile, block.addressStart, block.addressEnd);
+            PipeDelimitedReader properties = new PipeDelimitedReader(propertyFile, block.propertyStart,
+                                                                     block.propertyEnd))
+        {
+            while((result.size() < block.pairedLines) && properties.nextLine() && addresses.nextLine())
+            {
+                result.add(PropertyReader.readProperty(properties, AddressReader.readAddress(addresses, pool)));
+            }
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return result;
+    }
+
+    /*
+     * Finds the property ids of the block that have an address line, without parsing the rest of the lines.
+     */
+    private String[] readIds(final Block block) throws FileNotFoundException
+    {
+        String[] ids;
+        ids = new String[block.pairedLines];
+
+        try(PipeDelimitedReader properties = new PipeDelimitedReader(propertyFile, block.propertyStart,
+                                                                     block.propertyEnd))
+        {
+            for(int i = 0; (i < ids.length) && properties.nextLine(); i++)
+            {
+                ids[i] = PropertyReader.readPropertyId(properties);
+            }
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return ids;
+    }
+
+    /*
+     * Returns true if both properties are the same listing apart from their price.
+     */
+    private static boolean sameListing(final Property current, final Property loaded)
+    {
+        if((current.getClass() != loaded.getClass()) || !Objects.equals(current.getType(), loaded.getType()))
+        {
+            return false;
+        }
+
+        if(!current.getAddress().sameAs(loaded.getAddress()))
+        {
+            return false;
+        }
+
+        if(current instanceof Residence)
+        {
+            Residence x = (Residence) current;
+            Residence y = (Residence) loaded;
+
+            return (x.getNumberOfBedrooms() == y.getNumberOfBedrooms()) &&
+                   (x.hasSwimmingPool() == y.hasSwimmingPool()) && (x.isStrata() == y.isStrata());
+        }
+        else if(current instanceof Commercial)
+        {
+            Commercial x = (Commercial) current;
+            Commercial y = (Commercial) loaded;
+
+            return (x.isLoadingDock() == y.isLoadingDock()) && (x.isHighwayAccess() == y.isHighwayAccess());
+        }
+        else if(current instanceof Retail)
+        {
+            Retail x = (Retail) current;
+            Retail y = (Retail) loaded;
+
+            return (x.getSquareFootage() == y.getSquareFootage()) &&
+                   (x.hasCustomerParking() == y.hasCustomerParking());
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns the length of the file up to the line ending of its last complete line.
+     */
+    private static long completeLength(final File file) throws IOException
+    {
+        try(RandomAccessFile input = new RandomAccessFile(file, "r"))
+        {
+            long length = input.length();
+
+            while(length > NONE)
+            {
+                input.seek(length - 1);
+
+                if(input.read() == PipeDelimitedReader.LINE_FEED)
+                {
+                    break;
+                }
+
+                length--;
+            }
+
+            return length;
+        }
+    }
+
+    /*
+     * Returns the directory of the file, which is the working directory for a relative file name.
+     */
+    private static Path directoryOf(final File file)
+    {
+        Path parent;
+        parent = file.getAbsoluteFile().toPath().getParent();
+
+        return parent;
+    }
+
+    /*
+     * A group of property lines and the address lines of the same indexes, about BLOCK_LINES of them.
+     */
+    private static final class Block
+    {
+        private long     addressStart;
+        private long     addressEnd;
+        private long     propertyStart;
+        private long     propertyEnd;
+        private int      lines;
+        private int      pairedLines;
+        private long     checksum;
+        private String[] ids;
+
+        /*
+         * Returns true if both blocks have the same lines.
+         */
+        private boolean sameContent(final Block other)
+        {
+            return (lines == other.lines) && (pairedLines == other.pairedLines) && (checksum == other.checksum);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * This is IngestionBenchmark class. It measures how reading the data files scales with their size: it writes data
+ * files of SyntheticData with each number of rows, and then times AddressReader, PropertyReader, and
+ * PropertyManager.init() on them:
+ *
+ *     java -Xmx8g IngestionBenchmark [--columnar | --concurrent] [rows ...]
+ *
+ * The default numbers of rows are 10k, 100k and 1M. Each step is run REPETITIONS times, and the fastest run is
+ * reported, since a slower run only adds noise (a GC or another process) to the cost of the step. For each step it
+ * reports the rows and megabytes read per second, and the peak heap used while it ran. For PropertyManager.init() it
+ * also reports the time to first query: from the start of init() to the end of the first query on the loaded agency,
+ * which is how long a user waits after starting the program.
+ *
+ * The files are written to a temporary directory, which is deleted at the end.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class IngestionBenchmark
+{
+    private final File    addressFile;
+    private final File    propertyFile;
+    private final long    rows;
+    private final boolean columnar;
+    private final boolean concurrent;
+
+    public static final int[] DEFAULT_ROWS = {10000, 100000, 1000000};
+    public static final int   REPETITIONS  = 3;
+    public static final long  NOT_MEASURED = -1;
+    public static final int   NONE         = 0;
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLI  = 1e6;
+    private static final double BYTES_PER_MB     = 1024.0 * 1024.0;
+
+    /**
+     * This is IngestionBenchmark.Step interface. It's one run of the step being measured.
+     */
+    public interface Step
+    {
+        /**
+         * This method runs the step once.
+         *
+         * @throws IOException if a file can not be read.
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * @param addressFile is the address data file. It must have rows lines.
+     * @param propertyFile is the property data file. It must have rows lines.
+     * @param rows is the number of rows of the files.
+     * @param columnar is true to load a ColumnarAgency in PropertyManager.init().
+     * @param concurrent is true to load a ConcurrentAgency in PropertyManager.init().
+     */
+    public IngestionBenchmark(final File addressFile, final File propertyFile, final long rows, final boolean columnar,
+                              final boolean concurrent)
+    {
+        this.addressFile  = addressFile;
+        this.propertyFile = propertyFile;
+        this.rows         = rows;
+        this.columnar     = columnar;
+        this.concurrent   = concurrent;
+    }
+
+    /**
+     * @return the results of every step, in the order they were run.
+     * @throws IOException if a file can not be read.
+     */
+    public ArrayList<Result> runAll() throws IOException
+    {
+        ArrayList<Result> results;
+        results = new ArrayList<>();
+
+        results.add(run("AddressReader", addressFile.length(), () -> AddressReader.readAddressData(addressFile)));
+
+        ArrayList<Address> addresses;
+        addresses = AddressReader.readAddressData(addressFile);
+
+        results.add(run("PropertyReader", propertyFile.length(),
+                        () -> PropertyReader.readProperties(propertyFile, addresses)));
+
+        addresses.clear();
+
+        results.add(runInit());
+
+        return results;
+    }
+
+    /**
+     * This method runs the step REPETITIONS times.
+     *
+     * @param name is the name of the step.
+     * @param bytes is the number of bytes the step reads.
+     * @param step is the step.
+     * @return the result of the fastest run.
+     * @throws IOException if a file can not be read.
+     */
+    public Result run(final String name, final long bytes, final Step step) throws IOException
+    {
+        Result best = null;
+
+        for(int i = 0; i < REPETITIONS; i++)
+        {
+            resetPeakHeap();
+
+            long start = System.nanoTime();
+
+            step.run();
+
+            long nanos = System.nanoTime() - start;
+
+            if((best == null) || (nanos < best.nanos))
+            {
+                best = new Result(name, rows, bytes, nanos, peakHeapBytes(), NOT_MEASURED);
+            }
+        }
+
+        return best;
+    }
+
+    /*
+     * Runs PropertyManager.init() on a new agency REPETITIONS times, with a first query after each, and returns the
+     * result of the fastest run.
+     */
+    private Result runInit() throws IOException
+    {
+        Result best = null;
+
+        for(int i = 0; i < REPETITIONS; i++)
+        {
+            Agency agency;
+
+            if(columnar)
+            {
+                agency = new ColumnarAgency("Benchmark");
+            }
+            else if(concurrent)
+            {
+                agency = new ConcurrentAgency("Benchmark");
+            }
+            else
+            {
+                agency = new Agency("Benchmark");
+            }
+
+            resetPeakHeap();
+
+            long start = System.nanoTime();
+
+            new PropertyManager(agency).init(addressFile, propertyFile);
+
+            long nanos = System.nanoTime() - start;
+
+            agency.getPropertiesWithPool();
+
+            long firstQueryNanos = System.nanoTime() - start;
+
+            if((best == null) || (nanos < best.nanos))
+            {
+                best = new Result("PropertyManager.init", rows, addressFile.length() + propertyFile.length(), nanos,
+                                  peakHeapBytes(), firstQueryNanos);
+            }
+        }
+
+        return best;
+    }
+
+    /*
+     * Collects the garbage, and resets the peak usage of every heap pool to what is used now.
+     */
+    private static void resetPeakHeap()
+    {
+        System.gc();
+
+        for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if(pool.getType() == MemoryType.HEAP)
+            {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /*
+     * Returns the sum of the peak usage of every heap pool since resetPeakHeap(). The pools may peak at different
+     * times, so it's an upper bound of the peak heap.
+     */
+    private static long peakHeapBytes()
+    {
+        long peak = 0;
+
+        for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if(pool.getType() == MemoryType.HEAP)
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return peak;
+    }
+
+    /**
+     * @return the header of the report, over the rows of Result.toString().
+     */
+    public static String header()
+    {
+        return String.format("%-22s %10s %10s %10s %12s %10s %12s %14s", "step", "rows", "MB", "ms", "rows/s", "MB/s",
+                             "peak heap MB", "first query ms");
+    }
+
+    /**
+     * This method writes the data files of each number of rows, runs the benchmark on them, and prints the report.
+     *
+     * @param args are the options: PropertyManager.COLUMNAR_OPTION or PropertyManager.CONCURRENT_OPTION, and the
+     *             numbers of rows.
+     */
+    public static void main(String[] args)
+    {
+        boolean columnar   = false;
+        boolean concurrent = false;
+
+        ArrayList<Long> counts;
+        counts = new ArrayList<>();
+
+        for(String arg: args)
+        {
+            if(arg.equals(PropertyManager.COLUMNAR_OPTION))
+            {
+                columnar = true;
+            }
+            else if(arg.equals(PropertyManager.CONCURRENT_OPTION))
+            {
+                concurrent = true;
+            }
+            else
+            {
+                try
+                {
+                    counts.add(Long.parseLong(arg));
+                }
+                catch(NumberFormatException e)
+                {
+                    System.out.println("\n>> Error! Invalid number of rows: " + arg);
+
+                    return;
+                }
+            }
+        }
+
+        if(counts.isEmpty())
+        {
+            for(int count: DEFAULT_ROWS)
+            {
+                counts.add((long) count);
+            }
+        }
+
+        File directory = null;
+
+        try
+        {
+            directory = Files.createTempDirectory("ingestion").toFile();
+
+            File addressFile  = new File(directory, PropertyManager.ADDRESS_FILE);
+            File propertyFile = new File(directory, PropertyManager.PROPERTY_FILE);
+
+            System.out.println(header());
+
+            for(long count: counts)
+            {
+                new SyntheticData().write(addressFile, propertyFile, count);
+
+                IngestionBenchmark benchmark;
+                benchmark = new IngestionBenchmark(addressFile, propertyFile, count, columnar, concurrent);
+
+                for(Result result: benchmark.runAll())
+                {
+                    System.out.println(result);
+                }
+            }
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! " + e.getMessage());
+        }
+        finally
+        {
+            if(directory != null)
+            {
+                new File(directory, PropertyManager.ADDRESS_FILE).delete();
+                new File(directory, PropertyManager.PROPERTY_FILE).delete();
+                directory.delete();
+            }
+        }
+    }
+
+    /**
+     * This is IngestionBenchmark.Result class. It's what was measured of one run of a step.
+     */
+    public static final class Result
+    {
+        private final String name;
+        private final long   rows;
+        private final long   bytes;
+        private final long   nanos;
+        private final long   peakHeapBytes;
+        private final long   firstQueryNanos;
+
+        private Result(final String name, final long rows, final long bytes, final long nanos, final long peakHeapBytes,
+                       final long firstQueryNanos)
+        {
+            this.name            = name;
+            this.rows            = rows;
+            this.bytes           = bytes;
+            this.nanos           = nanos;
+            this.peakHeapBytes   = peakHeapBytes;
+            this.firstQueryNanos = firstQueryNanos;
+        }
+
+        /**
+         * @return the name of the step.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the rows read per second.
+         */
+        public double getRowsPerSecond()
+        {
+            return rows * NANOS_PER_SECOND / nanos;
+        }
+
+        /**
+         * @return the megabytes read per second.
+         */
+        public double getMBPerSecond()
+        {
+            return bytes / BYTES_PER_MB * NANOS_PER_SECOND / nanos;
+        }
+
+        /**
+         * @return the peak heap used while the step ran, in bytes.
+         */
+        public long getPeakHeapBytes()
+        {
+            return peakHeapBytes;
+        }
+
+        /**
+         * @return the nanoseconds from the start of the step to the end of the first query, or NOT_MEASURED.
+         */
+        public long getFirstQueryNanos()
+        {
+            return firstQueryNanos;
+        }
+
+        /**
+         * @return the result as one row of the report.
+         */
+        @Override
+        public String toString()
+        {
+            String firstQuery = (firstQueryNanos == NOT_MEASURED) ? "-" : String.format("%.1f",
+                                                                                        firstQueryNanos / NANOS_PER_MILLI);
+
+            return String.format("%-22s %10d %10.1f %10.1f %12.0f %10.1f %12.1f %14s", name, rows, bytes / BYTES_PER_MB,
+                                 nanos / NANOS_PER_MILLI, getRowsPerSecond(), getMBPerSecond(),
+                                 peakHeapBytes / BYTES_PER_MB, firstQuery);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This is IngestionPhaseEvent class. It's the JDK Flight Recorder event of one phase of PropertyManager.init(): one
+ * of the AgencyMetrics.INIT_ phases. Its duration is the time the phase took.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+@Name(IngestionPhaseEvent.NAME)
+@Label("Ingestion Phase")
+@Category({"Property Manager", "Ingestion"})
+@Description("A phase of loading the data files or a snapshot into an Agency")
+public class IngestionPhaseEvent extends Event
+{
+    public static final String NAME = "PropertyManager.IngestionPhase";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Rows")
+    @Description("The number of rows the phase produced")
+    long rows;
+
+    /**
+     * This method fills in the event, and commits it if it's recorded.
+     *
+     * @param phase is the phase, one of the AgencyMetrics.INIT_ phases.
+     * @param rows is the number of rows the phase produced.
+     */
+    public void commit(final String phase, final long rows)
+    {
+        if(shouldCommit())
+        {
+            this.phase = phase;
+            this.rows  = rows;
+
+            commit();
+        }
+    }
+}
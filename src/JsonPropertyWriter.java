@@ -0,0 +1,218 @@
+import java.io.IOException;
+
+/**
+ * This is JsonPropertyWriter class. It writes query results as a JSON array (RFC 8259), one object per line:
+ *
+ *     [
+ *     {"propertyId":"18op","type":"residence","priceUsd":650000,"address":{"unitNumber":"2","streetNumber":3,...},
+ *      "numberOfBedrooms":3,"swimmingPool":true,"strata":false},
+ *     ...
+ *     ]
+ *
+ * A property has the fields of its subtype only; an address of Agency.getPropertiesOn() is written as the "address"
+ * object alone. A missing unit number is null. Quotes, backslashes and control characters in Strings are escaped.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class JsonPropertyWriter extends PropertyWriter
+{
+    private boolean first;
+
+    public static final String LINE_END = "\n";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * This is the JsonPropertyWriter constructor.
+     *
+     * @param output is where the results are written. It must be not null.
+     * @throws NullPointerException if output is null.
+     */
+    public JsonPropertyWriter(final Appendable output) throws NullPointerException
+    {
+        super(output);
+    }
+
+    /**
+     * This method starts an array.
+     */
+    @Override
+    public void begin() throws IOException
+    {
+        append('[');
+
+        first = true;
+    }
+
+    @Override
+    public void writeProperty(final Property property) throws IOException
+    {
+        startObject();
+
+        append("{\"propertyId\":");
+        appendString(property.getPropertyId());
+        append(",\"type\":");
+        appendString(property.getType());
+        append(",\"priceUsd\":");
+        appendPrice(property.getPriceUsd());
+        append(",\"address\":");
+        appendAddress(property.getAddress());
+
+        if(property instanceof Residence)
+        {
+            Residence residence;
+            residence = (Residence) property;
+
+            append(",\"numberOfBedrooms\":");
+            appendLong(residence.getNumberOfBedrooms());
+            append(",\"swimmingPool\":");
+            appendBoolean(residence.hasSwimmingPool());
+            append(",\"strata\":");
+            appendBoolean(residence.isStrata());
+        }
+        else if(property instanceof Commercial)
+        {
+            Commercial commercial;
+            commercial = (Commercial) property;
+
+            append(",\"loadingDock\":");
+            appendBoolean(commercial.isLoadingDock());
+            append(",\"highwayAccess\":");
+            appendBoolean(commercial.isHighwayAccess());
+        }
+        else if(property instanceof Retail)
+        {
+            Retail retail;
+            retail = (Retail) property;
+
+            append(",\"squareFootage\":");
+            appendLong(retail.getSquareFootage());
+            append(",\"customerParking\":");
+            appendBoolean(retail.hasCustomerParking());
+        }
+
+        append('}');
+        countRow();
+    }
+
+    @Override
+    public void writeAddress(final Address address) throws IOException
+    {
+        startObject();
+
+        appendAddress(address);
+        countRow();
+    }
+
+    /**
+     * This method finishes the array.
+     */
+    @Override
+    public void end() throws IOException
+    {
+        if(!first)
+        {
+            append(LINE_END);
+        }
+
+        append(']');
+        append(LINE_END);
+    }
+
+    /*
+     * Separates the next object from the one before it, and puts it on a line of its own.
+     */
+    private void startObject() throws IOException
+    {
+        if(!first)
+        {
+            append(',');
+        }
+
+        append(LINE_END);
+
+        first = false;
+    }
+
+    /*
+     * Appends the address as an object.
+     */
+    private void appendAddress(final Address address) throws IOException
+    {
+        append("{\"unitNumber\":");
+        appendString(address.getUnitNumber());
+        append(",\"streetNumber\":");
+        appendLong(address.getStreetNumber());
+        append(",\"streetName\":");
+        appendString(address.getStreetName());
+        append(",\"postalCode\":");
+        appendString(address.getPostalCode());
+        append(",\"city\":");
+        appendString(address.getCity());
+        append('}');
+    }
+
+    /*
+     * Appends the text as a JSON string, escaping the characters that need it, or null.
+     */
+    private void appendString(final String text) throws IOException
+    {
+        if(text == null)
+        {
+            append("null");
+
+            return;
+        }
+
+        append('"');
+
+        int start = 0;
+
+        for(int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+
+            if((c == '"') || (c == '\\') || (c < ' '))
+            {
+                appendRange(text, start, i);
+                appendEscape(c);
+
+                start = i + 1;
+            }
+        }
+
+        appendRange(text, start, text.length());
+        append('"');
+    }
+
+    /*
+     * Appends the escape sequence of a quote, a backslash or a control character.
+     */
+    private void appendEscape(final char c) throws IOException
+    {
+        switch(c)
+        {
+            case '"':
+                append("\\\"");
+                break;
+            case '\\':
+                append("\\\\");
+                break;
+            case '\n':
+                append("\\n");
+                break;
+            case '\r':
+                append("\\r");
+                break;
+            case '\t':
+                append("\\t");
+                break;
+            default:
+                append("\\u00");
+                append(HEX_DIGITS[c >> 4]);
+                append(HEX_DIGITS[c & 0xf]);
+                break;
+        }
+    }
+}
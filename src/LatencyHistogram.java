@@ -0,0 +1,215 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This is LatencyHistogram class. It counts latencies in nanoseconds in log-linear buckets: each power of two is split
+ * into SUB_BUCKETS buckets, so a percentile is never off by more than 1 / SUB_BUCKETS of its value, from nanoseconds
+ * to hours, in a fixed BUCKETS counters.
+ *
+ * record() takes no lock and allocates nothing: it increments one counter of an AtomicLongArray and adds to a
+ * LongAdder, so it's cheap enough to call on every query. The counters are striped by thread, up to MAX_STRIPES
+ * stripes, so threads on different cores rarely increment the same cache line. The count is not kept apart: reading
+ * it, or a percentile, sums the stripes. A read while threads record sees each counter as it is at that moment, which
+ * is close enough for monitoring.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class LatencyHistogram
+{
+    private final AtomicLongArray counts;
+    private final int             stripeMask;
+    private final LongAdder       totalNanos;
+    private final AtomicLong      maxNanos;
+
+    public static final int SUB_BUCKET_BITS = 3;
+    public static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+    public static final int BUCKETS         = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    public static final int MAX_STRIPES     = 8;
+    public static final int NONE            = 0;
+
+    /**
+     * This is the LatencyHistogram constructor. It creates an empty histogram, with a stripe for each processor, up to
+     * MAX_STRIPES stripes.
+     */
+    public LatencyHistogram()
+    {
+        int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+        counts     = new AtomicLongArray(stripes * BUCKETS);
+        stripeMask = stripes - 1;
+        totalNanos = new LongAdder();
+        maxNanos   = new AtomicLong();
+    }
+
+    /**
+     * @param nanos is the latency in nanoseconds. A negative latency is counted as 0.
+     */
+    public void record(final long nanos)
+    {
+        record(nanos, 1);
+    }
+
+    /**
+     * This method records a latency that stands for weight latencies, for example one in weight calls that are
+     * sampled.
+     *
+     * @param nanos is the latency in nanoseconds. A negative latency is counted as 0.
+     * @param weight is the number of latencies it stands for.
+     */
+    public void record(final long nanos, final int weight)
+    {
+        long value = Math.max(NONE, nanos);
+
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+
+        counts.getAndAdd(stripe * BUCKETS + bucketOf(value), weight);
+        totalNanos.add(value * weight);
+
+        // Once the histogram is warm, a new maximum is rare, so this is almost always a single read.
+        long max = maxNanos.get();
+
+        while((value > max) && !maxNanos.compareAndSet(max, value))
+        {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * @return the number of latencies recorded.
+     */
+    public long getCount()
+    {
+        long recorded = 0;
+
+        for(int i = 0; i < counts.length(); i++)
+        {
+            recorded += counts.get(i);
+        }
+
+        return recorded;
+    }
+
+    /**
+     * @return the mean latency in nanoseconds, or 0 if none has been recorded.
+     */
+    public double getMeanNanos()
+    {
+        long recorded = getCount();
+
+        return (recorded == NONE) ? NONE : (double) totalNanos.sum() / recorded;
+    }
+
+    /**
+     * @return the highest latency recorded in nanoseconds, or 0 if none has been recorded.
+     */
+    public long getMaxNanos()
+    {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param percentile is the percentile, from 0 to 100, for example 99.9.
+     * @return the latency in nanoseconds that percentile percent of the latencies recorded are at or below. It's the
+     *         upper bound of the bucket of that latency, but never more than the highest latency. It's 0 if none has
+     *         been recorded.
+     */
+    public long getPercentileNanos(final double percentile)
+    {
+        long[] buckets;
+        buckets = new long[BUCKETS];
+
+        long recorded = 0;
+
+        for(int i = 0; i < counts.length(); i++)
+        {
+            buckets[i % BUCKETS] += counts.get(i);
+            recorded             += counts.get(i);
+        }
+
+        if(recorded == NONE)
+        {
+            return NONE;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(recorded * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+
+        for(int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += buckets[bucket];
+
+            if(seen >= rank)
+            {
+                return Math.min(upperBoundOf(bucket), maxNanos.get());
+            }
+        }
+
+        return maxNanos.get();
+    }
+
+    /**
+     * This method forgets every latency recorded. Latencies recorded while it runs may be kept or forgotten.
+     */
+    public void reset()
+    {
+        for(int i = 0; i < counts.length(); i++)
+        {
+            counts.set(i, NONE);
+        }
+
+        totalNanos.reset();
+        maxNanos.set(NONE);
+    }
+
+    /**
+     * @return the count, mean, p50, p99, p999 and max of this histogram as a String.
+     */
+    @Override
+    public String toString()
+    {
+        return "LatencyHistogram [" +
+                "count="     + getCount()                  +
+                ", meanNs="  + Math.round(getMeanNanos())  +
+                ", p50Ns="   + getPercentileNanos(50.0)    +
+                ", p99Ns="   + getPercentileNanos(99.0)    +
+                ", p999Ns="  + getPercentileNanos(99.9)    +
+                ", maxNs="   + getMaxNanos()               +
+                ']';
+    }
+
+    /*
+     * Returns the bucket of the value: the value itself below SUB_BUCKETS, and above it, SUB_BUCKETS buckets for each
+     * power of two, picked by the SUB_BUCKET_BITS bits after the highest one bit.
+     */
+    private static int bucketOf(final long value)
+    {
+        if(value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        int shift    = exponent - SUB_BUCKET_BITS;
+
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /*
+     * Returns the highest value of the bucket.
+     */
+    private static long upperBoundOf(final int bucket)
+    {
+        if(bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+
+        long lower = ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << shift;
+
+        return lower + (1L << shift) - 1;
+    }
+}
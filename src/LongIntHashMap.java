@@ -0,0 +1,185 @@
+/**
+ * This is LongIntHashMap class. It maps long keys to int values in one primitive array with open addressing and
+ * linear probing, so there is no boxing and no entry object per mapping. A slot holds its key and its value side by
+ * side, so a lookup usually reads a single cache line. The key FREE_KEY is reserved to mark an empty slot.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class LongIntHashMap
+{
+    // Slot i holds its key at table[2 * i], and its value at table[2 * i + 1].
+    private long[] table;
+    private int    capacity;
+    private int    size;
+
+    public static final long FREE_KEY          = 0L;
+    public static final int  NOT_FOUND         = -1;
+    public static final int  INITIAL_CAPACITY  = 16;
+    public static final int  NONE              = 0;
+
+    private static final int  MAX_LOAD_PERCENT = 60;
+    private static final int  PERCENT          = 100;
+    private static final long GOLDEN_RATIO     = 0x9E3779B97F4A7C15L;
+
+    /**
+     * This is the LongIntHashMap constructor. It creates an empty map.
+     */
+    public LongIntHashMap()
+    {
+        table    = new long[2 * INITIAL_CAPACITY];
+        capacity = INITIAL_CAPACITY;
+        size     = NONE;
+    }
+
+    /**
+     * @param key is the key.
+     * @return the value mapped to the key, or NOT_FOUND if there is none.
+     */
+    public int get(final long key)
+    {
+        int mask = capacity - 1;
+
+        for(int slot = slotOf(key, mask); table[2 * slot] != FREE_KEY; slot = (slot + 1) & mask)
+        {
+            if(table[2 * slot] == key)
+            {
+                return (int) table[2 * slot + 1];
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * This method maps the key to the value, and replaces the previous value of the key if there is one.
+     *
+     * @param key is the key. It must not be FREE_KEY.
+     * @param value is the value.
+     * @throws IllegalArgumentException if the key is FREE_KEY.
+     */
+    public void put(final long key, final int value)
+    {
+        if(key == FREE_KEY)
+        {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+
+        if((size + 1) * PERCENT > capacity * MAX_LOAD_PERCENT)
+        {
+            resize(capacity * 2);
+        }
+
+        int mask = capacity - 1;
+        int slot = slotOf(key, mask);
+
+        while(table[2 * slot] != FREE_KEY)
+        {
+            if(table[2 * slot] == key)
+            {
+                table[2 * slot + 1] = value;
+
+                return;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        table[2 * slot]     = key;
+        table[2 * slot + 1] = value;
+        size++;
+    }
+
+    /**
+     * This method removes the mapping of the key. The following entries of the probe sequence are shifted back, so
+     * no tombstone is left behind.
+     *
+     * @param key is the key.
+     * @return the value that was mapped to the key, or NOT_FOUND if there was none.
+     */
+    public int remove(final long key)
+    {
+        int mask = capacity - 1;
+        int slot = slotOf(key, mask);
+
+        while(table[2 * slot] != key)
+        {
+            if(table[2 * slot] == FREE_KEY)
+            {
+                return NOT_FOUND;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        int removed = (int) table[2 * slot + 1];
+
+        // Shift back every following entry that would otherwise become unreachable.
+        int hole = slot;
+
+        for(int next = (hole + 1) & mask; table[2 * next] != FREE_KEY; next = (next + 1) & mask)
+        {
+            int home = slotOf(table[2 * next], mask);
+
+            if(((next - home) & mask) >= ((next - hole) & mask))
+            {
+                table[2 * hole]     = table[2 * next];
+                table[2 * hole + 1] = table[2 * next + 1];
+                hole                = next;
+            }
+        }
+
+        table[2 * hole] = FREE_KEY;
+        size--;
+
+        return removed;
+    }
+
+    /**
+     * @return the number of mappings in this map.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /*
+     * Rehashes every mapping into a table of the new capacity.
+     */
+    private void resize(final int newCapacity)
+    {
+        long[] oldTable = table;
+
+        table    = new long[2 * newCapacity];
+        capacity = newCapacity;
+
+        int mask = newCapacity - 1;
+
+        for(int i = 0; i < oldTable.length; i += 2)
+        {
+            if(oldTable[i] != FREE_KEY)
+            {
+                int slot = slotOf(oldTable[i], mask);
+
+                while(table[2 * slot] != FREE_KEY)
+                {
+                    slot = (slot + 1) & mask;
+                }
+
+                table[2 * slot]     = oldTable[i];
+                table[2 * slot + 1] = oldTable[i + 1];
+            }
+        }
+    }
+
+    /*
+     * Spreads the key bits with a multiplicative hash, and folds the high bits into the low bits. It's package private
+     * so LongIntHashMapTest can pick keys that collide.
+     */
+    static int slotOf(final long key, final int mask)
+    {
+        long hash = key * GOLDEN_RATIO;
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,713 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * This is MutationLog class. It's a redo log of the changes to a ConcurrentAgency: every property added, every
+ * property removed and every price changed is appended to the log file, so the changes survive a restart without
+ * rewriting the text files.
+ *
+ * A change is logged by the AgencyListener calls that follow it, so it's applied to the agency before it's logged,
+ * not after: the log is not write-ahead. By default, a change is acknowledged as soon as it's in memory, and call
+ * sync() to wait until the changes so far are on the disk. In durable mode, every change waits until its record is
+ * on the disk instead.
+ *
+ * The changes are collected in memory and written by a background thread in batches (group commit): one sequential
+ * write and one fsync for every batch, instead of one for every change. A batch is written at most
+ * flushIntervalMillis after its first change, or as soon as GROUP_COMMIT_BYTES are waiting, or when a change or
+ * sync() waits for it.
+ *
+ * When the log grows past checkpointBytes, the same background thread writes the agency to the checkpoint file with
+ * AgencySnapshot and truncates the log (compaction). It first writes every change logged so far, then reads the
+ * agency, which has all of them, while the changes made meanwhile wait in memory, and then truncates the log, which
+ * has none of those. So no change waits for a checkpoint, except in durable mode. At the next start, the checkpoint
+ * is read and the log is replayed on top of it. Every record sets an absolute value, so replaying a record whose
+ * change is already in the checkpoint does not change the result. Replay stops at the first torn or corrupt record,
+ * which is cut off the end of the log. Every checkpoint is saved with the fingerprint of the data files that the
+ * first one was loaded from, so a later start can tell that they have changed since (see getFingerprint()).
+ *
+ * Each record is its length, its type and data, and the CRC32 of its type and data.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class MutationLog implements AgencyListener, Closeable
+{
+    private final Agency      agency;
+    private final File        checkpointFile;
+    private final long[]      fingerprint;
+    private final FileChannel channel;
+    private final long        flushIntervalMillis;
+    private final long        checkpointBytes;
+    private final boolean     durable;
+    private final Thread      flusher;
+
+    // Guards the buffers, the sequence numbers and the state below.
+    private final Object                lock;
+    private final ByteArrayOutputStream record;
+    private final DataOutputStream      recordOutput;
+    private final CRC32                 crc;
+    private ByteArrayOutputStream       pending;
+    private ByteArrayOutputStream       writing;
+    private long                        appended;
+    private long                        synced;
+    private long                        checkpointsRequested;
+    private long                        checkpointsWritten;
+    private boolean                     flushRequested;
+    private boolean                     checkpointing;
+    private boolean                     closed;
+    private IOException                 failure;
+
+    // The length of the log file. Only the flusher thread reads or changes it after the constructor.
+    private long logBytes;
+
+    public static final byte RECORD_ADD    = 1;
+    public static final byte RECORD_REMOVE = 2;
+    public static final byte RECORD_PRICE  = 3;
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+    public static final long DEFAULT_CHECKPOINT_BYTES      = 64L * 1024 * 1024;
+    public static final int  GROUP_COMMIT_BYTES            = 256 * 1024;
+    public static final int  MAX_PENDING_BYTES             = 4 * GROUP_COMMIT_BYTES;
+    public static final int  MAX_RECORD_BYTES              = 1024 * 1024;
+    public static final long MIN_FLUSH_INTERVAL_MILLIS     = 1;
+    public static final long MIN_CHECKPOINT_BYTES          = 1;
+    public static final int  NONE                          = 0;
+
+    private static final int FRAME_BYTES = Integer.BYTES + Integer.BYTES;
+
+    /**
+     * This is the MutationLog constructor. It uses DEFAULT_FLUSH_INTERVAL_MILLIS and DEFAULT_CHECKPOINT_BYTES, and
+     * does not wait for the disk on each change.
+     *
+     * @param agency is the agency. It must be a ConcurrentAgency, and empty if the checkpoint file exists.
+     * @param logFile is the log file.
+     * @param checkpointFile is the checkpoint file.
+     * @throws IOException if the checkpoint or the log can not be read, or the log can not be opened.
+     * @throws IllegalArgumentException if the agency is not a ConcurrentAgency.
+     */
+    public MutationLog(final Agency agency, final File logFile, final File checkpointFile) throws IOException
+    {
+        this(agency, logFile, checkpointFile, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_BYTES, false);
+    }
+
+    /**
+     * This is the MutationLog constructor. It does not wait for the disk on each change.
+     *
+     * The parameters are the same as those of the constructor that also takes durable.
+     *
+     * @throws IOException if the checkpoint or the log can not be read, or the log can not be opened.
+     * @throws IllegalArgumentException if the agency is not a ConcurrentAgency, or flushIntervalMillis or
+     *                                  checkpointBytes is out of range.
+     * @throws NullPointerException if agency, logFile or checkpointFile is null.
+     */
+    public MutationLog(final Agency agency, final File logFile, final File checkpointFile,
+                       final long flushIntervalMillis, final long checkpointBytes) throws IOException
+    {
+        this(agency, logFile, checkpointFile, flushIntervalMillis, checkpointBytes, false);
+    }
+
+    /**
+     * This is the MutationLog constructor. Its checkpoints are saved with no fingerprint of the data files.
+     *
+     * The parameters are the same as those of the constructor that also takes fingerprint.
+     *
+     * @throws IOException if the checkpoint or the log can not be read, or the log can not be opened.
+     * @throws IllegalArgumentException if the agency is not a ConcurrentAgency, or flushIntervalMillis or
+     *                                  checkpointBytes is out of range.
+     * @throws NullPointerException if agency, logFile or checkpointFile is null.
+     */
+    public MutationLog(final Agency agency, final File logFile, final File checkpointFile,
+                       final long flushIntervalMillis, final long checkpointBytes,
+                       final boolean durable) throws IOException
+    {
+        this(agency, logFile, checkpointFile, null, flushIntervalMillis, checkpointBytes, durable);
+    }
+
+    /**
+     * This is the MutationLog constructor. It recovers the agency, and then logs every change to it until it's closed.
+     *
+     * If the checkpoint file exists, its properties are added to the agency, which must be empty. Otherwise, the
+     * agency should already hold the initial data, for example loaded by PropertyManager.init(), and it becomes the
+     * first checkpoint. The log is then replayed on top of it.
+     *
+     * The agency must be a ConcurrentAgency, since the checkpoints read it on the thread of the log while other
+     * threads change it.
+     *
+     * @param agency is the agency.
+     * @param logFile is the log file.
+     * @param checkpointFile is the checkpoint file.
+     * @param fingerprint is the fingerprint of the data files the agency was loaded from (see AgencySnapshot), which
+     *                    every checkpoint is saved with, or null for none. It's only used for the first checkpoint:
+     *                    if the checkpoint file exists, the fingerprint saved in it is kept instead.
+     * @param flushIntervalMillis is the longest time a change waits for its batch to be written. It must be not less
+     *                            than MIN_FLUSH_INTERVAL_MILLIS.
+     * @param checkpointBytes is the length of the log that triggers a checkpoint. It must be not less than
+     *                        MIN_CHECKPOINT_BYTES.
+     * @param durable is true to make each change wait until its record has been written and forced to the disk, or
+     *                false to let it go on at once, and call sync() to wait for the changes so far.
+     * @throws IOException if the checkpoint or the log can not be read, or the log can not be opened.
+     * @throws IllegalArgumentException if the agency is not a ConcurrentAgency, or flushIntervalMillis or
+     *                                  checkpointBytes is out of range.
+     * @throws NullPointerException if agency, logFile or checkpointFile is null.
+     */
+    public MutationLog(final Agency agency, final File logFile, final File checkpointFile, final long[] fingerprint,
+                       final long flushIntervalMillis, final long checkpointBytes,
+                       final boolean durable) throws IOException
+    {
+        if(agency == null || logFile == null || checkpointFile == null)
+        {
+            throw new NullPointerException("Invalid agency or file!");
+        }
+
+        if(!(agency instanceof ConcurrentAgency))
+        {
+            throw new IllegalArgumentException("Invalid agency: not a ConcurrentAgency");
+        }
+
+        if(flushIntervalMillis < MIN_FLUSH_INTERVAL_MILLIS)
+        {
+            throw new IllegalArgumentException("Invalid flush interval: " + flushIntervalMillis);
+        }
+
+        if(checkpointBytes < MIN_CHECKPOINT_BYTES)
+        {
+            throw new IllegalArgumentException("Invalid checkpoint size: " + checkpointBytes);
+        }
+
+        this.agency              = agency;
+        this.checkpointFile      = checkpointFile;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.checkpointBytes     = checkpointBytes;
+        this.durable             = durable;
+
+        lock         = new Object();
+        record       = new ByteArrayOutputStream();
+        recordOutput = new DataOutputStream(record);
+        crc          = new CRC32();
+        pending      = new ByteArrayOutputStream(GROUP_COMMIT_BYTES);
+        writing      = new ByteArrayOutputStream(GROUP_COMMIT_BYTES);
+
+        boolean checkpointed = checkpointFile.exists();
+
+        if(checkpointed)
+        {
+            this.fingerprint = AgencySnapshot.readFingerprint(checkpointFile);
+
+            AgencySnapshot.readInto(checkpointFile, agency);
+        }
+        else
+        {
+            this.fingerprint = (fingerprint == null) ? new long[NONE] : fingerprint.clone();
+        }
+
+        long validBytes = replay(logFile, agency);
+
+        channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.APPEND);
+
+        try
+        {
+            // A fresh start or a replayed log is checkpointed at once, so the next start does not replay it again.
+            if(!checkpointed || validBytes > NONE)
+            {
+                writeCheckpoint();
+            }
+            else
+            {
+                // Cuts off a torn record, so the next batch is not written after it.
+                channel.truncate(validBytes);
+
+                logBytes = validBytes;
+            }
+
+            agency.addAgencyListener(this);
+
+            flusher = new Thread(this::flushBatches, "MutationLog flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+        catch(IOException | RuntimeException e)
+        {
+            agency.removeAgencyListener(this);
+            channel.close();
+
+            throw e;
+        }
+    }
+
+    /**
+     * This method appends a RECORD_ADD record of the property.
+     *
+     * @param property is the property that has been added.
+     * @throws UncheckedIOException in durable mode, if the record could not be written. The property has been added
+     *                              to the agency all the same.
+     */
+    @Override
+    public void propertyAdded(final Property property)
+    {
+        append(RECORD_ADD, output -> AgencySnapshot.writeProperty(output, property));
+    }
+
+    /**
+     * This method appends a RECORD_REMOVE record of the property id.
+     *
+     * @param property is the property that has been removed.
+     * @throws UncheckedIOException in durable mode, if the record could not be written. The property has been removed
+     *                              from the agency all the same.
+     */
+    @Override
+    public void propertyRemoved(final Property property)
+    {
+        append(RECORD_REMOVE, output -> AgencySnapshot.writeString(output, property.getPropertyId()));
+    }
+
+    /**
+     * This method appends a RECORD_PRICE record of the property id and its new price.
+     *
+     * @param property is the property whose price has been changed.
+     * @param oldPriceUsd is the price in USD before the change.
+     * @param newPriceUsd is the price in USD after the change.
+     * @throws UncheckedIOException in durable mode, if the record could not be written. The price has been changed
+     *                              all the same.
+     */
+    @Override
+    public void propertyPriceChanged(final Property property, final double oldPriceUsd, final double newPriceUsd)
+    {
+        append(RECORD_PRICE, output ->
+        {
+            AgencySnapshot.writeString(output, property.getPropertyId());
+            output.writeDouble(newPriceUsd);
+        });
+    }
+
+    /**
+     * @return the fingerprint of the data files that the checkpoints are saved with, which is empty if there is none.
+     */
+    public long[] getFingerprint()
+    {
+        return fingerprint.clone();
+    }
+
+    /**
+     * This method waits until every change logged so far has been written and forced to the disk.
+     *
+     * @throws IOException if a batch could not be written.
+     */
+    public void sync() throws IOException
+    {
+        synchronized(lock)
+        {
+            long target = appended;
+
+            flushRequested = true;
+            lock.notifyAll();
+
+            while(synced < target && failure == null)
+            {
+                awaitLock(NONE);
+            }
+
+            checkFailure();
+        }
+    }
+
+    /**
+     * This method writes every change logged so far, then every property of the agency to the checkpoint file, and
+     * truncates the log. The checkpoint is taken by the thread of the log, and this method waits for it.
+     *
+     * @throws IOException if the checkpoint can not be written or the log can not be truncated.
+     * @throws IllegalStateException if this log is closed.
+     */
+    public void checkpoint() throws IOException
+    {
+        synchronized(lock)
+        {
+            if(closed)
+            {
+                throw new IllegalStateException("Mutation log closed");
+            }
+
+            long target = ++checkpointsRequested;
+
+            lock.notifyAll();
+
+            while(checkpointsWritten < target && failure == null)
+            {
+                awaitLock(NONE);
+            }
+
+            checkFailure();
+        }
+    }
+
+    /**
+     * This method stops logging the changes of the agency, writes the changes that are still waiting, and closes the
+     * log file. It does not checkpoint. A change made while it's closing may or may not be logged.
+     *
+     * @throws IOException if a batch could not be written or the log can not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        agency.removeAgencyListener(this);
+
+        synchronized(lock)
+        {
+            if(closed)
+            {
+                return;
+            }
+
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try
+        {
+            flusher.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        synchronized(lock)
+        {
+            checkFailure();
+        }
+    }
+
+    /*
+     * Frames the record into the pending batch, waiting first if too many bytes are already waiting, unless a
+     * checkpoint is being written. A failure of the log is kept for sync() and close(), since the change has already
+     * been made; only in durable mode, where the change waits for its record to be on the disk, it's thrown.
+     */
+    private void append(final byte type, final RecordWriter writer)
+    {
+        synchronized(lock)
+        {
+            if(closed || failure != null)
+            {
+                if(durable && failure != null)
+                {
+                    throw new UncheckedIOException("Mutation log failed", failure);
+                }
+
+                return;
+            }
+
+            while(pending.size() >= MAX_PENDING_BYTES && !checkpointing && failure == null)
+            {
+                lock.notifyAll();
+
+                if(!awaitLock(NONE))
+                {
+                    break;
+                }
+            }
+
+            try
+            {
+                record.reset();
+                recordOutput.writeByte(type);
+                writer.write(recordOutput);
+
+                crc.reset();
+                crc.update(record.toByteArray());
+
+                DataOutputStream frame;
+                frame = new DataOutputStream(pending);
+
+                frame.writeInt(record.size());
+                record.writeTo(frame);
+                frame.writeInt((int) crc.getValue());
+            }
+            catch(IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+
+            appended++;
+
+            if(durable)
+            {
+                long target = appended;
+
+                flushRequested = true;
+                lock.notifyAll();
+
+                while(synced < target && failure == null && awaitLock(NONE))
+                {
+                    // Waits for the batch of the record.
+                }
+
+                if(failure != null)
+                {
+                    throw new UncheckedIOException("Mutation log failed", failure);
+                }
+            }
+            else if(pending.size() >= GROUP_COMMIT_BYTES)
+            {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /*
+     * The loop of the flusher thread. It waits for a batch to fill up or for its time to pass, swaps the buffers, and
+     * writes and forces the batch without holding lock, so the changes keep being appended meanwhile. After a batch,
+     * it checkpoints if the log has grown past checkpointBytes or a checkpoint was requested. The batch ends at the
+     * cut of the checkpoint: every change up to it is in the log, and is seen by the checkpoint, since the changes
+     * are appended under lock, which the swap took; every change after it is still in memory, and is written after
+     * the log is truncated.
+     */
+    private void flushBatches()
+    {
+        while(true)
+        {
+            long    batchEnd;
+            long    checkpointRequest;
+            boolean requested;
+
+            synchronized(lock)
+            {
+                while(pending.size() == NONE && checkpointsRequested == checkpointsWritten && !closed)
+                {
+                    awaitLock(NONE);
+                }
+
+                requested = (checkpointsRequested > checkpointsWritten);
+
+                if(pending.size() == NONE && !requested)
+                {
+                    return;
+                }
+
+                long deadline = System.nanoTime() + flushIntervalMillis * 1_000_000L;
+                long waitMillis;
+
+                while(!closed && !flushRequested && !requested && pending.size() < GROUP_COMMIT_BYTES &&
+                      (waitMillis = (deadline - System.nanoTime()) / 1_000_000L) > NONE)
+                {
+                    awaitLock(waitMillis);
+
+                    requested = (checkpointsRequested > checkpointsWritten);
+                }
+
+                ByteArrayOutputStream batch = pending;
+
+                pending           = writing;
+                writing           = batch;
+                batchEnd          = appended;
+                checkpointRequest = checkpointsRequested;
+                flushRequested    = false;
+
+                // Wakes the changes that are waiting for room in the pending batch.
+                lock.notifyAll();
+            }
+
+            try
+            {
+                logBytes += writing.size();
+
+                writing.writeTo(Channels.newOutputStream(channel));
+                channel.force(false);
+                writing.reset();
+
+                synchronized(lock)
+                {
+                    synced        = batchEnd;
+                    checkpointing = requested || (logBytes >= checkpointBytes);
+                    lock.notifyAll();
+                }
+
+                if(requested || (logBytes >= checkpointBytes))
+                {
+                    writeCheckpoint();
+
+                    synchronized(lock)
+                    {
+                        checkpointing      = false;
+                        checkpointsWritten = Math.max(checkpointsWritten, checkpointRequest);
+                        lock.notifyAll();
+                    }
+                }
+            }
+            catch(IOException e)
+            {
+                synchronized(lock)
+                {
+                    failure       = e;
+                    checkpointing = false;
+                    lock.notifyAll();
+                }
+
+                return;
+            }
+        }
+    }
+
+    /*
+     * Writes every property of the agency to the checkpoint file, and truncates the log. It runs in the constructor,
+     * and then only on the flusher thread, which is the only one that writes the log.
+     */
+    private void writeCheckpoint() throws IOException
+    {
+        AgencySnapshot.write(agency, checkpointFile, fingerprint);
+
+        channel.truncate(NONE);
+        channel.force(true);
+
+        logBytes = NONE;
+    }
+
+    /*
+     * Waits on lock, which must be held, for the milliseconds or until notified if millis is NONE. Returns false if
+     * the thread was interrupted, and keeps its interrupt status.
+     */
+    private boolean awaitLock(final long millis)
+    {
+        try
+        {
+            lock.wait(millis);
+
+            return true;
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    /*
+     * Rethrows the failure of the flusher thread, if there is one. lock must be held.
+     */
+    private void checkFailure() throws IOException
+    {
+        if(failure != null)
+        {
+            throw new IOException("Mutation log failed", failure);
+        }
+    }
+
+    /*
+     * Applies every valid record of the log to the agency, and returns the length of the valid records. Replay stops
+     * at the end of the file or at the first record that is torn or corrupt.
+     */
+    private static long replay(final File logFile, final Agency agency) throws IOException
+    {
+        long validBytes = NONE;
+
+        if(!logFile.exists())
+        {
+            return validBytes;
+        }
+
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile),
+                                                                                AgencySnapshot.BUFFER_SIZE)))
+        {
+            CRC32 crc;
+            crc = new CRC32();
+
+            while(true)
+            {
+                int length;
+
+                try
+                {
+                    length = input.readInt();
+                }
+                catch(EOFException e)
+                {
+                    return validBytes;
+                }
+
+                if(length < Byte.BYTES || length > MAX_RECORD_BYTES)
+                {
+                    return validBytes;
+                }
+
+                byte[] bytes;
+                bytes = new byte[length];
+
+                try
+                {
+                    input.readFully(bytes);
+
+                    crc.reset();
+                    crc.update(bytes);
+
+                    if(input.readInt() != (int) crc.getValue())
+                    {
+                        return validBytes;
+                    }
+
+                    apply(bytes, agency);
+                }
+                catch(IOException e)
+                {
+                    return validBytes;
+                }
+
+                validBytes += FRAME_BYTES + length;
+            }
+        }
+    }
+
+    /*
+     * Applies one record to the agency.
+     */
+    private static void apply(final byte[] bytes, final Agency agency) throws IOException
+    {
+        AgencySnapshot.Input input;
+        input = new AgencySnapshot.Input(ByteBuffer.wrap(bytes));
+
+        byte type = input.readByte();
+
+        switch(type)
+        {
+            case RECORD_ADD:
+                agency.addProperty(AgencySnapshot.readProperty(input));
+                break;
+            case RECORD_REMOVE:
+                agency.removeProperty(input.readString());
+                break;
+            case RECORD_PRICE:
+            {
+                String propertyId = input.readString();
+
+                agency.setPriceUsd(propertyId, input.readDouble());
+                break;
+            }
+            default:
+                throw new IOException("Corrupt mutation log: invalid record type " + type);
+        }
+    }
+
+    /*
+     * Writes the data of one record.
+     */
+    private interface RecordWriter
+    {
+        void write(DataOutputStream output) throws IOException;
+    }
+}
@@ -0,0 +1,427 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * This is ParallelLoader class. It splits address_data.txt and property_data.txt into line-aligned chunks, and parses
+ * and validates the chunks on a ForkJoinPool. The address on line i of the address file is still paired with the
+ * property on line i of the property file.
+ *
+ * The addresses of a load are shared through one AddressPool, so identical Strings and addresses are kept once.
+ *
+ * Loading has two parallel steps. First, the address chunks and the property chunks are parsed at the same time, and
+ * the address of each property line is left to be filled in. Then each property chunk is paired with the addresses
+ * from the index of its first line, which is the sum of the sizes of the chunks before it. A property line with no
+ * address line fails the load, as it did before the files were read in chunks.
+ *
+ * The properties are then added to the agency. A ConcurrentAgency is safe to change from several threads, so they
+ * are added on parallelism threads, each adding those whose case folded id falls in its share; any other agency
+ * indexes them on one thread with Agency.addProperties(), which bounds how far a load into it scales with cores.
+ *
+ * The time of each ingestion phase is recorded in the AgencyMetrics of the load, if it has any: reading the
+ * addresses (AgencyMetrics.INIT_READ_ADDRESSES), reading and validating the properties
+ * (AgencyMetrics.INIT_READ_PROPERTIES), building the list of properties in line order (AgencyMetrics.INIT_BUILD),
+ * and adding them to the agency (AgencyMetrics.INIT_INDEX). Each phase, and each chunk, is also a JDK Flight Recorder
+ * event: an IngestionPhaseEvent and a ReadChunkEvent.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class ParallelLoader
+{
+    private final int parallelism;
+
+    public static final int  CHUNKS_PER_THREAD = 4;
+    public static final long MIN_CHUNK_SIZE    = 1024 * 1024;
+    public static final int  MIN_PARALLELISM   = 1;
+
+    /**
+     * This is the ParallelLoader constructor. It uses one thread per available processor.
+     */
+    public ParallelLoader()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism is the number of threads. It must be not less than MIN_PARALLELISM.
+     * @throws IllegalArgumentException if parallelism is less than MIN_PARALLELISM.
+     */
+    public ParallelLoader(final int parallelism) throws IllegalArgumentException
+    {
+        if(parallelism < MIN_PARALLELISM)
+        {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * This method reads both files in parallel, and adds the properties to the agency: in parallel if it's a
+     * ConcurrentAgency, or else with Agency.addProperties(), which indexes them one by one. The time of each phase is
+     * recorded in the metrics of the agency.
+     *
+     * @param addressFile is the text file that has address data.
+     * @param propertyFile is the text file that has property data.
+     * @param agency is the agency the properties are added to.
+     * @throws FileNotFoundException if one of the files not found.
+     * @throws IllegalArgumentException if the property file has more lines than the address file.
+     */
+    public void loadInto(final File addressFile, final File propertyFile, final Agency agency) throws FileNotFoundException
+    {
+        AgencyMetrics metrics;
+        metrics = agency.getMetrics();
+
+        ArrayList<Property> properties;
+        properties = load(addressFile, propertyFile, metrics);
+
+        long start = System.nanoTime();
+
+        IngestionPhaseEvent phase;
+        phase = beginPhase();
+
+        if((agency instanceof ConcurrentAgency) && (parallelism > MIN_PARALLELISM))
+        {
+            addInParallel(properties, agency);
+        }
+        else
+        {
+            agency.addProperties(properties);
+        }
+
+        record(metrics, AgencyMetrics.INIT_INDEX, start);
+        phase.commit(AgencyMetrics.INIT_INDEX, properties.size());
+    }
+
+    /**
+     * This method reads both files in parallel.
+     *
+     * @param addressFile is the text file that has address data.
+     * @param propertyFile is the text file that has property data.
+     * @return the Residence, Commercial and Retail objects of the property file, in the order of its lines.
+     * @throws FileNotFoundException if one of the files not found.
+     * @throws IllegalArgumentException if the property file has more lines than the address file.
+     */
+    public ArrayList<Property> load(final File addressFile, final File propertyFile) throws FileNotFoundException
+    {
+        return load(addressFile, propertyFile, null);
+    }
+
+    /**
+     * This method reads both files in parallel, and records the time of each phase.
+     *
+     * @param addressFile is the text file that has address data.
+     * @param propertyFile is the text file that has property data.
+     * @param metrics is where the time of each phase is recorded, or null not to record it.
+     * @return the Residence, Commercial and Retail objects of the property file, in the order of its lines.
+     * @throws FileNotFoundException if one of the files not found.
+     * @throws IllegalArgumentException if the property file has more lines than the address file.
+     */
+    public ArrayList<Property> load(final File addressFile, final File propertyFile, final AgencyMetrics metrics)
+                                    throws FileNotFoundException
+    {
+        long phaseStart = System.nanoTime();
+
+        IngestionPhaseEvent phase;
+        phase = beginPhase();
+
+        int maxChunks = parallelism * CHUNKS_PER_THREAD;
+
+        long[] addressSplits  = PipeDelimitedReader.lineAlignedSplits(addressFile, maxChunks, MIN_CHUNK_SIZE);
+        long[] propertySplits = PipeDelimitedReader.lineAlignedSplits(propertyFile, maxChunks, MIN_CHUNK_SIZE);
+
+        ForkJoinPool pool;
+        pool = new ForkJoinPool(parallelism);
+
+        AddressPool addressPool;
+        addressPool = new AddressPool();
+
+        try
+        {
+            // Step 1: parse the address chunks and the property chunks at the same time.
+            List<Future<ArrayList<Address>>> addressChunks;
+            addressChunks = new ArrayList<>();
+
+            for(int i = 0; i + 1 < addressSplits.length; i++)
+            {
+                long start = addressSplits[i];
+                long end   = addressSplits[i + 1];
+
+                addressChunks.add(pool.submit(() -> readAddresses(addressFile, start, end, addressPool)));
+            }
+
+            List<Future<ArrayList<Function<Address, Property>>>> unpairedChunks;
+            unpairedChunks = new ArrayList<>();
+
+            for(int i = 0; i + 1 < propertySplits.length; i++)
+            {
+                long start = propertySplits[i];
+                long end   = propertySplits[i + 1];
+
+                unpairedChunks.add(pool.submit(() -> readProperties(propertyFile, start, end)));
+            }
+
+            ArrayList<Address> addresses;
+            addresses = new ArrayList<>();
+
+            for(Future<ArrayList<Address>> chunk: addressChunks)
+            {
+                addresses.addAll(join(chunk));
+            }
+
+            phaseStart = record(metrics, AgencyMetrics.INIT_READ_ADDRESSES, phaseStart);
+            phase.commit(AgencyMetrics.INIT_READ_ADDRESSES, addresses.size());
+            phase      = beginPhase();
+
+            // Step 2: pair each property chunk with the addresses from the index of its first line.
+            List<Future<ArrayList<Property>>> propertyChunks;
+            propertyChunks = new ArrayList<>(unpairedChunks.size());
+
+            int firstLine = Agency.NONE;
+
+            for(Future<ArrayList<Function<Address, Property>>> chunk: unpairedChunks)
+            {
+                ArrayList<Function<Address, Property>> unpaired   = join(chunk);
+                int                                    chunkStart = firstLine;
+
+                propertyChunks.add(pool.submit(() -> pair(unpaired, addresses, chunkStart)));
+
+                firstLine += unpaired.size();
+            }
+
+            if(firstLine > addresses.size())
+            {
+                throw new IllegalArgumentException("Invalid data files: " + propertyFile + " has " + firstLine
+                                                   + " lines, but " + addressFile + " has only " + addresses.size());
+            }
+
+            List<ArrayList<Property>> parsed;
+            parsed = new ArrayList<>(propertyChunks.size());
+
+            int count = Agency.NONE;
+
+            for(Future<ArrayList<Property>> chunk: propertyChunks)
+            {
+                parsed.add(join(chunk));
+
+                count += parsed.get(parsed.size() - 1).size();
+            }
+
+            phaseStart = record(metrics, AgencyMetrics.INIT_READ_PROPERTIES, phaseStart);
+            phase.commit(AgencyMetrics.INIT_READ_PROPERTIES, count);
+            phase      = beginPhase();
+
+            ArrayList<Property> properties;
+            properties = new ArrayList<>(count);
+
+            for(ArrayList<Property> chunk: parsed)
+            {
+                properties.addAll(chunk);
+            }
+
+            record(metrics, AgencyMetrics.INIT_BUILD, phaseStart);
+            phase.commit(AgencyMetrics.INIT_BUILD, properties.size());
+
+            return properties;
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Records the time from start to now under the name in the metrics, if there are any, and returns now, the start
+     * of the next phase.
+     */
+    private static long record(final AgencyMetrics metrics, final String name, final long start)
+    {
+        long now = System.nanoTime();
+
+        if(metrics != null)
+        {
+            metrics.record(name, now - start);
+        }
+
+        return now;
+    }
+
+    /*
+     * Returns a new IngestionPhaseEvent, begun now.
+     */
+    private static IngestionPhaseEvent beginPhase()
+    {
+        IngestionPhaseEvent phase;
+        phase = new IngestionPhaseEvent();
+
+        phase.begin();
+
+        return phase;
+    }
+
+    /*
+     * Parses the addresses of one chunk of the address file.
+     */
+    private static ArrayList<Address> readAddresses(final File file, final long start, final long end,
+                                                    final AddressPool addressPool) throws Exception
+    {
+        ReadChunkEvent event;
+        event = new ReadChunkEvent();
+
+        event.begin();
+
+        ArrayList<Address> addresses;
+        addresses = new ArrayList<>();
+
+        try(PipeDelimitedReader reader = new PipeDelimitedReader(file, start, end))
+        {
+            while(reader.nextLine())
+            {
+                addresses.add(AddressReader.readAddress(reader, addressPool));
+            }
+        }
+
+        event.commit(file, ReadChunkEvent.ADDRESS, start, end, addresses.size());
+
+        return addresses;
+    }
+
+    /*
+     * Parses the properties of one chunk of the property file, without their addresses.
+     */
+    private static ArrayList<Function<Address, Property>> readProperties(final File file, final long start,
+                                                                         final long end) throws Exception
+    {
+        ReadChunkEvent event;
+        event = new ReadChunkEvent();
+
+        event.begin();
+
+        ArrayList<Function<Address, Property>> unpaired;
+        unpaired = new ArrayList<>();
+
+        try(PipeDelimitedReader reader = new PipeDelimitedReader(file, start, end))
+        {
+            while(reader.nextLine())
+            {
+                unpaired.add(PropertyReader.readUnpairedProperty(reader));
+            }
+        }
+
+        event.commit(file, ReadChunkEvent.PROPERTY, start, end, unpaired.size());
+
+        return unpaired;
+    }
+
+    /*
+     * Adds the properties to the ConcurrentAgency on a pool of parallelism threads. Each thread adds the properties
+     * whose case folded id falls in its share, in line order, so an id that is on several lines still ends up with
+     * its last line, as with Agency.addProperties().
+     */
+    private void addInParallel(final List<Property> properties, final Agency agency) throws FileNotFoundException
+    {
+        ForkJoinPool pool;
+        pool = new ForkJoinPool(parallelism);
+
+        try
+        {
+            List<Future<?>> shares;
+            shares = new ArrayList<>(parallelism);
+
+            for(int share = 0; share < parallelism; share++)
+            {
+                int own = share;
+
+                shares.add(pool.submit(() -> addShare(properties, agency, own, parallelism)));
+            }
+
+            for(Future<?> share: shares)
+            {
+                join(share);
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Adds the properties whose case folded id falls in the share, out of the number of shares, in their order.
+     */
+    private static void addShare(final List<Property> properties, final Agency agency, final int share,
+                                 final int shares)
+    {
+        for(Property property: properties)
+        {
+            if(Math.floorMod(PropertyIdCodec.fold(property.getPropertyId()).hashCode(), shares) == share)
+            {
+                agency.addProperty(property);
+            }
+        }
+    }
+
+    /*
+     * Creates the properties of one chunk of the property file, whose first line is paired with the address at
+     * firstLine. There is an address for every line of the chunk.
+     */
+    private static ArrayList<Property> pair(final List<Function<Address, Property>> unpaired,
+                                            final List<Address> addresses, final int firstLine)
+    {
+        int count = unpaired.size();
+
+        ArrayList<Property> properties;
+        properties = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++)
+        {
+            properties.add(unpaired.get(i).apply(addresses.get(firstLine + i)));
+        }
+
+        return properties;
+    }
+
+    /*
+     * Waits for the task, and rethrows its failure as it was thrown in the task.
+     */
+    private static <T> T join(final Future<T> task) throws FileNotFoundException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted while loading", e);
+        }
+        catch(ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+
+            if(cause instanceof FileNotFoundException)
+            {
+                throw (FileNotFoundException) cause;
+            }
+            else if(cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            else if(cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            else
+            {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,583 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+/**
+ * This is PipeDelimitedReader class. It reads a pipe-delimited text file through a memory-mapped FileChannel, one
+ * line at a time. The delimiters of the current line are found in the mapped bytes, and ints, doubles and booleans
+ * are parsed straight from those bytes, so no String is created for a field unless field() is called.
+ *
+ * The file is mapped in windows of at most WINDOW_SIZE bytes, so files larger than 2 GB are read too. Empty lines
+ * are skipped, and a line may end with "\n" or "\r\n".
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class PipeDelimitedReader implements Closeable
+{
+    private final RandomAccessFile file;
+    private final FileChannel      channel;
+    private final long             end;
+
+    private MappedByteBuffer window;
+    private long             windowStart;
+    private int              windowSize;
+    private int              nextLineStart;
+    private int              lineStart;
+    private int              lineEnd;
+    private int[]            fieldStarts;
+    private int              fieldCount;
+    private byte[]           scratch;
+
+    public static final byte DELIMITER       = '|';
+    public static final byte LINE_FEED       = '\n';
+    public static final byte CARRIAGE_RETURN = '\r';
+    public static final int  WINDOW_SIZE     = 64 * 1024 * 1024;
+    public static final int  NONE            = 0;
+    public static final int  NOT_FOUND       = -1;
+
+    private static final int      MAX_FAST_DIGITS = 15;
+    private static final int      INITIAL_FIELDS  = 8;
+    private static final int      INITIAL_SCRATCH = 64;
+    private static final String   TRUE            = "true";
+    private static final double[] POWERS_OF_TEN   = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                                                    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21,
+                                                    1e22};
+
+    /**
+     * This is the PipeDelimitedReader constructor. It reads the whole file.
+     *
+     * @param file is the pipe-delimited text file.
+     * @throws FileNotFoundException if file not found.
+     */
+    public PipeDelimitedReader(final File file) throws FileNotFoundException
+    {
+        this(file, NONE, Long.MAX_VALUE);
+    }
+
+    /**
+     * This is the PipeDelimitedReader constructor for a part of the file, usually one of the chunks found by
+     * lineAlignedSplits().
+     *
+     * @param file is the pipe-delimited text file.
+     * @param start is the offset of the first byte to read. It must be the start of a line.
+     * @param end is the offset after the last byte to read. It's limited to the size of the file.
+     * @throws FileNotFoundException if file not found.
+     */
+    public PipeDelimitedReader(final File file, final long start, final long end) throws FileNotFoundException
+    {
+        this.file = new RandomAccessFile(file, "r");
+        channel   = this.file.getChannel();
+
+        try
+        {
+            this.end = Math.min(end, channel.size());
+        }
+        catch(IOException e)
+        {
+            closeQuietly();
+
+            throw new UncheckedIOException(e);
+        }
+
+        windowStart   = start;
+        windowSize    = NONE;
+        nextLineStart = NONE;
+        fieldStarts   = new int[INITIAL_FIELDS];
+        fieldCount    = NONE;
+        scratch       = new byte[INITIAL_SCRATCH];
+    }
+
+    /**
+     * This method splits the file into chunks that start and end on line boundaries, so each chunk can be read by
+     * its own PipeDelimitedReader.
+     *
+     * @param file is the pipe-delimited text file.
+     * @param maxChunks is the maximum number of chunks.
+     * @param minChunkSize is the minimum size of a chunk in bytes, so a small file is not split into tiny chunks.
+     * @return the offsets of the chunks: chunk i goes from element i to element i + 1.
+     * @throws FileNotFoundException if file not found.
+     */
+    public static long[] lineAlignedSplits(final File file, final int maxChunks, final long minChunkSize)
+                                           throws FileNotFoundException
+    {
+        try(RandomAccessFile input = new RandomAccessFile(file, "r"))
+        {
+            long size   = input.length();
+            int  chunks = (int) Math.max(1, Math.min(maxChunks, size / Math.max(minChunkSize, 1)));
+
+            long[] splits;
+            splits = new long[chunks + 1];
+
+            splits[chunks] = size;
+
+            for(int i = 1; i < chunks; i++)
+            {
+                long offset = Math.max(size / chunks * i, splits[i - 1]);
+
+                if(offset > NONE)
+                {
+                    // Move past the end of the line the offset falls in, unless the offset starts a line.
+                    input.seek(offset - 1);
+
+                    int current = input.read();
+
+                    while((current != LINE_FEED) && (current != NOT_FOUND))
+                    {
+                        current = input.read();
+                    }
+
+                    offset = input.getFilePointer();
+                }
+
+                splits[i] = offset;
+            }
+
+            return splits;
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * This method moves to the next non-empty line and finds its delimiters.
+     *
+     * @return true, if there is a next line; otherwise, returns false.
+     */
+    public boolean nextLine()
+    {
+        while(true)
+        {
+            if(windowStart + nextLineStart >= end)
+            {
+                return false;
+            }
+
+            int newLine = indexOfLineFeed(nextLineStart);
+
+            while((newLine == NOT_FOUND) && (windowStart + windowSize < end))
+            {
+                // The line goes past the window: map again from the start of the line, with a larger window if
+                // the line alone does not fit.
+                int lineLength = windowSize - nextLineStart;
+
+                remap(windowStart + nextLineStart, (lineLength >= WINDOW_SIZE) ? lineLength * 2L : WINDOW_SIZE);
+
+                newLine = indexOfLineFeed(nextLineStart);
+            }
+
+            lineStart     = nextLineStart;
+            lineEnd       = (newLine == NOT_FOUND) ? windowSize : newLine;
+            nextLineStart = (newLine == NOT_FOUND) ? windowSize : newLine + 1;
+
+            if((lineEnd > lineStart) && (window.get(lineEnd - 1) == CARRIAGE_RETURN))
+            {
+                lineEnd--;
+            }
+
+            if(lineEnd > lineStart)
+            {
+                findFields();
+
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the offset in the file of the first byte of the current line.
+     */
+    public long lineOffset()
+    {
+        return windowStart + lineStart;
+    }
+
+    /**
+     * @return the offset in the file after the line ending of the current line, which is where the next line starts.
+     */
+    public long nextLineOffset()
+    {
+        return windowStart + nextLineStart;
+    }
+
+    /**
+     * This method adds the bytes of the current line, without its line ending, to the checksum.
+     *
+     * @param checksum is the checksum.
+     */
+    public void updateChecksum(final Checksum checksum)
+    {
+        ByteBuffer bytes;
+        bytes = window.duplicate();
+
+        bytes.limit(lineEnd).position(lineStart);
+
+        checksum.update(bytes);
+    }
+
+    /**
+     * @return the number of fields of the current line.
+     */
+    public int fieldCount()
+    {
+        return fieldCount;
+    }
+
+    /**
+     * @return the current line, without its line ending.
+     */
+    public String line()
+    {
+        return decode(lineStart, lineEnd);
+    }
+
+    /**
+     * @param index is the index of the field.
+     * @return the field of the current line as a String.
+     * @throws IndexOutOfBoundsException if index is not less than fieldCount().
+     */
+    public String field(final int index)
+    {
+        return decode(fieldStart(index), fieldEnd(index));
+    }
+
+    /**
+     * @param index is the index of the field.
+     * @param candidate is a String that is likely to be the value of the field.
+     * @return candidate itself, if the field is exactly candidate; otherwise, the field as a new String. This lets
+     *         repeated values such as a property type share one String.
+     * @throws IndexOutOfBoundsException if index is not less than fieldCount().
+     */
+    public String sharedField(final int index, final String candidate)
+    {
+        if(fieldEquals(index, candidate, false))
+        {
+            return candidate;
+        }
+
+        return field(index);
+    }
+
+    /**
+     * @param index is the index of the field.
+     * @param value is the value to compare with. It must be made of ASCII characters.
+     * @return true, if the field equals the value(case insensitive); otherwise, returns false.
+     * @throws IndexOutOfBoundsException if index is not less than fieldCount().
+     */
+    public boolean fieldEqualsIgnoreCase(final int index, final String value)
+    {
+        return fieldEquals(index, value, true);
+    }
+
+    /**
+     * @param index is the index of the field.
+     * @return the field parsed as Integer.parseInt() does.
+     * @throws NumberFormatException if the field is not an int.
+     * @throws IndexOutOfBoundsException if index is not less than fieldCount().
+     */
+    public int intField(final int index)
+    {
+        int  start    = fieldStart(index);
+        int  stop     = fieldEnd(index);
+        int  position = start;
+        long value    = NONE;
+
+        boolean negative = false;
+
+        if((position < stop) && ((window.get(position) == '-') || (window.get(position) == '+')))
+        {
+            negative = (window.get(position) == '-');
+            position++;
+        }
+
+        if(position == stop)
+        {
+            throw new NumberFormatException("For input string: \"" + field(index) + "\"");
+        }
+
+        for(; position < stop; position++)
+        {
+            int digit = window.get(position) - '0';
+
+            if((digit < 0) || (digit > 9))
+            {
+                throw new NumberFormatException("For input string: \"" + field(index) + "\"");
+            }
+
+            value = value * 10 + digit;
+
+            if(value > (long) Integer.MAX_VALUE + 1)
+            {
+                throw new NumberFormatException("For input string: \"" + field(index) + "\"");
+            }
+        }
+
+        value = negative ? -value : value;
+
+        if(value > Integer.MAX_VALUE)
+        {
+            throw new NumberFormatException("For input string: \"" + field(index) + "\"");
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * @param index is the index of the field.
+     * @return the field parsed as Double.parseDouble() does. Plain decimals such as 499000.0 are parsed from the
+     *         bytes; anything else (exponents, many digits, white space) falls back to Double.parseDouble().
+     * @throws NumberFormatException if the field is not a double.
+     * @throws IndexOutOfBoundsException if index is not less than fieldCount().
+     */
+    public double doubleField(final int index)
+    {
+        int  position    = fieldStart(index);
+        int  stop        = fieldEnd(index);
+        long mantissa    = NONE;
+        int  digits      = NONE;
+        int  decimals    = NONE;
+        int  significant = NONE;
+
+        boolean negative = false;
+        boolean point    = false;
+
+        if((position < stop) && ((window.get(position) == '-') || (window.get(position) == '+')))
+        {
+            negative = (window.get(position) == '-');
+            position++;
+        }
+
+        for(; position < stop; position++)
+        {
+            byte current = window.get(position);
+
+            if((current >= '0') && (current <= '9'))
+            {
+                mantissa = mantissa * 10 + (current - '0');
+                digits++;
+
+                if(point)
+                {
+                    decimals++;
+                }
+
+                if((significant > NONE) || (current != '0'))
+                {
+                    significant++;
+                }
+            }
+            else if((current == '.') && !point)
+            {
+                point = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        // A mantissa of at most 15 digits and a power of ten up to 1e22 are both exact doubles, so one division
+        // gives the correctly rounded result.
+        if((position == stop) && (digits > NONE) && (significant <= MAX_FAST_DIGITS) &&
+           (decimals < POWERS_OF_TEN.length))
+        {
+            double value = mantissa / POWERS_OF_TEN[decimals];
+
+            return negative ? -value : value;
+        }
+
+        return Double.parseDouble(field(index));
+    }
+
+    /**
+     * @param index is the index of the field.
+     * @return the field parsed as Boolean.parseBoolean() does: true if it is "true"(case insensitive), otherwise false.
+     * @throws IndexOutOfBoundsException if index is not less than fieldCount().
+     */
+    public boolean booleanField(final int index)
+    {
+        return fieldEqualsIgnoreCase(index, TRUE);
+    }
+
+    /**
+     * This method closes the file.
+     *
+     * @throws IOException if the file can not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        window = null;
+
+        file.close();
+    }
+
+    /*
+     * Records the start of every field of the current line, and the start after the last field, so fieldEnd() treats
+     * every field the same way.
+     */
+    private void findFields()
+    {
+        int count = NONE;
+
+        fieldStarts[count++] = lineStart;
+
+        for(int position = lineStart; position < lineEnd; position++)
+        {
+            if(window.get(position) == DELIMITER)
+            {
+                if(count + 1 >= fieldStarts.length)
+                {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fieldStarts.length * 2);
+                }
+
+                fieldStarts[count++] = position + 1;
+            }
+        }
+
+        fieldStarts[count] = lineEnd + 1;
+        fieldCount         = count;
+    }
+
+    /*
+     * Returns the position of the first byte of the field.
+     */
+    private int fieldStart(final int index)
+    {
+        if((index < NONE) || (index >= fieldCount))
+        {
+            throw new IndexOutOfBoundsException("Invalid field: " + index);
+        }
+
+        return fieldStarts[index];
+    }
+
+    /*
+     * Returns the position after the last byte of the field.
+     */
+    private int fieldEnd(final int index)
+    {
+        return fieldStarts[index + 1] - 1;
+    }
+
+    /*
+     * Compares the field with the ASCII value, byte by byte.
+     */
+    private boolean fieldEquals(final int index, final String value, final boolean ignoreCase)
+    {
+        int start = fieldStart(index);
+
+        if(fieldEnd(index) - start != value.length())
+        {
+            return false;
+        }
+
+        for(int i = 0; i < value.length(); i++)
+        {
+            int mine   = window.get(start + i);
+            int theirs = value.charAt(i);
+
+            if(ignoreCase)
+            {
+                mine   = ((mine >= 'A') && (mine <= 'Z')) ? mine + ('a' - 'A') : mine;
+                theirs = ((theirs >= 'A') && (theirs <= 'Z')) ? theirs + ('a' - 'A') : theirs;
+            }
+
+            if(mine != theirs)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Decodes the UTF-8 bytes between the positions.
+     */
+    private String decode(final int start, final int stop)
+    {
+        int length = stop - start;
+
+        if(length > scratch.length)
+        {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        window.get(start, scratch, NONE, length);
+
+        return new String(scratch, NONE, length, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Returns the position of the next line feed in the window, starting from the position, or NOT_FOUND.
+     */
+    private int indexOfLineFeed(final int from)
+    {
+        if(window == null)
+        {
+            remap(windowStart, WINDOW_SIZE);
+        }
+
+        for(int position = from; position < windowSize; position++)
+        {
+            if(window.get(position) == LINE_FEED)
+            {
+                return position;
+            }
+        }
+
+        return NOT_FOUND;
+    }
+
+    /*
+     * Maps the part of the file starting at the offset. Positions of the new window are relative to the offset.
+     */
+    private void remap(final long offset, final long size)
+    {
+        int length = (int) Math.min(Math.min(size, Integer.MAX_VALUE), end - offset);
+
+        try
+        {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        nextLineStart -= (int) (offset - windowStart);
+        windowStart    = offset;
+        windowSize     = length;
+    }
+
+    /*
+     * Closes the file after a failure while opening it.
+     */
+    private void closeQuietly()
+    {
+        try
+        {
+            file.close();
+        }
+        catch(IOException ignored)
+        {
+            // The original failure is reported instead.
+        }
+    }
+}
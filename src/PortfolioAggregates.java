@@ -0,0 +1,432 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This is PortfolioAggregates class. It keeps the count, total, minimum, maximum and mean price of the properties of
+ * an Agency, overall and for each subtype, up to date as properties are added, removed and repriced, so they are read
+ * without scanning the agency.
+ *
+ * Each total is a Neumaier compensated sum: the low-order bits lost by each addition or subtraction are kept in a
+ * separate compensation term, so the error does not build up over many price changes.
+ *
+ * Updates take no shared lock, so they don't serialize the striped writers of a ConcurrentAgency. The counts and
+ * sums are striped by thread, up to MAX_STRIPES stripes, and each stripe is only written by the threads that hash to
+ * it; a read adds the stripes up with an optimistic read of each, and only locks a stripe that changed meanwhile.
+ * Each kind also keeps its own sorted count of the properties at each price, so its minimum and maximum are the
+ * first and last price of it, whatever property is removed or repriced. getCount() and getTotalUsd() don't read them.
+ * The statistics of all properties are made from those of the kinds.
+ *
+ * A read while other threads update sees each stripe and each price count as it is at that moment, so the
+ * statistics are exact once the updates are done.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class PortfolioAggregates
+{
+    public static final int KIND_PROPERTY   = 0;
+    public static final int KIND_RESIDENCE  = 1;
+    public static final int KIND_COMMERCIAL = 2;
+    public static final int KIND_RETAIL     = 3;
+    public static final int KINDS           = 4;
+    public static final int MAX_STRIPES     = 8;
+    public static final int NONE            = 0;
+
+    private final Stripe[]      stripes;
+    private final int           stripeMask;
+    private final PriceCounts[] prices;
+
+    /**
+     * This is the PortfolioAggregates constructor. It starts with no property.
+     */
+    public PortfolioAggregates()
+    {
+        int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+        stripes    = new Stripe[count];
+        stripeMask = count - 1;
+        prices     = new PriceCounts[KINDS];
+
+        for(int i = 0; i < count; i++)
+        {
+            stripes[i] = new Stripe();
+        }
+
+        for(int kind = 0; kind < KINDS; kind++)
+        {
+            prices[kind] = new PriceCounts();
+        }
+    }
+
+    /**
+     * @param property is the property.
+     * @return the kind of the property: KIND_RESIDENCE, KIND_COMMERCIAL, KIND_RETAIL, or KIND_PROPERTY for any other.
+     */
+    public static int kindOf(final Property property)
+    {
+        if(property instanceof Residence)
+        {
+            return KIND_RESIDENCE;
+        }
+        else if(property instanceof Commercial)
+        {
+            return KIND_COMMERCIAL;
+        }
+        else if(property instanceof Retail)
+        {
+            return KIND_RETAIL;
+        }
+        else
+        {
+            return KIND_PROPERTY;
+        }
+    }
+
+    /**
+     * This method counts a property that has been added.
+     *
+     * @param kind is the kind of the property, as returned by kindOf().
+     * @param priceUsd is the price in USD of the property.
+     */
+    public void add(final int kind, final double priceUsd)
+    {
+        double price = priceUsd + 0.0; // -0.0 and 0.0 are the same price
+
+        stripe().add(kind, 1, price);
+        prices[kind].add(price);
+    }
+
+    /**
+     * This method stops counting a property that has been removed.
+     *
+     * @param kind is the kind of the property, as returned by kindOf().
+     * @param priceUsd is the price in USD the property was counted with.
+     */
+    public void remove(final int kind, final double priceUsd)
+    {
+        double price = priceUsd + 0.0;
+
+        stripe().add(kind, -1, -price);
+        prices[kind].remove(price);
+    }
+
+    /**
+     * This method moves a property from its old price to its new price.
+     *
+     * @param kind is the kind of the property, as returned by kindOf().
+     * @param oldPriceUsd is the price in USD the property was counted with.
+     * @param newPriceUsd is the new price in USD of the property.
+     */
+    public void priceChanged(final int kind, final double oldPriceUsd, final double newPriceUsd)
+    {
+        double oldPrice = oldPriceUsd + 0.0;
+        double newPrice = newPriceUsd + 0.0;
+
+        stripe().move(kind, oldPrice, newPrice);
+        prices[kind].add(newPrice);
+        prices[kind].remove(oldPrice);
+    }
+
+    /**
+     * @return the number of all properties, read without the minimum and maximum.
+     */
+    public int getCount()
+    {
+        Totals totals;
+        totals = sumStripes();
+
+        long count = NONE;
+
+        for(int kind = 0; kind < KINDS; kind++)
+        {
+            count += totals.counts[kind];
+        }
+
+        return (int) count;
+    }
+
+    /**
+     * @return the total amount in USD of all properties, read without the minimum and maximum.
+     */
+    public double getTotalUsd()
+    {
+        Totals totals;
+        totals = sumStripes();
+
+        double sum          = NONE;
+        double compensation = NONE;
+
+        for(int kind = 0; kind < KINDS; kind++)
+        {
+            if(totals.counts[kind] != NONE)
+            {
+                double value = totals.sums[kind] + totals.compensations[kind];
+                double total = sum + value;
+
+                compensation += compensationOf(sum, value, total);
+                sum           = total;
+            }
+        }
+
+        return sum + compensation;
+    }
+
+    /**
+     * @return the statistics of all properties.
+     */
+    public PriceStatistics getStatistics()
+    {
+        Totals totals;
+        totals = sumStripes();
+
+        long   count        = NONE;
+        double sum          = NONE;
+        double compensation = NONE;
+        double min          = Double.NaN;
+        double max          = Double.NaN;
+
+        for(int kind = 0; kind < KINDS; kind++)
+        {
+            PriceStatistics statistics;
+            statistics = statisticsOf(totals, kind);
+
+            if(statistics.getCount() != NONE)
+            {
+                count += statistics.getCount();
+
+                double total = sum + statistics.getTotalUsd();
+
+                compensation += compensationOf(sum, statistics.getTotalUsd(), total);
+                sum           = total;
+
+                min = !(min <= statistics.getMinUsd()) ? statistics.getMinUsd() : min;
+                max = !(max >= statistics.getMaxUsd()) ? statistics.getMaxUsd() : max;
+            }
+        }
+
+        return (count == NONE) ? PriceStatistics.EMPTY : new PriceStatistics((int) count, sum + compensation, min, max);
+    }
+
+    /**
+     * @param kind is the kind of the properties, as returned by kindOf().
+     * @return the statistics of the properties of the kind.
+     */
+    public PriceStatistics getStatistics(final int kind)
+    {
+        return statisticsOf(sumStripes(), kind);
+    }
+
+    /**
+     * @return the statistics of the Residence properties.
+     */
+    public PriceStatistics getResidenceStatistics()
+    {
+        return getStatistics(KIND_RESIDENCE);
+    }
+
+    /**
+     * @return the statistics of the Commercial properties.
+     */
+    public PriceStatistics getCommercialStatistics()
+    {
+        return getStatistics(KIND_COMMERCIAL);
+    }
+
+    /**
+     * @return the statistics of the Retail properties.
+     */
+    public PriceStatistics getRetailStatistics()
+    {
+        return getStatistics(KIND_RETAIL);
+    }
+
+    /*
+     * Returns the stripe of the current thread.
+     */
+    private Stripe stripe()
+    {
+        return stripes[(int) Thread.currentThread().getId() & stripeMask];
+    }
+
+    /*
+     * Returns the counts and compensated sums of each kind, added up over the stripes.
+     */
+    private Totals sumStripes()
+    {
+        Totals totals;
+        totals = new Totals();
+
+        Totals stripeTotals;
+        stripeTotals = new Totals();
+
+        for(Stripe stripe: stripes)
+        {
+            stripe.copyInto(stripeTotals);
+
+            for(int kind = 0; kind < KINDS; kind++)
+            {
+                totals.counts[kind] += stripeTotals.counts[kind];
+
+                double total = totals.sums[kind] + stripeTotals.sums[kind];
+
+                totals.compensations[kind] += compensationOf(totals.sums[kind], stripeTotals.sums[kind], total)
+                                              + stripeTotals.compensations[kind];
+                totals.sums[kind]           = total;
+            }
+        }
+
+        return totals;
+    }
+
+    /*
+     * Returns the statistics of the kind, from its totals and the first and last of its prices.
+     */
+    private PriceStatistics statisticsOf(final Totals totals, final int kind)
+    {
+        Map.Entry<Double, Long> lowest  = prices[kind].counts.firstEntry();
+        Map.Entry<Double, Long> highest = prices[kind].counts.lastEntry();
+
+        if((totals.counts[kind] == NONE) || (lowest == null) || (highest == null))
+        {
+            // Nothing is left, so whatever error is left in the sum is dropped.
+            return PriceStatistics.EMPTY;
+        }
+
+        return new PriceStatistics((int) totals.counts[kind], totals.sums[kind] + totals.compensations[kind],
+                                   lowest.getKey(), highest.getKey());
+    }
+
+    /*
+     * Returns the low-order bits lost when value was added to sum, giving total: Neumaier's variant of Kahan
+     * summation, which also handles a value larger than the running sum.
+     */
+    private static double compensationOf(final double sum, final double value, final double total)
+    {
+        return (Math.abs(sum) >= Math.abs(value)) ? (sum - total) + value : (value - total) + sum;
+    }
+
+    /*
+     * The number of properties of a kind at each price, in price order, so the first and last price are the minimum
+     * and maximum. A price is dropped once no property of the kind has it.
+     */
+    private static final class PriceCounts
+    {
+        private final ConcurrentSkipListMap<Double, Long> counts;
+
+        private PriceCounts()
+        {
+            counts = new ConcurrentSkipListMap<>();
+        }
+
+        private void add(final double price)
+        {
+            counts.merge(price, 1L, Long::sum);
+        }
+
+        private void remove(final double price)
+        {
+            counts.computeIfPresent(price, (key, count) -> (count == 1) ? null : count - 1);
+        }
+    }
+
+    /*
+     * The counts and compensated sums of each kind.
+     */
+    private static final class Totals
+    {
+        private final long[]   counts;
+        private final double[] sums;
+        private final double[] compensations;
+
+        private Totals()
+        {
+            counts        = new long[KINDS];
+            sums          = new double[KINDS];
+            compensations = new double[KINDS];
+        }
+
+        private void copyInto(final Totals copy)
+        {
+            System.arraycopy(counts, 0, copy.counts, 0, KINDS);
+            System.arraycopy(sums, 0, copy.sums, 0, KINDS);
+            System.arraycopy(compensations, 0, copy.compensations, 0, KINDS);
+        }
+    }
+
+    /*
+     * The running totals of the threads that hash to it. It's written by those threads only, under its write lock,
+     * and read optimistically, under its read lock only if a write got in the way.
+     */
+    private static final class Stripe
+    {
+        private final StampedLock lock;
+        private final Totals      totals;
+
+        private Stripe()
+        {
+            lock   = new StampedLock();
+            totals = new Totals();
+        }
+
+        private void add(final int kind, final int count, final double value)
+        {
+            long stamp = lock.writeLock();
+
+            try
+            {
+                totals.counts[kind] += count;
+
+                accumulate(kind, value);
+            }
+            finally
+            {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void move(final int kind, final double oldPrice, final double newPrice)
+        {
+            long stamp = lock.writeLock();
+
+            try
+            {
+                accumulate(kind, -oldPrice);
+                accumulate(kind, newPrice);
+            }
+            finally
+            {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void copyInto(final Totals copy)
+        {
+            long stamp = lock.tryOptimisticRead();
+
+            totals.copyInto(copy);
+
+            if(!lock.validate(stamp))
+            {
+                stamp = lock.readLock();
+
+                try
+                {
+                    totals.copyInto(copy);
+                }
+                finally
+                {
+                    lock.unlockRead(stamp);
+                }
+            }
+        }
+
+        private void accumulate(final int kind, final double value)
+        {
+            double total = totals.sums[kind] + value;
+
+            totals.compensations[kind] += compensationOf(totals.sums[kind], value, total);
+            totals.sums[kind]           = total;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * This is PriceChangeListener interface. It's notified whenever the price of a Property changes.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public interface PriceChangeListener
+{
+    /**
+     * This method is called after the price of the property has been changed.
+     *
+     * @param property is the property whose price has been changed.
+     * @param oldPriceUsd is the price in USD before the change.
+     * @param newPriceUsd is the price in USD after the change.
+     */
+    void priceChanged(Property property, double oldPriceUsd, double newPriceUsd);
+}
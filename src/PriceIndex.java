@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * This is PriceIndex class. It keeps properties sorted by their price in USD, so a price range is found in
+ * O(log n + k) instead of scanning every property.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class PriceIndex
+{
+    private final TreeMap<Double, LinkedHashSet<Property>> propertiesByPrice;
+
+    private int size;
+
+    /**
+     * This is the PriceIndex constructor. It creates an empty index.
+     */
+    public PriceIndex()
+    {
+        propertiesByPrice = new TreeMap<>();
+        size              = Property.NONE;
+    }
+
+    /**
+     * This method adds the non-null property to the index under its current price.
+     *
+     * @param property is the property.
+     */
+    public void add(final Property property)
+    {
+        if(property != null)
+        {
+            add(property, property.getPriceUsd());
+        }
+    }
+
+    /**
+     * This method removes the property from the index.
+     *
+     * @param property is the property.
+     * @param priceUsd is the price in USD the property was indexed under.
+     */
+    public void remove(final Property property, final double priceUsd)
+    {
+        Double                  key;
+        LinkedHashSet<Property> bucket;
+
+        key    = keyOf(priceUsd);
+        bucket = propertiesByPrice.get(key);
+
+        if((bucket != null) && bucket.remove(property))
+        {
+            size--;
+
+            if(bucket.isEmpty())
+            {
+                propertiesByPrice.remove(key);
+            }
+        }
+    }
+
+    /**
+     * This method moves the property from its old price to its new price.
+     *
+     * @param property is the property.
+     * @param oldPriceUsd is the price in USD the property was indexed under.
+     * @param newPriceUsd is the new price in USD of the property.
+     */
+    public void move(final Property property, final double oldPriceUsd, final double newPriceUsd)
+    {
+        remove(property, oldPriceUsd);
+        add(property, newPriceUsd);
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return an ArrayList of properties whose price falls in the range specified by the parameters, sorted by price.
+     *         It's empty if there are none.
+     */
+    public ArrayList<Property> getBetween(final double minUsd, final double maxUsd)
+    {
+        ArrayList<Property> matches;
+        matches = new ArrayList<>();
+
+        if(minUsd > maxUsd)
+        {
+            return matches;
+        }
+
+        NavigableMap<Double, LinkedHashSet<Property>> range;
+        range = propertiesByPrice.subMap(keyOf(minUsd), true, keyOf(maxUsd), true);
+
+        for(LinkedHashSet<Property> bucket: range.values())
+        {
+            matches.addAll(bucket);
+        }
+
+        return matches;
+    }
+
+    /**
+     * @param minUsd minimum price in USD.
+     * @param maxUsd maximum price in USD.
+     * @return a lazy Stream of the properties whose price falls in the range specified by the parameters, sorted by
+     *         price. The index must not change while the stream is used.
+     */
+    public Stream<Property> streamBetween(final double minUsd, final double maxUsd)
+    {
+        if(minUsd > maxUsd)
+        {
+            return Stream.empty();
+        }
+
+        return propertiesByPrice.subMap(keyOf(minUsd), true, keyOf(maxUsd), true).values().stream()
+                                .flatMap(LinkedHashSet::stream);
+    }
+
+    /**
+     * @return the number of properties in this index.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /*
+     * Adds the property under the specified price.
+     */
+    private void add(final Property property, final double priceUsd)
+    {
+        if(propertiesByPrice.computeIfAbsent(keyOf(priceUsd), key -> new LinkedHashSet<>()).add(property))
+        {
+            size++;
+        }
+    }
+
+    /*
+     * Both zeros are the same price, but Double.compareTo() puts -0.0 before 0.0, so the key is normalized.
+     */
+    private static Double keyOf(final double priceUsd)
+    {
+        return priceUsd + 0.0;
+    }
+}
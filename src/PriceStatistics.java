@@ -0,0 +1,87 @@
+/**
+ * This is PriceStatistics class. It's an immutable summary of the prices of a group of properties: how many there
+ * are, their total, and their minimum, maximum and mean price.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public final class PriceStatistics
+{
+    private final int    count;
+    private final double totalUsd;
+    private final double minUsd;
+    private final double maxUsd;
+
+    public static final int NONE = 0;
+
+    public static final PriceStatistics EMPTY = new PriceStatistics(NONE, NONE, Double.NaN, Double.NaN);
+
+    /**
+     * @param count is the number of properties.
+     * @param totalUsd is the total price in USD.
+     * @param minUsd is the minimum price in USD, or NaN if count is NONE.
+     * @param maxUsd is the maximum price in USD, or NaN if count is NONE.
+     */
+    public PriceStatistics(final int count, final double totalUsd, final double minUsd, final double maxUsd)
+    {
+        this.count    = count;
+        this.totalUsd = totalUsd;
+        this.minUsd   = minUsd;
+        this.maxUsd   = maxUsd;
+    }
+
+    /**
+     * @return the number of properties.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the total price in USD of the properties.
+     */
+    public double getTotalUsd()
+    {
+        return totalUsd;
+    }
+
+    /**
+     * @return the minimum price in USD, or NaN if there are no properties.
+     */
+    public double getMinUsd()
+    {
+        return minUsd;
+    }
+
+    /**
+     * @return the maximum price in USD, or NaN if there are no properties.
+     */
+    public double getMaxUsd()
+    {
+        return maxUsd;
+    }
+
+    /**
+     * @return the mean price in USD, or NaN if there are no properties.
+     */
+    public double getMeanUsd()
+    {
+        return (count == NONE) ? Double.NaN : totalUsd / count;
+    }
+
+    /**
+     * @return the statistics as a String.
+     */
+    @Override
+    public String toString()
+    {
+        return "PriceStatistics [" +
+                "count="      + count        +
+                ", totalUsd=" + totalUsd     +
+                ", minUsd="   + minUsd       +
+                ", maxUsd="   + maxUsd       +
+                ", meanUsd="  + getMeanUsd() +
+                ']';
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 /**
  * This is Property class. It's supertype for Residence class, Commercial class, and Retail class.
  *
@@ -10,12 +12,24 @@ public class Property
     private final String  type;
     private final String  propertyId;
 
-    private double priceUsd; // This is not final, because we have set method for priceUsd
+    // The type, resolved once from the type String.
+    private final PropertyType propertyType;
+
+    // This is not final, because we have set method for priceUsd. It's volatile, so a new price is seen at once by
+    // every thread that reads it.
+    private volatile double priceUsd;
+
+    private volatile PriceChangeListener[] priceChangeListeners;
+
+    // The read-only view of this property, made the first time it's asked for.
+    private volatile Property view;
 
     public static final int MIN_PROPERTY_ID_LENGTH = 1;
     public static final int MAX_PROPERTY_ID_LENGTH = 6;
     public static final int NONE                   = 0;
 
+    private static final PriceChangeListener[] NO_LISTENERS = new PriceChangeListener[0];
+
     /**
      * @param priceUsd is the price in USD for this property. It must be positive.
      * @param address is the address for this property. It must be not null.
@@ -35,51 +49,46 @@ public class Property
     public Property(final double priceUsd, final Address address, final String type, final String propertyId)
                     throws IllegalArgumentException, NullPointerException
     {
-        if(priceUsd < NONE)
-        {
-            throw new IllegalArgumentException("Invalid price: " + priceUsd);
-        }
-
-        if(address == null)
-        {
-            throw new NullPointerException("Invalid address: null");
-        }
+        this(priceUsd, address, type, propertyId, true);
+    }
 
-        if(type == null)
-        {
-            throw new NullPointerException("Invalid property type: null");
-        }
-        else
-        {
-            if(!type.equalsIgnoreCase("residence")  &&
-               !type.equalsIgnoreCase("commercial") &&
-               !type.equalsIgnoreCase("retail"))
-            {
-                throw new IllegalArgumentException("Invalid property type: " + type);
-            }
-        }
+    /**
+     * This is the property constructor for data that has already been validated, for example when an
+     * AgencySnapshot is read.
+     *
+     * The other parameters are the same as the public constructor's.
+     *
+     * @param validate is true to check the parameters as the public constructor does, or false to skip the checks.
+     */
+    Property(final double priceUsd, final Address address, final String type, final String propertyId,
+             final boolean validate)
+    {
+        this(priceUsd, address, type, propertyId, validate, PropertyType.of(type));
+    }
 
-        if(propertyId == null)
-        {
-            throw new NullPointerException("Invalid property id: null");
-        }
-        else
+    /**
+     * This is the property constructor of the subtypes, which have the PropertyType of their subtype whatever their
+     * type String is.
+     *
+     * The other parameters are the same as those of the constructor that also takes validate.
+     *
+     * @param propertyType is the PropertyType of this property.
+     */
+    Property(final double priceUsd, final Address address, final String type, final String propertyId,
+             final boolean validate, final PropertyType propertyType)
+    {
+        if(validate)
         {
-            if(propertyId.equals(""))
-            {
-                throw new IllegalArgumentException("Invalid property id!");
-            }
-
-            if((propertyId.length() < MIN_PROPERTY_ID_LENGTH) || (propertyId.length() > MAX_PROPERTY_ID_LENGTH))
-            {
-                throw new IllegalArgumentException("Invalid property id: " + propertyId);
-            }
+            checkFields(priceUsd, address, type, propertyId);
         }
 
         this.priceUsd   = priceUsd;
         this.address    = address;
         this.type       = type;
         this.propertyId = propertyId;
+
+        this.propertyType    = propertyType;
+        priceChangeListeners = NO_LISTENERS;
     }
 
     /**
@@ -106,6 +115,14 @@ public class Property
         return type;
     }
 
+    /**
+     * @return the type of this property as a PropertyType.
+     */
+    public PropertyType getPropertyType()
+    {
+        return propertyType;
+    }
+
     /**
      * @return the property id of this property.
      */
@@ -114,6 +131,33 @@ public class Property
         return propertyId;
     }
 
+    /**
+     * @return a read-only view of this property. It reads the price of this property as it changes, but its own
+     *         price can't be set. It's made once and then shared, so handing it out costs no copy.
+     */
+    public Property view()
+    {
+        Property readOnly;
+        readOnly = view;
+
+        if(readOnly == null)
+        {
+            readOnly = createView();
+            view     = readOnly;
+        }
+
+        return readOnly;
+    }
+
+    /**
+     * @return a new property with the same fields and price as this one. It's not in any agency, so its price can be
+     *         set freely.
+     */
+    public Property mutableCopy()
+    {
+        return new Property(getPriceUsd(), address, type, propertyId, false);
+    }
+
     /**
      * This method sets the price in USD for this property.
      *
@@ -127,7 +171,68 @@ public class Property
             throw new IllegalArgumentException("Invalid price: " + priceUsd);
         }
 
+        double oldPriceUsd = this.priceUsd;
+
         this.priceUsd = priceUsd;
+
+        if(Double.compare(oldPriceUsd, priceUsd) != NONE)
+        {
+            for(PriceChangeListener listener: priceChangeListeners)
+            {
+                listener.priceChanged(this, oldPriceUsd, priceUsd);
+            }
+        }
+    }
+
+    /**
+     * This method registers the listener to be notified whenever the price of this property changes.
+     *
+     * @param listener is the listener. It's ignored if it's null or already registered.
+     */
+    public synchronized void addPriceChangeListener(final PriceChangeListener listener)
+    {
+        if(listener == null)
+        {
+            return;
+        }
+
+        for(PriceChangeListener registered: priceChangeListeners)
+        {
+            if(registered == listener)
+            {
+                return;
+            }
+        }
+
+        PriceChangeListener[] listeners;
+        listeners = Arrays.copyOf(priceChangeListeners, priceChangeListeners.length + 1);
+
+        listeners[priceChangeListeners.length] = listener;
+        priceChangeListeners                   = listeners;
+    }
+
+    /**
+     * This method unregisters the listener, so it's no longer notified about price changes of this property.
+     *
+     * @param listener is the listener.
+     */
+    public synchronized void removePriceChangeListener(final PriceChangeListener listener)
+    {
+        for(int i = 0; i < priceChangeListeners.length; i++)
+        {
+            if(priceChangeListeners[i] == listener)
+            {
+                PriceChangeListener[] listeners;
+                listeners = new PriceChangeListener[priceChangeListeners.length - 1];
+
+                System.arraycopy(priceChangeListeners, 0, listeners, 0, i);
+                System.arraycopy(priceChangeListeners, i + 1, listeners, i, listeners.length - i);
+
+                priceChangeListeners = listeners;
+
+                return;
+            }
+        }
     }
 
     /**
@@ -137,10 +242,72 @@ public class Property
     public String toString()
     {
         return "Property ["      +
-                "priceUsd="      + priceUsd   +
-                ", address="     + address    +
-                ", type='"       + type       + '\'' +
-                ", propertyId='" + propertyId + '\'' +
+                "priceUsd="      + getPriceUsd() +
+                ", address="     + address       +
+                ", type='"       + type          + '\'' +
+                ", propertyId='" + propertyId    + '\'' +
                 ']';
     }
+
+    /*
+     * Makes the read-only view of this property. Each subtype makes a view of its own subtype.
+     */
+    Property createView()
+    {
+        return new PropertyView(this);
+    }
+
+    /*
+     * Returns true if this is a read-only view of another property rather than a property of its own.
+     */
+    boolean isView()
+    {
+        return false;
+    }
+
+    /*
+     * Checks the parameters of the constructor.
+     */
+    private static void checkFields(final double priceUsd, final Address address, final String type,
+                                    final String propertyId) throws IllegalArgumentException, NullPointerException
+    {
+        if(priceUsd < NONE)
+        {
+            throw new IllegalArgumentException("Invalid price: " + priceUsd);
+        }
+
+        if(address == null)
+        {
+            throw new NullPointerException("Invalid address: null");
+        }
+
+        if(type == null)
+        {
+            throw new NullPointerException("Invalid property type: null");
+        }
+        else
+        {
+            if(PropertyType.of(type) == null)
+            {
+                throw new IllegalArgumentException("Invalid property type: " + type);
+            }
+        }
+
+        if(propertyId == null)
+        {
+            throw new NullPointerException("Invalid property id: null");
+        }
+        else
+        {
+            if(propertyId.equals(""))
+            {
+                throw new IllegalArgumentException("Invalid property id!");
+            }
+
+            if((propertyId.length() < MIN_PROPERTY_ID_LENGTH) || (propertyId.length() > MAX_PROPERTY_ID_LENGTH))
+            {
+                throw new IllegalArgumentException("Invalid property id: " + propertyId);
+            }
+        }
+    }
 }
@@ -0,0 +1,193 @@
+/**
+ * This is PropertyIdCodec class. A property id has at most Property.MAX_PROPERTY_ID_LENGTH characters, so an id
+ * made of Latin-1 characters is packed into a single long: one byte per character, and the length in the top bits.
+ *
+ * Property ids are case insensitive. packFolded() packs an id with every character case folded, so two ids that are
+ * equal ignoring case (as in String.equalsIgnoreCase()) have the same key, and an agency finds a property by its id
+ * with one long compare, without hashing or folding a String.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class PropertyIdCodec
+{
+    public static final int  BITS_PER_CHAR   = 8;
+    public static final int  LENGTH_SHIFT    = BITS_PER_CHAR * Property.MAX_PROPERTY_ID_LENGTH;
+    public static final char MAX_PACKED_CHAR = 0xFF;
+    public static final long NOT_PACKED      = 0L;
+
+    private static final long CHAR_MASK   = 0xFFL;
+    private static final int  CASE_GAP    = 'a' - 'A';
+    private static final char ASCII_LIMIT = 0x80;
+
+    /*
+     * Only static methods.
+     */
+    private PropertyIdCodec()
+    {
+    }
+
+    /**
+     * @param propertyId is the property id.
+     * @return true, if the property id can be packed into a long; otherwise, returns false.
+     */
+    public static boolean canPack(final String propertyId)
+    {
+        if((propertyId == null) ||
+           (propertyId.length() < Property.MIN_PROPERTY_ID_LENGTH) ||
+           (propertyId.length() > Property.MAX_PROPERTY_ID_LENGTH))
+        {
+            return false;
+        }
+
+        for(int i = 0; i < propertyId.length(); i++)
+        {
+            if(propertyId.charAt(i) > MAX_PACKED_CHAR)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param propertyId is the property id.
+     * @return the property id packed into a long. It's never 0.
+     * @throws IllegalArgumentException if the property id can not be packed into a long.
+     */
+    public static long pack(final String propertyId)
+    {
+        if(!canPack(propertyId))
+        {
+            throw new IllegalArgumentException("Invalid property id: " + propertyId);
+        }
+
+        long packed = ((long) propertyId.length()) << LENGTH_SHIFT;
+
+        for(int i = 0; i < propertyId.length(); i++)
+        {
+            packed |= ((long) propertyId.charAt(i)) << (BITS_PER_CHAR * i);
+        }
+
+        return packed;
+    }
+
+    /**
+     * @param packed is a property id packed by pack().
+     * @return the property id.
+     */
+    public static String unpack(final long packed)
+    {
+        char[] chars;
+        chars = new char[(int) (packed >>> LENGTH_SHIFT)];
+
+        for(int i = 0; i < chars.length; i++)
+        {
+            chars[i] = (char) ((packed >>> (BITS_PER_CHAR * i)) & CHAR_MASK);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * @param propertyId is the property id.
+     * @return the property id, with every character case folded, packed into a long; or NOT_PACKED if it can not be
+     *         packed, for example because a folded character is not Latin-1.
+     */
+    public static long packFolded(final String propertyId)
+    {
+        if((propertyId == null) ||
+           (propertyId.length() < Property.MIN_PROPERTY_ID_LENGTH) ||
+           (propertyId.length() > Property.MAX_PROPERTY_ID_LENGTH))
+        {
+            return NOT_PACKED;
+        }
+
+        long packed = ((long) propertyId.length()) << LENGTH_SHIFT;
+
+        for(int i = 0; i < propertyId.length(); i++)
+        {
+            char folded = fold(propertyId.charAt(i));
+
+            if(folded > MAX_PACKED_CHAR)
+            {
+                return NOT_PACKED;
+            }
+
+            packed |= ((long) folded) << (BITS_PER_CHAR * i);
+        }
+
+        return packed;
+    }
+
+    /**
+     * @param packed is a property id packed by pack().
+     * @return the same property id packed by packFolded(), or NOT_PACKED if packFolded() can not pack it.
+     */
+    public static long fold(final long packed)
+    {
+        int length = (int) (packed >>> LENGTH_SHIFT);
+
+        long folded = ((long) length) << LENGTH_SHIFT;
+
+        for(int i = 0; i < length; i++)
+        {
+            char c = fold((char) ((packed >>> (BITS_PER_CHAR * i)) & CHAR_MASK));
+
+            if(c > MAX_PACKED_CHAR)
+            {
+                return NOT_PACKED;
+            }
+
+            folded |= ((long) c) << (BITS_PER_CHAR * i);
+        }
+
+        return folded;
+    }
+
+    /**
+     * @param propertyId is the property id.
+     * @return the property id with every character case folded. It's the same String if no character changes, so an
+     *         id that is already folded costs no copy.
+     */
+    public static String fold(final String propertyId)
+    {
+        for(int i = 0; i < propertyId.length(); i++)
+        {
+            if(fold(propertyId.charAt(i)) != propertyId.charAt(i))
+            {
+                char[] chars;
+                chars = propertyId.toCharArray();
+
+                for(int j = i; j < chars.length; j++)
+                {
+                    chars[j] = fold(chars[j]);
+                }
+
+                return new String(chars);
+            }
+        }
+
+        return propertyId;
+    }
+
+    /*
+     * Folds the case of the character as String.equalsIgnoreCase() does: to upper case, and then to lower case. ASCII
+     * letters are folded without a table lookup.
+     */
+    private static char fold(final char c)
+    {
+        if((c >= 'A') && (c <= 'Z'))
+        {
+            return (char) (c + CASE_GAP);
+        }
+
+        if(c < ASCII_LIMIT)
+        {
+            return c;
+        }
+
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
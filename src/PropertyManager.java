@@ -1,7 +1,20 @@
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Scanner;
+import javax.management.JMException;
 
 /**
  * This is a Property Manager.
@@ -62,78 +75,460 @@ public class PropertyManager
     public static final int RETAIL_QUERIES_CUSTOMER_PARKING = 2;
     public static final int RETAIL_QUERIES_BACK             = 3;
 
+    // For command line options
+    public static final String COLUMNAR_OPTION   = "--columnar";
+    public static final String CONCURRENT_OPTION = "--concurrent";
+    public static final String WATCH_OPTION      = "--watch";
+    public static final String METRICS_OPTION    = "--metrics";
+    public static final String BATCH_OPTION      = "--batch";
+    public static final String STANDARD_INPUT    = "-";
+    public static final String SERVE_OPTION      = "--serve";
+    public static final String PORT_OPTION       = "--port";
+    public static final String EXPORT_OPTION     = "--export";
+    public static final String LOG_OPTION        = "--log";
+    public static final String FULL_CHECK_OPTION = "--full-check";
+    public static final String USAGE             = "Usage: PropertyManager [" + COLUMNAR_OPTION + " | "
+                                                   + CONCURRENT_OPTION + "] [" + WATCH_OPTION + "] [" + LOG_OPTION
+                                                   + "] [" + METRICS_OPTION + "] [" + FULL_CHECK_OPTION + "]\n"
+                                                   + "       [" + BATCH_OPTION + " <script | " + STANDARD_INPUT
+                                                   + "> | " + SERVE_OPTION + " [" + PORT_OPTION + " <port>] | "
+                                                   + EXPORT_OPTION + " <format> <file | " + STANDARD_INPUT
+                                                   + "> <query>]";
+
+    // For the batch mode, and the export
+    public static final int BATCH_OUTPUT_BUFFER = 1 << 16;
+
+    // For the binary snapshot of the loaded agency
+    public static final String SNAPSHOT_FILE = "agency.snapshot";
+
+    // For the MutationLog of the changes to the agency
+    public static final String LOG_FILE        = "agency.log";
+    public static final String CHECKPOINT_FILE = "agency.checkpoint";
+
+    // For the data files
+    public static final String ADDRESS_FILE  = "address_data.txt";
+    public static final String PROPERTY_FILE = "property_data.txt";
+
     /**
      * This is Assignment2's constructor.
      */
     public PropertyManager()
     {
-        agency = new Agency("Assignment 2");
+        this(new Agency("Assignment 2"));
+    }
+
+    /**
+     * This is Assignment2's constructor for a specific kind of agency, for example a ColumnarAgency.
+     *
+     * @param agency is the agency that the properties are loaded into. It must be not null.
+     * @throws NullPointerException if agency is null.
+     */
+    public PropertyManager(final Agency agency) throws NullPointerException
+    {
+        if(agency == null)
+        {
+            throw new NullPointerException("Invalid agency: null");
+        }
+
+        this.agency = agency;
     }
 
     /**
-     * This method gets the ArrayList<Address> and ArrayList<String> form AddressReader and PropertyReader, and uses
-     * them to create subtype objects and then adds them to the Agency.HashMap<String, Property> properties.
+     * This method reads address_data.txt and property_data.txt in parallel chunks with ParallelLoader, pairing the
+     * address and the property on the same line, and then adds the subtype objects to the Agency.
      *
      * @throws FileNotFoundException if file address_data.txt or file property_data.txt not found.
      */
     public void init() throws FileNotFoundException
     {
-        ArrayList<Address> adrData;
-        ArrayList<String>  proData;
+        init(new File(ADDRESS_FILE), new File(PROPERTY_FILE));
+    }
 
-        File addressFile   = new File("address_data.txt");
-        adrData            = AddressReader.readAddressData(addressFile);
+    /**
+     * This method is init() for data files other than address_data.txt and property_data.txt, for example the files
+     * written by SyntheticData.
+     *
+     * @param addressFile is the address data file.
+     * @param propertyFile is the property data file.
+     * @throws FileNotFoundException if the address file or the property file not found.
+     */
+    public void init(final File addressFile, final File propertyFile) throws FileNotFoundException
+    {
+        new ParallelLoader().loadInto(addressFile, propertyFile, agency);
+    }
 
-        File propertyFile = new File("property_data.txt");
-        proData           = PropertyReader.readPropertyData(propertyFile);
+    /**
+     * This method loads the agency from the snapshot file if it was written from address_data.txt and
+     * property_data.txt as they are now: the length, the time of change and a sample of the start and the end of both
+     * files must match the fingerprint in the snapshot (see AgencySnapshot.fingerprint()). Otherwise, or if the
+     * snapshot can not be read, it calls init() and writes a new snapshot for the next start.
+     *
+     * @param snapshotFile is the snapshot file.
+     * @throws FileNotFoundException if file address_data.txt or file property_data.txt not found.
+     */
+    public void init(final File snapshotFile) throws FileNotFoundException
+    {
+        init(snapshotFile, false);
+    }
 
-        for(int i = 0; i < proData.size(); i++)
+    /**
+     * This method is init(File), with the full fingerprint of the data files if it's asked for: the length and the
+     * checksum of the whole of both files must match, whatever their times of change (see
+     * AgencySnapshot.fullFingerprint()). It reads both files at every start.
+     *
+     * @param snapshotFile is the snapshot file.
+     * @param fullFingerprint is true to check the whole of the data files, or false to check a sample of them.
+     * @throws FileNotFoundException if file address_data.txt or file property_data.txt not found.
+     */
+    public void init(final File snapshotFile, final boolean fullFingerprint) throws FileNotFoundException
+    {
+        long[] fingerprint;
+
+        try
         {
-            // Properties with residence type in file property_data.txt
-            if(proData.get(i).toLowerCase().contains("residence"))
-            {
-                String[] prData      = proData.get(i).split("\\|");
+            // Taken before the files are loaded, so a change made during the load makes the next start load them.
+            fingerprint = fingerprintDataFiles(fullFingerprint);
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Snapshot ignored! " + e.getMessage());
+
+            init();
+
+            return;
+        }
+
+        init(snapshotFile, fingerprint);
+    }
+
+    /**
+     * This method is init(File) with a MutationLog, which logs every change to the agency from now on, for example
+     * the changes a DataFileWatcher applies, so they survive a restart. If the checkpoint file exists, it takes the
+     * place of the snapshot and the data files: the agency is read from it, and the log is replayed on top of it.
+     * Otherwise, the agency is loaded by init(File) and becomes the first checkpoint. The log is checkpointed on its
+     * own thread while the agency changes, so the agency must be a ConcurrentAgency.
+     *
+     * @param snapshotFile is the snapshot file.
+     * @param logFile is the log file.
+     * @param checkpointFile is the checkpoint file.
+     * @return the log. It's closed to stop logging, after the changes that are still waiting have been written.
+     * @throws FileNotFoundException if address_data.txt or property_data.txt not found.
+     * @throws IOException if the data files, the checkpoint or the log can not be read, or the log can not be opened.
+     * @throws IllegalStateException if the agency is not a ConcurrentAgency.
+     */
+    public MutationLog initWithLog(final File snapshotFile, final File logFile,
+                                   final File checkpointFile) throws IOException, IllegalStateException
+    {
+        return initWithLog(snapshotFile, logFile, checkpointFile, false);
+    }
+
+    /**
+     * This method is initWithLog(File, File, File), with the full fingerprint of the data files if it's asked for
+     * (see init(File, boolean)).
+     *
+     * The data files are not read again while the checkpoint file exists, so it tells whether they have changed since
+     * the first checkpoint was loaded from them: the fingerprint saved in the checkpoint must match theirs. If it
+     * does not, a warning is printed. The changes a DataFileWatcher applied while the program ran are in the
+     * checkpoint and the log, but the changes made while it did not run are not; deleting the checkpoint file and the
+     * log file makes the next start load the data files again.
+     *
+     * @param snapshotFile is the snapshot file.
+     * @param logFile is the log file.
+     * @param checkpointFile is the checkpoint file.
+     * @param fullFingerprint is true to check the whole of the data files, or false to check a sample of them.
+     * @return the log. It's closed to stop logging, after the changes that are still waiting have been written.
+     * @throws FileNotFoundException if address_data.txt or property_data.txt not found.
+     * @throws IOException if the data files, the checkpoint or the log can not be read, or the log can not be opened.
+     * @throws IllegalStateException if the agency is not a ConcurrentAgency.
+     */
+    public MutationLog initWithLog(final File snapshotFile, final File logFile, final File checkpointFile,
+                                   final boolean fullFingerprint) throws IOException, IllegalStateException
+    {
+        if(!(agency instanceof ConcurrentAgency))
+        {
+            throw new IllegalStateException("Only a ConcurrentAgency can be logged: " + agency.getName());
+        }
+
+        long[] fingerprint;
+        fingerprint = fingerprintDataFiles(fullFingerprint);
+
+        boolean checkpointed = checkpointFile.exists();
+
+        if(!checkpointed)
+        {
+            init(snapshotFile, fingerprint);
+        }
+
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile, fingerprint, MutationLog.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                              MutationLog.DEFAULT_CHECKPOINT_BYTES, false);
+
+        long[] saved;
+        saved = log.getFingerprint();
+
+        // A checkpoint saved with the other kind of fingerprint, or with none, can't be compared.
+        if(checkpointed && (saved.length == fingerprint.length) && !Arrays.equals(saved, fingerprint))
+        {
+            System.out.println("\n>> Data files ignored! " + ADDRESS_FILE + " or " + PROPERTY_FILE
+                               + " changed since " + checkpointFile + " was made. Delete it and " + logFile
+                               + " to load them again.");
+        }
+
+        return log;
+    }
+
+    /**
+     * This method starts a DataFileWatcher, which applies the changes of address_data.txt and property_data.txt to
+     * the agency while the program runs. It must be called after the agency has been loaded. The changes are applied
+     * on another thread while the menus, a batch or a server read the agency on theirs, so the agency must be a
+     * ConcurrentAgency: the other agencies are not safe to read while another thread changes them.
+     *
+     * @return the watcher. It's closed to stop watching.
+     * @throws IOException if the files can not be read or watched.
+     * @throws IllegalStateException if the agency is not a ConcurrentAgency.
+     */
+    public DataFileWatcher watch() throws IOException, IllegalStateException
+    {
+        if(!(agency instanceof ConcurrentAgency))
+        {
+            throw new IllegalStateException("Only a ConcurrentAgency can be watched: " + agency.getName());
+        }
 
-                double   priceUsd    = Double.parseDouble(prData[RESIDENCE_PRICE]);
-                int      numBedrooms = Integer.parseInt(prData[RESIDENCE_BEDROOMS]);
-                boolean  pool        = Boolean.parseBoolean(prData[RESIDENCE_POOL]);
-                String   type        = prData[RESIDENCE_TYPE];
-                String   id          = prData[RESIDENCE_ID];
-                boolean  strata      = Boolean.parseBoolean(prData[RESIDENCE_STRATA]);
+        DataFileWatcher watcher;
+        watcher = new DataFileWatcher(new File(ADDRESS_FILE), new File(PROPERTY_FILE), agency);
 
-                Residence res = new Residence(priceUsd, adrData.get(i), type, id, numBedrooms, pool, strata);
+        watcher.start();
 
-                agency.addProperty(res);
+        return watcher;
+    }
+
+    /**
+     * This method runs a script of saved searches with a BatchQueryRunner, without the menus of doSearches(). The
+     * queries run in parallel, and their results are written in the order of the script.
+     *
+     * @param script is the script, one query per line (see BatchQueryRunner).
+     * @param output is where the results are written. It should be buffered.
+     * @return the number of queries run.
+     * @throws IOException if the script can not be read or the output can not be written.
+     */
+    public long runBatch(final Reader script, final Writer output) throws IOException
+    {
+        return new BatchQueryRunner(agency).run(script, output);
+    }
+
+    /*
+     * Prints each row of a menu result with toString(), after the prefix, through a buffer, so the console is written
+     * in large blocks rather than once per row. A null result is printed as null.
+     */
+    private static void printRows(final Iterable<?> rows, final String prefix)
+    {
+        if(rows == null)
+        {
+            System.out.println((Object) null);
+
+            return;
+        }
+
+        Writer output;
+        output = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), BATCH_OUTPUT_BUFFER);
+
+        try
+        {
+            for(Object row: rows)
+            {
+                output.write(prefix);
+                output.write(String.valueOf(row));
+                output.write(System.lineSeparator());
             }
-            else if(proData.get(i).toLowerCase().contains("commercial")) // Properties with commercial type in file property_data.txt
+
+            output.flush();
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! Can not print the result: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Returns the fingerprint of address_data.txt and property_data.txt, full or sampled.
+     */
+    private static long[] fingerprintDataFiles(final boolean fullFingerprint) throws IOException
+    {
+        File addressFile  = new File(ADDRESS_FILE);
+        File propertyFile = new File(PROPERTY_FILE);
+
+        return fullFingerprint ? AgencySnapshot.fullFingerprint(addressFile, propertyFile)
+                               : AgencySnapshot.fingerprint(addressFile, propertyFile);
+    }
+
+    /*
+     * Loads the agency from the snapshot file if it was written with the fingerprint, or else with init(), and then
+     * writes a new snapshot with the fingerprint.
+     */
+    private void init(final File snapshotFile, final long[] fingerprint) throws FileNotFoundException
+    {
+        if(snapshotFile.isFile())
+        {
+            try
             {
-                String[] prData     = proData.get(i).split("\\|");
+                long start = System.nanoTime();
+
+                IngestionPhaseEvent phase;
+                phase = new IngestionPhaseEvent();
 
-                double  priceUsd    = Double.parseDouble(prData[COMMERCIAL_PRICE]);
-                String  type        = prData[COMMERCIAL_TYPE];
-                String  id          = prData[COMMERCIAL_ID];
-                boolean loading     = Boolean.parseBoolean(prData[COMMERCIAL_LOADING]);
-                boolean highway     = Boolean.parseBoolean(prData[COMMERCIAL_HIGHWAY]);
+                phase.begin();
 
-                Commercial com = new Commercial(priceUsd, adrData.get(i), type, id, loading, highway);
+                AgencySnapshot.readInto(snapshotFile, agency, fingerprint);
 
-                agency.addProperty(com);
+                AgencyMetrics metrics;
+                metrics = agency.getMetrics();
+
+                if(metrics != null)
+                {
+                    metrics.recordSince(AgencyMetrics.INIT_READ_SNAPSHOT, start);
+                }
+
+                phase.commit(AgencyMetrics.INIT_READ_SNAPSHOT, agency.getAggregates().getCount());
+
+                return;
             }
-            else // Properties with retail type in file property_data.txt
+            catch(IOException e)
             {
-                String[] prData     = proData.get(i).split("\\|");
+                System.out.println("\n>> Snapshot ignored! " + e.getMessage());
+            }
+        }
+
+        init();
+
+        try
+        {
+            AgencySnapshot.write(agency, snapshotFile, fingerprint);
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Snapshot not saved! " + e.getMessage());
+        }
+    }
+
+    /*
+     * Serves the queries on the port until the program is stopped.
+     */
+    private void serveUntilClosed(final int port)
+    {
+        try(QueryServer server = serve(port))
+        {
+            System.out.println("\n>> Serving queries on " + server);
+
+            server.awaitClose();
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! Can not serve the queries: " + e.getMessage());
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-                double  priceUsd    = Double.parseDouble(prData[RETAIL_PRICE]);
-                String  type        = prData[RETAIL_TYPE];
-                String  id          = prData[RETAIL_ID];
-                int     squareFoot  = Integer.parseInt(prData[RETAIL_SQUARE_FOOT]);
-                boolean customer    = Boolean.parseBoolean(prData[RETAIL_CUSTOMER_PARKING]);
+    /*
+     * Runs the script file, or standard input if it's STANDARD_INPUT, and writes the results to standard output
+     * through a buffer, so the console is written in large blocks rather than once per result.
+     */
+    private void runBatch(final String script)
+    {
+        Writer output;
+        output = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), BATCH_OUTPUT_BUFFER);
 
-                Retail ret = new Retail(priceUsd, adrData.get(i), type, id, squareFoot, customer);
+        try(Reader input = script.equals(STANDARD_INPUT) ?
+                           new InputStreamReader(System.in, Charset.defaultCharset()) :
+                           Files.newBufferedReader(new File(script).toPath(), StandardCharsets.UTF_8))
+        {
+            runBatch(input, output);
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! Can not run the script: " + e.getMessage());
+        }
+    }
 
-                agency.addProperty(ret);
+    /**
+     * This method exports the result of a query in a file format, written field by field by a PropertyWriter rather
+     * than through toString(), so large results are written at the speed of the output.
+     *
+     * @param query is one query, in the script format of BatchQueryRunner, for example "all".
+     * @param format is PropertyWriter.CSV or PropertyWriter.JSON.
+     * @param output is where the result is written. A Writer needs no buffer (see PropertyWriter). It's flushed at
+     *               the end.
+     * @return the number of rows written.
+     * @throws IllegalArgumentException if the query can not be run, or the format is unknown.
+     * @throws IOException if the output can not be written.
+     */
+    public long export(final String query, final String format, final Appendable output)
+                       throws IllegalArgumentException, IOException
+    {
+        PropertyWriter writer;
+        writer = PropertyWriter.of(format, output);
+
+        long rows = writer.writeResult(new BatchQueryRunner(agency).execute(query));
+
+        writer.flush();
+
+        return rows;
+    }
+
+    /*
+     * Exports the result of the query to the file, or to standard output if it's STANDARD_INPUT. The file is written
+     * to a FileChannel, encoded in blocks of BATCH_OUTPUT_BUFFER bytes.
+     */
+    private void export(final String query, final String format, final String file)
+    {
+        try
+        {
+            if(file.equals(STANDARD_INPUT))
+            {
+                export(query, format, new OutputStreamWriter(System.out, Charset.defaultCharset()));
+
+                return;
+            }
+
+            long rows;
+
+            try(FileChannel channel = FileChannel.open(new File(file).toPath(), StandardOpenOption.CREATE,
+                                                       StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                Writer      output  = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(),
+                                                     BATCH_OUTPUT_BUFFER))
+            {
+                rows = export(query, format, output);
             }
+
+            System.out.println("\n>> Exported " + rows + " rows to " + file);
+        }
+        catch(IllegalArgumentException e)
+        {
+            System.out.println("\n>> Error! " + e.getMessage());
         }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! Can not export the query: " + e.getMessage());
+        }
+    }
+
+    /**
+     * This method starts a QueryServer, which serves the queries of the agency to QueryClients on this machine. It
+     * must be called after the agency has been loaded.
+     *
+     * @param port is the port, or QueryServer.ANY_PORT to pick a free one.
+     * @return the server. It's closed to stop serving.
+     * @throws IOException if the port can not be bound.
+     */
+    public QueryServer serve(final int port) throws IOException
+    {
+        return new QueryServer(agency, port);
     }
 
     /**
@@ -211,10 +606,7 @@ public class PropertyManager
                             }
                             else
                             {
-                                for(Property property: agency.getPropertiesBetween(minPriceUsd, maxPriceUsd))
-                                {
-                                    System.out.println(property);
-                                }
+                                printRows(Arrays.asList(agency.getPropertiesBetween(minPriceUsd, maxPriceUsd)), "");
                             }
 
                             continue;
@@ -236,10 +628,7 @@ public class PropertyManager
                         }
                         else
                         {
-                            for(Address address: agency.getPropertiesOn(streetName))
-                            {
-                                System.out.println("\n" + address);
-                            }
+                            printRows(agency.getPropertiesOn(streetName), "\n");
                         }
 
                         continue;
@@ -256,10 +645,7 @@ public class PropertyManager
                         }
                         else
                         {
-                            for(Property property: agency.getPropertiesOfType(type))
-                            {
-                                System.out.println(property);
-                            }
+                            printRows(agency.getPropertiesOfType(type), "");
                         }
 
                         continue;
@@ -303,10 +689,7 @@ public class PropertyManager
                             }
                             else
                             {
-                                for(Property property: agency.getPropertiesWithBedrooms(minBedroomNum, maxBedroomNum).values())
-                                {
-                                    System.out.println(property);
-                                }
+                                printRows(agency.getPropertiesWithBedrooms(minBedroomNum, maxBedroomNum).values(), "");
                             }
                         }
                         else // If minimum number of bedrooms is greater than maximum number of bedrooms.
@@ -318,19 +701,13 @@ public class PropertyManager
                     }
                     else if(userInput == RESIDENCE_QUERIES_POOL) // 2. By Pool
                     {
-                        for(Property property: agency.getPropertiesWithPool())
-                        {
-                            System.out.println(property);
-                        }
+                        printRows(agency.getPropertiesWithPool(), "");
 
                         continue;
                     }
                     else if(userInput == RESIDENCE_QUERIES_STRATA) // 3. By Strata
                     {
-                        for(Property property: agency.getPropertiesWithStrata())
-                        {
-                            System.out.println(property);
-                        }
+                        printRows(agency.getPropertiesWithStrata(), "");
 
                         continue;
                     }
@@ -356,19 +733,13 @@ public class PropertyManager
 
                     if(userInput == COMMERCIAL_QUERIES_LOADING_DOCK) // 1. By Loading Dock
                     {
-                        for(Property property: agency.getPropertiesWithLoadingDock())
-                        {
-                            System.out.println(property);
-                        }
+                        printRows(agency.getPropertiesWithLoadingDock(), "");
 
                         continue;
                     }
                     else if(userInput == COMMERCIAL_QUERIES_HIGHWAY) // 2. By Highway Access
                     {
-                        for(Property property: agency.getPropertiesWithHighwayAccess())
-                        {
-                            System.out.println(property);
-                        }
+                        printRows(agency.getPropertiesWithHighwayAccess(), "");
 
                         continue;
                     }
@@ -404,20 +775,14 @@ public class PropertyManager
                         }
                         else
                         {
-                            for(Property property: agency.getPropertiesWithSquareFootage(minSquareFoot))
-                            {
-                                System.out.println(property);
-                            }
+                            printRows(agency.getPropertiesWithSquareFootage(minSquareFoot), "");
                         }
 
                         continue;
                     }
                     else if(userInput == RETAIL_QUERIES_CUSTOMER_PARKING) // 2. By Customer Parking
                     {
-                        for(Property property: agency.getPropertiesWithCustomerParking())
-                        {
-                            System.out.println(property);
-                        }
+                        printRows(agency.getPropertiesWithCustomerParking(), "");
 
                         continue;
                     }
@@ -444,24 +809,269 @@ public class PropertyManager
         }
     }
 
+    /*
+     * Closes the mutation log, which writes the changes that are still waiting for their batch.
+     */
+    private static void closeLog(final MutationLog log)
+    {
+        try
+        {
+            log.close();
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! Can not close the mutation log: " + e.getMessage());
+        }
+    }
+
     /**
      *  This is the main method (our driver).
      *
-     * @param args unused.
+     * @param args COLUMNAR_OPTION to keep the properties in a ColumnarAgency, or CONCURRENT_OPTION to keep them in a
+     *             ConcurrentAgency, WATCH_OPTION to apply the changes of the data files while the program runs (it keeps
+     *             the properties in a ConcurrentAgency, and can not be used with COLUMNAR_OPTION), and
+     *             METRICS_OPTION to print the latency of each query and ingestion phase on exit, and BATCH_OPTION
+     *             followed by a script file, or STANDARD_INPUT, to run the script instead of the menus, or
+     *             SERVE_OPTION to serve the queries to QueryClients instead of the menus, on QueryServer.DEFAULT_PORT
+     *             or on the port after PORT_OPTION, or EXPORT_OPTION followed by a format (PropertyWriter.CSV or
+     *             PropertyWriter.JSON), a file, or STANDARD_INPUT for standard output, and a query, to export its
+     *             result instead of the menus, and LOG_OPTION to log the changes to the agency in LOG_FILE, and replay
+     *             them on CHECKPOINT_FILE at the next start (it keeps the properties in a ConcurrentAgency, and can
+     *             not be used with COLUMNAR_OPTION), and FULL_CHECK_OPTION to check the whole of the data files
+     *             against the snapshot or the checkpoint, rather than a sample of them. An unknown option, or options
+     *             that can not be used together, print USAGE and stop the program.
      */
     public static void main(String[] args)
     {
         try
         {
-            PropertyManager a2 = new PropertyManager();
+            boolean columnar   = false;
+            boolean concurrent = false;
+            boolean watch      = false;
+            boolean metrics    = false;
+            String  script     = null;
+            boolean serve      = false;
+            int     port       = QueryServer.DEFAULT_PORT;
+            boolean portSet    = false;
+            String  export     = null;
+            String  format     = null;
+            String  exportFile = null;
+            boolean logged     = false;
+            boolean fullCheck  = false;
+
+            for(int i = 0; i < args.length; i++)
+            {
+                String arg = args[i];
+
+                if(arg.equals(COLUMNAR_OPTION))
+                {
+                    columnar = true;
+                }
+                else if(arg.equals(CONCURRENT_OPTION))
+                {
+                    concurrent = true;
+                }
+                else if(arg.equals(WATCH_OPTION))
+                {
+                    watch = true;
+                }
+                else if(arg.equals(METRICS_OPTION))
+                {
+                    metrics = true;
+                }
+                else if(arg.equals(BATCH_OPTION))
+                {
+                    if(i + 1 == args.length)
+                    {
+                        System.out.println("\n>> Error! Missing script after " + BATCH_OPTION + "\n" + USAGE);
 
-            a2.init();
+                        return;
+                    }
+
+                    script = args[++i];
+                }
+                else if(arg.equals(SERVE_OPTION))
+                {
+                    serve = true;
+                }
+                else if(arg.equals(PORT_OPTION))
+                {
+                    if(i + 1 == args.length)
+                    {
+                        System.out.println("\n>> Error! Missing port after " + PORT_OPTION + "\n" + USAGE);
+
+                        return;
+                    }
+
+                    portSet = true;
+
+                    try
+                    {
+                        port = Integer.parseInt(args[++i]);
+                    }
+                    catch(NumberFormatException e)
+                    {
+                        System.out.println("\n>> Error! Invalid port: " + args[i] + "\n" + USAGE);
+
+                        return;
+                    }
+                }
+                else if(arg.equals(EXPORT_OPTION))
+                {
+                    if(i + 3 >= args.length)
+                    {
+                        System.out.println("\n>> Error! Missing format, file or query after " + EXPORT_OPTION + "\n"
+                                           + USAGE);
 
-            a2.doSearches();
+                        return;
+                    }
+
+                    format     = args[++i];
+                    exportFile = args[++i];
+                    export     = args[++i];
+                }
+                else if(arg.equals(LOG_OPTION))
+                {
+                    logged = true;
+                }
+                else if(arg.equals(FULL_CHECK_OPTION))
+                {
+                    fullCheck = true;
+                }
+                else
+                {
+                    System.out.println("\n>> Error! Unknown option: " + arg + "\n" + USAGE);
+
+                    return;
+                }
+            }
+
+            PropertyManager a2;
+
+            String conflict = null;
+            int    modes    = ((script != null) ? 1 : 0) + (serve ? 1 : 0) + ((export != null) ? 1 : 0);
+
+            if(columnar && concurrent)
+            {
+                conflict = CONCURRENT_OPTION + " can not be used with " + COLUMNAR_OPTION;
+            }
+            else if(columnar && watch)
+            {
+                conflict = WATCH_OPTION + " can not be used with " + COLUMNAR_OPTION;
+            }
+            else if(columnar && logged)
+            {
+                conflict = LOG_OPTION + " can not be used with " + COLUMNAR_OPTION;
+            }
+            else if(modes > 1)
+            {
+                conflict = "Only one of " + BATCH_OPTION + ", " + SERVE_OPTION + " and " + EXPORT_OPTION
+                           + " can be used";
+            }
+            else if(portSet && !serve)
+            {
+                conflict = PORT_OPTION + " can only be used with " + SERVE_OPTION;
+            }
+
+            if(conflict != null)
+            {
+                System.out.println("\n>> Error! " + conflict + "\n" + USAGE);
+
+                return;
+            }
+
+            if(columnar)
+            {
+                a2 = new PropertyManager(new ColumnarAgency("Assignment 2"));
+            }
+            else if(concurrent || watch || logged) // Changed or checkpointed on another thread.
+            {
+                a2 = new PropertyManager(new ConcurrentAgency("Assignment 2"));
+            }
+            else
+            {
+                a2 = new PropertyManager();
+            }
+
+            try
+            {
+                a2.agency.getMetrics().register(a2.agency.getName());
+            }
+            catch(JMException e)
+            {
+                System.out.println("\n>> Metrics not registered! " + e.getMessage());
+            }
+
+            MutationLog log = null;
+
+            if(logged)
+            {
+                try
+                {
+                    log = a2.initWithLog(new File(SNAPSHOT_FILE), new File(LOG_FILE), new File(CHECKPOINT_FILE),
+                                         fullCheck);
+                }
+                catch(FileNotFoundException e)
+                {
+                    throw e;
+                }
+                catch(IOException e)
+                {
+                    System.out.println("\n>> Error! Can not open the mutation log: " + e.getMessage());
+
+                    return;
+                }
+            }
+            else
+            {
+                a2.init(new File(SNAPSHOT_FILE), fullCheck);
+            }
+
+            try
+            {
+                // Started after the log is open, so the changes it applies are logged.
+                if(watch)
+                {
+                    a2.watch();
+                }
+
+                if(export != null)
+                {
+                    a2.export(export, format, exportFile);
+                }
+                else if(script != null)
+                {
+                    a2.runBatch(script);
+                }
+                else if(serve)
+                {
+                    a2.serveUntilClosed(port);
+                }
+                else
+                {
+                    a2.doSearches();
+                }
+
+                if(metrics)
+                {
+                    System.out.println("\n" + a2.agency.getMetrics().dump());
+                }
+            }
+            finally
+            {
+                if(log != null)
+                {
+                    closeLog(log);
+                }
+            }
         }
         catch(FileNotFoundException e)
         {
             System.out.println("\n>> Error! " + e.getMessage());
         }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! Can not watch the data files: " + e.getMessage());
+        }
     }
 }
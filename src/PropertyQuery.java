@@ -0,0 +1,413 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * This is PropertyQuery class. It's an immutable combination of criteria over a Property, its Address and the fields
+ * of its subtype, for example "3 to 5 bedrooms, under $2M, with a pool, on Elm Street":
+ *
+ *     PropertyQuery query;
+ *     query = PropertyQuery.builder().bedroomsBetween(3, 5).priceBetween(0, 2_000_000)
+ *                                    .with(Amenity.SWIMMING_POOL).on("Elm Street").build();
+ *
+ * A property matches the query if it meets every criterion that has been set. Agency.find() runs the query through a
+ * QueryPlanner, which picks an index to start from, and Agency.explain() shows the plan it picked.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public final class PropertyQuery
+{
+    private final String            propertyId;
+    private final boolean           priceRange;
+    private final int               minPriceUsd;
+    private final int               maxPriceUsd;
+    private final String            streetName;
+    private final String            city;
+    private final String            postalCode;
+    private final String            type;
+    private final boolean           bedroomRange;
+    private final int               minBedrooms;
+    private final int               maxBedrooms;
+    private final boolean           squareFootageLimit;
+    private final int               minSquareFootage;
+
+    private final EnumSet<Amenity>                  amenities;
+    private final List<Predicate<? super Property>> predicates;
+
+    public static final int NONE = 0;
+
+    private PropertyQuery(final Builder builder)
+    {
+        propertyId         = builder.propertyId;
+        priceRange         = builder.priceRange;
+        minPriceUsd        = builder.minPriceUsd;
+        maxPriceUsd        = builder.maxPriceUsd;
+        streetName         = builder.streetName;
+        city               = builder.city;
+        postalCode         = builder.postalCode;
+        type               = builder.type;
+        bedroomRange       = builder.bedroomRange;
+        minBedrooms        = builder.minBedrooms;
+        maxBedrooms        = builder.maxBedrooms;
+        squareFootageLimit = builder.squareFootageLimit;
+        minSquareFootage   = builder.minSquareFootage;
+        amenities          = EnumSet.copyOf(builder.amenities);
+        predicates         = new ArrayList<>(builder.predicates);
+    }
+
+    /**
+     * @return a new Builder with no criterion set. A query built from it matches every property.
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @param property is the property.
+     * @return true, if the property meets every criterion of this query; otherwise, returns false.
+     */
+    public boolean matches(final Property property)
+    {
+        if(property == null)
+        {
+            return false;
+        }
+
+        Address address;
+        address = property.getAddress();
+
+        if((propertyId != null) && !property.getPropertyId().equalsIgnoreCase(propertyId))
+        {
+            return false;
+        }
+
+        if(priceRange && ((property.getPriceUsd() < minPriceUsd) || (property.getPriceUsd() > maxPriceUsd)))
+        {
+            return false;
+        }
+
+        if(((streetName != null) && !StreetIndex.keyOf(address.getStreetName()).equals(StreetIndex.keyOf(streetName))) ||
+           ((city       != null) && !address.getCity().equalsIgnoreCase(city))                                      ||
+           ((postalCode != null) && !address.getPostalCode().equalsIgnoreCase(postalCode))                          ||
+           ((type       != null) && !property.getType().equalsIgnoreCase(type)))
+        {
+            return false;
+        }
+
+        if(bedroomRange)
+        {
+            if(!(property instanceof Residence)                             ||
+               (((Residence) property).getNumberOfBedrooms() < minBedrooms) ||
+               (((Residence) property).getNumberOfBedrooms() > maxBedrooms))
+            {
+                return false;
+            }
+        }
+
+        if(squareFootageLimit)
+        {
+            if(!(property instanceof Retail) || (((Retail) property).getSquareFootage() < minSquareFootage))
+            {
+                return false;
+            }
+        }
+
+        for(Amenity amenity: amenities)
+        {
+            if(!amenity.isPresentIn(property))
+            {
+                return false;
+            }
+        }
+
+        for(Predicate<? super Property> predicate: predicates)
+        {
+            if(!predicate.test(property))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the property id to match, or null if any id matches.
+     */
+    public String getPropertyId()
+    {
+        return propertyId;
+    }
+
+    /**
+     * @return true, if the query has a price range; otherwise, returns false.
+     */
+    public boolean hasPriceRange()
+    {
+        return priceRange;
+    }
+
+    /**
+     * @return the minimum price in USD, if the query has a price range.
+     */
+    public int getMinPriceUsd()
+    {
+        return minPriceUsd;
+    }
+
+    /**
+     * @return the maximum price in USD, if the query has a price range.
+     */
+    public int getMaxPriceUsd()
+    {
+        return maxPriceUsd;
+    }
+
+    /**
+     * @return the street name to match (case insensitive), or null if any street matches.
+     */
+    public String getStreetName()
+    {
+        return streetName;
+    }
+
+    /**
+     * @return the amenities a property must all have. It's empty if there are none.
+     */
+    public EnumSet<Amenity> getAmenities()
+    {
+        return EnumSet.copyOf(amenities);
+    }
+
+    /**
+     * @return the criteria of this query as a String.
+     */
+    @Override
+    public String toString()
+    {
+        return "PropertyQuery [" +
+                "propertyId="         + propertyId                                                       +
+                ", price="            + (priceRange ? minPriceUsd + ".." + maxPriceUsd : null)           +
+                ", streetName="       + streetName                                                       +
+                ", city="             + city                                                             +
+                ", postalCode="       + postalCode                                                       +
+                ", type="             + type                                                             +
+                ", bedrooms="         + (bedroomRange ? minBedrooms + ".." + maxBedrooms : null)         +
+                ", minSquareFootage=" + (squareFootageLimit ? Integer.valueOf(minSquareFootage) : null) +
+                ", amenities="        + amenities                                                        +
+                ", predicates="       + predicates.size()                                                +
+                ']';
+    }
+
+    /**
+     * This is PropertyQuery.Builder class. Each method sets one criterion and returns the builder, so the criteria
+     * are chained; setting a criterion again replaces it, except with() and where(), which add to the ones set before.
+     */
+    public static final class Builder
+    {
+        private String           propertyId;
+        private boolean          priceRange;
+        private int              minPriceUsd;
+        private int              maxPriceUsd;
+        private String           streetName;
+        private String           city;
+        private String           postalCode;
+        private String           type;
+        private boolean          bedroomRange;
+        private int              minBedrooms;
+        private int              maxBedrooms;
+        private boolean          squareFootageLimit;
+        private int              minSquareFootage;
+
+        private final EnumSet<Amenity>                  amenities;
+        private final List<Predicate<? super Property>> predicates;
+
+        private Builder()
+        {
+            amenities  = EnumSet.noneOf(Amenity.class);
+            predicates = new ArrayList<>();
+        }
+
+        /**
+         * @param propertyId is the property id to match (case insensitive, as in Agency.getProperty()).
+         * @return this builder.
+         * @throws NullPointerException if property id is null.
+         */
+        public Builder propertyId(final String propertyId) throws NullPointerException
+        {
+            if(propertyId == null)
+            {
+                throw new NullPointerException("Invalid property id: null");
+            }
+
+            this.propertyId = propertyId;
+
+            return this;
+        }
+
+        /**
+         * @param minUsd minimum price in USD.
+         * @param maxUsd maximum price in USD.
+         * @return this builder.
+         * @throws IllegalArgumentException if minUsd is greater than maxUsd.
+         */
+        public Builder priceBetween(final int minUsd, final int maxUsd) throws IllegalArgumentException
+        {
+            if(minUsd > maxUsd)
+            {
+                throw new IllegalArgumentException("Invalid price range: " + minUsd + ".." + maxUsd);
+            }
+
+            priceRange  = true;
+            minPriceUsd = minUsd;
+            maxPriceUsd = maxUsd;
+
+            return this;
+        }
+
+        /**
+         * @param streetName is the street name to match (case insensitive).
+         * @return this builder.
+         * @throws NullPointerException if street name is null.
+         */
+        public Builder on(final String streetName) throws NullPointerException
+        {
+            if(streetName == null)
+            {
+                throw new NullPointerException("Invalid street name: null");
+            }
+
+            this.streetName = streetName;
+
+            return this;
+        }
+
+        /**
+         * @param city is the city to match (case insensitive).
+         * @return this builder.
+         * @throws NullPointerException if city is null.
+         */
+        public Builder in(final String city) throws NullPointerException
+        {
+            if(city == null)
+            {
+                throw new NullPointerException("Invalid city: null");
+            }
+
+            this.city = city;
+
+            return this;
+        }
+
+        /**
+         * @param postalCode is the postal code to match (case insensitive).
+         * @return this builder.
+         * @throws NullPointerException if postal code is null.
+         */
+        public Builder postalCode(final String postalCode) throws NullPointerException
+        {
+            if(postalCode == null)
+            {
+                throw new NullPointerException("Invalid postal code: null");
+            }
+
+            this.postalCode = postalCode;
+
+            return this;
+        }
+
+        /**
+         * @param type is the type of property to match (case insensitive), as in Agency.getPropertiesOfType().
+         * @return this builder.
+         * @throws NullPointerException if type is null.
+         */
+        public Builder type(final String type) throws NullPointerException
+        {
+            if(type == null)
+            {
+                throw new NullPointerException("Invalid type: null");
+            }
+
+            this.type = type;
+
+            return this;
+        }
+
+        /**
+         * This criterion only matches Residence properties.
+         *
+         * @param minBedrooms is the minimum bedroom number.
+         * @param maxBedrooms is the maximum bedroom number.
+         * @return this builder.
+         * @throws IllegalArgumentException if minBedrooms is greater than maxBedrooms.
+         */
+        public Builder bedroomsBetween(final int minBedrooms, final int maxBedrooms) throws IllegalArgumentException
+        {
+            if(minBedrooms > maxBedrooms)
+            {
+                throw new IllegalArgumentException("Invalid bedroom range: " + minBedrooms + ".." + maxBedrooms);
+            }
+
+            bedroomRange     = true;
+            this.minBedrooms = minBedrooms;
+            this.maxBedrooms = maxBedrooms;
+
+            return this;
+        }
+
+        /**
+         * This criterion only matches Retail properties, as in Agency.getPropertiesWithSquareFootage().
+         *
+         * @param squareFootage is the minimum square footage.
+         * @return this builder.
+         */
+        public Builder minSquareFootage(final int squareFootage)
+        {
+            squareFootageLimit = true;
+            minSquareFootage   = squareFootage;
+
+            return this;
+        }
+
+        /**
+         * @param amenities are the amenities a property must all have.
+         * @return this builder.
+         * @throws NullPointerException if one of the amenities is null.
+         */
+        public Builder with(final Amenity... amenities) throws NullPointerException
+        {
+            this.amenities.addAll(Arrays.asList(amenities));
+
+            return this;
+        }
+
+        /**
+         * @param predicate is any other criterion. It's only checked on the candidates the planner has found.
+         * @return this builder.
+         * @throws NullPointerException if predicate is null.
+         */
+        public Builder where(final Predicate<? super Property> predicate) throws NullPointerException
+        {
+            if(predicate == null)
+            {
+                throw new NullPointerException("Invalid predicate: null");
+            }
+
+            predicates.add(predicate);
+
+            return this;
+        }
+
+        /**
+         * @return a new PropertyQuery with the criteria set so far.
+         */
+        public PropertyQuery build()
+        {
+            return new PropertyQuery(this);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * This is PropertyReader class.
@@ -12,6 +14,9 @@ import java.util.Scanner;
  */
 public class PropertyReader
 {
+    public static final String RESIDENCE  = "residence";
+    public static final String COMMERCIAL = "commercial";
+    public static final String RETAIL     = "retail";
 
     /**
      * This method reads the text file, and adds Strings (for each line) to an ArrayList<String> and then returns it.
@@ -25,20 +30,141 @@ public class PropertyReader
         ArrayList<String> propertyData;
         propertyData = new ArrayList<>();
 
-        String eachLine;
+        try(PipeDelimitedReader reader = new PipeDelimitedReader(file))
+        {
+            while(reader.nextLine())
+            {
+                propertyData.add(reader.line());
+            }
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return propertyData;
+    }
+
+    /**
+     * This method reads the text file, and creates a subtype object for each line, using the address at the same
+     * index of the addresses. Fields are parsed straight from the file, without splitting or lower-casing the lines.
+     * The file is read as one chunk, and recorded as one ReadChunkEvent.
+     *
+     * @param file is the text file that has property data.
+     * @param addresses are the addresses, in the same order as the lines of the file.
+     * @return an ArrayList of the Residence, Commercial and Retail objects of the file.
+     * @throws FileNotFoundException if file not found.
+     */
+    public static ArrayList<Property> readProperties(final File file, final List<Address> addresses)
+                                                     throws FileNotFoundException
+    {
+        ArrayList<Property> properties;
+        properties = new ArrayList<>();
+
+        ReadChunkEvent event;
+        event = new ReadChunkEvent();
+
+        event.begin();
+
+        try(PipeDelimitedReader reader = new PipeDelimitedReader(file))
+        {
+            while(reader.nextLine())
+            {
+                properties.add(readProperty(reader, addresses.get(properties.size())));
+            }
+        }
+        catch(FileNotFoundException e)
+        {
+            throw e;
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        event.commit(file, ReadChunkEvent.PROPERTY, Agency.NONE, file.length(), properties.size());
 
-        FileReader propertyFile = new FileReader(file);
-        Scanner    scanner      = new Scanner(propertyFile);
+        return properties;
+    }
 
-        while(scanner.hasNext())
+    /**
+     * @param reader is the reader, positioned on a line of property data.
+     * @param address is the address of the property.
+     * @return the Residence, Commercial or Retail of the current line of the reader.
+     */
+    public static Property readProperty(final PipeDelimitedReader reader, final Address address)
+    {
+        return readUnpairedProperty(reader).apply(address);
+    }
+
+    /**
+     * This method parses the current line of the reader before its address is known, for example by ParallelLoader,
+     * which reads the property file at the same time as the address file.
+     *
+     * @param reader is the reader, positioned on a line of property data.
+     * @return a function that creates the Residence, Commercial or Retail of the line with the address it's given.
+     *         The fields are checked by the constructor when it's applied.
+     */
+    public static Function<Address, Property> readUnpairedProperty(final PipeDelimitedReader reader)
+    {
+        // Properties with residence type in file property_data.txt
+        if((reader.fieldCount() > PropertyManager.RESIDENCE_TYPE) &&
+           reader.fieldEqualsIgnoreCase(PropertyManager.RESIDENCE_TYPE, RESIDENCE))
+        {
+            double   priceUsd    = reader.doubleField(PropertyManager.RESIDENCE_PRICE);
+            int      numBedrooms = reader.intField(PropertyManager.RESIDENCE_BEDROOMS);
+            boolean  pool        = reader.booleanField(PropertyManager.RESIDENCE_POOL);
+            String   type        = reader.sharedField(PropertyManager.RESIDENCE_TYPE, RESIDENCE);
+            String   id          = reader.field(PropertyManager.RESIDENCE_ID);
+            boolean  strata      = reader.booleanField(PropertyManager.RESIDENCE_STRATA);
+
+            return address -> new Residence(priceUsd, address, type, id, numBedrooms, pool, strata);
+        }
+        else if(reader.fieldEqualsIgnoreCase(PropertyManager.COMMERCIAL_TYPE, COMMERCIAL)) // Properties with commercial type
         {
-            eachLine = scanner.nextLine();
+            double  priceUsd    = reader.doubleField(PropertyManager.COMMERCIAL_PRICE);
+            String  type        = reader.sharedField(PropertyManager.COMMERCIAL_TYPE, COMMERCIAL);
+            String  id          = reader.field(PropertyManager.COMMERCIAL_ID);
+            boolean loading     = reader.booleanField(PropertyManager.COMMERCIAL_LOADING);
+            boolean highway     = reader.booleanField(PropertyManager.COMMERCIAL_HIGHWAY);
 
-            propertyData.add(eachLine);
+            return address -> new Commercial(priceUsd, address, type, id, loading, highway);
         }
+        else // Properties with retail type
+        {
+            double  priceUsd    = reader.doubleField(PropertyManager.RETAIL_PRICE);
+            String  type        = reader.sharedField(PropertyManager.RETAIL_TYPE, RETAIL);
+            String  id          = reader.field(PropertyManager.RETAIL_ID);
+            int     squareFoot  = reader.intField(PropertyManager.RETAIL_SQUARE_FOOT);
+            boolean customer    = reader.booleanField(PropertyManager.RETAIL_CUSTOMER_PARKING);
 
-        scanner.close();
+            return address -> new Retail(priceUsd, address, type, id, squareFoot, customer);
+        }
+    }
 
-        return propertyData;
+    /**
+     * @param reader is the reader, positioned on a line of property data.
+     * @return the property id of the current line of the reader, found the same way readProperty() finds it, but
+     *         without parsing or validating the other fields.
+     */
+    public static String readPropertyId(final PipeDelimitedReader reader)
+    {
+        if((reader.fieldCount() > PropertyManager.RESIDENCE_TYPE) &&
+           reader.fieldEqualsIgnoreCase(PropertyManager.RESIDENCE_TYPE, RESIDENCE))
+        {
+            return reader.field(PropertyManager.RESIDENCE_ID);
+        }
+        else if(reader.fieldEqualsIgnoreCase(PropertyManager.COMMERCIAL_TYPE, COMMERCIAL))
+        {
+            return reader.field(PropertyManager.COMMERCIAL_ID);
+        }
+        else
+        {
+            return reader.field(PropertyManager.RETAIL_ID);
+        }
     }
 }
@@ -0,0 +1,34 @@
+/**
+ * This is PropertyType enum. It names the types a property can have. The type String of a Property is resolved to a
+ * PropertyType once, when the property is made, so it's never compared as a String again. A Residence, Commercial or
+ * Retail has the PropertyType of its subtype, whatever its type String.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public enum PropertyType
+{
+    RESIDENCE,
+    COMMERCIAL,
+    RETAIL;
+
+    /**
+     * @param type is the type of a property (case insensitive), for example "Residence".
+     * @return the PropertyType named by type, or null if type is null or names no PropertyType.
+     */
+    public static PropertyType of(final String type)
+    {
+        if(type != null)
+        {
+            for(PropertyType propertyType: values())
+            {
+                if(propertyType.name().equalsIgnoreCase(type))
+                {
+                    return propertyType;
+                }
+            }
+        }
+
+        return null;
+    }
+}
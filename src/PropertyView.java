@@ -0,0 +1,74 @@
+/**
+ * This is PropertyView class. It's a read-only view of a Property, as handed out by the queries of an Agency instead
+ * of a copy. Its fields are the property's own, and its price is read from the property, so it sees every price
+ * change; but its price can't be set and it can't be listened to. Use mutableCopy() for a Property that can be
+ * changed.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public final class PropertyView extends Property
+{
+    private final Property target;
+
+    /**
+     * @param target is the property seen through this view.
+     */
+    PropertyView(final Property target)
+    {
+        super(target.getPriceUsd(), target.getAddress(), target.getType(), target.getPropertyId(), false);
+
+        this.target = target;
+    }
+
+    /**
+     * @return the price in USD of the property, as it is now.
+     */
+    @Override
+    public double getPriceUsd()
+    {
+        return target.getPriceUsd();
+    }
+
+    /**
+     * This method always throws, since a view is read-only.
+     *
+     * @param priceUsd is the price in USD.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void setPriceUsd(final double priceUsd) throws UnsupportedOperationException
+    {
+        throw new UnsupportedOperationException("Read-only view of property: " + getPropertyId());
+    }
+
+    /**
+     * This method always throws, since the price of a view never changes by itself.
+     *
+     * @param listener is the listener.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addPriceChangeListener(final PriceChangeListener listener) throws UnsupportedOperationException
+    {
+        throw new UnsupportedOperationException("Read-only view of property: " + getPropertyId());
+    }
+
+    /**
+     * @return this view.
+     */
+    @Override
+    public Property view()
+    {
+        return this;
+    }
+
+    /*
+     * A view is not owned by an agency, so an agency adds a mutable copy of it instead.
+     */
+    @Override
+    boolean isView()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * This is PropertyWriter class. It writes query results in a file format, CSV or JSON, to an Appendable such as a
+ * BufferedWriter, or a Writer over an NIO channel (see java.nio.channels.Channels.newWriter()).
+ *
+ * A result is written field by field, straight from the getters: Strings are copied as they are unless they need
+ * quoting or escaping, and ints and whole prices are written digit by digit, so no String is made for a row, as
+ * toString() would. A Writer is written through a buffer of BUFFER_SIZE characters, so it's called once per block
+ * rather than once per field, and needs no buffer of its own; any other Appendable, such as a StringBuilder, is
+ * appended to directly. So writing hundreds of thousands of rows costs little more than copying their characters.
+ *
+ * begin() starts the output, writeProperty() and writeAddress() write one row each, and end() finishes it;
+ * writeResult() does all three for the result of a query. What is left in the buffer is written to the Writer at the
+ * end of writeResult(), and by flush(). A PropertyWriter is not thread safe.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public abstract class PropertyWriter implements Flushable
+{
+    private final Appendable output;
+
+    // The output and its buffer, if it's a Writer; or null. Each call of a Writer takes a lock, and Writer.append()
+    // of a range makes a String of it first, so the characters are gathered here and written a block at a time.
+    private final Writer writer;
+    private final char[] buffer;
+
+    private int position;
+
+    // The digits of a long, written backwards by appendLong(), so it makes no String.
+    private final char[] digits;
+
+    private long rows;
+
+    public static final String CSV  = "csv";
+    public static final String JSON = "json";
+    public static final int    NONE = 0;
+
+    // The largest whole price written without Double.toString(); beyond it a double can not hold every long.
+    private static final double MAX_WHOLE_PRICE = 1e15;
+    private static final int    MAX_DIGITS      = 20;
+    private static final int    BUFFER_SIZE     = 8192;
+
+    /**
+     * This is the PropertyWriter constructor.
+     *
+     * @param output is where the results are written. It must be not null.
+     * @throws NullPointerException if output is null.
+     */
+    protected PropertyWriter(final Appendable output) throws NullPointerException
+    {
+        if(output == null)
+        {
+            throw new NullPointerException("Invalid output: null");
+        }
+
+        this.output = output;
+
+        writer = (output instanceof Writer) ? (Writer) output : null;
+        buffer = (writer != null) ? new char[BUFFER_SIZE] : null;
+        digits = new char[MAX_DIGITS];
+    }
+
+    /**
+     * @param format is CSV or JSON, case insensitive.
+     * @param output is where the results are written. It must be not null.
+     * @return a writer of the format.
+     * @throws IllegalArgumentException if the format is unknown.
+     * @throws NullPointerException if format or output is null.
+     */
+    public static PropertyWriter of(final String format, final Appendable output) throws IllegalArgumentException,
+                                                                                         NullPointerException
+    {
+        String name;
+        name = format.toLowerCase(Locale.ROOT);
+
+        if(name.equals(CSV))
+        {
+            return new CsvPropertyWriter(output);
+        }
+        else if(name.equals(JSON))
+        {
+            return new JsonPropertyWriter(output);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Invalid format: " + format);
+        }
+    }
+
+    /**
+     * This method writes the result of a query: begin(), one row per result, and end().
+     *
+     * @param result is the result of a query, as returned by BatchQueryRunner.execute(): a Property, an Address, an
+     *               array, a Collection or a Map of them, or null if there are no results.
+     * @return the number of rows written.
+     * @throws IOException if the output can not be written.
+     * @throws IllegalArgumentException if a result is neither a Property nor an Address.
+     */
+    public long writeResult(final Object result) throws IOException, IllegalArgumentException
+    {
+        Collection<?> results;
+        results = BatchQueryRunner.resultsOf(result);
+
+        long before = rows;
+
+        begin();
+
+        for(Object element: results)
+        {
+            if(element instanceof Property)
+            {
+                writeProperty((Property) element);
+            }
+            else if(element instanceof Address)
+            {
+                writeAddress((Address) element);
+            }
+            else
+            {
+                throw new IllegalArgumentException("Invalid result: " + element);
+            }
+        }
+
+        end();
+        drain();
+
+        return rows - before;
+    }
+
+    /**
+     * This method starts the output, before the first row.
+     *
+     * @throws IOException if the output can not be written.
+     */
+    public abstract void begin() throws IOException;
+
+    /**
+     * This method writes one property, with the fields of its subtype.
+     *
+     * @param property is the property. It must be not null.
+     * @throws IOException if the output can not be written.
+     */
+    public abstract void writeProperty(Property property) throws IOException;
+
+    /**
+     * This method writes one address, for the results of Agency.getPropertiesOn().
+     *
+     * @param address is the address. It must be not null.
+     * @throws IOException if the output can not be written.
+     */
+    public abstract void writeAddress(Address address) throws IOException;
+
+    /**
+     * This method finishes the output, after the last row. The output is not flushed.
+     *
+     * @throws IOException if the output can not be written.
+     */
+    public abstract void end() throws IOException;
+
+    /**
+     * @return the number of rows written so far.
+     */
+    public long getRowCount()
+    {
+        return rows;
+    }
+
+    /**
+     * This method writes what is left in the buffer to the Writer, and flushes the output, if it's Flushable.
+     *
+     * @throws IOException if the output can not be written or flushed.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        drain();
+
+        if(output instanceof Flushable)
+        {
+            ((Flushable) output).flush();
+        }
+    }
+
+    /**
+     * This method counts one row written. Subclasses call it once for each property or address.
+     */
+    protected void countRow()
+    {
+        rows++;
+    }
+
+    /**
+     * This method appends the digits of a long, without making a String.
+     *
+     * @param value is the number.
+     * @throws IOException if the output can not be written.
+     */
+    protected void appendLong(final long value) throws IOException
+    {
+        if(value == Long.MIN_VALUE)
+        {
+            append(Long.toString(value));
+
+            return;
+        }
+
+        long rest  = Math.abs(value);
+        int  first = digits.length;
+
+        do
+        {
+            digits[--first] = (char) ('0' + (rest % 10));
+            rest           /= 10;
+        }
+        while(rest != NONE);
+
+        if(value < NONE)
+        {
+            append('-');
+        }
+
+        if(buffer != null)
+        {
+            if(position + (digits.length - first) > buffer.length)
+            {
+                drain();
+            }
+
+            System.arraycopy(digits, first, buffer, position, digits.length - first);
+
+            position += digits.length - first;
+        }
+        else
+        {
+            for(int i = first; i < digits.length; i++)
+            {
+                output.append(digits[i]);
+            }
+        }
+    }
+
+    /**
+     * This method appends a price: a whole price as a long, without making a String, and any other price as
+     * Double.toString() does.
+     *
+     * @param priceUsd is the price.
+     * @throws IOException if the output can not be written.
+     */
+    protected void appendPrice(final double priceUsd) throws IOException
+    {
+        if((priceUsd == Math.rint(priceUsd)) && (Math.abs(priceUsd) < MAX_WHOLE_PRICE))
+        {
+            appendLong((long) priceUsd);
+        }
+        else
+        {
+            append(Double.toString(priceUsd));
+        }
+    }
+
+    /**
+     * This method appends the characters start to end - 1 of the text, without making a String of them.
+     *
+     * @param text is the text.
+     * @param start is the index of the first character.
+     * @param end is the index after the last character.
+     * @throws IOException if the output can not be written.
+     */
+    protected void appendRange(final String text, final int start, final int end) throws IOException
+    {
+        if(buffer == null)
+        {
+            output.append(text, start, end);
+
+            return;
+        }
+
+        for(int from = start; from < end; )
+        {
+            if(position == buffer.length)
+            {
+                drain();
+            }
+
+            int count = Math.min(end - from, buffer.length - position);
+
+            text.getChars(from, from + count, buffer, position);
+
+            position += count;
+            from     += count;
+        }
+    }
+
+    /**
+     * This method appends the text.
+     *
+     * @param text is the text. It must be not null.
+     * @throws IOException if the output can not be written.
+     */
+    protected void append(final String text) throws IOException
+    {
+        appendRange(text, NONE, text.length());
+    }
+
+    /**
+     * This method appends one character.
+     *
+     * @param c is the character.
+     * @throws IOException if the output can not be written.
+     */
+    protected void append(final char c) throws IOException
+    {
+        if(buffer == null)
+        {
+            output.append(c);
+
+            return;
+        }
+
+        if(position == buffer.length)
+        {
+            drain();
+        }
+
+        buffer[position++] = c;
+    }
+
+    /**
+     * This method appends a boolean as true or false.
+     *
+     * @param value is the boolean.
+     * @throws IOException if the output can not be written.
+     */
+    protected void appendBoolean(final boolean value) throws IOException
+    {
+        append(value ? "true" : "false");
+    }
+
+    /*
+     * Writes the characters in the buffer to the Writer, and empties the buffer.
+     */
+    private void drain() throws IOException
+    {
+        if(position > NONE)
+        {
+            writer.write(buffer, NONE, position);
+
+            position = NONE;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This is QueryCache class. It keeps the results of the latest queries of an Agency, so a query that is asked again
+ * before anything changes is answered from memory.
+ *
+ * Every result is stamped with the generation of the agency it was computed at; the agency counts its changes in
+ * its generation. When a query is asked at a newer generation, every result of an older one is dropped at once. A
+ * result computed at an older generation than the newest one seen is not kept at all, since the agency may have
+ * changed while it was computed.
+ *
+ * The cache is bounded by the number of results and by their total weight (the number of elements they hold). The
+ * least recently used results are evicted first.
+ *
+ * It takes no lock, so the queries of a ConcurrentAgency stay lock free: the results of the newest generation are
+ * kept in a ConcurrentHashMap, and a newer generation swaps in an empty map with one compare-and-set rather than
+ * clearing the old one, which is left to the garbage collector. Recency is read from a clock that only advances when
+ * a result is kept, so a hit writes no shared counter, and writes its result's recency only if the clock has moved
+ * since; the results used between two misses are equally recent. An eviction looks for the least recently used
+ * result, which costs a scan of the results, but only happens after a miss has run its query.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class QueryCache
+{
+    private final int  maxEntries;
+    private final long maxWeight;
+
+    private final AtomicReference<Table> table;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    public static final int  DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_WEIGHT  = 1_000_000;
+    public static final int  MIN_MAX_ENTRIES     = 1;
+    public static final long MIN_MAX_WEIGHT      = 1;
+    public static final int  NONE                = 0;
+
+    /**
+     * This is the QueryCache constructor. It uses DEFAULT_MAX_ENTRIES and DEFAULT_MAX_WEIGHT.
+     */
+    public QueryCache()
+    {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxEntries is the maximum number of results. It must be not less than MIN_MAX_ENTRIES.
+     * @param maxWeight is the maximum total weight of the results. It must be not less than MIN_MAX_WEIGHT.
+     * @throws IllegalArgumentException if maxEntries or maxWeight is out of range.
+     */
+    public QueryCache(final int maxEntries, final long maxWeight) throws IllegalArgumentException
+    {
+        if(maxEntries < MIN_MAX_ENTRIES)
+        {
+            throw new IllegalArgumentException("Invalid maximum entries: " + maxEntries);
+        }
+
+        if(maxWeight < MIN_MAX_WEIGHT)
+        {
+            throw new IllegalArgumentException("Invalid maximum weight: " + maxWeight);
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxWeight  = maxWeight;
+
+        table     = new AtomicReference<>(new Table(NONE));
+        hits      = new LongAdder();
+        misses    = new LongAdder();
+        evictions = new LongAdder();
+    }
+
+    /**
+     * @param key is the key of the query: its kind and its parameters.
+     * @param generation is the current generation of the agency.
+     * @return the result of the query computed at this generation, or null if there is none.
+     */
+    public Object get(final Object key, final long generation)
+    {
+        Table current;
+        current = tableAt(generation);
+
+        Entry entry;
+        entry = (generation == current.generation) ? current.entries.get(key) : null;
+
+        if(entry == null)
+        {
+            misses.increment();
+
+            return null;
+        }
+
+        long now = current.clock.get();
+
+        if(entry.lastUsed != now)
+        {
+            entry.lastUsed = now;
+        }
+
+        hits.increment();
+
+        return entry.result;
+    }
+
+    /**
+     * This method keeps the result of the query, unless it was computed at an older generation than the newest one
+     * seen, or it's heavier than the cache.
+     *
+     * @param key is the key of the query: its kind and its parameters.
+     * @param result is the result. It must be not null, and must not be changed after this call.
+     * @param resultWeight is the weight of the result, usually the number of elements it holds.
+     * @param generation is the generation of the agency when the query started.
+     */
+    public void put(final Object key, final Object result, final long resultWeight, final long generation)
+    {
+        Table current;
+        current = tableAt(generation);
+
+        if((generation != current.generation) || (resultWeight > maxWeight))
+        {
+            return;
+        }
+
+        Entry entry;
+        entry = new Entry(result, resultWeight, current.clock.incrementAndGet());
+
+        Entry replaced;
+        replaced = current.entries.put(key, entry);
+
+        current.weight.addAndGet(resultWeight - ((replaced == null) ? NONE : replaced.weight));
+
+        while((current.entries.size() > maxEntries) || (current.weight.get() > maxWeight))
+        {
+            if(!evictFrom(current))
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * This method drops every result.
+     */
+    public void clear()
+    {
+        Table current;
+        current = table.get();
+
+        table.compareAndSet(current, new Table(current.generation));
+    }
+
+    /**
+     * @return the number of results kept.
+     */
+    public int size()
+    {
+        return table.get().entries.size();
+    }
+
+    /**
+     * @return the number of queries answered from the cache.
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of queries that were not in the cache.
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of results evicted to stay within the bounds.
+     */
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the share of queries answered from the cache, between 0 and 1, or NaN if there were no queries.
+     */
+    public double getHitRate()
+    {
+        long hitCount = hits.sum();
+        long queries  = hitCount + misses.sum();
+
+        return (queries == NONE) ? Double.NaN : (double) hitCount / queries;
+    }
+
+    /**
+     * @return the statistics of the cache as a String.
+     */
+    @Override
+    public String toString()
+    {
+        Table current;
+        current = table.get();
+
+        return "QueryCache ["  +
+                "size="        + current.entries.size() +
+                ", weight="    + current.weight.get()   +
+                ", hits="      + getHits()              +
+                ", misses="    + getMisses()            +
+                ", evictions=" + getEvictions()         +
+                ", hitRate="   + getHitRate()           +
+                ']';
+    }
+
+    /*
+     * Returns the table of the generation, swapping in an empty one if the generation is newer than the newest one
+     * seen; or the table of a newer generation, if there is one.
+     */
+    private Table tableAt(final long generation)
+    {
+        Table current;
+        current = table.get();
+
+        while(generation > current.generation)
+        {
+            Table newer;
+            newer = new Table(generation);
+
+            if(table.compareAndSet(current, newer))
+            {
+                return newer;
+            }
+
+            current = table.get();
+        }
+
+        return current;
+    }
+
+    /*
+     * Evicts the least recently used result of the table. Returns false if the table is empty.
+     */
+    private boolean evictFrom(final Table current)
+    {
+        Map.Entry<Object, Entry> eldest = null;
+
+        for(Map.Entry<Object, Entry> candidate: current.entries.entrySet())
+        {
+            if((eldest == null) || (candidate.getValue().lastUsed < eldest.getValue().lastUsed))
+            {
+                eldest = candidate;
+            }
+        }
+
+        if(eldest == null)
+        {
+            return false;
+        }
+
+        // Another thread may have evicted or replaced it meanwhile; then it's not counted twice.
+        if(current.entries.remove(eldest.getKey(), eldest.getValue()))
+        {
+            current.weight.addAndGet(-eldest.getValue().weight);
+            evictions.increment();
+        }
+
+        return true;
+    }
+
+    /*
+     * The results of one generation, their total weight, and the clock their recency is read from.
+     */
+    private static final class Table
+    {
+        private final long                             generation;
+        private final ConcurrentHashMap<Object, Entry> entries;
+        private final AtomicLong                       weight;
+        private final AtomicLong                       clock;
+
+        private Table(final long generation)
+        {
+            this.generation = generation;
+
+            entries = new ConcurrentHashMap<>();
+            weight  = new AtomicLong();
+            clock   = new AtomicLong();
+        }
+    }
+
+    /*
+     * A result, its weight, and the clock of its table when it was last used.
+     */
+    private static final class Entry
+    {
+        private final Object result;
+        private final long   weight;
+
+        private volatile long lastUsed;
+
+        private Entry(final Object result, final long weight, final long lastUsed)
+        {
+            this.result   = result;
+            this.weight   = weight;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * This is QueryClient class. It's a client of a QueryServer on this machine: query() sends one line of the script
+ * format of BatchQueryRunner, and returns the lines of its answer. send() and receive() do the same in two steps, so
+ * several queries can be sent before their answers are read.
+ *
+ * Its main method sends each query given on the command line, or else each line of standard input, and prints the
+ * answers:
+ *
+ *     java QueryClient [--port port] ["price|100000|600000" ...]
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class QueryClient implements Closeable
+{
+    private final Socket         socket;
+    private final BufferedReader input;
+    private final Writer         output;
+
+    public static final String PORT_OPTION = "--port";
+
+    /**
+     * This is the QueryClient constructor. It connects to the QueryServer on the port of the loopback interface.
+     *
+     * @param port is the port of the server.
+     * @throws IOException if the server can not be connected to.
+     */
+    public QueryClient(final int port) throws IOException
+    {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+
+        socket.setTcpNoDelay(true);
+
+        input  = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param query is one query, in the script format of BatchQueryRunner.
+     * @return the lines of the answer. The last line is the number of results, or an error.
+     * @throws IOException if the connection fails or is closed.
+     */
+    public ArrayList<String> query(final String query) throws IOException
+    {
+        send(query);
+
+        return receive();
+    }
+
+    /**
+     * This method sends the query without waiting for its answer.
+     *
+     * @param query is one query, in the script format of BatchQueryRunner. It must be on one line.
+     * @throws IOException if the connection fails or is closed.
+     * @throws IllegalArgumentException if the query has more than one line.
+     */
+    public void send(final String query) throws IOException, IllegalArgumentException
+    {
+        if((query.indexOf('\n') != -1) || (query.indexOf('\r') != -1))
+        {
+            throw new IllegalArgumentException("Invalid query: " + query);
+        }
+
+        output.write(query);
+        output.write('\n');
+        output.flush();
+    }
+
+    /**
+     * @return the lines of the answer to the oldest query sent whose answer has not been received.
+     * @throws IOException if the connection fails, or is closed before the answer ends.
+     */
+    public ArrayList<String> receive() throws IOException
+    {
+        ArrayList<String> lines;
+        lines = new ArrayList<>();
+
+        for(String line = input.readLine(); line != null; line = input.readLine())
+        {
+            lines.add(line);
+
+            if(BatchQueryRunner.isLastLine(line))
+            {
+                return lines;
+            }
+        }
+
+        throw new IOException("Connection closed by the server");
+    }
+
+    /**
+     * This method sends QueryServer.QUIT, and closes the connection.
+     *
+     * @throws IOException if the connection can not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            send(QueryServer.QUIT);
+        }
+        catch(IOException e)
+        {
+            // The server has already closed the connection.
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    /**
+     * This method sends the queries to the server, and prints their answers.
+     *
+     * @param args are PORT_OPTION and the port, if it's not QueryServer.DEFAULT_PORT, and the queries; with no
+     *             queries, each line of standard input is a query.
+     */
+    public static void main(String[] args)
+    {
+        int port = QueryServer.DEFAULT_PORT;
+
+        ArrayList<String> queries;
+        queries = new ArrayList<>();
+
+        for(int i = 0; i < args.length; i++)
+        {
+            if(args[i].equals(PORT_OPTION) && (i + 1 < args.length))
+            {
+                try
+                {
+                    port = Integer.parseInt(args[++i]);
+                }
+                catch(NumberFormatException e)
+                {
+                    System.out.println("\n>> Error! Invalid port: " + args[i]);
+
+                    return;
+                }
+            }
+            else
+            {
+                queries.add(args[i]);
+            }
+        }
+
+        try(QueryClient client = new QueryClient(port))
+        {
+            if(queries.isEmpty())
+            {
+                BufferedReader lines;
+                lines = new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()));
+
+                for(String line = lines.readLine(); line != null; line = lines.readLine())
+                {
+                    if(!line.trim().isEmpty())
+                    {
+                        print(client.query(line));
+                    }
+                }
+            }
+            else
+            {
+                for(String query: queries)
+                {
+                    print(client.query(query));
+                }
+            }
+        }
+        catch(IOException e)
+        {
+            System.out.println("\n>> Error! " + e.getMessage());
+        }
+    }
+
+    /*
+     * Prints the lines of an answer.
+     */
+    private static void print(final ArrayList<String> lines)
+    {
+        for(String line: lines)
+        {
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This is QueryEvent class. It's the JDK Flight Recorder event of one query of an Agency: getProperty(), find(), or
+ * one of the query methods. Its duration is the time the query took, hit or miss.
+ *
+ * Rows scanned is the number of rows the query read to compute its result: the rows of the partition or street it
+ * scans, or the candidates of the access path of find(). A query read straight from an index or a bitmap scans only
+ * the rows it returns, and a query answered from the query cache scans none. The generation is the number of changes
+ * made to the agency when the query ran, so a slow query can be matched with the changes before it.
+ *
+ * While no recording is running, an event is not committed, and costs about as much as the allocation of an empty
+ * object, which escape analysis usually removes. A query that must not pay even that checks isRecorded() first.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+@Name(QueryEvent.NAME)
+@Label("Agency Query")
+@Category({"Property Manager", "Queries"})
+@Description("A query of an Agency, with its parameters and the rows it scanned and returned")
+public class QueryEvent extends Event
+{
+    public static final String NAME = "PropertyManager.Query";
+
+    private static final EventType TYPE = EventType.getEventType(QueryEvent.class);
+
+    @Label("Agency")
+    String agency;
+
+    @Label("Kind")
+    @Description("The name of the query method")
+    String kind;
+
+    @Label("Parameters")
+    String parameters;
+
+    @Label("Rows Scanned")
+    long rowsScanned;
+
+    @Label("Rows Returned")
+    long rowsReturned;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    @Label("Generation")
+    @Description("The number of changes made to the agency when the query ran")
+    long generation;
+
+    /**
+     * @return true, if a running recording has this event enabled; otherwise, returns false.
+     */
+    public static boolean isRecorded()
+    {
+        return TYPE.isEnabled();
+    }
+}
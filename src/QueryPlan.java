@@ -0,0 +1,95 @@
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * This is QueryPlan class. It's the plan a QueryPlanner has picked for a PropertyQuery: the access path that finds
+ * the first candidates, and the estimated number of candidates of each access path the query could have used. Every
+ * candidate is then checked against the whole query.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public final class QueryPlan
+{
+    private final PropertyQuery                query;
+    private final AccessPath                   accessPath;
+    private final EnumMap<AccessPath, Integer> estimates;
+
+    /**
+     * @param query is the query.
+     * @param accessPath is the access path picked. It must be one of the keys of estimates.
+     * @param estimates is the estimated number of candidates of each access path the query could use.
+     */
+    public QueryPlan(final PropertyQuery query, final AccessPath accessPath, final Map<AccessPath, Integer> estimates)
+    {
+        this.query      = query;
+        this.accessPath = accessPath;
+        this.estimates  = new EnumMap<>(estimates);
+    }
+
+    /**
+     * @return the query.
+     */
+    public PropertyQuery getQuery()
+    {
+        return query;
+    }
+
+    /**
+     * @return the access path that finds the first candidates.
+     */
+    public AccessPath getAccessPath()
+    {
+        return accessPath;
+    }
+
+    /**
+     * @return the estimated number of candidates of the access path picked.
+     */
+    public int getEstimatedRows()
+    {
+        return estimates.get(accessPath);
+    }
+
+    /**
+     * @return the estimated number of candidates of each access path the query could use.
+     */
+    public EnumMap<AccessPath, Integer> getEstimates()
+    {
+        return new EnumMap<>(estimates);
+    }
+
+    /**
+     * @return the plan as a few lines of text: the query, the access path picked, and the access paths considered.
+     */
+    public String explain()
+    {
+        StringBuilder text;
+        text = new StringBuilder();
+
+        text.append("query:    ").append(query).append('\n');
+        text.append("access:   ").append(accessPath).append(" (").append(accessPath.getDescription())
+            .append("), about ").append(getEstimatedRows()).append(" candidates\n");
+        text.append("filter:   every candidate is checked against the whole query\n");
+        text.append("considered:");
+
+        for(Map.Entry<AccessPath, Integer> estimate: estimates.entrySet())
+        {
+            text.append(' ').append(estimate.getKey()).append('=').append(estimate.getValue());
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * @return the plan as a String.
+     */
+    @Override
+    public String toString()
+    {
+        return "QueryPlan ["   +
+                "accessPath="  + accessPath +
+                ", estimates=" + estimates  +
+                ']';
+    }
+}
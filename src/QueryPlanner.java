@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * This is QueryPlanner class. It picks, for a PropertyQuery, the access path of an Agency that should find the
+ * fewest candidates, and then checks only those candidates against the whole query.
+ *
+ * The number of candidates of each access path is estimated without building them: an id lookup finds at most one;
+ * the street index and the amenity bitmaps are counted; a price range is interpolated between the minimum and maximum
+ * price of the running aggregates, as if prices were spread evenly. A full scan finds every property, and is only
+ * picked when the query uses no index, or no index would find fewer. When two estimates are equal, the access path
+ * declared first in AccessPath wins.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class QueryPlanner
+{
+    private final Agency agency;
+    private long         rowsScanned;
+
+    public static final int NONE = 0;
+
+    /**
+     * @param agency is the agency the queries are run on.
+     * @throws NullPointerException if agency is null.
+     */
+    public QueryPlanner(final Agency agency) throws NullPointerException
+    {
+        if(agency == null)
+        {
+            throw new NullPointerException("Invalid agency: null");
+        }
+
+        this.agency = agency;
+        rowsScanned = NONE;
+    }
+
+    /**
+     * @param query is the query.
+     * @return the plan for the query.
+     * @throws NullPointerException if query is null.
+     */
+    public QueryPlan plan(final PropertyQuery query) throws NullPointerException
+    {
+        if(query == null)
+        {
+            throw new NullPointerException("Invalid query: null");
+        }
+
+        EnumMap<AccessPath, Integer> estimates;
+        estimates = new EnumMap<>(AccessPath.class);
+
+        if(query.getPropertyId() != null)
+        {
+            estimates.put(AccessPath.ID_LOOKUP, 1);
+        }
+
+        if(query.getStreetName() != null)
+        {
+            estimates.put(AccessPath.STREET_INDEX, agency.countPropertiesOn(query.getStreetName()));
+        }
+
+        if(!query.getAmenities().isEmpty())
+        {
+            estimates.put(AccessPath.AMENITY_BITMAP, countWithAll(query.getAmenities()));
+        }
+
+        if(query.hasPriceRange())
+        {
+            estimates.put(AccessPath.PRICE_RANGE, estimateBetween(query.getMinPriceUsd(), query.getMaxPriceUsd()));
+        }
+
+        estimates.put(AccessPath.FULL_SCAN, agency.getAggregates().getCount());
+
+        AccessPath best = AccessPath.FULL_SCAN;
+
+        for(Map.Entry<AccessPath, Integer> estimate: estimates.entrySet())
+        {
+            if(estimate.getValue() < estimates.get(best))
+            {
+                best = estimate.getKey();
+            }
+        }
+
+        return new QueryPlan(query, best, estimates);
+    }
+
+    /**
+     * @param plan is the plan, as returned by plan().
+     * @return an ArrayList<Property> of the properties that match the query of the plan. It's empty if there are none.
+     */
+    public ArrayList<Property> execute(final QueryPlan plan)
+    {
+        PropertyQuery query;
+        query = plan.getQuery();
+
+        ArrayList<Property> candidates;
+
+        switch(plan.getAccessPath())
+        {
+            case ID_LOOKUP:
+                candidates = new ArrayList<>();
+                candidates.add(agency.findProperty(query.getPropertyId()));
+                break;
+            case STREET_INDEX:
+                candidates = agency.findPropertiesOnStreet(query.getStreetName());
+                break;
+            case AMENITY_BITMAP:
+                candidates = agency.findPropertiesWithAll(query.getAmenities().toArray(new Amenity[NONE]));
+                break;
+            case PRICE_RANGE:
+                Property[] inRange;
+                inRange = agency.findPropertiesBetween(query.getMinPriceUsd(), query.getMaxPriceUsd());
+
+                candidates = (inRange == null) ? new ArrayList<>() : new ArrayList<>(Arrays.asList(inRange));
+                break;
+            default: // FULL_SCAN
+                candidates = agency.getAllProperties();
+                break;
+        }
+
+        rowsScanned = candidates.size();
+
+        ArrayList<Property> matches;
+        matches = new ArrayList<>();
+
+        for(Property candidate: candidates)
+        {
+            if(query.matches(candidate))
+            {
+                matches.add(candidate);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * @return the number of candidates the last execute() checked against its query.
+     */
+    public long getRowsScanned()
+    {
+        return rowsScanned;
+    }
+
+    /**
+     * @param plan is the plan, as returned by plan().
+     * @return a lazy Stream of the properties that match the query of the plan. Only the candidates of its access
+     *         path are read, and only as far as the stream is consumed.
+     */
+    public Stream<Property> stream(final QueryPlan plan)
+    {
+        PropertyQuery query;
+        query = plan.getQuery();
+
+        Stream<Property> candidates;
+
+        switch(plan.getAccessPath())
+        {
+            case ID_LOOKUP:
+                candidates = Stream.ofNullable(agency.findProperty(query.getPropertyId()));
+                break;
+            case STREET_INDEX:
+                candidates = agency.findPropertiesOnStreet(query.getStreetName()).stream();
+                break;
+            case AMENITY_BITMAP:
+                candidates = agency.streamPropertiesWithAll(query.getAmenities().toArray(new Amenity[NONE]));
+                break;
+            case PRICE_RANGE:
+                candidates = agency.streamPropertiesBetween(query.getMinPriceUsd(), query.getMaxPriceUsd());
+                break;
+            default: // FULL_SCAN
+                candidates = agency.stream();
+                break;
+        }
+
+        return candidates.filter(query::matches);
+    }
+
+    /*
+     * Counts the properties that have all of the amenities, from the amenity bitmaps.
+     */
+    private int countWithAll(final EnumSet<Amenity> amenities)
+    {
+        Bitmap matches = null;
+
+        for(Amenity amenity: amenities)
+        {
+            matches = (matches == null) ? agency.getAmenityBitmap(amenity) : matches.and(agency.getAmenityBitmap(amenity));
+        }
+
+        return (matches == null) ? NONE : matches.cardinality();
+    }
+
+    /*
+     * Estimates the properties whose price falls in the range, as the share of the range between the minimum and
+     * maximum price that it covers. A range that covers any price is estimated at one property at least.
+     */
+    private int estimateBetween(final int minUsd, final int maxUsd)
+    {
+        PriceStatistics statistics;
+        statistics = agency.getAggregates().getStatistics();
+
+        double low  = Math.max(minUsd, statistics.getMinUsd());
+        double high = Math.min(maxUsd, statistics.getMaxUsd());
+
+        if((statistics.getCount() == NONE) || (low > high))
+        {
+            return NONE;
+        }
+
+        double spread = statistics.getMaxUsd() - statistics.getMinUsd();
+
+        if(spread == NONE)
+        {
+            return statistics.getCount();
+        }
+
+        return (int) Math.max(1, Math.ceil(statistics.getCount() * (high - low) / spread));
+    }
+}
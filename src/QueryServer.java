@@ -0,0 +1,257 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This is QueryServer class. It serves the queries of one loaded Agency to many clients on the loopback interface,
+ * so they share it instead of each starting a JVM and loading the data files.
+ *
+ * The protocol is the script format of BatchQueryRunner, one query per line: the client writes a line such as
+ * "price|100000|600000", and the server answers with the lines BatchQueryRunner.runQuery() makes, the last of which
+ * is told apart by BatchQueryRunner.isLastLine(). A client may send its next query before the answer to the previous
+ * one is read. The line QUIT closes the connection. QueryClient speaks this protocol.
+ *
+ * Each connection is served on its own thread, which blocks on the socket between queries. On a Java with virtual
+ * threads (Java 21 or later), they are virtual threads, so thousands of idle or slow clients cost little memory and
+ * no platform threads. On an older Java, they are platform threads of a cached pool. The threads are daemon threads,
+ * and the answers are flushed once per query with Nagle's algorithm off, so a small answer is not held back.
+ *
+ * The agency must not change while it's served, except a ConcurrentAgency.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class QueryServer implements Closeable
+{
+    private final BatchQueryRunner runner;
+    private final ServerSocket     serverSocket;
+    private final ExecutorService  connections;
+    private final boolean          virtual;
+    private final Set<Socket>      clients;
+    private final Thread           acceptor;
+
+    public static final String QUIT         = "QUIT";
+    public static final int    DEFAULT_PORT = 7070;
+    public static final int    ANY_PORT     = 0;
+    public static final int    BACKLOG      = 4096;
+
+    // A query is one short line, so a small buffer is enough, and keeps thousands of connections small.
+    private static final int LINE_BUFFER_SIZE = 256;
+
+    /**
+     * This is the QueryServer constructor. It binds the port on the loopback interface, and starts accepting
+     * connections.
+     *
+     * @param agency is the agency whose queries are served. It must be not null.
+     * @param port is the port, or ANY_PORT to pick a free one (see getPort()).
+     * @throws NullPointerException if agency is null.
+     * @throws IOException if the port can not be bound.
+     */
+    public QueryServer(final Agency agency, final int port) throws NullPointerException, IOException
+    {
+        runner       = new BatchQueryRunner(agency);
+        serverSocket = new ServerSocket();
+        clients      = ConcurrentHashMap.newKeySet();
+
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+
+        ExecutorService virtualThreads;
+        virtualThreads = newVirtualThreadPerTaskExecutor();
+
+        virtual     = (virtualThreads != null);
+        connections = virtual ? virtualThreads : Executors.newCachedThreadPool(task ->
+        {
+            Thread thread;
+            thread = new Thread(task, "QueryServer connection");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        acceptor = new Thread(this::accept, "QueryServer acceptor");
+
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the port the server listens on.
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return true, if connections are served on virtual threads; otherwise, on platform threads, returns false.
+     */
+    public boolean isVirtual()
+    {
+        return virtual;
+    }
+
+    /**
+     * @return the number of clients connected now.
+     */
+    public int getClientCount()
+    {
+        return clients.size();
+    }
+
+    /**
+     * This method waits until the server is closed.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void awaitClose() throws InterruptedException
+    {
+        acceptor.join();
+    }
+
+    /**
+     * This method stops accepting connections, and closes every connection.
+     *
+     * @throws IOException if the server socket can not be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        serverSocket.close();
+
+        for(Socket client: clients)
+        {
+            closeQuietly(client);
+        }
+
+        connections.shutdownNow();
+    }
+
+    /**
+     * @return the host, the port, and whether connections are served on virtual threads, as a String.
+     */
+    @Override
+    public String toString()
+    {
+        return "QueryServer [" +
+                "address="   + serverSocket.getInetAddress().getHostAddress() +
+                ", port="    + getPort()                                       +
+                ", virtual=" + virtual                                         +
+                ", clients=" + clients.size()                                  +
+                ']';
+    }
+
+    /*
+     * Accepts connections until the server socket is closed, and hands each one to a thread of its own.
+     */
+    private void accept()
+    {
+        while(!serverSocket.isClosed())
+        {
+            try
+            {
+                Socket client;
+                client = serverSocket.accept();
+
+                client.setTcpNoDelay(true);
+                clients.add(client);
+
+                connections.execute(() -> serve(client));
+            }
+            catch(IOException e)
+            {
+                if(!serverSocket.isClosed())
+                {
+                    System.out.println("\n>> Error! Can not accept a connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /*
+     * Answers the queries of one client until it sends QUIT or closes the connection.
+     */
+    private void serve(final Socket client)
+    {
+        // The answers are streamed line by line, so a connection holds only its buffers, however large an answer.
+        try(BufferedReader input  = new BufferedReader(new InputStreamReader(client.getInputStream(),
+                                                                             StandardCharsets.UTF_8), LINE_BUFFER_SIZE);
+            Writer         output = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(),
+                                                                              StandardCharsets.UTF_8)))
+        {
+            for(String line = input.readLine(); line != null; line = input.readLine())
+            {
+                String query = line.trim();
+
+                if(query.equalsIgnoreCase(QUIT))
+                {
+                    break;
+                }
+
+                if(!query.isEmpty())
+                {
+                    runner.runQuery(query, output);
+                    output.flush();
+                }
+            }
+        }
+        catch(IOException e)
+        {
+            // The client closed the connection, or the server is closing.
+        }
+        finally
+        {
+            clients.remove(client);
+            closeQuietly(client);
+        }
+    }
+
+    /*
+     * Returns Executors.newVirtualThreadPerTaskExecutor() on a Java that has virtual threads, or null. It's called
+     * through reflection, so the server still compiles and runs on an older Java.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor()
+    {
+        try
+        {
+            Method factory;
+            factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch(ReflectiveOperationException | UnsupportedOperationException e)
+        {
+            // No virtual threads, or only as a preview feature that is not enabled.
+            return null;
+        }
+    }
+
+    /*
+     * Closes the socket, ignoring a failure, since there is nothing left to do with it.
+     */
+    private static void closeQuietly(final Socket socket)
+    {
+        try
+        {
+            socket.close();
+        }
+        catch(IOException e)
+        {
+            // Already closed.
+        }
+    }
+}
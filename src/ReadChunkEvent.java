@@ -0,0 +1,69 @@
+import java.io.File;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This is ReadChunkEvent class. It's the JDK Flight Recorder event of reading one chunk of a data file: a chunk of
+ * ParallelLoader, or the whole file read by AddressReader or PropertyReader. Its duration is the time the chunk took to
+ * read and parse, on the thread that read it.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+@Name(ReadChunkEvent.NAME)
+@Label("Read Chunk")
+@Category({"Property Manager", "Ingestion"})
+@Description("A chunk of an address or property data file, read and parsed")
+@StackTrace(false)
+public class ReadChunkEvent extends Event
+{
+    public static final String NAME     = "PropertyManager.ReadChunk";
+    public static final String ADDRESS  = "address";
+    public static final String PROPERTY = "property";
+
+    @Label("File")
+    String file;
+
+    @Label("Kind")
+    @Description("ADDRESS or PROPERTY")
+    String kind;
+
+    @Label("Start Offset")
+    @DataAmount
+    long start;
+
+    @Label("End Offset")
+    @DataAmount
+    long end;
+
+    @Label("Rows")
+    long rows;
+
+    /**
+     * This method fills in the event, and commits it if it's recorded.
+     *
+     * @param file is the data file.
+     * @param kind is ADDRESS or PROPERTY.
+     * @param start is the offset of the first byte of the chunk.
+     * @param end is the offset after the last byte of the chunk.
+     * @param rows is the number of rows read.
+     */
+    public void commit(final File file, final String kind, final long start, final long end, final long rows)
+    {
+        if(shouldCommit())
+        {
+            this.file  = file.getPath();
+            this.kind  = kind;
+            this.start = start;
+            this.end   = end;
+            this.rows  = rows;
+
+            commit();
+        }
+    }
+}
@@ -16,6 +16,8 @@ public class Residence extends Property
      * @param priceUsd is the price in USD for this property. It must be positive.
      * @param address is the address for this property. It must be not null.
      * @param type is the type of this property. It must be one of these(case insensitive): Commercial, Residence, or Retail.
+     *             Whichever it is, getPropertyType() is PropertyType.RESIDENCE, so the agencies index and query this
+     *             property as a residence.
      * @param propertyId is the property id for this property. Its length must be between MIN_PROPERTY_ID_LENGTH and
      *                   MAX_PROPERTY_ID_LENGTH characters.
      * @param numberOfBedrooms is number of bedrooms, and it must be not less than MIN_BEDROOM_NUM.
@@ -26,9 +28,23 @@ public class Residence extends Property
     public Residence(final double priceUsd, final Address address, final String type, final String propertyId,
                      final int numberOfBedrooms, final boolean swimmingPool, final boolean strata)
     {
-        super(priceUsd, address, type, propertyId);
+        this(priceUsd, address, type, propertyId, numberOfBedrooms, swimmingPool, strata, true);
+    }
+
+    /**
+     * This is the residence constructor for data that has already been validated, for example when an
+     * AgencySnapshot is read.
+     *
+     * The other parameters are the same as the public constructor's.
+     *
+     * @param validate is true to check the parameters as the public constructor does, or false to skip the checks.
+     */
+    Residence(final double priceUsd, final Address address, final String type, final String propertyId,
+              final int numberOfBedrooms, final boolean swimmingPool, final boolean strata, final boolean validate)
+    {
+        super(priceUsd, address, type, propertyId, validate, PropertyType.RESIDENCE);
 
-        if(numberOfBedrooms < MIN_BEDROOM_NUM)
+        if(validate && (numberOfBedrooms < MIN_BEDROOM_NUM))
         {
             throw new IllegalArgumentException("Invalid number of bedroom: " + numberOfBedrooms);
         }
@@ -62,6 +78,27 @@ public class Residence extends Property
         return strata;
     }
 
+    /**
+     * @return a read-only view of this residence. It reads the price of this residence as it changes, but its own price
+     *         can't be set.
+     */
+    @Override
+    public Residence view()
+    {
+        return (Residence) super.view();
+    }
+
+    /**
+     * @return a new Residence with the same fields and price as this one. It's not in any agency, so its price can be
+     *         set freely.
+     */
+    @Override
+    public Residence mutableCopy()
+    {
+        return new Residence(getPriceUsd(), getAddress(), getType(), getPropertyId(), numberOfBedrooms, swimmingPool,
+                             strata, false);
+    }
+
     /**
      * @return the state of Residence types.
      */
@@ -75,4 +112,13 @@ public class Residence extends Property
                 ", toString()="     + super.toString() +
                 ']';
     }
+
+    /*
+     * Makes the read-only view of this residence.
+     */
+    @Override
+    Property createView()
+    {
+        return new ResidenceView(this);
+    }
 }
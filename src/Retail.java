@@ -13,6 +13,8 @@ public class Retail extends Property
      * @param priceUsd is the price in USD for this property. It must be positive.
      * @param address is the address for this property. It must be not null.
      * @param type is the type of this property. It must be one of these(case insensitive): Commercial, Residence, or Retail.
+     *             Whichever it is, getPropertyType() is PropertyType.RETAIL, so the agencies index and query this
+     *             property as a retail.
      * @param propertyId is the property id for this property. Its length must be between MIN_PROPERTY_ID_LENGTH and
      *                   MAX_PROPERTY_ID_LENGTH characters.
      * @param squareFootage is the amount of floor space available.
@@ -21,7 +23,21 @@ public class Retail extends Property
     public Retail(final double priceUsd, final Address address, final String type, final String propertyId,
                   final int squareFootage, final boolean customerParking)
     {
-        super(priceUsd, address, type, propertyId);
+        this(priceUsd, address, type, propertyId, squareFootage, customerParking, true);
+    }
+
+    /**
+     * This is the retail constructor for data that has already been validated, for example when an
+     * AgencySnapshot is read.
+     *
+     * The other parameters are the same as the public constructor's.
+     *
+     * @param validate is true to check the parameters as the public constructor does, or false to skip the checks.
+     */
+    Retail(final double priceUsd, final Address address, final String type, final String propertyId,
+           final int squareFootage, final boolean customerParking, final boolean validate)
+    {
+        super(priceUsd, address, type, propertyId, validate, PropertyType.RETAIL);
 
         this.squareFootage   = squareFootage;
         this.customerParking = customerParking;
@@ -43,6 +59,26 @@ public class Retail extends Property
         return customerParking;
     }
 
+    /**
+     * @return a read-only view of this retail. It reads the price of this retail as it changes, but its own price
+     *         can't be set.
+     */
+    @Override
+    public Retail view()
+    {
+        return (Retail) super.view();
+    }
+
+    /**
+     * @return a new Retail with the same fields and price as this one. It's not in any agency, so its price can be
+     *         set freely.
+     */
+    @Override
+    public Retail mutableCopy()
+    {
+        return new Retail(getPriceUsd(), getAddress(), getType(), getPropertyId(), squareFootage, customerParking, false);
+    }
+
     /**
      * @return the state of Retails types.
      */
@@ -55,4 +91,13 @@ public class Retail extends Property
                 ", toString()="      + super.toString() +
                 ']';
     }
+
+    /*
+     * Makes the read-only view of this retail.
+     */
+    @Override
+    Property createView()
+    {
+        return new RetailView(this);
+    }
 }
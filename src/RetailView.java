@@ -0,0 +1,75 @@
+/**
+ * This is RetailView class. It's a read-only view of a Retail, as handed out by the queries of an Agency instead
+ * of a copy. Its fields are the retail's own, and its price is read from the retail, so it sees every price
+ * change; but its price can't be set and it can't be listened to. Use mutableCopy() for a Retail that can be
+ * changed.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public final class RetailView extends Retail
+{
+    private final Retail target;
+
+    /**
+     * @param target is the retail seen through this view.
+     */
+    RetailView(final Retail target)
+    {
+        super(target.getPriceUsd(), target.getAddress(), target.getType(), target.getPropertyId(),
+              target.getSquareFootage(), target.hasCustomerParking(), false);
+
+        this.target = target;
+    }
+
+    /**
+     * @return the price in USD of the retail, as it is now.
+     */
+    @Override
+    public double getPriceUsd()
+    {
+        return target.getPriceUsd();
+    }
+
+    /**
+     * This method always throws, since a view is read-only.
+     *
+     * @param priceUsd is the price in USD.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void setPriceUsd(final double priceUsd) throws UnsupportedOperationException
+    {
+        throw new UnsupportedOperationException("Read-only view of property: " + getPropertyId());
+    }
+
+    /**
+     * This method always throws, since the price of a view never changes by itself.
+     *
+     * @param listener is the listener.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addPriceChangeListener(final PriceChangeListener listener) throws UnsupportedOperationException
+    {
+        throw new UnsupportedOperationException("Read-only view of property: " + getPropertyId());
+    }
+
+    /**
+     * @return this view.
+     */
+    @Override
+    public Retail view()
+    {
+        return this;
+    }
+
+    /*
+     * A view is not owned by an agency, so an agency adds a mutable copy of it instead.
+     */
+    @Override
+    boolean isView()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * This is RowSpliterator class. It walks the rows of an Agency lazily, from a row number to the property at that row,
+ * so a stream built on it only reads the rows it's asked for: findFirst() or anyMatch() stop at the first match, and
+ * limit() stops after the first page. Empty rows are skipped.
+ *
+ * A RowSpliterator splits its range of rows in halves, down to MIN_SPLIT_ROWS rows, so a parallel stream over a large
+ * agency is spread over every core. With a Bitmap, only the rows set in the bitmap are read.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class RowSpliterator implements Spliterator<Property>
+{
+    private final IntFunction<? extends Property> rows;
+    private final Bitmap                          bitmap;
+    private final int                             fence;
+
+    private int index;
+
+    public static final int MIN_SPLIT_ROWS = 1024;
+
+    /**
+     * @param rows gives the property at a row, or null if the row is empty.
+     * @param bitmap is the bitmap of the rows to read, or null to read every row. It must not change while the rows
+     *               are read.
+     * @param origin is the first row.
+     * @param fence is the row after the last row.
+     */
+    public RowSpliterator(final IntFunction<? extends Property> rows, final Bitmap bitmap, final int origin,
+                          final int fence)
+    {
+        this.rows   = rows;
+        this.bitmap = bitmap;
+        this.index  = origin;
+        this.fence  = fence;
+    }
+
+    /**
+     * @param action is the action run on the next property.
+     * @return true, if there was a next property; otherwise, returns false.
+     */
+    @Override
+    public boolean tryAdvance(final Consumer<? super Property> action)
+    {
+        while((index = nextRow(index)) < fence)
+        {
+            Property property;
+            property = rows.apply(index++);
+
+            if(property != null)
+            {
+                action.accept(property);
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param action is the action run on each remaining property.
+     */
+    @Override
+    public void forEachRemaining(final Consumer<? super Property> action)
+    {
+        int row = index;
+
+        index = fence;
+
+        while((row = nextRow(row)) < fence)
+        {
+            Property property;
+            property = rows.apply(row++);
+
+            if(property != null)
+            {
+                action.accept(property);
+            }
+        }
+    }
+
+    /**
+     * @return a RowSpliterator over the first half of the remaining rows, or null if there are too few to split.
+     */
+    @Override
+    public Spliterator<Property> trySplit()
+    {
+        if((fence - index) < (2 * MIN_SPLIT_ROWS))
+        {
+            return null;
+        }
+
+        int middle = (index + fence) >>> 1;
+
+        RowSpliterator prefix;
+        prefix = new RowSpliterator(rows, bitmap, index, middle);
+
+        index = middle;
+
+        return prefix;
+    }
+
+    /**
+     * @return the number of remaining rows. Empty rows and rows not set in the bitmap are counted too.
+     */
+    @Override
+    public long estimateSize()
+    {
+        return fence - index;
+    }
+
+    /**
+     * @return ORDERED and NONNULL: the properties come in row order, and none is null.
+     */
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | NONNULL;
+    }
+
+    /*
+     * Returns the first row from the given one that is to be read, or the fence if there is none.
+     */
+    private int nextRow(final int row)
+    {
+        if((bitmap == null) || (row >= fence))
+        {
+            return row;
+        }
+
+        int next = bitmap.nextSetBit(row);
+
+        return ((next == Bitmap.NOT_FOUND) || (next > fence)) ? fence : next;
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+
+/**
+ * This is StreetIndex class. It keeps properties grouped by their case-folded street name, so all properties on a
+ * street are found with a single hash probe.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class StreetIndex
+{
+    private final HashMap<String, LinkedHashSet<Property>> propertiesByStreet;
+
+    /**
+     * This is the StreetIndex constructor. It creates an empty index.
+     */
+    public StreetIndex()
+    {
+        propertiesByStreet = new HashMap<>();
+    }
+
+    /**
+     * This method adds the non-null property to the index under the street name of its address.
+     *
+     * @param property is the property.
+     */
+    public void add(final Property property)
+    {
+        if(property != null)
+        {
+            propertiesByStreet.computeIfAbsent(keyOf(property.getAddress().getStreetName()),
+                                               key -> new LinkedHashSet<>()).add(property);
+        }
+    }
+
+    /**
+     * This method removes the property from the index.
+     *
+     * @param property is the property.
+     */
+    public void remove(final Property property)
+    {
+        String                  key;
+        LinkedHashSet<Property> bucket;
+
+        key    = keyOf(property.getAddress().getStreetName());
+        bucket = propertiesByStreet.get(key);
+
+        if((bucket != null) && bucket.remove(property) && bucket.isEmpty())
+        {
+            propertiesByStreet.remove(key);
+        }
+    }
+
+    /**
+     * @param streetName is the street name (case insensitive).
+     * @return an ArrayList of properties which are on the specified street. It's empty if there are none.
+     */
+    public ArrayList<Property> getOn(final String streetName)
+    {
+        LinkedHashSet<Property> bucket;
+        bucket = (streetName == null) ? null : propertiesByStreet.get(keyOf(streetName));
+
+        if(bucket == null)
+        {
+            return new ArrayList<>();
+        }
+        else
+        {
+            return new ArrayList<>(bucket);
+        }
+    }
+
+    /**
+     * @param streetName is the street name (case insensitive).
+     * @return the number of properties which are on the specified street.
+     */
+    public int countOn(final String streetName)
+    {
+        LinkedHashSet<Property> bucket;
+        bucket = (streetName == null) ? null : propertiesByStreet.get(keyOf(streetName));
+
+        return (bucket == null) ? 0 : bucket.size();
+    }
+
+    /**
+     * @param streetName is the street name.
+     * @return the normalized street name: surrounding white space removed and case folded.
+     */
+    public static String keyOf(final String streetName)
+    {
+        return streetName.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This is StringDictionary class. It gives every distinct String a small integer code, so a column can hold the
+ * code instead of a reference to its own String.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class StringDictionary
+{
+    private final HashMap<String, Integer> codes;
+    private final ArrayList<String>        values;
+
+    public static final int NULL_CODE = -1;
+
+    /**
+     * This is the StringDictionary constructor. It creates an empty dictionary.
+     */
+    public StringDictionary()
+    {
+        codes  = new HashMap<>();
+        values = new ArrayList<>();
+    }
+
+    /**
+     * This method returns the code of the value, and gives it a new code if it has not been seen before.
+     *
+     * @param value is the value. It may be null.
+     * @return the code of the value, or NULL_CODE if the value is null.
+     */
+    public int encode(final String value)
+    {
+        if(value == null)
+        {
+            return NULL_CODE;
+        }
+
+        Integer code;
+        code = codes.get(value);
+
+        if(code == null)
+        {
+            code = values.size();
+
+            codes.put(value, code);
+            values.add(value);
+        }
+
+        return code;
+    }
+
+    /**
+     * @param value is the value.
+     * @return the code of the value, or NULL_CODE if the value is null or not in this dictionary.
+     */
+    public int codeOf(final String value)
+    {
+        Integer code;
+        code = (value == null) ? null : codes.get(value);
+
+        return (code == null) ? NULL_CODE : code;
+    }
+
+    /**
+     * @param code is the code.
+     * @return the value of the code, or null if the code is NULL_CODE.
+     */
+    public String decode(final int code)
+    {
+        return (code == NULL_CODE) ? null : values.get(code);
+    }
+
+    /**
+     * @return the number of distinct values in this dictionary.
+     */
+    public int size()
+    {
+        return values.size();
+    }
+}
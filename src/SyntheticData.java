@@ -0,0 +1,346 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * This is SyntheticData class. It makes any number of realistic properties from a seed, for benchmarks and load
+ * tests: the same seed always makes the same properties, in the same order.
+ *
+ * The mix is RESIDENCE_PERCENT residences, COMMERCIAL_PERCENT commercials, and retails for the rest. Cities and
+ * streets are picked log-uniformly from CITY_COUNT cities and STREET_COUNT streets, so a few of them hold most of the
+ * listings, as in a real market, and the long tail holds one or two each. Prices are spread around a median for each
+ * subtype, with a long tail of expensive listings. Property ids are the sequence number of the property in base 36,
+ * so the first 2 billion ids fit in Property.MAX_PROPERTY_ID_LENGTH characters.
+ *
+ * write() writes the properties as an address data file and a property data file in the format of address_data.txt
+ * and property_data.txt, which AddressReader, PropertyReader, ParallelLoader and PropertyManager.init() read.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class SyntheticData
+{
+    private final Random random;
+    private long         sequence;
+
+    public static final long DEFAULT_SEED = 20200101L;
+
+    public static final int RESIDENCE_PERCENT  = 60;
+    public static final int COMMERCIAL_PERCENT = 25;
+
+    public static final int CITY_COUNT             = 200;
+    public static final int STREET_COUNT           = 5000;
+    public static final int POSTAL_CODES_PER_CITY  = 20;
+    public static final int MAX_STREET_NUMBER      = 9999;
+    public static final int MAX_UNIT_NUMBER        = 999;
+    public static final int MEAN_BEDROOMS          = 3;
+    public static final int MAX_BEDROOMS           = 6;
+    public static final int MIN_SQUARE_FOOTAGE     = 400;
+    public static final int MAX_SQUARE_FOOTAGE     = 40000;
+
+    public static final int RESIDENCE_MEDIAN_USD  = 800000;
+    public static final int COMMERCIAL_MEDIAN_USD = 2500000;
+    public static final int RETAIL_MEDIAN_USD     = 1500000;
+    public static final int PRICE_STEP_USD        = 1000;
+
+    public static final int    UNIT_PERCENT             = 30;
+    public static final int    SWIMMING_POOL_PERCENT    = 20;
+    public static final int    STRATA_PERCENT           = 40;
+    public static final int    LOADING_DOCK_PERCENT     = 35;
+    public static final int    HIGHWAY_ACCESS_PERCENT   = 25;
+    public static final int    CUSTOMER_PARKING_PERCENT = 50;
+    public static final double PRICE_SPREAD             = 0.6;
+
+    public static final int PERCENT  = 100;
+    public static final int ID_RADIX = 36;
+
+    public static final int    NONE           = 0;
+    public static final char   SEPARATOR      = '|';
+    public static final String NO_UNIT_NUMBER = " ";
+
+    private static final int  LETTERS        = 26;
+    private static final int  DIGITS         = 10;
+    private static final char LINE_SEPARATOR = '\n';
+
+    /**
+     * This is the SyntheticData constructor with DEFAULT_SEED.
+     */
+    public SyntheticData()
+    {
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * @param seed is the seed. The same seed always makes the same properties.
+     */
+    public SyntheticData(final long seed)
+    {
+        random   = new Random(seed);
+        sequence = 0;
+    }
+
+    /**
+     * @param count is the number of properties.
+     * @return an ArrayList<Property> of the next count properties.
+     */
+    public ArrayList<Property> properties(final int count)
+    {
+        ArrayList<Property> properties;
+        properties = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++)
+        {
+            properties.add(nextProperty());
+        }
+
+        return properties;
+    }
+
+    /**
+     * This method writes the next rows properties to the files, one line each, in the same order in both files. The
+     * files are replaced if they exist.
+     *
+     * @param addressFile is the address data file.
+     * @param propertyFile is the property data file.
+     * @param rows is the number of properties.
+     * @throws IOException if a file can not be written.
+     */
+    public void write(final File addressFile, final File propertyFile, final long rows) throws IOException
+    {
+        try(BufferedWriter addresses  = Files.newBufferedWriter(addressFile.toPath(), StandardCharsets.UTF_8);
+            BufferedWriter properties = Files.newBufferedWriter(propertyFile.toPath(), StandardCharsets.UTF_8))
+        {
+            StringBuilder line;
+            line = new StringBuilder();
+
+            for(long row = 0; row < rows; row++)
+            {
+                Property property;
+                property = nextProperty();
+
+                writeLine(addresses, appendAddress(line, property.getAddress()));
+                writeLine(properties, appendProperty(line, property));
+            }
+        }
+    }
+
+    /**
+     * @param line is the builder the line is appended to, after it's emptied.
+     * @param address is the address.
+     * @return the line of the address in the format of address_data.txt, without the line separator.
+     */
+    public static StringBuilder appendAddress(final StringBuilder line, final Address address)
+    {
+        line.setLength(NONE);
+
+        // A blank unit number stands for none, as in address_data.txt.
+        line.append((address.getUnitNumber() == null) ? NO_UNIT_NUMBER : address.getUnitNumber()).append(SEPARATOR)
+            .append(address.getStreetNumber()).append(SEPARATOR)
+            .append(address.getStreetName()).append(SEPARATOR)
+            .append(address.getPostalCode()).append(SEPARATOR)
+            .append(address.getCity());
+
+        return line;
+    }
+
+    /**
+     * @param line is the builder the line is appended to, after it's emptied.
+     * @param property is the property. It must be a Residence, a Commercial or a Retail.
+     * @return the line of the property in the format of property_data.txt, without the line separator.
+     * @throws IllegalArgumentException if the property is not a Residence, a Commercial or a Retail.
+     */
+    public static StringBuilder appendProperty(final StringBuilder line, final Property property)
+                                               throws IllegalArgumentException
+    {
+        line.setLength(NONE);
+
+        line.append(property.getPriceUsd()).append(SEPARATOR);
+
+        if(property instanceof Residence)
+        {
+            Residence residence = (Residence) property;
+
+            line.append(residence.getNumberOfBedrooms()).append(SEPARATOR)
+                .append(residence.hasSwimmingPool()).append(SEPARATOR)
+                .append(residence.getType()).append(SEPARATOR)
+                .append(residence.getPropertyId()).append(SEPARATOR)
+                .append(residence.isStrata());
+        }
+        else if(property instanceof Commercial)
+        {
+            Commercial commercial = (Commercial) property;
+
+            line.append(commercial.getType()).append(SEPARATOR)
+                .append(commercial.getPropertyId()).append(SEPARATOR)
+                .append(commercial.isLoadingDock()).append(SEPARATOR)
+                .append(commercial.isHighwayAccess());
+        }
+        else if(property instanceof Retail)
+        {
+            Retail retail = (Retail) property;
+
+            line.append(retail.getType()).append(SEPARATOR)
+                .append(retail.getPropertyId()).append(SEPARATOR)
+                .append(retail.getSquareFootage()).append(SEPARATOR)
+                .append(retail.hasCustomerParking());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Invalid property: " + property.getPropertyId());
+        }
+
+        return line;
+    }
+
+    /**
+     * @return the next property: a Residence, a Commercial or a Retail, with a new id.
+     */
+    public Property nextProperty()
+    {
+        String  propertyId = Long.toString(++sequence, ID_RADIX);
+        int     kind       = random.nextInt(PERCENT);
+        Address address;
+
+        if(kind < RESIDENCE_PERCENT)
+        {
+            address = nextAddress(chance(UNIT_PERCENT));
+
+            return new Residence(nextPrice(RESIDENCE_MEDIAN_USD), address, PropertyReader.RESIDENCE, propertyId,
+                                 nextBedrooms(), chance(SWIMMING_POOL_PERCENT), chance(STRATA_PERCENT));
+        }
+        else if(kind < (RESIDENCE_PERCENT + COMMERCIAL_PERCENT))
+        {
+            address = nextAddress(false);
+
+            return new Commercial(nextPrice(COMMERCIAL_MEDIAN_USD), address, PropertyReader.COMMERCIAL, propertyId,
+                                  chance(LOADING_DOCK_PERCENT), chance(HIGHWAY_ACCESS_PERCENT));
+        }
+        else
+        {
+            address = nextAddress(chance(UNIT_PERCENT));
+
+            return new Retail(nextPrice(RETAIL_MEDIAN_USD), address, PropertyReader.RETAIL, propertyId,
+                              (int) skewed(MIN_SQUARE_FOOTAGE, MAX_SQUARE_FOOTAGE), chance(CUSTOMER_PARKING_PERCENT));
+        }
+    }
+
+    /**
+     * @param rank is the rank of the street, from 0 (the street with the most listings) to STREET_COUNT - 1.
+     * @return the name of the street.
+     */
+    public static String streetName(final int rank)
+    {
+        return "street " + (rank + 1);
+    }
+
+    /**
+     * @param rank is the rank of the city, from 0 (the city with the most listings) to CITY_COUNT - 1.
+     * @return the name of the city.
+     */
+    public static String city(final int rank)
+    {
+        return "city " + (rank + 1);
+    }
+
+    /**
+     * @param random is the random number generator.
+     * @param count is the number of ranks.
+     * @return a rank from 0 to count - 1, picked log-uniformly: rank 0 is picked most often, and each rank less often
+     *         than the one before it.
+     */
+    public static int skewedRank(final Random random, final int count)
+    {
+        return Math.min(count - 1, (int) Math.pow(count + 1, random.nextDouble()) - 1);
+    }
+
+    /*
+     * Writes the line and a line separator.
+     */
+    private static void writeLine(final Writer writer, final StringBuilder line) throws IOException
+    {
+        writer.append(line).append(LINE_SEPARATOR);
+    }
+
+    /*
+     * Makes the next address, in a skewed city and street, with a postal code of the city.
+     */
+    private Address nextAddress(final boolean unit)
+    {
+        int cityRank = skewedRank(random, CITY_COUNT);
+
+        String unitNumber = unit ? Integer.toString(1 + random.nextInt(MAX_UNIT_NUMBER)) : null;
+
+        return new Address(unitNumber, 1 + random.nextInt(MAX_STREET_NUMBER),
+                           streetName(skewedRank(random, STREET_COUNT)),
+                           postalCode(cityRank, random.nextInt(POSTAL_CODES_PER_CITY)), city(cityRank));
+    }
+
+    /*
+     * Makes one of the postal codes of a city, in the "v7n2m8" form.
+     */
+    private static String postalCode(final int cityRank, final int index)
+    {
+        int code = cityRank * POSTAL_CODES_PER_CITY + index;
+
+        char[] chars;
+        chars = new char[Address.SECOND_GOOD_POSTAL_CODE_LENGTH];
+
+        for(int i = chars.length - 1; i >= 0; i--)
+        {
+            if(i % 2 == 0)
+            {
+                chars[i] = (char) ('a' + code % LETTERS);
+                code    /= LETTERS;
+            }
+            else
+            {
+                chars[i] = (char) ('0' + code % DIGITS);
+                code    /= DIGITS;
+            }
+        }
+
+        return new String(chars);
+    }
+
+    /*
+     * Makes a price around the median, rounded to PRICE_STEP_USD. Prices are log-normal, so there are a few listings
+     * at many times the median.
+     */
+    private double nextPrice(final int medianUsd)
+    {
+        double priceUsd = medianUsd * Math.exp(PRICE_SPREAD * random.nextGaussian());
+
+        return Math.max(PRICE_STEP_USD, Math.round(priceUsd / PRICE_STEP_USD) * (double) PRICE_STEP_USD);
+    }
+
+    /*
+     * Makes a number of bedrooms from 1 to MAX_BEDROOMS, mostly 2 to 4.
+     */
+    private int nextBedrooms()
+    {
+        int bedrooms = (int) Math.round(MEAN_BEDROOMS + random.nextGaussian());
+
+        return Math.max(Residence.MIN_BEDROOM_NUM, Math.min(MAX_BEDROOMS, bedrooms));
+    }
+
+    /*
+     * Returns true percent times in a hundred.
+     */
+    private boolean chance(final int percent)
+    {
+        return random.nextInt(PERCENT) < percent;
+    }
+
+    /*
+     * Makes a number from min to max, picked log-uniformly.
+     */
+    private long skewed(final int min, final int max)
+    {
+        return Math.round(min * Math.pow((double) max / min, random.nextDouble()));
+    }
+}
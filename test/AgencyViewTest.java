@@ -0,0 +1,104 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * This is AgencyViewTest class. It checks that a read-only view handed out by the queries of one agency can be added
+ * to another agency, which then indexes it fully, and that the two agencies don't share its price. It also checks
+ * that the cached query results of a ColumnarAgency are views, so one caller can't change what the next one gets.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class AgencyViewTest
+{
+    private static final double PRICE_USD     = 500000;
+    private static final double NEW_PRICE_USD = 600000;
+
+    @Test
+    public void viewIsAddedToAgency()
+    {
+        checkViewIsAdded(new Agency("Target"));
+    }
+
+    @Test
+    public void viewIsAddedToConcurrentAgency()
+    {
+        checkViewIsAdded(new ConcurrentAgency("Target"));
+    }
+
+    @Test
+    public void cachedColumnarResultCantBeRepriced()
+    {
+        Agency agency;
+        agency = new ColumnarAgency("Columnar");
+
+        agency.addProperty(residence("v1"));
+
+        Residence first;
+        first = agency.getPropertiesWithPool().get(0);
+
+        try
+        {
+            first.setPriceUsd(NEW_PRICE_USD);
+            fail("A cached result was repriced");
+        }
+        catch(UnsupportedOperationException expected)
+        {
+            // The cached element is a view.
+        }
+
+        assertEquals(PRICE_USD, agency.getPropertiesWithPool().get(0).getPriceUsd(), 0);
+        assertEquals(PRICE_USD, agency.getPropertiesBetween((int) PRICE_USD, (int) PRICE_USD)[0].getPriceUsd(), 0);
+        assertEquals(PRICE_USD, agency.getTotalPropertyValues(), 0);
+    }
+
+    /*
+     * Adds a query result of a source agency to the target, and checks every index of the target.
+     */
+    private static void checkViewIsAdded(final Agency target)
+    {
+        Agency source;
+        source = new Agency("Source");
+
+        source.addProperty(residence("v1"));
+
+        Residence view;
+        view = source.getPropertiesWithPool().get(0);
+
+        target.addProperty(view);
+
+        Property added;
+        added = target.getProperty("v1");
+
+        assertNotNull(added);
+        assertNotSame(view, added);
+        assertFalse(added.isView());
+        assertEquals(PRICE_USD, target.getTotalPropertyValues(), 0);
+        assertEquals(1, target.getPropertiesBetween((int) PRICE_USD, (int) PRICE_USD).length);
+        assertEquals(1, target.getPropertiesOn("elm street").size());
+        assertEquals(1, target.getPropertiesWithPool().size());
+
+        // The copy is the target's own, so its price changes in the target only.
+        assertTrue(target.setPriceUsd("v1", NEW_PRICE_USD));
+        assertEquals(NEW_PRICE_USD, target.getTotalPropertyValues(), 0);
+        assertEquals(PRICE_USD, source.getTotalPropertyValues(), 0);
+        assertEquals(PRICE_USD, view.getPriceUsd(), 0);
+    }
+
+    /*
+     * Returns a residence with a pool and the property id.
+     */
+    private static Residence residence(final String propertyId)
+    {
+        Address address;
+        address = new Address("1", 100, "elm street", "v6a1b1", "vancouver");
+
+        return new Residence(PRICE_USD, address, PropertyReader.RESIDENCE, propertyId, 2, true, false);
+    }
+}
@@ -0,0 +1,108 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * This is ConcurrentAgencyTest class. It checks that the type and amenity queries of a ConcurrentAgency only return
+ * properties of the type, or with the amenities, while another thread removes properties and adds others, which
+ * reuse the freed rows at once.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class ConcurrentAgencyTest
+{
+    private static final int  PROPERTIES  = 200;
+    private static final long RUN_MILLIS  = 1000;
+    private static final long JOIN_MILLIS = 10000;
+
+    @Test
+    public void queriesSkipRowsReusedByOtherProperties() throws InterruptedException
+    {
+        ConcurrentAgency agency;
+        agency = new ConcurrentAgency("Test");
+
+        for(int i = 0; i < PROPERTIES; i++)
+        {
+            agency.addProperty(residence("r" + i));
+            agency.addProperty(retail("s" + i));
+        }
+
+        AtomicBoolean running;
+        running = new AtomicBoolean(true);
+
+        // Each residence removed frees a row, which the retail added next takes over, and the other way around.
+        Thread writer;
+        writer = new Thread(() ->
+        {
+            for(int i = 0; running.get(); i = (i + 1) % PROPERTIES)
+            {
+                agency.removeProperty("r" + i);
+                agency.addProperty(retail("t" + i));
+                agency.removeProperty("t" + i);
+                agency.addProperty(residence("r" + i));
+            }
+        });
+
+        writer.start();
+
+        int  queries  = 0;
+        long deadline = System.currentTimeMillis() + RUN_MILLIS;
+
+        try
+        {
+            while(System.currentTimeMillis() < deadline)
+            {
+                ArrayList<Property> residences;
+                residences = agency.getPropertiesOfType(PropertyReader.RESIDENCE);
+
+                if(residences != null)
+                {
+                    for(Property property: residences)
+                    {
+                        assertEquals(PropertyType.RESIDENCE, property.getPropertyType());
+                    }
+                }
+
+                agency.streamPropertiesWithAll(Amenity.SWIMMING_POOL)
+                      .forEach(property -> assertTrue(property instanceof Residence));
+
+                queries++;
+            }
+        }
+        finally
+        {
+            running.set(false);
+            writer.join(JOIN_MILLIS);
+        }
+
+        assertTrue(queries > 0);
+    }
+
+    /*
+     * Returns a residence with a pool and the property id.
+     */
+    private static Residence residence(final String propertyId)
+    {
+        return new Residence(500000, address(), PropertyReader.RESIDENCE, propertyId, 2, true, false);
+    }
+
+    /*
+     * Returns a retail with customer parking and the property id.
+     */
+    private static Retail retail(final String propertyId)
+    {
+        return new Retail(800000, address(), PropertyReader.RETAIL, propertyId, 1200, true);
+    }
+
+    /*
+     * Returns an address on elm street.
+     */
+    private static Address address()
+    {
+        return new Address("1", 100, "elm street", "v6a1b1", "vancouver");
+    }
+}
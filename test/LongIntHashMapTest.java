@@ -0,0 +1,214 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * This is LongIntHashMapTest class. It checks the mappings of a LongIntHashMap through puts, removes and resizes,
+ * with keys picked to collide at the end of the table, where a probe sequence wraps around to slot 0.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class LongIntHashMapTest
+{
+    // Up to this many mappings, the table keeps its INITIAL_CAPACITY.
+    private static final int MAX_UNRESIZED = 9;
+
+    private static final int LAST_SLOT = LongIntHashMap.INITIAL_CAPACITY - 1;
+
+    @Test
+    public void getOfMissingKeyIsNotFound()
+    {
+        LongIntHashMap map;
+        map = new LongIntHashMap();
+
+        assertEquals(LongIntHashMap.NOT_FOUND, map.get(42L));
+        assertEquals(LongIntHashMap.NOT_FOUND, map.remove(42L));
+        assertEquals(0, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putOfFreeKeyIsRejected()
+    {
+        new LongIntHashMap().put(LongIntHashMap.FREE_KEY, 1);
+    }
+
+    @Test
+    public void putReplacesTheValue()
+    {
+        LongIntHashMap map;
+        map = new LongIntHashMap();
+
+        map.put(7L, 1);
+        map.put(7L, 2);
+
+        assertEquals(2, map.get(7L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void removeShiftsBackAcrossTheWrapAround()
+    {
+        // Four keys with their home in the last slot take slots 15, 0, 1 and 2; a key at home in slot 0 goes to 3.
+        ArrayList<Long> keys;
+        keys = keysWithHome(LAST_SLOT, 4);
+
+        long displaced = keysWithHome(0, 1).get(0);
+
+        LongIntHashMap map;
+        map = new LongIntHashMap();
+
+        for(int i = 0; i < keys.size(); i++)
+        {
+            map.put(keys.get(i), i);
+        }
+
+        map.put(displaced, 100);
+
+        assertEquals(0, map.remove(keys.get(0)));
+        assertEquals(LongIntHashMap.NOT_FOUND, map.get(keys.get(0)));
+
+        for(int i = 1; i < keys.size(); i++)
+        {
+            assertEquals(i, map.get(keys.get(i)));
+        }
+
+        assertEquals(100, map.get(displaced));
+        assertEquals(4, map.size());
+
+        // Reinserted, the removed key goes after the others in the probe sequence.
+        map.put(keys.get(0), 200);
+
+        assertEquals(200, map.get(keys.get(0)));
+        assertEquals(100, map.remove(displaced));
+
+        for(int i = 1; i < keys.size(); i++)
+        {
+            assertEquals(i, map.remove(keys.get(i)));
+        }
+
+        assertEquals(200, map.get(keys.get(0)));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void removeAndReinsertOfCollidingKeysMatchesHashMap()
+    {
+        ArrayList<Long> keys;
+        keys = keysWithHome(LAST_SLOT - 1, 3);
+
+        keys.addAll(keysWithHome(LAST_SLOT, 3));
+        keys.addAll(keysWithHome(0, 3));
+
+        assertEquals(MAX_UNRESIZED, keys.size());
+
+        LongIntHashMap map;
+        map = new LongIntHashMap();
+
+        HashMap<Long, Integer> expected;
+        expected = new HashMap<>();
+
+        Random random;
+        random = new Random(1);
+
+        for(int i = 0; i < 20000; i++)
+        {
+            long key = keys.get(random.nextInt(keys.size()));
+
+            if(random.nextBoolean())
+            {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            else
+            {
+                assertEquals((int) expected.getOrDefault(key, LongIntHashMap.NOT_FOUND), map.remove(key));
+
+                expected.remove(key);
+            }
+
+            assertMappings(expected, map, keys);
+        }
+    }
+
+    @Test
+    public void resizeKeepsEveryMapping()
+    {
+        LongIntHashMap map;
+        map = new LongIntHashMap();
+
+        HashMap<Long, Integer> expected;
+        expected = new HashMap<>();
+
+        Random random;
+        random = new Random(2);
+
+        for(int i = 0; i < 100000; i++)
+        {
+            long key = random.nextLong();
+
+            if(key != LongIntHashMap.FREE_KEY)
+            {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        // Removing every other key after the resizes leaves the rest reachable.
+        int i = 0;
+
+        for(Map.Entry<Long, Integer> entry: new ArrayList<>(expected.entrySet()))
+        {
+            if(i++ % 2 == 0)
+            {
+                assertEquals((int) entry.getValue(), map.remove(entry.getKey()));
+
+                expected.remove(entry.getKey());
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+
+        for(Map.Entry<Long, Integer> entry: expected.entrySet())
+        {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    /*
+     * Returns the first count keys, from 1 up, whose home is the slot in a table of INITIAL_CAPACITY.
+     */
+    private static ArrayList<Long> keysWithHome(final int slot, final int count)
+    {
+        ArrayList<Long> keys;
+        keys = new ArrayList<>();
+
+        for(long key = 1; keys.size() < count; key++)
+        {
+            if(LongIntHashMap.slotOf(key, LAST_SLOT) == slot)
+            {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    /*
+     * Checks that the map has the mappings of expected for every key.
+     */
+    private static void assertMappings(final HashMap<Long, Integer> expected, final LongIntHashMap map,
+                                       final ArrayList<Long> keys)
+    {
+        assertEquals(expected.size(), map.size());
+
+        for(long key: keys)
+        {
+            assertEquals((int) expected.getOrDefault(key, LongIntHashMap.NOT_FOUND), map.get(key));
+        }
+    }
+}
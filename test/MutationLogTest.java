@@ -0,0 +1,338 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is MutationLogTest class. It checks that the changes logged by a MutationLog are replayed on its checkpoint
+ * at the next start, also when the checkpoints are taken while other threads change the agency, that a record torn
+ * off the end of the log is cut off rather than replayed, and that the checkpoints keep the fingerprint of the data
+ * files of the first one.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class MutationLogTest
+{
+    private static final double NEW_PRICE_USD = 777000;
+    private static final int    TORN_BYTES    = 3;
+    private static final int    WRITERS       = 4;
+    private static final int    CHANGES       = 2000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void changesAreReplayedOnTheCheckpoint() throws IOException
+    {
+        File logFile        = folder.newFile("agency.log");
+        File checkpointFile = new File(folder.getRoot(), "agency.checkpoint");
+
+        Agency agency;
+        agency = agencyOf("a1", "a2", "a3");
+
+        // The first start makes the agency the first checkpoint.
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile);
+
+        assertTrue(checkpointFile.isFile());
+        assertEquals(0, logFile.length());
+
+        agency.addProperty(residence("a4"));
+        agency.removeProperty("a1");
+        agency.setPriceUsd("a2", NEW_PRICE_USD);
+
+        log.close();
+
+        assertTrue(logFile.length() > 0);
+
+        Agency recovered;
+        recovered = recover(logFile, checkpointFile);
+
+        assertEquals(pricesOf(agency), pricesOf(recovered));
+        assertEquals(NEW_PRICE_USD, recovered.getProperty("a2").getPriceUsd(), 0);
+        assertNull(recovered.getProperty("a1"));
+
+        // The replayed log has been checkpointed, so it's not replayed again.
+        assertEquals(0, logFile.length());
+        assertEquals(pricesOf(agency), pricesOf(recover(logFile, checkpointFile)));
+    }
+
+    @Test
+    public void tornRecordIsCutOff() throws IOException
+    {
+        File logFile        = folder.newFile("agency.log");
+        File checkpointFile = new File(folder.getRoot(), "agency.checkpoint");
+
+        Agency agency;
+        agency = agencyOf("b1", "b2");
+
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile);
+
+        agency.addProperty(residence("b3"));
+        agency.removeProperty("b1");
+        log.sync();
+
+        HashMap<String, Double> beforeTornRecord;
+        beforeTornRecord = pricesOf(agency);
+
+        long validBytes = logFile.length();
+
+        agency.setPriceUsd("b2", NEW_PRICE_USD);
+        log.close();
+
+        // The last record loses its last bytes, as if the program had stopped in the middle of writing it.
+        try(RandomAccessFile file = new RandomAccessFile(logFile, "rw"))
+        {
+            assertTrue(file.length() > validBytes + TORN_BYTES);
+
+            file.setLength(file.length() - TORN_BYTES);
+        }
+
+        Agency recovered;
+        recovered = new ConcurrentAgency("Recovered");
+
+        log = new MutationLog(recovered, logFile, checkpointFile);
+
+        assertEquals(beforeTornRecord, pricesOf(recovered));
+
+        // The next change is logged after the valid records, and replayed at the next start.
+        recovered.setPriceUsd("b3", NEW_PRICE_USD);
+        log.close();
+
+        Agency again;
+        again = recover(logFile, checkpointFile);
+
+        assertEquals(pricesOf(recovered), pricesOf(again));
+        assertEquals(NEW_PRICE_USD, again.getProperty("b3").getPriceUsd(), 0);
+    }
+
+    @Test
+    public void garbageAfterTheLastRecordIsCutOff() throws IOException
+    {
+        File logFile        = folder.newFile("agency.log");
+        File checkpointFile = new File(folder.getRoot(), "agency.checkpoint");
+
+        Agency agency;
+        agency = agencyOf("c1");
+
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile);
+
+        agency.addProperty(residence("c2"));
+        log.close();
+
+        // A record length that is much longer than the rest of the file, and a few bytes of it.
+        try(RandomAccessFile file = new RandomAccessFile(logFile, "rw"))
+        {
+            file.seek(file.length());
+            file.writeInt(MutationLog.MAX_RECORD_BYTES - 1);
+            file.write(new byte[] {MutationLog.RECORD_REMOVE, 1, 2, 3});
+        }
+
+        assertEquals(pricesOf(agency), pricesOf(recover(logFile, checkpointFile)));
+    }
+
+    @Test
+    public void checkpointsTakenWhileThreadsChangeTheAgencyLoseNoChange() throws Exception
+    {
+        File logFile        = folder.newFile("agency.log");
+        File checkpointFile = new File(folder.getRoot(), "agency.checkpoint");
+
+        Agency agency;
+        agency = agencyOf();
+
+        // Every batch makes the log long enough for a checkpoint.
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile, MutationLog.MIN_FLUSH_INTERVAL_MILLIS,
+                              MutationLog.MIN_CHECKPOINT_BYTES);
+
+        Thread[] writers = new Thread[WRITERS];
+
+        for(int w = 0; w < WRITERS; w++)
+        {
+            String prefix = "w" + w + "x";
+
+            writers[w] = new Thread(() ->
+            {
+                for(int i = 0; i < CHANGES; i++)
+                {
+                    agency.addProperty(residence(prefix + (i % 50)));
+                    agency.setPriceUsd(prefix + (i % 50), 1000 + i);
+
+                    if(i % 7 == 0)
+                    {
+                        agency.removeProperty(prefix + (i % 50));
+                    }
+                }
+            });
+
+            writers[w].start();
+        }
+
+        for(Thread writer: writers)
+        {
+            writer.join();
+        }
+
+        log.close();
+
+        assertEquals(pricesOf(agency), pricesOf(recover(logFile, checkpointFile)));
+    }
+
+    @Test
+    public void checkpointTruncatesTheLog() throws IOException
+    {
+        File logFile        = folder.newFile("agency.log");
+        File checkpointFile = new File(folder.getRoot(), "agency.checkpoint");
+
+        Agency agency;
+        agency = agencyOf("d1");
+
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile);
+
+        agency.setPriceUsd("d1", NEW_PRICE_USD);
+        log.sync();
+
+        assertTrue(logFile.length() > 0);
+
+        log.checkpoint();
+
+        assertEquals(0, logFile.length());
+
+        log.close();
+
+        assertEquals(NEW_PRICE_USD, recover(logFile, checkpointFile).getProperty("d1").getPriceUsd(), 0);
+    }
+
+    @Test
+    public void durableChangeIsOnTheDiskWhenItReturns() throws IOException
+    {
+        File logFile        = folder.newFile("agency.log");
+        File checkpointFile = new File(folder.getRoot(), "agency.checkpoint");
+
+        Agency agency;
+        agency = agencyOf("e1");
+
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile, MutationLog.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                              MutationLog.DEFAULT_CHECKPOINT_BYTES, true);
+
+        agency.setPriceUsd("e1", NEW_PRICE_USD);
+
+        // Copied before the log is closed, as if the program had stopped here.
+        File copy;
+        copy = new File(folder.getRoot(), "copy.log");
+
+        Files.copy(logFile.toPath(), copy.toPath());
+
+        log.close();
+
+        assertEquals(NEW_PRICE_USD, recover(copy, checkpointFile).getProperty("e1").getPriceUsd(), 0);
+    }
+
+    @Test
+    public void checkpointsKeepTheFingerprintOfTheFirst() throws IOException
+    {
+        File logFile        = folder.newFile("agency.log");
+        File checkpointFile = new File(folder.getRoot(), "agency.checkpoint");
+
+        long[] first  = {100, 200, 300};
+        long[] second = {100, 200, 301};
+
+        Agency agency;
+        agency = agencyOf("f1");
+
+        MutationLog log;
+        log = new MutationLog(agency, logFile, checkpointFile, first, MutationLog.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                              MutationLog.DEFAULT_CHECKPOINT_BYTES, false);
+
+        agency.setPriceUsd("f1", NEW_PRICE_USD);
+        log.checkpoint();
+        log.close();
+
+        assertArrayEquals(first, AgencySnapshot.readFingerprint(checkpointFile));
+
+        // The checkpoint exists, so the fingerprint saved in it is kept, and can be compared with the other one.
+        log = new MutationLog(new ConcurrentAgency("Recovered"), logFile, checkpointFile, second,
+                              MutationLog.DEFAULT_FLUSH_INTERVAL_MILLIS, MutationLog.DEFAULT_CHECKPOINT_BYTES, false);
+
+        assertArrayEquals(first, log.getFingerprint());
+
+        log.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void agencyThatIsNotConcurrentIsRejected() throws IOException
+    {
+        new MutationLog(new Agency("Test"), folder.newFile("agency.log"),
+                        new File(folder.getRoot(), "agency.checkpoint"));
+    }
+
+    /*
+     * Opens the log on a new agency, which recovers the checkpoint and the log, closes it, and returns the agency.
+     */
+    private static Agency recover(final File logFile, final File checkpointFile) throws IOException
+    {
+        Agency recovered;
+        recovered = new ConcurrentAgency("Recovered");
+
+        new MutationLog(recovered, logFile, checkpointFile).close();
+
+        return recovered;
+    }
+
+    /*
+     * Returns a ConcurrentAgency with a residence for each property id.
+     */
+    private static Agency agencyOf(final String... propertyIds)
+    {
+        Agency agency;
+        agency = new ConcurrentAgency("Test");
+
+        for(String propertyId: propertyIds)
+        {
+            agency.addProperty(residence(propertyId));
+        }
+
+        return agency;
+    }
+
+    /*
+     * Returns the price of every property of the agency, by property id.
+     */
+    private static HashMap<String, Double> pricesOf(final Agency agency)
+    {
+        HashMap<String, Double> prices;
+        prices = new HashMap<>();
+
+        for(Property property: agency.getAllProperties())
+        {
+            prices.put(property.getPropertyId(), property.getPriceUsd());
+        }
+
+        return prices;
+    }
+
+    /*
+     * Returns a residence with the property id.
+     */
+    private static Residence residence(final String propertyId)
+    {
+        Address address;
+        address = new Address("1", 100, "elm street", "v6a1b1", "vancouver");
+
+        return new Residence(500000, address, PropertyReader.RESIDENCE, propertyId, 2, false, false);
+    }
+}
@@ -0,0 +1,121 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This is ParallelLoaderTest class. It checks that a ConcurrentAgency loaded on several threads holds the same
+ * properties as an Agency loaded on one, also when an id is on several lines, and that a property line with no
+ * address line fails the load.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class ParallelLoaderTest
+{
+    private static final int LINES       = 2000;
+    private static final int IDS         = 1500; // fewer than the lines, so some ids are on several lines
+    private static final int PARALLELISM = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parallelLoadMatchesSerialLoad() throws IOException
+    {
+        File addressFile  = write("address_data.txt", addressLines(LINES));
+        File propertyFile = write("property_data.txt", propertyLines(LINES));
+
+        Agency serial;
+        serial = new Agency("Serial");
+
+        new ParallelLoader(PARALLELISM).loadInto(addressFile, propertyFile, serial);
+
+        Agency parallel;
+        parallel = new ConcurrentAgency("Parallel");
+
+        new ParallelLoader(PARALLELISM).loadInto(addressFile, propertyFile, parallel);
+
+        assertEquals(IDS, serial.getAllProperties().size());
+        assertEquals(pricesOf(serial), pricesOf(parallel));
+        assertEquals(serial.getTotalPropertyValues(), parallel.getTotalPropertyValues(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void propertyLineWithNoAddressLineFailsTheLoad() throws IOException
+    {
+        File addressFile  = write("address_data.txt", addressLines(LINES - 1));
+        File propertyFile = write("property_data.txt", propertyLines(LINES));
+
+        new ParallelLoader(PARALLELISM).load(addressFile, propertyFile);
+    }
+
+    /*
+     * Writes the lines to a new file of the temporary folder.
+     */
+    private File write(final String name, final List<String> lines) throws IOException
+    {
+        File file;
+        file = folder.newFile(name);
+
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+        return file;
+    }
+
+    /*
+     * Returns the number of address lines.
+     */
+    private static List<String> addressLines(final int count)
+    {
+        ArrayList<String> lines;
+        lines = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++)
+        {
+            lines.add(" |" + (i + 1) + "|elm street|v6a1b1|vancouver");
+        }
+
+        return lines;
+    }
+
+    /*
+     * Returns the number of residence lines, whose price is their line number.
+     */
+    private static List<String> propertyLines(final int count)
+    {
+        ArrayList<String> lines;
+        lines = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++)
+        {
+            lines.add((100000 + i) + ".0|2|false|residence|r" + Integer.toString(i % IDS, 36) + "|true");
+        }
+
+        return lines;
+    }
+
+    /*
+     * Returns the price of every property of the agency, by property id.
+     */
+    private static HashMap<String, Double> pricesOf(final Agency agency)
+    {
+        HashMap<String, Double> prices;
+        prices = new HashMap<>();
+
+        for(Property property: agency.getAllProperties())
+        {
+            prices.put(property.getPropertyId(), property.getPriceUsd());
+        }
+
+        return prices;
+    }
+}
@@ -0,0 +1,138 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * This is PortfolioAggregatesTest class. It checks that the count, total, minimum and maximum of each kind stay
+ * equal to those found by a scan of the agency, as the properties at the minimum and maximum are repriced and removed.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class PortfolioAggregatesTest
+{
+    private static final int  PROPERTIES = 300;
+    private static final int  CHANGES    = 3000;
+    private static final long SEED       = 11;
+
+    @Test
+    public void statisticsMatchAScanOfAgency()
+    {
+        checkStatistics(new Agency("Test"));
+    }
+
+    @Test
+    public void statisticsMatchAScanOfConcurrentAgency()
+    {
+        checkStatistics(new ConcurrentAgency("Test"));
+    }
+
+    @Test
+    public void statisticsMatchAScanOfColumnarAgency()
+    {
+        checkStatistics(new ColumnarAgency("Test"));
+    }
+
+    /*
+     * Adds, reprices and removes properties at random, with few prices so that several properties share the minimum
+     * and maximum, and checks the statistics after each change.
+     */
+    private static void checkStatistics(final Agency agency)
+    {
+        Random random;
+        random = new Random(SEED);
+
+        for(int i = 0; i < PROPERTIES; i++)
+        {
+            agency.addProperty(propertyOf(i, random.nextInt(10) * 1000));
+        }
+
+        for(int i = 0; i < CHANGES; i++)
+        {
+            String propertyId = "p" + random.nextInt(PROPERTIES);
+
+            if(agency.getProperty(propertyId) == null)
+            {
+                agency.addProperty(propertyOf(Integer.parseInt(propertyId.substring(1)), random.nextInt(10) * 1000));
+            }
+            else if(random.nextInt(4) == 0)
+            {
+                agency.removeProperty(propertyId);
+            }
+            else
+            {
+                agency.setPriceUsd(propertyId, random.nextInt(10) * 1000);
+            }
+
+            assertMatchesScan(agency);
+        }
+    }
+
+    /*
+     * Checks the statistics of all properties and of each kind against a scan of the agency.
+     */
+    private static void assertMatchesScan(final Agency agency)
+    {
+        PortfolioAggregates aggregates;
+        aggregates = agency.getAggregates();
+
+        assertMatchesScan(agency, aggregates.getStatistics(), PortfolioAggregates.KINDS);
+
+        for(int kind = 0; kind < PortfolioAggregates.KINDS; kind++)
+        {
+            assertMatchesScan(agency, aggregates.getStatistics(kind), kind);
+        }
+
+        assertEquals(aggregates.getStatistics().getCount(), aggregates.getCount());
+        assertEquals(aggregates.getStatistics().getTotalUsd(), aggregates.getTotalUsd(), 0);
+    }
+
+    /*
+     * Checks the statistics against a scan of the properties of the kind, or of all properties for KINDS.
+     */
+    private static void assertMatchesScan(final Agency agency, final PriceStatistics statistics, final int kind)
+    {
+        int    count = 0;
+        double total = 0;
+        double min   = Double.NaN;
+        double max   = Double.NaN;
+
+        for(Property property: agency.getAllProperties())
+        {
+            if((kind == PortfolioAggregates.KINDS) || (PortfolioAggregates.kindOf(property) == kind))
+            {
+                double price = property.getPriceUsd();
+
+                count++;
+                total += price;
+                min    = !(min <= price) ? price : min;
+                max    = !(max >= price) ? price : max;
+            }
+        }
+
+        assertEquals(count, statistics.getCount());
+        assertEquals(total, statistics.getTotalUsd(), 0);
+        assertEquals(min, statistics.getMinUsd(), 0);
+        assertEquals(max, statistics.getMaxUsd(), 0);
+    }
+
+    /*
+     * Returns a residence, commercial or retail property with the number and the price.
+     */
+    private static Property propertyOf(final int number, final double priceUsd)
+    {
+        Address address;
+        address = new Address("1", 100, "elm street", "v6a1b1", "vancouver");
+
+        switch(number % 3)
+        {
+            case 0:
+                return new Residence(priceUsd, address, PropertyReader.RESIDENCE, "p" + number, 2, true, false);
+            case 1:
+                return new Commercial(priceUsd, address, PropertyReader.COMMERCIAL, "p" + number, true, false);
+            default:
+                return new Retail(priceUsd, address, PropertyReader.RETAIL, "p" + number, 1200, true);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This is PropertyIdCodecTest class. It checks that packed ids round-trip, that two ids have the same folded key
+ * exactly when String.equalsIgnoreCase() finds them equal, and that an Agency still finds the ids that can't be packed.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class PropertyIdCodecTest
+{
+    // The characters compared pairwise: ASCII, the rest of Latin-1, and Latin Extended-A, which can't be packed.
+    private static final char LAST_CHAR = 0x17F;
+
+    private static final String MICRO_SIGN             = "\u00b5";
+    private static final String GREEK_SMALL_MU         = "\u03bc";
+    private static final String GREEK_CAPITAL_MU       = "\u039c";
+    private static final String LATIN_CAPITAL_A_MACRON = "\u0100";
+    private static final String LATIN_SMALL_A_MACRON   = "\u0101";
+
+    @Test
+    public void packAndUnpackRoundTrip()
+    {
+        for(String id: new String[] {"a", "18op", "ZZZZZZ", "\u00ff\u00e9x", "a|b c"})
+        {
+            long packed = PropertyIdCodec.pack(id);
+
+            assertNotEquals(PropertyIdCodec.NOT_PACKED, packed);
+            assertEquals(id, PropertyIdCodec.unpack(packed));
+            assertEquals(PropertyIdCodec.packFolded(id), PropertyIdCodec.fold(packed));
+        }
+    }
+
+    @Test
+    public void foldedKeysMatchEqualsIgnoreCase()
+    {
+        for(char a = 0; a <= LAST_CHAR; a++)
+        {
+            for(char b = 0; b <= LAST_CHAR; b++)
+            {
+                String x = "id" + a;
+                String y = "ID" + b;
+
+                boolean equal = x.equalsIgnoreCase(y);
+
+                assertEquals(x + " " + y, equal, PropertyIdCodec.fold(x).equals(PropertyIdCodec.fold(y)));
+
+                long packedX = PropertyIdCodec.packFolded(x);
+                long packedY = PropertyIdCodec.packFolded(y);
+
+                if((packedX != PropertyIdCodec.NOT_PACKED) && (packedY != PropertyIdCodec.NOT_PACKED))
+                {
+                    assertEquals(x + " " + y, equal, packedX == packedY);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void foldOfFoldedIdIsTheSameString()
+    {
+        String id = "ab12";
+
+        assertSame(id, PropertyIdCodec.fold(id));
+        assertEquals("ab12", PropertyIdCodec.fold("Ab12"));
+    }
+
+    @Test
+    public void idsThatCanNotBePacked()
+    {
+        // The micro sign is Latin-1, but it folds to the Greek small mu, which is not.
+        assertTrue(PropertyIdCodec.canPack(MICRO_SIGN));
+        assertEquals(PropertyIdCodec.NOT_PACKED, PropertyIdCodec.packFolded(MICRO_SIGN));
+        assertEquals(PropertyIdCodec.NOT_PACKED, PropertyIdCodec.fold(PropertyIdCodec.pack(MICRO_SIGN)));
+
+        assertFalse(PropertyIdCodec.canPack(LATIN_CAPITAL_A_MACRON));
+        assertEquals(PropertyIdCodec.NOT_PACKED, PropertyIdCodec.packFolded(LATIN_CAPITAL_A_MACRON));
+
+        assertFalse(PropertyIdCodec.canPack(null));
+        assertFalse(PropertyIdCodec.canPack(""));
+        assertFalse(PropertyIdCodec.canPack("abcdefg"));
+        assertEquals(PropertyIdCodec.NOT_PACKED, PropertyIdCodec.packFolded(null));
+        assertEquals(PropertyIdCodec.NOT_PACKED, PropertyIdCodec.packFolded(""));
+        assertEquals(PropertyIdCodec.NOT_PACKED, PropertyIdCodec.packFolded("abcdefg"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packOfIdThatCanNotBePackedIsRejected()
+    {
+        PropertyIdCodec.pack(LATIN_CAPITAL_A_MACRON);
+    }
+
+    @Test
+    public void agencyFindsIdsThatCanNotBePackedIgnoringCase()
+    {
+        Agency agency;
+        agency = new Agency("Test");
+
+        agency.addProperty(residence(MICRO_SIGN + "a"));
+        agency.addProperty(residence(LATIN_CAPITAL_A_MACRON + "b"));
+        agency.addProperty(residence("c1"));
+
+        assertEquals(MICRO_SIGN + "a", agency.getProperty(GREEK_CAPITAL_MU + "A").getPropertyId());
+        assertEquals(MICRO_SIGN + "a", agency.getProperty(GREEK_SMALL_MU + "a").getPropertyId());
+        assertEquals(LATIN_CAPITAL_A_MACRON + "b", agency.getProperty(LATIN_SMALL_A_MACRON + "B").getPropertyId());
+        assertEquals("c1", agency.getProperty("C1").getPropertyId());
+
+        agency.removeProperty(GREEK_SMALL_MU + "A");
+
+        assertNull(agency.getProperty(MICRO_SIGN + "a"));
+        assertEquals(LATIN_CAPITAL_A_MACRON + "b", agency.getProperty(LATIN_SMALL_A_MACRON + "b").getPropertyId());
+        assertEquals(2, agency.getAllProperties().size());
+    }
+
+    /*
+     * Returns a residence with the property id.
+     */
+    private static Residence residence(final String propertyId)
+    {
+        Address address;
+        address = new Address("1", 100, "elm street", "v6a1b1", "vancouver");
+
+        return new Residence(500000, address, PropertyReader.RESIDENCE, propertyId, 2, false, false);
+    }
+}
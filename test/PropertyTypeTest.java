@@ -0,0 +1,94 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * This is PropertyTypeTest class. It checks that a Residence, Commercial or Retail made with the type String of
+ * another subtype is still made, and is indexed and queried as its own subtype by every agency.
+ *
+ * @author Amir Armion
+ * @version V.01
+ */
+public class PropertyTypeTest
+{
+    @Test
+    public void subtypeResolvesItsOwnType()
+    {
+        assertEquals(PropertyType.RESIDENCE, residence().getPropertyType());
+        assertEquals(PropertyType.COMMERCIAL, commercial().getPropertyType());
+        assertEquals(PropertyType.RETAIL, retail().getPropertyType());
+        assertEquals(PropertyReader.RETAIL, residence().getType());
+    }
+
+    @Test
+    public void agencyQueriesTheSubtype()
+    {
+        checkQueries(new Agency("Test"));
+    }
+
+    @Test
+    public void concurrentAgencyQueriesTheSubtype()
+    {
+        checkQueries(new ConcurrentAgency("Test"));
+    }
+
+    @Test
+    public void columnarAgencyQueriesTheSubtype()
+    {
+        checkQueries(new ColumnarAgency("Test"));
+    }
+
+    /*
+     * Adds the three properties with the type Strings of other subtypes, and checks the queries of each subtype.
+     */
+    private static void checkQueries(final Agency agency)
+    {
+        agency.addProperty(residence());
+        agency.addProperty(commercial());
+        agency.addProperty(retail());
+
+        assertEquals("h1", agency.getPropertiesOfType(PropertyReader.RESIDENCE).get(0).getPropertyId());
+        assertEquals("c1", agency.getPropertiesOfType(PropertyReader.COMMERCIAL).get(0).getPropertyId());
+        assertEquals("s1", agency.getPropertiesOfType(PropertyReader.RETAIL).get(0).getPropertyId());
+        assertEquals(1, agency.getPropertiesOfType(PropertyReader.RESIDENCE).size());
+        assertEquals(1, agency.getPropertiesWithBedrooms(1, 5).size());
+        assertEquals(1, agency.getPropertiesWithSquareFootage(100).size());
+
+        agency.removeProperty("h1");
+
+        assertNull(agency.getPropertiesOfType(PropertyReader.RESIDENCE));
+    }
+
+    /*
+     * Returns a residence with the type String of a retail.
+     */
+    private static Residence residence()
+    {
+        return new Residence(500000, address(), PropertyReader.RETAIL, "h1", 2, true, false);
+    }
+
+    /*
+     * Returns a commercial with the type String of a residence.
+     */
+    private static Commercial commercial()
+    {
+        return new Commercial(900000, address(), PropertyReader.RESIDENCE, "c1", true, false);
+    }
+
+    /*
+     * Returns a retail with the type String of a commercial.
+     */
+    private static Retail retail()
+    {
+        return new Retail(800000, address(), PropertyReader.COMMERCIAL, "s1", 1200, true);
+    }
+
+    /*
+     * Returns an address on elm street.
+     */
+    private static Address address()
+    {
+        return new Address("1", 100, "elm street", "v6a1b1", "vancouver");
+    }
+}